@@ -3,14 +3,16 @@ package com.rewardplus.loyalty.config;
 import org.modelmapper.ModelMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * Application-wide configuration class.
- * Configures ModelMapper, CORS, and other application settings.
+ * Configures ModelMapper, CORS, scheduling, and other application settings.
  */
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
     /**
@@ -0,0 +1,32 @@
+package com.rewardplus.loyalty.config;
+
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the node id of the shared code generator.
+ * app.ids.node-id (0-1023) must be set to a value unique per replica, e.g. the StatefulSet
+ * pod ordinal; startup fails without it, since two replicas guessing the same id would
+ * issue duplicate codes.
+ */
+@Configuration
+@Slf4j
+public class IdGeneratorConfig {
+
+    @Value("${app.ids.node-id:-1}")
+    private long nodeId;
+
+    @PostConstruct
+    public void configureNodeId() {
+        if (nodeId < 0) {
+            throw new IllegalStateException(
+                "app.ids.node-id is required: set it to a value between 0 and "
+                    + SnowflakeIdGenerator.MAX_NODE_ID + " that is unique per replica");
+        }
+        SnowflakeIdGenerator.configure(nodeId);
+        log.info("Code generator node id: {}", SnowflakeIdGenerator.shared().getNodeId());
+    }
+}
@@ -1,16 +1,33 @@
 package com.rewardplus.loyalty.controller;
 
+import com.rewardplus.loyalty.dto.ActiveCustomersDTO;
+import com.rewardplus.loyalty.dto.ActivityRollupDTO;
+import com.rewardplus.loyalty.dto.AmountPercentilesDTO;
 import com.rewardplus.loyalty.dto.ApiResponse;
+import com.rewardplus.loyalty.dto.TopSpenderDTO;
+import com.rewardplus.loyalty.dto.TransactionScanResultDTO;
+import com.rewardplus.loyalty.entity.ActivityRollup;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.service.ActiveCustomerService;
 import com.rewardplus.loyalty.service.AnalyticsService;
+import com.rewardplus.loyalty.service.TopSpenderTracker;
+import com.rewardplus.loyalty.service.TransactionAmountDigestService;
+import com.rewardplus.loyalty.service.TransactionScanQuery;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * REST Controller for Analytics and Reporting.
@@ -69,6 +86,90 @@ public class AnalyticsController {
         return ResponseEntity.ok(ApiResponse.success(stats));
     }
 
+    @GetMapping("/rollups")
+    @Operation(summary = "Get activity rollup", description = "Get transaction, redemption or enrollment totals over a time range, optionally per store and as an hourly or daily series")
+    public ResponseEntity<ApiResponse<ActivityRollupDTO>> getActivityRollup(
+            @RequestParam ActivityRollup.Activity activity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String storeCode,
+            @RequestParam(required = false) ActivityRollup.Granularity interval) {
+        ActivityRollupDTO rollup = analyticsService.getActivityRollup(activity, from, to, storeCode, interval);
+        return ResponseEntity.ok(ApiResponse.success(rollup));
+    }
+
+    @GetMapping("/sales/amount-percentiles")
+    @Operation(summary = "Get purchase amount percentiles", description = "Get basket size percentiles (default p50, p90, p99) over a range of days, optionally for one store or category and broken down by store, category or day")
+    public ResponseEntity<ApiResponse<AmountPercentilesDTO>> getAmountPercentiles(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String storeCode,
+            @RequestParam(required = false) String productCategory,
+            @RequestParam(required = false) TransactionAmountDigestService.GroupBy groupBy,
+            @RequestParam(required = false) List<Double> quantiles) {
+        AmountPercentilesDTO percentiles = analyticsService.getAmountPercentiles(from, to, storeCode,
+            productCategory, groupBy, quantiles);
+        return ResponseEntity.ok(ApiResponse.success(percentiles));
+    }
+
+    @GetMapping("/active-customers")
+    @Operation(summary = "Get active customers", description = "Get estimated distinct customers with a transaction or redemption over the day, week or month ending on a date, overall, per store and per tier")
+    public ResponseEntity<ApiResponse<ActiveCustomersDTO>> getActiveCustomers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "DAY") ActiveCustomerService.Window window) {
+        ActiveCustomersDTO activeCustomers = analyticsService.getActiveCustomers(date, window);
+        return ResponseEntity.ok(ApiResponse.success(activeCustomers));
+    }
+
+    @GetMapping("/top-spenders")
+    @Operation(summary = "Get top spenders", description = "Get the heaviest spenders of all time or over the rolling window")
+    public ResponseEntity<ApiResponse<List<TopSpenderDTO>>> getTopSpenders(
+            @RequestParam(defaultValue = "ALL_TIME") TopSpenderTracker.Window window,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<TopSpenderDTO> spenders = analyticsService.getTopSpenders(window, limit);
+        return ResponseEntity.ok(ApiResponse.success(spenders));
+    }
+
+    @GetMapping("/transactions/scan")
+    @Operation(summary = "Scan transactions", description = "Filter and group transactions over the in-memory columnar snapshot, by type, status, store, cashier, product category, payment method, amount range or day")
+    public ResponseEntity<ApiResponse<TransactionScanResultDTO>> scanTransactions(
+            @RequestParam(required = false) TransactionScanQuery.Dimension groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Set<Transaction.TransactionType> type,
+            @RequestParam(required = false) Set<Transaction.TransactionStatus> status,
+            @RequestParam(required = false) Set<String> storeCode,
+            @RequestParam(required = false) Set<String> cashierCode,
+            @RequestParam(required = false) Set<String> productCategory,
+            @RequestParam(required = false) Set<String> paymentMethod,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) BigDecimal amountBucket) {
+        TransactionScanQuery query = TransactionScanQuery.builder()
+            .groupBy(groupBy)
+            .from(from)
+            .to(to)
+            .types(type)
+            .statuses(status)
+            .storeCodes(storeCode)
+            .cashierCodes(cashierCode)
+            .productCategories(productCategory)
+            .paymentMethods(paymentMethod)
+            .minAmount(minAmount)
+            .maxAmount(maxAmount)
+            .amountBucket(amountBucket)
+            .build();
+        TransactionScanResultDTO result = analyticsService.scanTransactions(query);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @PostMapping("/cache/refresh")
+    @Operation(summary = "Refresh cached reports", description = "Drop the cached analytics reports so the next request for each one is computed from the database")
+    public ResponseEntity<ApiResponse<Void>> refreshReports() {
+        analyticsService.refreshReports();
+        return ResponseEntity.ok(ApiResponse.success("Analytics reports will be recomputed on next request"));
+    }
+
     @GetMapping("/tiers")
     @Operation(summary = "Get tier distribution", description = "Get customer tier distribution data")
     public ResponseEntity<ApiResponse<Map<String, Long>>> getTierDistribution() {
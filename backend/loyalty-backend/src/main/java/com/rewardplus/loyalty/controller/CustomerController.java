@@ -2,10 +2,17 @@ package com.rewardplus.loyalty.controller;
 
 import com.rewardplus.loyalty.dto.ApiResponse;
 import com.rewardplus.loyalty.dto.CustomerDTO;
+import com.rewardplus.loyalty.dto.CustomerEnrollmentResultDTO;
 import com.rewardplus.loyalty.dto.LoyaltyPointsDTO;
+import com.rewardplus.loyalty.dto.PointsBalanceAsOfDTO;
+import com.rewardplus.loyalty.dto.PointsLedgerEntryDTO;
 import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.service.CustomerEnrollmentService;
 import com.rewardplus.loyalty.service.CustomerService;
+import com.rewardplus.loyalty.service.ExportService;
 import com.rewardplus.loyalty.service.LoyaltyPointsService;
+import com.rewardplus.loyalty.service.PointsLedgerService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -15,10 +22,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -34,7 +49,10 @@ import java.util.List;
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerEnrollmentService customerEnrollmentService;
     private final LoyaltyPointsService loyaltyPointsService;
+    private final PointsLedgerService pointsLedgerService;
+    private final ExportService exportService;
 
     /**
      * Enroll a new customer in the loyalty program.
@@ -50,6 +68,42 @@ public class CustomerController {
             .body(ApiResponse.success(enrolledCustomer, "Customer enrolled successfully with welcome bonus"));
     }
 
+    /**
+     * Enroll customers in bulk.
+     * POST /api/v1/customers/batch
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "Enroll customers in bulk", description = "Enroll a batch of customers with welcome bonus points, with per-record results")
+    public ResponseEntity<ApiResponse<CustomerEnrollmentResultDTO>> enrollCustomersBatch(
+            @RequestBody List<CustomerDTO> customerDTOs) {
+        log.info("Bulk enrollment request received for {} customers", customerDTOs.size());
+        CustomerEnrollmentResultDTO result = customerEnrollmentService.enrollCustomers(customerDTOs);
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .body(ApiResponse.success(result, result.getSucceeded() + " of " +
+                result.getTotalRows() + " customers enrolled"));
+    }
+
+    /**
+     * Import customers from a CSV file.
+     * POST /api/v1/customers/import
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Import customers from CSV", description = "Enroll the customers in a UTF-8 CSV file with a header row (firstName, lastName, email, dateOfBirth and optional profile columns), with per-record results")
+    public ResponseEntity<ApiResponse<CustomerEnrollmentResultDTO>> importCustomers(
+            @RequestParam("file") MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            throw new BadRequestException("Import file is empty", "EMPTY_IMPORT");
+        }
+        log.info("Customer import received: {} ({} bytes)", file.getOriginalFilename(), file.getSize());
+        CustomerEnrollmentResultDTO result;
+        try (InputStream csv = file.getInputStream()) {
+            result = customerEnrollmentService.importCustomers(csv);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .body(ApiResponse.success(result, result.getSucceeded() + " of " +
+                result.getTotalRows() + " customers imported"));
+    }
+
     /**
      * Get customer by ID.
      * GET /api/v1/customers/{id}
@@ -90,13 +144,21 @@ public class CustomerController {
      * GET /api/v1/customers
      */
     @GetMapping
-    @Operation(summary = "Get all customers", description = "Retrieve all customers with pagination support")
+    @Operation(summary = "Get all customers", description = "Retrieve all customers with pagination support. "
+        + "Pass cursor (empty for the first page) to page by keyset instead of page number")
     public ResponseEntity<ApiResponse<List<CustomerDTO>>> getAllCustomers(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDir) {
-        
+            @RequestParam(defaultValue = "DESC") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        if (cursor != null) {
+            Sort.Direction direction = sortDir.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
+            return ResponseEntity.ok(ApiResponse.cursorPaginated(
+                customerService.getCustomersPage(cursor, size, sortBy, direction, includeTotal), size));
+        }
+
         Sort sort = sortDir.equalsIgnoreCase("ASC") ? 
             Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         Page<CustomerDTO> customers = customerService.getAllCustomers(
@@ -105,6 +167,23 @@ public class CustomerController {
             customers.getContent(), page, size, customers.getTotalElements()));
     }
 
+    /**
+     * Export customers as NDJSON or CSV.
+     * GET /api/v1/customers/export
+     */
+    @GetMapping("/export")
+    @Operation(summary = "Export customers", description = "Stream all customers, optionally filtered by status and tier, "
+        + "as NDJSON or CSV; gzipped when the client accepts it")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(required = false) Customer.CustomerStatus status,
+            @RequestParam(required = false) Customer.CustomerTier tier,
+            @RequestParam(defaultValue = "NDJSON") ExportService.Format format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = ExportResponses.acceptsGzip(acceptEncoding);
+        return ExportResponses.attachment(exportService.exportCustomers(status, tier, format, gzip),
+            "customers", format, gzip);
+    }
+
     /**
      * Get customers by status.
      * GET /api/v1/customers/status/{status}
@@ -134,7 +213,7 @@ public class CustomerController {
      * GET /api/v1/customers/search
      */
     @GetMapping("/search")
-    @Operation(summary = "Search customers", description = "Search customers by name, email, or customer code")
+    @Operation(summary = "Search customers", description = "Search customers by name, email, customer code or phone, tolerating typos")
     public ResponseEntity<ApiResponse<List<CustomerDTO>>> searchCustomers(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
@@ -209,6 +288,34 @@ public class CustomerController {
         return ResponseEntity.ok(ApiResponse.success(points));
     }
 
+    /**
+     * Get customer's points ledger.
+     * GET /api/v1/customers/{id}/points/ledger
+     */
+    @GetMapping("/{id}/points/ledger")
+    @Operation(summary = "Get customer points ledger", description = "Retrieve the customer's points ledger entries, newest first")
+    public ResponseEntity<ApiResponse<List<PointsLedgerEntryDTO>>> getCustomerPointsLedger(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        Page<PointsLedgerEntryDTO> entries = pointsLedgerService.getLedger(id, PageRequest.of(page, size));
+        return ResponseEntity.ok(ApiResponse.paginated(
+            entries.getContent(), page, size, entries.getTotalElements()));
+    }
+
+    /**
+     * Get customer's points balance as of a point in time.
+     * GET /api/v1/customers/{id}/points/as-of?at=2024-01-31T23:59:59
+     */
+    @GetMapping("/{id}/points/as-of")
+    @Operation(summary = "Get customer points as of date", description = "Reconstruct the customer's points balance at a point in time from the ledger")
+    public ResponseEntity<ApiResponse<PointsBalanceAsOfDTO>> getCustomerPointsAsOf(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        PointsBalanceAsOfDTO balance = pointsLedgerService.getBalanceAsOf(id, at);
+        return ResponseEntity.ok(ApiResponse.success(balance));
+    }
+
     /**
      * Get customer's points balance by customer code.
      * GET /api/v1/customers/code/{customerCode}/points
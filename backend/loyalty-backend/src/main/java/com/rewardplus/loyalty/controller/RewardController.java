@@ -4,6 +4,7 @@ import com.rewardplus.loyalty.dto.ApiResponse;
 import com.rewardplus.loyalty.dto.RedemptionDTO;
 import com.rewardplus.loyalty.dto.RewardDTO;
 import com.rewardplus.loyalty.entity.Reward;
+import com.rewardplus.loyalty.service.ExportService;
 import com.rewardplus.loyalty.service.RewardService;
 import com.rewardplus.loyalty.service.RedemptionService;
 import com.rewardplus.loyalty.service.CustomerService;
@@ -15,10 +16,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -35,6 +41,7 @@ public class RewardController {
     private final RewardService rewardService;
     private final RedemptionService redemptionService;
     private final CustomerService customerService;
+    private final ExportService exportService;
 
     @PostMapping
     @Operation(summary = "Create reward", description = "Create a new reward in the catalog")
@@ -140,11 +147,20 @@ public class RewardController {
     }
 
     @GetMapping("/redemptions/customer/{customerId}")
-    @Operation(summary = "Get customer redemptions", description = "Retrieve redemption history for a customer")
+    @Operation(summary = "Get customer redemptions", description = "Retrieve redemption history for a customer. "
+        + "Pass cursor (empty for the first page) to page by keyset instead of page number")
     public ResponseEntity<ApiResponse<List<RedemptionDTO>>> getCustomerRedemptions(
             @PathVariable Long customerId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "DESC") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        if (cursor != null) {
+            Sort.Direction direction = sortDir.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
+            return ResponseEntity.ok(ApiResponse.cursorPaginated(redemptionService.getCustomerRedemptionsPage(
+                customerId, cursor, size, direction, includeTotal), size));
+        }
         Page<RedemptionDTO> redemptions = redemptionService.getCustomerRedemptions(
             customerId, PageRequest.of(page, size));
         return ResponseEntity.ok(ApiResponse.paginated(
@@ -159,6 +175,19 @@ public class RewardController {
         return ResponseEntity.ok(ApiResponse.success(redemption));
     }
 
+    @GetMapping("/redemptions/export")
+    @Operation(summary = "Export redemptions", description = "Stream the redemptions within a date range as NDJSON "
+        + "or CSV; gzipped when the client accepts it")
+    public ResponseEntity<StreamingResponseBody> exportRedemptions(
+            @RequestParam @DateTimeFormat LocalDateTime startDate,
+            @RequestParam @DateTimeFormat LocalDateTime endDate,
+            @RequestParam(defaultValue = "NDJSON") ExportService.Format format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = ExportResponses.acceptsGzip(acceptEncoding);
+        return ExportResponses.attachment(exportService.exportRedemptions(startDate, endDate, format, gzip),
+            "redemptions", format, gzip);
+    }
+
     @GetMapping("/redemptions/recent")
     @Operation(summary = "Get recent redemptions", description = "Retrieve most recent redemptions")
     public ResponseEntity<ApiResponse<List<RedemptionDTO>>> getRecentRedemptions(
@@ -1,7 +1,12 @@
 package com.rewardplus.loyalty.controller;
 
 import com.rewardplus.loyalty.dto.ApiResponse;
+import com.rewardplus.loyalty.dto.TransactionBatchResultDTO;
 import com.rewardplus.loyalty.dto.TransactionDTO;
+import com.rewardplus.loyalty.dto.TransactionIngestStatusDTO;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.service.ExportService;
+import com.rewardplus.loyalty.service.TransactionIngestService;
 import com.rewardplus.loyalty.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -13,9 +18,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -30,12 +37,26 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionIngestService transactionIngestService;
+    private final ExportService exportService;
 
     @PostMapping
-    @Operation(summary = "Record transaction", description = "Record a new purchase transaction and earn loyalty points")
-    public ResponseEntity<ApiResponse<TransactionDTO>> recordTransaction(
+    @Operation(summary = "Record transaction", description = "Record a new purchase transaction and earn loyalty points. "
+        + "With ack=async the transaction is journaled and queued, and the 202 response carries a status to poll")
+    public ResponseEntity<ApiResponse<?>> recordTransaction(
             @RequestParam Long customerId,
+            @RequestParam(defaultValue = "sync") String ack,
             @Valid @RequestBody TransactionDTO transactionDTO) {
+        if ("async".equalsIgnoreCase(ack) && transactionIngestService.isEnabled()) {
+            TransactionIngestStatusDTO status = transactionIngestService.enqueue(customerId, transactionDTO);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(status, "Transaction accepted for processing"));
+        }
+        if (!"sync".equalsIgnoreCase(ack) && !"async".equalsIgnoreCase(ack)) {
+            throw new BadRequestException("ack must be 'sync' or 'async'", "INVALID_ACK_MODE");
+        }
+
+        // Lock-step: also used for ack=async while async ingest is disabled (answered with 201, not 202)
         log.info("Recording transaction for customer: {}", customerId);
         TransactionDTO transaction = transactionService.recordTransaction(customerId, transactionDTO);
         return ResponseEntity.status(HttpStatus.CREATED)
@@ -43,6 +64,24 @@ public class TransactionController {
                 transaction.getPointsEarned() + " points earned"));
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Record transactions in bulk", description = "Record a batch of purchase transactions (each carrying its customerId) with per-row results")
+    public ResponseEntity<ApiResponse<TransactionBatchResultDTO>> recordTransactionsBatch(
+            @RequestBody List<TransactionDTO> transactionDTOs) {
+        log.info("Recording transaction batch of {} rows", transactionDTOs.size());
+        TransactionBatchResultDTO result = transactionService.recordTransactionsBatch(transactionDTOs);
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .body(ApiResponse.success(result, result.getSucceeded() + " of " +
+                result.getTotalRows() + " transactions recorded"));
+    }
+
+    @GetMapping("/ingest/{transactionCode}")
+    @Operation(summary = "Get async ingest status", description = "Poll the processing status of a transaction submitted with ack=async")
+    public ResponseEntity<ApiResponse<TransactionIngestStatusDTO>> getIngestStatus(
+            @PathVariable String transactionCode) {
+        return ResponseEntity.ok(ApiResponse.success(transactionIngestService.getStatus(transactionCode)));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get transaction by ID", description = "Retrieve transaction details by ID")
     public ResponseEntity<ApiResponse<TransactionDTO>> getTransactionById(@PathVariable Long id) {
@@ -59,13 +98,21 @@ public class TransactionController {
     }
 
     @GetMapping("/customer/{customerId}")
-    @Operation(summary = "Get customer transactions", description = "Retrieve all transactions for a customer")
+    @Operation(summary = "Get customer transactions", description = "Retrieve all transactions for a customer. "
+        + "Pass cursor (empty for the first page) to page by keyset instead of page number")
     public ResponseEntity<ApiResponse<List<TransactionDTO>>> getCustomerTransactions(
             @PathVariable Long customerId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "transactionDate") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDir) {
+            @RequestParam(defaultValue = "DESC") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        if (cursor != null) {
+            Sort.Direction direction = sortDir.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
+            return ResponseEntity.ok(ApiResponse.cursorPaginated(transactionService.getCustomerTransactionsPage(
+                customerId, cursor, size, sortBy, direction, includeTotal), size));
+        }
         Sort sort = sortDir.equalsIgnoreCase("ASC") ? 
             Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         Page<TransactionDTO> transactions = transactionService.getCustomerTransactions(
@@ -91,6 +138,19 @@ public class TransactionController {
         return ResponseEntity.ok(ApiResponse.success(transactions));
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "Export transactions", description = "Stream the transactions within a date range as NDJSON "
+        + "or CSV; gzipped when the client accepts it")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam @DateTimeFormat LocalDateTime startDate,
+            @RequestParam @DateTimeFormat LocalDateTime endDate,
+            @RequestParam(defaultValue = "NDJSON") ExportService.Format format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = ExportResponses.acceptsGzip(acceptEncoding);
+        return ExportResponses.attachment(exportService.exportTransactions(startDate, endDate, format, gzip),
+            "transactions", format, gzip);
+    }
+
     @GetMapping("/customer/{customerId}/count")
     @Operation(summary = "Get transaction count", description = "Get total number of transactions for a customer")
     public ResponseEntity<ApiResponse<Long>> getCustomerTransactionCount(@PathVariable Long customerId) {
@@ -0,0 +1,29 @@
+package com.rewardplus.loyalty.dto;
+
+import com.rewardplus.loyalty.service.ActiveCustomerService;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Distinct customers with a transaction or redemption over a window of days, overall, per store
+ * and per tier. Counts are HyperLogLog estimates within about relativeError of the true count.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActiveCustomersDTO {
+
+    private ActiveCustomerService.Window window;
+    private LocalDate from;
+    private LocalDate to;
+    private long activeCustomers;
+    private Map<String, Long> byStore;
+    private Map<String, Long> byTier;
+    private double relativeError;
+}
@@ -0,0 +1,53 @@
+package com.rewardplus.loyalty.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.rewardplus.loyalty.entity.ActivityRollup;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Activity totals over a time range, merged from hourly and daily rollup buckets.
+ * Amount is the net amount of transactions; points are the points spent on redemptions.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ActivityRollupDTO {
+
+    private ActivityRollup.Activity activity;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String storeCode;
+
+    private long count;
+    private BigDecimal amount;
+    private long points;
+
+    private Map<String, Long> countByStore;
+    private Map<String, Long> countByCategory;
+    private Map<String, Long> countByTier;
+
+    // Set when an interval is requested
+    private ActivityRollup.Granularity interval;
+    private List<Bucket> series;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        private LocalDateTime bucketStart;
+        private long count;
+        private BigDecimal amount;
+        private long points;
+    }
+}
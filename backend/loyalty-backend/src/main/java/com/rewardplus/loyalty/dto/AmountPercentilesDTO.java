@@ -0,0 +1,43 @@
+package com.rewardplus.loyalty.dto;
+
+import com.rewardplus.loyalty.service.TransactionAmountDigestService;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Percentiles of completed purchase amounts over a range of days, overall and optionally per
+ * store, category or day. Percentiles are t-digest estimates; min and max are exact.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AmountPercentilesDTO {
+
+    private LocalDate from;
+    private LocalDate to;
+    private String storeCode;
+    private String productCategory;
+    private TransactionAmountDigestService.GroupBy groupBy;
+    private Distribution overall;
+    private List<Distribution> groups;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Distribution {
+        private String key;
+        private long count;
+        private BigDecimal min;
+        private BigDecimal max;
+        private Map<String, BigDecimal> percentiles;
+    }
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Generic API response wrapper for consistent response format.
@@ -24,6 +25,7 @@ public class ApiResponse<T> {
     private ErrorDetails error;
     private LocalDateTime timestamp;
     private PaginationInfo pagination;
+    private CursorInfo cursor;
 
     /**
      * Create a successful response with data.
@@ -105,6 +107,23 @@ public class ApiResponse<T> {
             .build();
     }
 
+    /**
+     * Create a keyset-paginated response.
+     */
+    public static <T> ApiResponse<List<T>> cursorPaginated(CursorPage<T> page, int size) {
+        return ApiResponse.<List<T>>builder()
+            .success(true)
+            .data(page.getContent())
+            .cursor(CursorInfo.builder()
+                .size(size)
+                .nextCursor(page.getNextCursor())
+                .hasNext(page.getNextCursor() != null)
+                .totalElements(page.getTotalElements())
+                .build())
+            .timestamp(LocalDateTime.now())
+            .build();
+    }
+
     /**
      * Error details embedded object.
      */
@@ -145,5 +164,20 @@ public class ApiResponse<T> {
                 .build();
         }
     }
-}
 
+    /**
+     * Keyset pagination information. Pass nextCursor back as the cursor parameter to read
+     * the following page.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class CursorInfo {
+        private int size;
+        private String nextCursor;
+        private boolean hasNext;
+        private Long totalElements;
+    }
+}
@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
  * Data Transfer Object for Customer entity.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class CustomerDTO {
@@ -0,0 +1,46 @@
+package com.rewardplus.loyalty.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a bulk customer enrollment or import, with one entry per submitted record.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerEnrollmentResultDTO {
+
+    private int totalRows;
+    private int succeeded;
+    private int failed;
+    private long totalBonusPoints;
+    private long elapsedMillis;
+
+    private List<RowResult> results;
+
+    /**
+     * Outcome of a single record, in submission order. For file imports the index is the
+     * zero-based data row, not counting the header.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RowResult {
+        private int index;
+        private boolean success;
+        private String email;
+        private Long customerId;
+        private String customerCode;
+        private String errorCode;
+        private String message;
+    }
+}
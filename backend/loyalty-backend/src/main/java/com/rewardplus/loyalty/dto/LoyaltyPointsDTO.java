@@ -12,7 +12,7 @@ import java.time.LocalDateTime;
  * Data Transfer Object for LoyaltyPoints entity.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class LoyaltyPointsDTO {
@@ -0,0 +1,28 @@
+package com.rewardplus.loyalty.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Points balance reconstructed from the ledger for a point in time.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsBalanceAsOfDTO {
+
+    private Long customerId;
+    private LocalDateTime asOf;
+    private Long balance;
+
+    // Snapshot the balance was built from, if any, and the ledger delta applied on top
+    private LocalDate snapshotDate;
+    private Long snapshotBalance;
+    private Long pointsSinceSnapshot;
+}
@@ -0,0 +1,28 @@
+package com.rewardplus.loyalty.dto;
+
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object for PointsLedgerEntry entity.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsLedgerEntryDTO {
+
+    private Long id;
+    private Long customerId;
+    private PointsLedgerEntry.EntryType entryType;
+    private Long points;
+    private Long transactionId;
+    private Long redemptionId;
+    private String reason;
+    private LocalDateTime createdAt;
+}
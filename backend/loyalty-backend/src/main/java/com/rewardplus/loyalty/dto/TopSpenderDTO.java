@@ -0,0 +1,24 @@
+package com.rewardplus.loyalty.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * A customer among the heaviest spenders, as tracked by the streaming top-K sketch.
+ * The true total lies between totalSpent - maxOverestimate and totalSpent.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopSpenderDTO {
+
+    private Long customerId;
+    private String customerName;
+    private BigDecimal totalSpent;
+    private BigDecimal maxOverestimate;
+}
@@ -0,0 +1,46 @@
+package com.rewardplus.loyalty.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a batch transaction ingest, with one entry per submitted row.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchResultDTO {
+
+    private int totalRows;
+    private int succeeded;
+    private int failed;
+    private long totalPointsEarned;
+    private long elapsedMillis;
+
+    private List<RowResult> results;
+
+    /**
+     * Outcome of a single row in the batch, in submission order.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RowResult {
+        private int index;
+        private boolean success;
+        private String transactionCode;
+        private Long transactionId;
+        private Long customerId;
+        private Long pointsEarned;
+        private String errorCode;
+        private String message;
+    }
+}
@@ -0,0 +1,39 @@
+package com.rewardplus.loyalty.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Processing status of a transaction submitted for asynchronous ingest.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionIngestStatusDTO {
+
+    private String transactionCode;
+    private Long customerId;
+    private State state;
+
+    private LocalDateTime acceptedAt;
+    private LocalDateTime completedAt;
+
+    // Set once the transaction is recorded
+    private Long transactionId;
+    private Long pointsEarned;
+
+    // Set when the transaction is rejected
+    private String errorCode;
+    private String message;
+
+    public enum State {
+        QUEUED, PROCESSING, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,42 @@
+package com.rewardplus.loyalty.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Grouped totals from a scan of the columnar transaction snapshot.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionScanResultDTO {
+
+    private String groupBy;
+    private long rowsScanned;
+    private long matchedRows;
+    private long scanMicros;
+    // Last refresh of the snapshot the scan ran against
+    private LocalDateTime snapshotAsOf;
+    private List<Group> groups;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Group {
+
+        private String key;
+        private long count;
+        private BigDecimal amount;
+        private BigDecimal netAmount;
+    }
+}
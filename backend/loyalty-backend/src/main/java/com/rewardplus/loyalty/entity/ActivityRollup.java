@@ -0,0 +1,87 @@
+package com.rewardplus.loyalty.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * ActivityRollup entity holding the totals of one kind of activity in an hourly or
+ * daily bucket, per store, category and customer tier. The category is the transaction
+ * type for transactions and the channel for redemptions; dimensions that do not apply
+ * are stored as an empty string so every bucket has a unique key.
+ */
+@Entity
+@Table(name = "activity_rollups",
+    uniqueConstraints = @UniqueConstraint(name = "uk_rollup_bucket",
+        columnNames = {"granularity", "bucket_start", "activity", "store_code", "category", "tier"}),
+    indexes = @Index(name = "idx_rollup_range", columnList = "granularity, activity, bucket_start"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "activity_rollup_ids")
+    @TableGenerator(name = "activity_rollup_ids", table = "id_generators",
+        pkColumnName = "gen_name", valueColumnName = "next_val",
+        pkColumnValue = "activity_rollups", allocationSize = 500)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Activity activity;
+
+    @Column(name = "store_code", nullable = false, length = 50)
+    @Builder.Default
+    private String storeCode = "";
+
+    @Column(nullable = false, length = 30)
+    @Builder.Default
+    private String category = "";
+
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String tier = "";
+
+    @Column(name = "event_count", nullable = false)
+    @Builder.Default
+    private Long eventCount = 0L;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Builder.Default
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long points = 0L;
+
+    /**
+     * Bucket size.
+     */
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    /**
+     * Kind of activity counted.
+     */
+    public enum Activity {
+        TRANSACTION,
+        REDEMPTION,
+        ENROLLMENT
+    }
+}
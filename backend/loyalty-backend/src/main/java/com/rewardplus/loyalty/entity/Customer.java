@@ -1,5 +1,6 @@
 package com.rewardplus.loyalty.entity;
 
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -11,7 +12,6 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Customer entity representing a loyalty program member.
@@ -22,11 +22,17 @@ import java.util.Random;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "customers")
+@Table(name = "customers", indexes = {
+    @Index(name = "idx_customer_updated", columnList = "updated_at, id"),
+    @Index(name = "idx_customer_created", columnList = "created_at, id")
+})
 public class Customer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "customer_ids")
+    @TableGenerator(name = "customer_ids", table = "id_generators",
+        pkColumnName = "gen_name", valueColumnName = "next_val",
+        pkColumnValue = "customers", allocationSize = 500)
     private Long id;
 
     @Column(name = "customer_code", nullable = false, unique = true, length = 50)
@@ -102,9 +108,6 @@ public class Customer {
     @Builder.Default
     private List<Transaction> transactions = new ArrayList<>();
 
-    @OneToOne(mappedBy = "customer", cascade = CascadeType.ALL)
-    private LoyaltyPoints loyaltyPoints;
-
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "customer_rewards",
@@ -146,8 +149,7 @@ public class Customer {
     }
 
     private String generateCustomerCode() {
-        return "CUST" + String.format("%06d", System.currentTimeMillis() % 1000000) + 
-               String.format("%04d", new Random().nextInt(10000));
+        return SnowflakeIdGenerator.next("CUST");
     }
 
     /**
@@ -0,0 +1,54 @@
+package com.rewardplus.loyalty.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * CustomerActivitySketch entity holding the HyperLogLog registers of the customers active
+ * on one day, either at one store or in one tier. Every node merges its sketches into the
+ * same row, so the row covers the whole cluster.
+ */
+@Entity
+@Table(name = "customer_activity_sketches",
+    uniqueConstraints = @UniqueConstraint(name = "uk_activity_sketch",
+        columnNames = {"bucket_date", "dimension", "dimension_value"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerActivitySketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "activity_sketch_ids")
+    @TableGenerator(name = "activity_sketch_ids", table = "id_generators",
+        pkColumnName = "gen_name", valueColumnName = "next_val",
+        pkColumnValue = "customer_activity_sketches", allocationSize = 100)
+    private Long id;
+
+    @Column(name = "bucket_date", nullable = false)
+    private LocalDate bucketDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Dimension dimension;
+
+    @Column(name = "dimension_value", nullable = false, length = 50)
+    @Builder.Default
+    private String dimensionValue = "";
+
+    @Column(nullable = false, length = 4097)
+    private byte[] registers;
+
+    /**
+     * What a sketch is broken down by.
+     */
+    public enum Dimension {
+        STORE,
+        TIER
+    }
+}
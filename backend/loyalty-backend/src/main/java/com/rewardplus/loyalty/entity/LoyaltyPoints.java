@@ -24,7 +24,10 @@ import java.time.LocalDateTime;
 public class LoyaltyPoints {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "loyalty_points_ids")
+    @TableGenerator(name = "loyalty_points_ids", table = "id_generators",
+        pkColumnName = "gen_name", valueColumnName = "next_val",
+        pkColumnValue = "loyalty_points", allocationSize = 500)
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
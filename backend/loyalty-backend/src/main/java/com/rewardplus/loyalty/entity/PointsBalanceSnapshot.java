@@ -0,0 +1,54 @@
+package com.rewardplus.loyalty.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * PointsBalanceSnapshot entity holding a customer's balance at the end of a day.
+ * Written only for days with ledger activity; each snapshot is the previous one
+ * plus that day's entries.
+ */
+@Entity
+@Table(name = "points_balance_snapshots",
+    uniqueConstraints = @UniqueConstraint(name = "uk_snapshot_customer_date", columnNames = {"customer_id", "snapshot_date"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsBalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "points_snapshot_ids")
+    @TableGenerator(name = "points_snapshot_ids", table = "id_generators",
+        pkColumnName = "gen_name", valueColumnName = "next_val",
+        pkColumnValue = "points_balance_snapshots", allocationSize = 500)
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long balance = 0L;
+
+    @Column(name = "lifetime_earned", nullable = false)
+    @Builder.Default
+    private Long lifetimeEarned = 0L;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,73 @@
+package com.rewardplus.loyalty.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * PointsLedgerEntry entity: one immutable row per change to a customer's points.
+ * Points are signed (credits positive, debits negative), so a balance is the sum of entries.
+ * Ids come from a pooled table generator so entries can be JDBC-batched.
+ */
+@Entity
+@Table(name = "points_ledger", indexes = {
+    @Index(name = "idx_ledger_customer_created", columnList = "customer_id, created_at"),
+    @Index(name = "idx_ledger_created", columnList = "created_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "points_ledger_ids")
+    @TableGenerator(name = "points_ledger_ids", table = "id_generators",
+        pkColumnName = "gen_name", valueColumnName = "next_val",
+        pkColumnValue = "points_ledger", allocationSize = 500)
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false, updatable = false)
+    private Long customerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, updatable = false, length = 20)
+    private EntryType entryType;
+
+    @Column(nullable = false, updatable = false)
+    private Long points;
+
+    @Column(name = "transaction_id", updatable = false)
+    private Long transactionId;
+
+    @Column(name = "redemption_id", updatable = false)
+    private Long redemptionId;
+
+    @Column(length = 255, updatable = false)
+    private String reason;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Ledger entry type enumeration.
+     */
+    public enum EntryType {
+        EARN,
+        REDEEM,
+        ADJUST,
+        EXPIRE,
+        REFUND
+    }
+}
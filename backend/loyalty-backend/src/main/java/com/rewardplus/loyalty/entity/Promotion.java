@@ -1,5 +1,6 @@
 package com.rewardplus.loyalty.entity;
 
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -75,10 +76,17 @@ public class Promotion {
     @Builder.Default
     private Integer usageLimit = 0;
 
-    @Column(name = "usage_count", nullable = false)
+    // Usage counters are only written through PromotionRepository's UPDATE queries,
+    // never by saving the entity, so a stale copy cannot overwrite them
+    @Column(name = "usage_count", nullable = false, updatable = false)
     @Builder.Default
     private Integer usageCount = 0;
 
+    // Uses handed out to application nodes as quota blocks; never exceeds usageLimit
+    @Column(name = "usage_reserved", nullable = false, updatable = false)
+    @Builder.Default
+    private Integer usageReserved = 0;
+
     @Column(name = "usage_limit_per_customer", nullable = false)
     @Builder.Default
     private Integer usageLimitPerCustomer = 1;
@@ -156,7 +164,7 @@ public class Promotion {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
         if (promotionCode == null) {
-            promotionCode = "PROMO" + System.currentTimeMillis();
+            promotionCode = SnowflakeIdGenerator.next("PROMO");
         }
         if (status == null) {
             status = PromotionStatus.DRAFT;
@@ -0,0 +1,42 @@
+package com.rewardplus.loyalty.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * PromotionUsageLease entity recording how much of a promotion's reserved usage quota one
+ * application node holds and has not consumed yet. The node renews its leases while it is
+ * running, so the quota of a node that stopped renewing can be reclaimed.
+ */
+@Entity
+@Table(name = "promotion_usage_leases",
+    uniqueConstraints = @UniqueConstraint(name = "uk_usage_lease", columnNames = {"promotion_id", "node_id"}),
+    indexes = @Index(name = "idx_usage_lease_node", columnList = "node_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionUsageLease {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "promotion_id", nullable = false)
+    private Long promotionId;
+
+    @Column(name = "node_id", nullable = false)
+    private Integer nodeId;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer unused = 0;
+
+    @Column(name = "renewed_at", nullable = false)
+    private LocalDateTime renewedAt;
+}
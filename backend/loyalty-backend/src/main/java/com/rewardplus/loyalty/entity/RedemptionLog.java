@@ -1,5 +1,6 @@
 package com.rewardplus.loyalty.entity;
 
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -15,6 +16,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "redemption_logs", indexes = {
     @Index(name = "idx_redemption_customer", columnList = "customer_id"),
+    @Index(name = "idx_redemption_customer_date", columnList = "customer_id, redemption_date, id"),
     @Index(name = "idx_redemption_reward", columnList = "reward_id"),
     @Index(name = "idx_redemption_date", columnList = "redemption_date"),
     @Index(name = "idx_redemption_code", columnList = "redemption_code")
@@ -26,7 +28,10 @@ import java.time.LocalDateTime;
 public class RedemptionLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "redemption_log_ids")
+    @TableGenerator(name = "redemption_log_ids", table = "id_generators",
+        pkColumnName = "gen_name", valueColumnName = "next_val",
+        pkColumnValue = "redemption_logs", allocationSize = 500)
     private Long id;
 
     @Column(name = "redemption_code", nullable = false, unique = true, length = 50)
@@ -102,7 +107,7 @@ public class RedemptionLog {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
         if (redemptionCode == null) {
-            redemptionCode = "RDM" + System.currentTimeMillis();
+            redemptionCode = SnowflakeIdGenerator.next("RDM");
         }
         if (redemptionDate == null) {
             redemptionDate = LocalDateTime.now();
@@ -1,5 +1,6 @@
 package com.rewardplus.loyalty.entity;
 
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -126,7 +127,7 @@ public class Reward {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
         if (rewardCode == null) {
-            rewardCode = "RWD" + System.currentTimeMillis();
+            rewardCode = SnowflakeIdGenerator.next("RWD");
         }
     }
 
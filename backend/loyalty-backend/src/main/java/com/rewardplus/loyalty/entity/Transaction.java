@@ -1,5 +1,6 @@
 package com.rewardplus.loyalty.entity;
 
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,8 +17,10 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "transactions", indexes = {
     @Index(name = "idx_transaction_customer", columnList = "customer_id"),
+    @Index(name = "idx_transaction_customer_date", columnList = "customer_id, transaction_date, id"),
     @Index(name = "idx_transaction_date", columnList = "transaction_date"),
-    @Index(name = "idx_transaction_code", columnList = "transaction_code")
+    @Index(name = "idx_transaction_code", columnList = "transaction_code"),
+    @Index(name = "idx_transaction_updated", columnList = "updated_at, id")
 })
 @Data
 @Builder
@@ -26,7 +29,10 @@ import java.time.LocalDateTime;
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transaction_ids")
+    @TableGenerator(name = "transaction_ids", table = "id_generators",
+        pkColumnName = "gen_name", valueColumnName = "next_val",
+        pkColumnValue = "transactions", allocationSize = 500)
     private Long id;
 
     @Column(name = "transaction_code", nullable = false, unique = true, length = 50)
@@ -124,7 +130,7 @@ public class Transaction {
     }
 
     private String generateTransactionCode() {
-        return "TXN" + System.currentTimeMillis();
+        return SnowflakeIdGenerator.next("TXN");
     }
 
     /**
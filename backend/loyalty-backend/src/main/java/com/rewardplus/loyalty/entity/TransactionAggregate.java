@@ -0,0 +1,59 @@
+package com.rewardplus.loyalty.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * TransactionAggregate entity holding running totals of transactions for one
+ * transaction type and status. Totals are split over a few stripes so concurrent
+ * purchases do not all update the same row; the total for a type and status is the
+ * sum of its stripes.
+ */
+@Entity
+@Table(name = "transaction_aggregates",
+    uniqueConstraints = @UniqueConstraint(name = "uk_txn_aggregate_key",
+        columnNames = {"stripe", "transaction_type", "status"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Integer stripe;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transaction_type", nullable = false, length = 30)
+    private Transaction.TransactionType transactionType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Transaction.TransactionStatus status;
+
+    @Column(name = "transaction_count", nullable = false)
+    @Builder.Default
+    private Long transactionCount = 0L;
+
+    @Column(name = "total_net_amount", nullable = false, precision = 19, scale = 2)
+    @Builder.Default
+    private BigDecimal totalNetAmount = BigDecimal.ZERO;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
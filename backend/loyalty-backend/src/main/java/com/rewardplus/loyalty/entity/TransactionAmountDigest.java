@@ -0,0 +1,46 @@
+package com.rewardplus.loyalty.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * TransactionAmountDigest entity holding a t-digest of the completed purchase amounts of one
+ * store and product category on one day. Transactions without a store or category are stored
+ * under an empty string.
+ */
+@Entity
+@Table(name = "transaction_amount_digests",
+    uniqueConstraints = @UniqueConstraint(name = "uk_amount_digest",
+        columnNames = {"bucket_date", "store_code", "product_category"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionAmountDigest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "amount_digest_ids")
+    @TableGenerator(name = "amount_digest_ids", table = "id_generators",
+        pkColumnName = "gen_name", valueColumnName = "next_val",
+        pkColumnValue = "transaction_amount_digests", allocationSize = 100)
+    private Long id;
+
+    @Column(name = "bucket_date", nullable = false)
+    private LocalDate bucketDate;
+
+    @Column(name = "store_code", nullable = false, length = 50)
+    @Builder.Default
+    private String storeCode = "";
+
+    @Column(name = "product_category", nullable = false, length = 50)
+    @Builder.Default
+    private String productCategory = "";
+
+    @Column(nullable = false, length = 8192)
+    private byte[] digest;
+}
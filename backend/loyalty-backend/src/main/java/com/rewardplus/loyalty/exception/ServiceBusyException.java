@@ -0,0 +1,19 @@
+package com.rewardplus.loyalty.exception;
+
+/**
+ * Exception thrown when the service is temporarily unable to accept more work.
+ * HTTP Status: 503 Service Unavailable
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,85 @@
+package com.rewardplus.loyalty.repository;
+
+import com.rewardplus.loyalty.entity.ActivityRollup;
+import com.rewardplus.loyalty.entity.ActivityRollup.Activity;
+import com.rewardplus.loyalty.entity.ActivityRollup.Granularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for ActivityRollup operations.
+ */
+@Repository
+public interface ActivityRollupRepository extends JpaRepository<ActivityRollup, Long> {
+
+    /**
+     * Atomically add to one rollup bucket.
+     * Returns the number of rows updated (0 when the bucket does not exist yet).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ActivityRollup r SET r.eventCount = r.eventCount + :count, " +
+           "r.amount = r.amount + :amount, r.points = r.points + :points " +
+           "WHERE r.granularity = :granularity AND r.bucketStart = :bucketStart AND r.activity = :activity " +
+           "AND r.storeCode = :storeCode AND r.category = :category AND r.tier = :tier")
+    int increment(@Param("granularity") Granularity granularity,
+                  @Param("bucketStart") LocalDateTime bucketStart,
+                  @Param("activity") Activity activity,
+                  @Param("storeCode") String storeCode,
+                  @Param("category") String category,
+                  @Param("tier") String tier,
+                  @Param("count") long count,
+                  @Param("amount") BigDecimal amount,
+                  @Param("points") long points);
+
+    /**
+     * Whether a rollup bucket exists.
+     */
+    @Query("SELECT COUNT(r) > 0 FROM ActivityRollup r " +
+           "WHERE r.granularity = :granularity AND r.bucketStart = :bucketStart AND r.activity = :activity " +
+           "AND r.storeCode = :storeCode AND r.category = :category AND r.tier = :tier")
+    boolean bucketExists(@Param("granularity") Granularity granularity,
+                         @Param("bucketStart") LocalDateTime bucketStart,
+                         @Param("activity") Activity activity,
+                         @Param("storeCode") String storeCode,
+                         @Param("category") String category,
+                         @Param("tier") String tier);
+
+    /**
+     * Buckets of one granularity and activity starting within [from, to), optionally for one store.
+     */
+    @Query("SELECT r FROM ActivityRollup r WHERE r.granularity = :granularity AND r.activity = :activity " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "AND (:storeCode IS NULL OR r.storeCode = :storeCode)")
+    List<ActivityRollup> findBuckets(@Param("granularity") Granularity granularity,
+                                     @Param("activity") Activity activity,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to,
+                                     @Param("storeCode") String storeCode);
+
+    /**
+     * Delete every bucket, of both granularities, starting within [from, to).
+     */
+    @Modifying
+    @Query("DELETE FROM ActivityRollup r WHERE r.bucketStart >= :from AND r.bucketStart < :to")
+    int deleteBuckets(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Take a MySQL named lock for this connection, waiting up to the given seconds.
+     * Returns 1 when acquired, 0 on timeout.
+     */
+    @Query(value = "SELECT GET_LOCK(:name, :timeoutSeconds)", nativeQuery = true)
+    Integer acquireNamedLock(@Param("name") String name, @Param("timeoutSeconds") int timeoutSeconds);
+
+    /**
+     * Release a MySQL named lock held by this connection.
+     */
+    @Query(value = "SELECT RELEASE_LOCK(:name)", nativeQuery = true)
+    Integer releaseNamedLock(@Param("name") String name);
+}
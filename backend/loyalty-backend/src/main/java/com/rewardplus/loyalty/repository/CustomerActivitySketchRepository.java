@@ -0,0 +1,41 @@
+package com.rewardplus.loyalty.repository;
+
+import com.rewardplus.loyalty.entity.CustomerActivitySketch;
+import com.rewardplus.loyalty.entity.CustomerActivitySketch.Dimension;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for CustomerActivitySketch operations.
+ */
+@Repository
+public interface CustomerActivitySketchRepository extends JpaRepository<CustomerActivitySketch, Long> {
+
+    /**
+     * Lock one sketch row so its registers can be merged without losing another node's update.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CustomerActivitySketch s WHERE s.bucketDate = :bucketDate " +
+           "AND s.dimension = :dimension AND s.dimensionValue = :dimensionValue")
+    Optional<CustomerActivitySketch> findForUpdate(@Param("bucketDate") LocalDate bucketDate,
+                                                   @Param("dimension") Dimension dimension,
+                                                   @Param("dimensionValue") String dimensionValue);
+
+    boolean existsByBucketDateAndDimensionAndDimensionValue(LocalDate bucketDate, Dimension dimension,
+                                                            String dimensionValue);
+
+    List<CustomerActivitySketch> findByBucketDateBetween(LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM CustomerActivitySketch s WHERE s.bucketDate < :before")
+    int deleteByBucketDateBefore(@Param("before") LocalDate before);
+}
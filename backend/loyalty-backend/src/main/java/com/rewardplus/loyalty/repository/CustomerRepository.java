@@ -3,16 +3,25 @@ package com.rewardplus.loyalty.repository;
 import com.rewardplus.loyalty.entity.Customer;
 import com.rewardplus.loyalty.entity.Customer.CustomerStatus;
 import com.rewardplus.loyalty.entity.Customer.CustomerTier;
+import com.rewardplus.loyalty.repository.projection.CustomerExportRow;
+import com.rewardplus.loyalty.repository.projection.CustomerSearchRow;
+import com.rewardplus.loyalty.repository.projection.GroupCount;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Customer entity operations.
@@ -25,6 +34,27 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
      */
     Optional<Customer> findByEmail(String email);
 
+    /**
+     * Customers after (createdAt, id) in ascending order; keyset pagination over
+     * idx_customer_created.
+     */
+    @Query("SELECT c FROM Customer c " +
+           "WHERE c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :id) " +
+           "ORDER BY c.createdAt, c.id")
+    List<Customer> findPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+
+    /**
+     * Customers before (createdAt, id) in descending order.
+     */
+    @Query("SELECT c FROM Customer c " +
+           "WHERE c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Customer> findPageBefore(@Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
+
     /**
      * Find customer by customer code.
      */
@@ -35,6 +65,12 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
      */
     boolean existsByEmail(String email);
 
+    /**
+     * Which of the given emails already belong to a customer; one set-based lookup for a batch.
+     */
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     /**
      * Check if customer exists by customer code.
      */
@@ -125,6 +161,23 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
      */
     long countByTier(CustomerTier tier);
 
+    /**
+     * Count customers per status in one statement.
+     */
+    @Query("SELECT c.status AS key, COUNT(c) AS count FROM Customer c GROUP BY c.status")
+    List<GroupCount<CustomerStatus>> countGroupedByStatus();
+
+    /**
+     * Count customers per tier in one statement.
+     */
+    @Query("SELECT c.tier AS key, COUNT(c) AS count FROM Customer c GROUP BY c.tier")
+    List<GroupCount<CustomerTier>> countGroupedByTier();
+
+    /**
+     * Count customers enrolled within a date range (inclusive).
+     */
+    long countByEnrollmentDateBetween(LocalDate startDate, LocalDate endDate);
+
     /**
      * Find customers eligible for tier upgrade.
      */
@@ -136,5 +189,42 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
      * Find customers by multiple IDs.
      */
     List<Customer> findByIdIn(List<Long> ids);
-}
 
+    /**
+     * Customers created within [from, to) grouped by hour of day and tier,
+     * as (hour, tier, count) rows. Used to rebuild activity rollups.
+     */
+    @Query("SELECT hour(c.createdAt), c.tier, COUNT(c) FROM Customer c " +
+           "WHERE c.createdAt >= :from AND c.createdAt < :to GROUP BY hour(c.createdAt), c.tier")
+    List<Object[]> summarizeEnrollmentsByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Search columns of customers created or changed since (since, afterId), in
+     * (updatedAt, id) order. Used to build and refresh the customer search index.
+     */
+    @Query("SELECT c.id AS id, c.firstName AS firstName, c.lastName AS lastName, c.email AS email, " +
+           "c.customerCode AS customerCode, c.phone AS phone, c.updatedAt AS updatedAt FROM Customer c " +
+           "WHERE c.updatedAt > :since OR (c.updatedAt = :since AND c.id > :afterId) " +
+           "ORDER BY c.updatedAt, c.id")
+    List<CustomerSearchRow> findSearchRowsChangedSince(@Param("since") LocalDateTime since,
+                                                       @Param("afterId") Long afterId,
+                                                       Pageable pageable);
+
+    /**
+     * Customers with their points balance in id order, optionally filtered by status and tier,
+     * for the bulk export. A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream the
+     * rows one at a time instead of buffering the whole result; the stream must be closed
+     * inside the transaction that opened it.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT c.id AS id, c.customerCode AS customerCode, c.firstName AS firstName, " +
+           "c.lastName AS lastName, c.email AS email, c.phone AS phone, c.status AS status, c.tier AS tier, " +
+           "c.city AS city, c.country AS country, c.enrollmentDate AS enrollmentDate, " +
+           "c.lastActivityDate AS lastActivityDate, lp.currentBalance AS currentPointsBalance, " +
+           "c.createdAt AS createdAt " +
+           "FROM Customer c LEFT JOIN LoyaltyPoints lp ON lp.customer = c " +
+           "WHERE (:status IS NULL OR c.status = :status) AND (:tier IS NULL OR c.tier = :tier) " +
+           "ORDER BY c.id")
+    Stream<CustomerExportRow> streamForExport(@Param("status") CustomerStatus status,
+                                              @Param("tier") CustomerTier tier);
+}
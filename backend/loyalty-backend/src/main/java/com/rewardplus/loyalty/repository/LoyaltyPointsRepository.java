@@ -2,11 +2,16 @@ package com.rewardplus.loyalty.repository;
 
 import com.rewardplus.loyalty.entity.LoyaltyPoints;
 import com.rewardplus.loyalty.entity.LoyaltyPoints.PointsStatus;
+import com.rewardplus.loyalty.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,6 +25,17 @@ public interface LoyaltyPointsRepository extends JpaRepository<LoyaltyPoints, Lo
      */
     Optional<LoyaltyPoints> findByCustomerId(Long customerId);
 
+    /**
+     * Find loyalty points for several customers at once.
+     */
+    List<LoyaltyPoints> findByCustomerIdIn(Collection<Long> customerIds);
+
+    /**
+     * Current balances for several customers as (customerId, currentBalance) rows.
+     */
+    @Query("SELECT lp.customer.id, lp.currentBalance FROM LoyaltyPoints lp WHERE lp.customer.id IN :customerIds")
+    List<Object[]> findBalancesByCustomerIdIn(@Param("customerIds") Collection<Long> customerIds);
+
     /**
      * Check if customer has loyalty points record.
      */
@@ -59,6 +75,60 @@ public interface LoyaltyPointsRepository extends JpaRepository<LoyaltyPoints, Lo
     @Query("SELECT lp FROM LoyaltyPoints lp WHERE lp.currentBalance >= :minBalance")
     java.util.List<LoyaltyPoints> findByMinimumBalance(@Param("minBalance") Long minBalance);
 
+    /**
+     * Atomically credit earned points to a customer's account.
+     * Returns the number of rows updated (0 when the customer has no account).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE LoyaltyPoints lp SET lp.pointsEarned = lp.pointsEarned + :points, " +
+           "lp.currentBalance = lp.currentBalance + :points, " +
+           "lp.lifetimePoints = lp.lifetimePoints + :points, " +
+           "lp.transaction = :transaction, lp.lastEarnedDate = :now, lp.updatedAt = :now " +
+           "WHERE lp.customer.id = :customerId")
+    int creditPoints(@Param("customerId") Long customerId,
+                     @Param("points") Long points,
+                     @Param("transaction") Transaction transaction,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically redeem points, only if the balance covers them.
+     * Returns the number of rows updated (0 when the balance is too low or there is no account).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE LoyaltyPoints lp SET lp.pointsRedeemed = lp.pointsRedeemed + :points, " +
+           "lp.currentBalance = lp.currentBalance - :points, " +
+           "lp.lastRedeemedDate = :now, lp.updatedAt = :now " +
+           "WHERE lp.customer.id = :customerId AND lp.currentBalance >= :points")
+    int debitPoints(@Param("customerId") Long customerId,
+                    @Param("points") Long points,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically return previously redeemed points to the balance.
+     * Returns the number of rows updated (0 when the customer has no account).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE LoyaltyPoints lp SET lp.pointsRedeemed = lp.pointsRedeemed - :points, " +
+           "lp.currentBalance = lp.currentBalance + :points, lp.updatedAt = :now " +
+           "WHERE lp.customer.id = :customerId")
+    int refundPoints(@Param("customerId") Long customerId,
+                     @Param("points") Long points,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically adjust the balance by a signed amount, never taking it below zero.
+     * Returns the number of rows updated (0 when the balance is too low or there is no account).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE LoyaltyPoints lp SET lp.pointsAdjusted = lp.pointsAdjusted + :magnitude, " +
+           "lp.currentBalance = lp.currentBalance + :points, " +
+           "lp.lastAdjustedDate = :now, lp.updatedAt = :now " +
+           "WHERE lp.customer.id = :customerId AND lp.currentBalance + :points >= 0")
+    int adjustBalance(@Param("customerId") Long customerId,
+                      @Param("points") Long points,
+                      @Param("magnitude") Long magnitude,
+                      @Param("now") LocalDateTime now);
+
     /**
      * Count active loyalty accounts.
      */
@@ -0,0 +1,45 @@
+package com.rewardplus.loyalty.repository;
+
+import com.rewardplus.loyalty.entity.PointsBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for PointsBalanceSnapshot operations.
+ */
+@Repository
+public interface PointsBalanceSnapshotRepository extends JpaRepository<PointsBalanceSnapshot, Long> {
+
+    /**
+     * Find a customer's latest snapshot taken before the given date.
+     */
+    Optional<PointsBalanceSnapshot> findFirstByCustomerIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(
+        Long customerId, LocalDate date);
+
+    /**
+     * Find the latest snapshot before the given date for each of several customers.
+     */
+    @Query("SELECT s FROM PointsBalanceSnapshot s WHERE s.customerId IN :customerIds " +
+           "AND s.snapshotDate = (SELECT MAX(s2.snapshotDate) FROM PointsBalanceSnapshot s2 " +
+           "WHERE s2.customerId = s.customerId AND s2.snapshotDate < :date)")
+    List<PointsBalanceSnapshot> findLatestBefore(@Param("customerIds") Collection<Long> customerIds,
+                                                 @Param("date") LocalDate date);
+
+    /**
+     * Check whether any snapshot was written for a date.
+     */
+    boolean existsBySnapshotDate(LocalDate snapshotDate);
+
+    /**
+     * Most recent snapshot date across all customers.
+     */
+    @Query("SELECT MAX(s.snapshotDate) FROM PointsBalanceSnapshot s")
+    LocalDate findLatestSnapshotDate();
+}
@@ -0,0 +1,60 @@
+package com.rewardplus.loyalty.repository;
+
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for PointsLedgerEntry operations.
+ * Entries are append-only; there are no update queries here by design.
+ */
+@Repository
+public interface PointsLedgerRepository extends JpaRepository<PointsLedgerEntry, Long> {
+
+    /**
+     * Find ledger entries for a customer, newest first.
+     */
+    @Query("SELECT e FROM PointsLedgerEntry e WHERE e.customerId = :customerId " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    Page<PointsLedgerEntry> findByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    /**
+     * Sum of a customer's entries created in [from, to).
+     */
+    @Query("SELECT COALESCE(SUM(e.points), 0) FROM PointsLedgerEntry e WHERE e.customerId = :customerId " +
+           "AND e.createdAt >= :from AND e.createdAt < :to")
+    Long sumPointsBetween(@Param("customerId") Long customerId,
+                          @Param("from") LocalDateTime from,
+                          @Param("to") LocalDateTime to);
+
+    /**
+     * Sum of a customer's entries created before the given time.
+     */
+    @Query("SELECT COALESCE(SUM(e.points), 0) FROM PointsLedgerEntry e WHERE e.customerId = :customerId " +
+           "AND e.createdAt < :to")
+    Long sumPointsBefore(@Param("customerId") Long customerId, @Param("to") LocalDateTime to);
+
+    /**
+     * Per-customer totals for entries created in [from, to):
+     * customerId, net points, points earned.
+     */
+    @Query("SELECT e.customerId, SUM(e.points), " +
+           "SUM(CASE WHEN e.entryType = com.rewardplus.loyalty.entity.PointsLedgerEntry.EntryType.EARN " +
+           "THEN e.points ELSE 0 END) " +
+           "FROM PointsLedgerEntry e WHERE e.createdAt >= :from AND e.createdAt < :to " +
+           "GROUP BY e.customerId")
+    List<Object[]> sumPointsByCustomerBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Time of the oldest ledger entry.
+     */
+    @Query("SELECT MIN(e.createdAt) FROM PointsLedgerEntry e")
+    LocalDateTime findEarliestEntryTime();
+}
@@ -4,9 +4,13 @@ import com.rewardplus.loyalty.entity.Customer.CustomerTier;
 import com.rewardplus.loyalty.entity.Promotion;
 import com.rewardplus.loyalty.entity.Promotion.PromotionStatus;
 import com.rewardplus.loyalty.entity.Promotion.PromotionType;
+import com.rewardplus.loyalty.repository.projection.GroupCount;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -64,6 +68,56 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
            "AND (p.usageLimit = 0 OR p.usageCount < p.usageLimit)")
     Page<Promotion> findActivePromotions(Pageable pageable);
 
+    /**
+     * Uses of a limited promotion not yet handed out as quota.
+     */
+    @Query("SELECT p.usageLimit - p.usageReserved FROM Promotion p WHERE p.id = :id")
+    Integer findUnreservedUses(@Param("id") Long id);
+
+    /**
+     * Reserve a block of uses if the whole block still fits under the usage limit.
+     * Returns the number of rows updated (0 when it does not fit).
+     */
+    @Modifying
+    @Query("UPDATE Promotion p SET p.usageReserved = p.usageReserved + :uses WHERE p.id = :id " +
+           "AND p.usageReserved + :uses <= p.usageLimit")
+    int reserveUsage(@Param("id") Long id, @Param("uses") int uses);
+
+    /**
+     * Give back reserved uses that were never consumed.
+     */
+    @Modifying
+    @Query("UPDATE Promotion p SET p.usageReserved = p.usageReserved - :uses WHERE p.id = :id " +
+           "AND p.usageReserved >= :uses")
+    int releaseUsage(@Param("id") Long id, @Param("uses") int uses);
+
+    /**
+     * Lock a promotion row so its usage counters can be reconciled.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Promotion p WHERE p.id = :id")
+    Optional<Promotion> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Limited promotions with reserved uses that have not been consumed yet.
+     */
+    @Query("SELECT p.id FROM Promotion p WHERE p.usageLimit > 0 AND p.usageReserved > p.usageCount")
+    List<Long> findIdsWithUnconsumedReservations();
+
+    /**
+     * Overwrite the reserved uses of a promotion; used when reclaiming leaked quota.
+     */
+    @Modifying
+    @Query("UPDATE Promotion p SET p.usageReserved = :uses WHERE p.id = :id")
+    int setReservedUsage(@Param("id") Long id, @Param("uses") int uses);
+
+    /**
+     * Add a (possibly negative) delta of consumed uses to the usage count.
+     */
+    @Modifying
+    @Query("UPDATE Promotion p SET p.usageCount = p.usageCount + :uses WHERE p.id = :id")
+    int addUsage(@Param("id") Long id, @Param("uses") int uses);
+
     /**
      * Find promotions by target tier.
      */
@@ -100,6 +154,12 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
      */
     long countByStatus(PromotionStatus status);
 
+    /**
+     * Count promotions per status in one statement.
+     */
+    @Query("SELECT p.status AS key, COUNT(p) AS count FROM Promotion p GROUP BY p.status")
+    List<GroupCount<PromotionStatus>> countGroupedByStatus();
+
     /**
      * Find promotions expiring soon.
      */
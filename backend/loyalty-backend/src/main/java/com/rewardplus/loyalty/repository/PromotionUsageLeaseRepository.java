@@ -0,0 +1,56 @@
+package com.rewardplus.loyalty.repository;
+
+import com.rewardplus.loyalty.entity.PromotionUsageLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for PromotionUsageLease operations.
+ */
+@Repository
+public interface PromotionUsageLeaseRepository extends JpaRepository<PromotionUsageLease, Long> {
+
+    /**
+     * Leases held by one application node.
+     */
+    List<PromotionUsageLease> findByNodeId(Integer nodeId);
+
+    /**
+     * Add a (possibly negative) number of unused uses to a node's lease and renew it.
+     * Returns the number of rows updated (0 when the node holds no lease on the promotion yet).
+     */
+    @Modifying
+    @Query("UPDATE PromotionUsageLease l SET l.unused = l.unused + :uses, l.renewedAt = :now " +
+           "WHERE l.promotionId = :promotionId AND l.nodeId = :nodeId")
+    int addUnused(@Param("promotionId") Long promotionId,
+                  @Param("nodeId") Integer nodeId,
+                  @Param("uses") int uses,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * Renew every lease of a node. Returns the number of leases renewed.
+     */
+    @Modifying
+    @Query("UPDATE PromotionUsageLease l SET l.renewedAt = :now WHERE l.nodeId = :nodeId")
+    int renew(@Param("nodeId") Integer nodeId, @Param("now") LocalDateTime now);
+
+    /**
+     * Unused uses held by nodes that renewed their lease since the cutoff.
+     */
+    @Query("SELECT COALESCE(SUM(l.unused), 0) FROM PromotionUsageLease l " +
+           "WHERE l.promotionId = :promotionId AND l.renewedAt >= :cutoff")
+    long sumLiveUnused(@Param("promotionId") Long promotionId, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Drop the leases of nodes that stopped renewing before the cutoff.
+     */
+    @Modifying
+    @Query("DELETE FROM PromotionUsageLease l WHERE l.renewedAt < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -3,16 +3,24 @@ package com.rewardplus.loyalty.repository;
 import com.rewardplus.loyalty.entity.RedemptionLog;
 import com.rewardplus.loyalty.entity.RedemptionLog.RedemptionChannel;
 import com.rewardplus.loyalty.entity.RedemptionLog.RedemptionStatus;
+import com.rewardplus.loyalty.repository.projection.GroupTotal;
+import com.rewardplus.loyalty.repository.projection.RedemptionExportRow;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for RedemptionLog entity operations.
@@ -40,6 +48,31 @@ public interface RedemptionLogRepository extends JpaRepository<RedemptionLog, Lo
      */
     Page<RedemptionLog> findByCustomerId(Long customerId, Pageable pageable);
 
+    /**
+     * A customer's redemptions after (redemptionDate, id) in ascending order; keyset
+     * pagination over idx_redemption_customer_date.
+     */
+    @Query("SELECT r FROM RedemptionLog r JOIN FETCH r.customer JOIN FETCH r.reward " +
+           "WHERE r.customer.id = :customerId AND (r.redemptionDate > :redemptionDate " +
+           "OR (r.redemptionDate = :redemptionDate AND r.id > :id)) " +
+           "ORDER BY r.redemptionDate, r.id")
+    List<RedemptionLog> findCustomerPageAfter(@Param("customerId") Long customerId,
+                                              @Param("redemptionDate") LocalDateTime redemptionDate,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    /**
+     * A customer's redemptions before (redemptionDate, id) in descending order.
+     */
+    @Query("SELECT r FROM RedemptionLog r JOIN FETCH r.customer JOIN FETCH r.reward " +
+           "WHERE r.customer.id = :customerId AND (r.redemptionDate < :redemptionDate " +
+           "OR (r.redemptionDate = :redemptionDate AND r.id < :id)) " +
+           "ORDER BY r.redemptionDate DESC, r.id DESC")
+    List<RedemptionLog> findCustomerPageBefore(@Param("customerId") Long customerId,
+                                               @Param("redemptionDate") LocalDateTime redemptionDate,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
     /**
      * Find all redemptions for a reward.
      */
@@ -67,6 +100,22 @@ public interface RedemptionLogRepository extends JpaRepository<RedemptionLog, Lo
     List<RedemptionLog> findByDateRange(@Param("startDate") LocalDateTime startDate, 
                                          @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * Redemptions within a date range in date order, streamed row by row from MySQL
+     * (fetch size Integer.MIN_VALUE) for the bulk export. Close inside the transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT r.id AS id, r.redemptionCode AS redemptionCode, c.id AS customerId, " +
+           "c.customerCode AS customerCode, w.id AS rewardId, w.rewardCode AS rewardCode, " +
+           "w.name AS rewardName, r.pointsRedeemed AS pointsRedeemed, r.status AS status, " +
+           "r.channel AS channel, r.redemptionDate AS redemptionDate, r.storeCode AS storeCode, " +
+           "r.voucherCode AS voucherCode " +
+           "FROM RedemptionLog r JOIN r.customer c JOIN r.reward w " +
+           "WHERE r.redemptionDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY r.redemptionDate, r.id")
+    Stream<RedemptionExportRow> streamForExport(@Param("startDate") LocalDateTime startDate,
+                                                @Param("endDate") LocalDateTime endDate);
+
     /**
      * Find redemptions for customer within date range.
      */
@@ -99,6 +148,33 @@ public interface RedemptionLogRepository extends JpaRepository<RedemptionLog, Lo
      */
     long countByStatus(RedemptionStatus status);
 
+    /**
+     * Count redemptions and sum their points per status in one statement.
+     */
+    @Query("SELECT r.status AS key, COUNT(r) AS count, COALESCE(SUM(r.pointsRedeemed), 0) AS total " +
+           "FROM RedemptionLog r GROUP BY r.status")
+    List<GroupTotal<RedemptionStatus>> sumPointsGroupedByStatus();
+
+    /**
+     * Count redemptions and sum their points per channel in one statement.
+     */
+    @Query("SELECT r.channel AS key, COUNT(r) AS count, COALESCE(SUM(r.pointsRedeemed), 0) AS total " +
+           "FROM RedemptionLog r GROUP BY r.channel")
+    List<GroupTotal<RedemptionChannel>> sumPointsGroupedByChannel();
+
+    /**
+     * Find the customer a redemption belongs to, without loading the redemption.
+     */
+    @Query("SELECT r.customer.id FROM RedemptionLog r WHERE r.id = :id")
+    Optional<Long> findCustomerIdById(@Param("id") Long id);
+
+    /**
+     * Find a redemption and lock its row until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM RedemptionLog r WHERE r.id = :id")
+    Optional<RedemptionLog> findByIdForUpdate(@Param("id") Long id);
+
     /**
      * Sum of points redeemed by a customer.
      */
@@ -126,5 +202,14 @@ public interface RedemptionLogRepository extends JpaRepository<RedemptionLog, Lo
      * Find redemptions by voucher code.
      */
     Optional<RedemptionLog> findByVoucherCode(String voucherCode);
-}
 
+    /**
+     * Redemptions within [from, to) grouped by hour of day, store, channel and customer tier,
+     * as (hour, storeCode, channel, tier, count, points) rows. Used to rebuild activity rollups.
+     */
+    @Query("SELECT hour(r.redemptionDate), r.storeCode, r.channel, r.customer.tier, " +
+           "COUNT(r), COALESCE(SUM(r.pointsRedeemed), 0) FROM RedemptionLog r " +
+           "WHERE r.redemptionDate >= :from AND r.redemptionDate < :to " +
+           "GROUP BY hour(r.redemptionDate), r.storeCode, r.channel, r.customer.tier")
+    List<Object[]> summarizeByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -4,6 +4,7 @@ import com.rewardplus.loyalty.entity.Reward;
 import com.rewardplus.loyalty.entity.Reward.RewardCategory;
 import com.rewardplus.loyalty.entity.Reward.RewardStatus;
 import com.rewardplus.loyalty.entity.Reward.RewardType;
+import com.rewardplus.loyalty.repository.projection.GroupCount;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -101,6 +102,12 @@ public interface RewardRepository extends JpaRepository<Reward, Long> {
      */
     long countByStatus(RewardStatus status);
 
+    /**
+     * Count rewards per status in one statement.
+     */
+    @Query("SELECT r.status AS key, COUNT(r) AS count FROM Reward r GROUP BY r.status")
+    List<GroupCount<RewardStatus>> countGroupedByStatus();
+
     /**
      * Find rewards expiring soon.
      */
@@ -0,0 +1,57 @@
+package com.rewardplus.loyalty.repository;
+
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+import com.rewardplus.loyalty.entity.TransactionAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for TransactionAggregate operations.
+ */
+@Repository
+public interface TransactionAggregateRepository extends JpaRepository<TransactionAggregate, Long> {
+
+    /**
+     * Atomically add to the running totals of one aggregate row.
+     * Returns the number of rows updated (0 when the row does not exist yet).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE TransactionAggregate a SET a.transactionCount = a.transactionCount + :count, " +
+           "a.totalNetAmount = a.totalNetAmount + :amount, a.updatedAt = :now " +
+           "WHERE a.stripe = :stripe AND a.transactionType = :type AND a.status = :status")
+    int increment(@Param("stripe") int stripe,
+                  @Param("type") TransactionType type,
+                  @Param("status") TransactionStatus status,
+                  @Param("count") long count,
+                  @Param("amount") BigDecimal amount,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * Totals per transaction type and status as (type, status, count, netAmount) rows,
+     * summed over the stripes.
+     */
+    @Query("SELECT a.transactionType, a.status, SUM(a.transactionCount), SUM(a.totalNetAmount) " +
+           "FROM TransactionAggregate a GROUP BY a.transactionType, a.status")
+    List<Object[]> sumByTypeAndStatus();
+
+    /**
+     * Take a MySQL named lock for this connection, waiting up to the given seconds.
+     * Returns 1 when acquired, 0 on timeout.
+     */
+    @Query(value = "SELECT GET_LOCK(:name, :timeoutSeconds)", nativeQuery = true)
+    Integer acquireNamedLock(@Param("name") String name, @Param("timeoutSeconds") int timeoutSeconds);
+
+    /**
+     * Release a MySQL named lock held by this connection.
+     */
+    @Query(value = "SELECT RELEASE_LOCK(:name)", nativeQuery = true)
+    Integer releaseNamedLock(@Param("name") String name);
+}
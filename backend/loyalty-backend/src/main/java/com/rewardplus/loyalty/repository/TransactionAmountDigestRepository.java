@@ -0,0 +1,62 @@
+package com.rewardplus.loyalty.repository;
+
+import com.rewardplus.loyalty.entity.TransactionAmountDigest;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for TransactionAmountDigest operations.
+ */
+@Repository
+public interface TransactionAmountDigestRepository extends JpaRepository<TransactionAmountDigest, Long> {
+
+    /**
+     * Lock one digest row so centroids can be merged into it without losing another node's update.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM TransactionAmountDigest d WHERE d.bucketDate = :bucketDate " +
+           "AND d.storeCode = :storeCode AND d.productCategory = :productCategory")
+    Optional<TransactionAmountDigest> findForUpdate(@Param("bucketDate") LocalDate bucketDate,
+                                                    @Param("storeCode") String storeCode,
+                                                    @Param("productCategory") String productCategory);
+
+    boolean existsByBucketDateAndStoreCodeAndProductCategory(LocalDate bucketDate, String storeCode,
+                                                             String productCategory);
+
+    /**
+     * Digests for days within [from, to], optionally for one store and one category.
+     */
+    @Query("SELECT d FROM TransactionAmountDigest d WHERE d.bucketDate >= :from AND d.bucketDate <= :to " +
+           "AND (:storeCode IS NULL OR d.storeCode = :storeCode) " +
+           "AND (:productCategory IS NULL OR d.productCategory = :productCategory)")
+    List<TransactionAmountDigest> findDigests(@Param("from") LocalDate from,
+                                              @Param("to") LocalDate to,
+                                              @Param("storeCode") String storeCode,
+                                              @Param("productCategory") String productCategory);
+
+    @Modifying
+    @Query("DELETE FROM TransactionAmountDigest d WHERE d.bucketDate = :bucketDate")
+    int deleteByBucketDate(@Param("bucketDate") LocalDate bucketDate);
+
+    /**
+     * Take a MySQL named lock for this connection, waiting up to the given seconds.
+     * Returns 1 when acquired, 0 on timeout.
+     */
+    @Query(value = "SELECT GET_LOCK(:name, :timeoutSeconds)", nativeQuery = true)
+    Integer acquireNamedLock(@Param("name") String name, @Param("timeoutSeconds") int timeoutSeconds);
+
+    /**
+     * Release a MySQL named lock held by this connection.
+     */
+    @Query(value = "SELECT RELEASE_LOCK(:name)", nativeQuery = true)
+    Integer releaseNamedLock(@Param("name") String name);
+}
@@ -3,17 +3,25 @@ package com.rewardplus.loyalty.repository;
 import com.rewardplus.loyalty.entity.Transaction;
 import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
 import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+import com.rewardplus.loyalty.repository.projection.CustomerSpend;
+import com.rewardplus.loyalty.repository.projection.TransactionExportRow;
+import com.rewardplus.loyalty.repository.projection.TransactionRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Transaction entity operations.
@@ -31,6 +39,12 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      */
     boolean existsByTransactionCode(String transactionCode);
 
+    /**
+     * Find which of the given transaction codes are already recorded.
+     */
+    @Query("SELECT t.transactionCode FROM Transaction t WHERE t.transactionCode IN :codes")
+    List<String> findExistingTransactionCodes(@Param("codes") Collection<String> codes);
+
     /**
      * Find all transactions for a customer.
      */
@@ -41,6 +55,31 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      */
     Page<Transaction> findByCustomerId(Long customerId, Pageable pageable);
 
+    /**
+     * A customer's transactions after (transactionDate, id) in ascending order; keyset
+     * pagination over idx_transaction_customer_date.
+     */
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.customer " +
+           "WHERE t.customer.id = :customerId AND (t.transactionDate > :transactionDate " +
+           "OR (t.transactionDate = :transactionDate AND t.id > :id)) " +
+           "ORDER BY t.transactionDate, t.id")
+    List<Transaction> findCustomerPageAfter(@Param("customerId") Long customerId,
+                                            @Param("transactionDate") LocalDateTime transactionDate,
+                                            @Param("id") Long id,
+                                            Pageable pageable);
+
+    /**
+     * A customer's transactions before (transactionDate, id) in descending order.
+     */
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.customer " +
+           "WHERE t.customer.id = :customerId AND (t.transactionDate < :transactionDate " +
+           "OR (t.transactionDate = :transactionDate AND t.id < :id)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findCustomerPageBefore(@Param("customerId") Long customerId,
+                                             @Param("transactionDate") LocalDateTime transactionDate,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
     /**
      * Find transactions by status.
      */
@@ -58,6 +97,23 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findByDateRange(@Param("startDate") LocalDateTime startDate, 
                                        @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * Transactions within a date range in date order, streamed row by row from MySQL
+     * (fetch size Integer.MIN_VALUE) for the bulk export. Close inside the transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT t.id AS id, t.transactionCode AS transactionCode, c.id AS customerId, " +
+           "c.customerCode AS customerCode, t.amount AS amount, t.discountApplied AS discountApplied, " +
+           "t.netAmount AS netAmount, t.transactionDate AS transactionDate, " +
+           "t.transactionType AS transactionType, t.status AS status, t.storeCode AS storeCode, " +
+           "t.productCategory AS productCategory, t.paymentMethod AS paymentMethod, " +
+           "t.receiptNumber AS receiptNumber " +
+           "FROM Transaction t JOIN t.customer c " +
+           "WHERE t.transactionDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY t.transactionDate, t.id")
+    Stream<TransactionExportRow> streamForExport(@Param("startDate") LocalDateTime startDate,
+                                                 @Param("endDate") LocalDateTime endDate);
+
     /**
      * Find transactions for customer within date range.
      */
@@ -129,9 +185,74 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
            "FROM Transaction t GROUP BY t.customer.id ORDER BY totalSpent DESC")
     Page<Object[]> findTopSpendingCustomers(Pageable pageable);
 
+    /**
+     * Top spending customers with their names, largest spend first.
+     */
+    @Query("SELECT c.id AS customerId, c.firstName AS firstName, c.lastName AS lastName, " +
+           "SUM(t.amount) AS totalSpent FROM Transaction t JOIN t.customer c " +
+           "GROUP BY c.id, c.firstName, c.lastName ORDER BY SUM(t.amount) DESC")
+    List<CustomerSpend> findTopSpenders(Pageable pageable);
+
+    /**
+     * Top spending customers over transactions dated before the given time, largest spend first.
+     */
+    @Query("SELECT c.id AS customerId, c.firstName AS firstName, c.lastName AS lastName, " +
+           "SUM(t.amount) AS totalSpent FROM Transaction t JOIN t.customer c " +
+           "WHERE t.transactionDate < :to " +
+           "GROUP BY c.id, c.firstName, c.lastName ORDER BY SUM(t.amount) DESC")
+    List<CustomerSpend> findTopSpendersBefore(@Param("to") LocalDateTime to, Pageable pageable);
+
+    /**
+     * Top spending customers within a date range (start inclusive, end exclusive), largest spend first.
+     */
+    @Query("SELECT c.id AS customerId, c.firstName AS firstName, c.lastName AS lastName, " +
+           "SUM(t.amount) AS totalSpent FROM Transaction t JOIN t.customer c " +
+           "WHERE t.transactionDate >= :from AND t.transactionDate < :to " +
+           "GROUP BY c.id, c.firstName, c.lastName ORDER BY SUM(t.amount) DESC")
+    List<CustomerSpend> findTopSpendersBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                               Pageable pageable);
+
+    /**
+     * Columns of transactions created or changed after a (updatedAt, id) position, in that order.
+     */
+    @Query("SELECT t.id AS id, t.customer.id AS customerId, t.amount AS amount, t.netAmount AS netAmount, " +
+           "t.transactionDate AS transactionDate, t.transactionType AS transactionType, t.status AS status, " +
+           "t.storeCode AS storeCode, t.cashierCode AS cashierCode, t.productCategory AS productCategory, " +
+           "t.paymentMethod AS paymentMethod, t.updatedAt AS updatedAt FROM Transaction t " +
+           "WHERE t.updatedAt > :since OR (t.updatedAt = :since AND t.id > :afterId) " +
+           "ORDER BY t.updatedAt, t.id")
+    List<TransactionRow> findRowsChangedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
     /**
      * Find transactions by customer and status.
      */
     List<Transaction> findByCustomerIdAndStatus(Long customerId, TransactionStatus status);
-}
 
+    /**
+     * Recompute transaction totals from source as (type, status, count, netAmount) rows.
+     * Scans the whole table; used only to rebuild the maintained aggregates.
+     */
+    @Query("SELECT t.transactionType, t.status, COUNT(t), COALESCE(SUM(t.netAmount), 0) " +
+           "FROM Transaction t GROUP BY t.transactionType, t.status")
+    List<Object[]> summarizeByTypeAndStatus();
+
+    /**
+     * Transactions within [from, to) grouped by hour of day, store, type and customer tier,
+     * as (hour, storeCode, type, tier, count, netAmount) rows. Used to rebuild activity rollups.
+     */
+    @Query("SELECT hour(t.transactionDate), t.storeCode, t.transactionType, t.customer.tier, " +
+           "COUNT(t), COALESCE(SUM(t.netAmount), 0) FROM Transaction t " +
+           "WHERE t.transactionDate >= :from AND t.transactionDate < :to " +
+           "GROUP BY hour(t.transactionDate), t.storeCode, t.transactionType, t.customer.tier")
+    List<Object[]> summarizeByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Store, product category and amount of every completed purchase within [from, to).
+     * Used to rebuild amount digests.
+     */
+    @Query("SELECT t.storeCode, t.productCategory, t.amount FROM Transaction t " +
+           "WHERE t.transactionDate >= :from AND t.transactionDate < :to " +
+           "AND t.transactionType = 'PURCHASE' AND t.status = 'COMPLETED'")
+    List<Object[]> findPurchaseAmountsBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
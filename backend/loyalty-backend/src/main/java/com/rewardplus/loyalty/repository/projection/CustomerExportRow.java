@@ -0,0 +1,41 @@
+package com.rewardplus.loyalty.repository.projection;
+
+import com.rewardplus.loyalty.entity.Customer.CustomerStatus;
+import com.rewardplus.loyalty.entity.Customer.CustomerTier;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The customer columns written by the bulk customer export.
+ */
+public interface CustomerExportRow {
+
+    Long getId();
+
+    String getCustomerCode();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getEmail();
+
+    String getPhone();
+
+    CustomerStatus getStatus();
+
+    CustomerTier getTier();
+
+    String getCity();
+
+    String getCountry();
+
+    LocalDate getEnrollmentDate();
+
+    LocalDate getLastActivityDate();
+
+    Long getCurrentPointsBalance();
+
+    LocalDateTime getCreatedAt();
+}
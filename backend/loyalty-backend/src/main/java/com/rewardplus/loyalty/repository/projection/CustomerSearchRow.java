@@ -0,0 +1,23 @@
+package com.rewardplus.loyalty.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * The customer columns kept in the in-memory search index.
+ */
+public interface CustomerSearchRow {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getEmail();
+
+    String getCustomerCode();
+
+    String getPhone();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,17 @@
+package com.rewardplus.loyalty.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * A customer's name and total spend across their transactions.
+ */
+public interface CustomerSpend {
+
+    Long getCustomerId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    BigDecimal getTotalSpent();
+}
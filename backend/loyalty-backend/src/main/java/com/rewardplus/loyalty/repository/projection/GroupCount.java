@@ -0,0 +1,12 @@
+package com.rewardplus.loyalty.repository.projection;
+
+/**
+ * Row count for one value of a grouping dimension.
+ * Queries alias the grouped column as "key" and the count as "count".
+ */
+public interface GroupCount<K> {
+
+    K getKey();
+
+    long getCount();
+}
@@ -0,0 +1,10 @@
+package com.rewardplus.loyalty.repository.projection;
+
+/**
+ * Row count and summed quantity for one value of a grouping dimension.
+ * Queries alias the grouped column as "key", the count as "count" and the sum as "total".
+ */
+public interface GroupTotal<K> extends GroupCount<K> {
+
+    long getTotal();
+}
@@ -0,0 +1,38 @@
+package com.rewardplus.loyalty.repository.projection;
+
+import com.rewardplus.loyalty.entity.RedemptionLog.RedemptionChannel;
+import com.rewardplus.loyalty.entity.RedemptionLog.RedemptionStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * The redemption columns written by the bulk redemption export.
+ */
+public interface RedemptionExportRow {
+
+    Long getId();
+
+    String getRedemptionCode();
+
+    Long getCustomerId();
+
+    String getCustomerCode();
+
+    Long getRewardId();
+
+    String getRewardCode();
+
+    String getRewardName();
+
+    Long getPointsRedeemed();
+
+    RedemptionStatus getStatus();
+
+    RedemptionChannel getChannel();
+
+    LocalDateTime getRedemptionDate();
+
+    String getStoreCode();
+
+    String getVoucherCode();
+}
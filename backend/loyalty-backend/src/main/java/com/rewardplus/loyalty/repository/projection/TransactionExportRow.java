@@ -0,0 +1,41 @@
+package com.rewardplus.loyalty.repository.projection;
+
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The transaction columns written by the bulk transaction export.
+ */
+public interface TransactionExportRow {
+
+    Long getId();
+
+    String getTransactionCode();
+
+    Long getCustomerId();
+
+    String getCustomerCode();
+
+    BigDecimal getAmount();
+
+    BigDecimal getDiscountApplied();
+
+    BigDecimal getNetAmount();
+
+    LocalDateTime getTransactionDate();
+
+    TransactionType getTransactionType();
+
+    TransactionStatus getStatus();
+
+    String getStoreCode();
+
+    String getProductCategory();
+
+    String getPaymentMethod();
+
+    String getReceiptNumber();
+}
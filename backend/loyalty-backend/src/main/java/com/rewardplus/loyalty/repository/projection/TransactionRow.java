@@ -0,0 +1,37 @@
+package com.rewardplus.loyalty.repository.projection;
+
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The transaction columns kept in the columnar analytics snapshot.
+ */
+public interface TransactionRow {
+
+    Long getId();
+
+    Long getCustomerId();
+
+    BigDecimal getAmount();
+
+    BigDecimal getNetAmount();
+
+    LocalDateTime getTransactionDate();
+
+    TransactionType getTransactionType();
+
+    TransactionStatus getStatus();
+
+    String getStoreCode();
+
+    String getCashierCode();
+
+    String getProductCategory();
+
+    String getPaymentMethod();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,344 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.ActiveCustomersDTO;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.CustomerActivitySketch;
+import com.rewardplus.loyalty.entity.CustomerActivitySketch.Dimension;
+import com.rewardplus.loyalty.entity.RedemptionLog;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.repository.CustomerActivitySketchRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Counts distinct active customers (DAU/WAU/MAU) per store and tier with one HyperLogLog
+ * sketch per day and store, and per day and tier, instead of COUNT(DISTINCT customer_id)
+ * over the transactions and redemption_logs tables.
+ *
+ * Committed transactions and redemptions are added to in-memory sketches, which are merged
+ * into their rows on a short interval. Merging takes the larger of each register, so a sketch
+ * can be merged again after a failed or repeated flush without counting anyone twice, and the
+ * rows hold the union of every node's sketches. Queries merge the stored day sketches, which
+ * are cached briefly for recent days and longer for days that can no longer change.
+ *
+ * Rows a flush has not seen before are created ahead of the transaction that locks and merges
+ * them, each in a transaction of its own. Creating one inside it would, on MySQL, wait on the
+ * gap lock its own SELECT ... FOR UPDATE took on the missing row.
+ */
+@Service
+@Slf4j
+public class ActiveCustomerService {
+
+    /**
+     * Days counted back from, and including, the requested date.
+     */
+    public enum Window {
+        DAY(1),
+        WEEK(7),
+        MONTH(30);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+
+        public int getDays() {
+            return days;
+        }
+    }
+
+    // Rows are locked in key order so concurrent flushes from several nodes cannot deadlock
+    private static final Comparator<SketchKey> ROW_ORDER = Comparator.comparing(SketchKey::day)
+        .thenComparing(SketchKey::dimension)
+        .thenComparing(SketchKey::value);
+
+    private final CustomerActivitySketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate requiresNew;
+    private final long recentTtlNanos;
+    private final long closedTtlNanos;
+    private final int maxCachedDays;
+    private final int retentionDays;
+
+    private final Map<SketchKey, PendingSketch> pending = new ConcurrentHashMap<>();
+    private final Map<LocalDate, CachedDay> cachedDays = new ConcurrentHashMap<>();
+    // Rows this node has seen exist, so only new ones are looked up; guarded by flush
+    private final Set<SketchKey> knownRows = new HashSet<>();
+
+    public ActiveCustomerService(CustomerActivitySketchRepository sketchRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.analytics.active-customers.recent-ttl-seconds:30}") long recentTtlSeconds,
+                                 @Value("${app.analytics.active-customers.closed-ttl-seconds:3600}") long closedTtlSeconds,
+                                 @Value("${app.analytics.active-customers.max-cached-days:62}") int maxCachedDays,
+                                 @Value("${app.analytics.active-customers.retention-days:400}") int retentionDays) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.recentTtlNanos = TimeUnit.SECONDS.toNanos(recentTtlSeconds);
+        this.closedTtlNanos = TimeUnit.SECONDS.toNanos(closedTtlSeconds);
+        this.maxCachedDays = maxCachedDays;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Count the transactions' customers as active once the current transaction commits.
+     */
+    public void recordTransactions(Collection<Transaction> transactions) {
+        List<Activity> activity = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            Activity.of(transaction.getCustomer(), transaction.getTransactionDate(), transaction.getStoreCode())
+                .ifPresent(activity::add);
+        }
+        TransactionCallbacks.afterCommit(() -> activity.forEach(this::add));
+    }
+
+    /**
+     * Count the redeeming customer as active once the current transaction commits.
+     */
+    public void recordRedemption(RedemptionLog redemption) {
+        Activity.of(redemption.getCustomer(), redemption.getRedemptionDate(), redemption.getStoreCode())
+            .ifPresent(activity -> TransactionCallbacks.afterCommit(() -> add(activity)));
+    }
+
+    /**
+     * Merge the sketches changed since the last flush into their rows. Sketches that fail to
+     * merge stay marked and are merged again next time; sketches for days before yesterday
+     * are dropped once merged.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.active-customers.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        Map<SketchKey, HyperLogLog> changed = new TreeMap<>(ROW_ORDER);
+        pending.forEach((key, sketch) -> {
+            if (sketch.dirty.getAndSet(false)) {
+                changed.put(key, sketch.snapshot());
+            }
+        });
+
+        if (!changed.isEmpty()) {
+            try {
+                createMissingRows(changed.keySet());
+                transactionTemplate.executeWithoutResult(status -> changed.forEach(this::mergeRow));
+            } catch (RuntimeException e) {
+                // A purge may have deleted rows this node thought existed
+                knownRows.clear();
+                log.warn("Could not flush {} active customer sketches, will retry: {}", changed.size(), e.getMessage());
+                changed.keySet().forEach(key -> pending.get(key).dirty.set(true));
+                return;
+            }
+        }
+
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        for (SketchKey key : List.copyOf(pending.keySet())) {
+            if (key.day().isBefore(yesterday)) {
+                // Atomic with add(), so an id added meanwhile keeps its sketch
+                pending.computeIfPresent(key, (k, sketch) -> sketch.dirty.get() ? sketch : null);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Distinct customers active over the window ending on the given day, overall, per store
+     * and per tier. Activity merged in the last few seconds, or by other nodes since the day
+     * was cached, may be missing.
+     */
+    public ActiveCustomersDTO query(LocalDate date, Window window) {
+        if (window == null) {
+            throw new BadRequestException("Window is required", "INVALID_WINDOW");
+        }
+        LocalDate to = date != null ? date : LocalDate.now();
+        LocalDate from = to.minusDays(window.getDays() - 1L);
+        if (to.isAfter(LocalDate.now())) {
+            throw new BadRequestException("Date cannot be in the future", "INVALID_RANGE");
+        }
+
+        HyperLogLog total = new HyperLogLog();
+        Map<String, HyperLogLog> stores = new HashMap<>();
+        Map<String, HyperLogLog> tiers = new HashMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            cachedDay(day).sketches().forEach((key, sketch) -> {
+                if (key.dimension() == Dimension.TIER) {
+                    // Every activity is counted under a tier, so the tiers' union is the total
+                    total.merge(sketch);
+                    tiers.computeIfAbsent(key.value(), value -> new HyperLogLog()).merge(sketch);
+                } else {
+                    stores.computeIfAbsent(key.value(), value -> new HyperLogLog()).merge(sketch);
+                }
+            });
+        }
+
+        return ActiveCustomersDTO.builder()
+            .window(window)
+            .from(from)
+            .to(to)
+            .activeCustomers(total.estimate())
+            .byStore(estimates(stores))
+            .byTier(estimates(tiers))
+            .relativeError(HyperLogLog.RELATIVE_ERROR)
+            .build();
+    }
+
+    /**
+     * Delete sketches older than the retention period.
+     */
+    @Scheduled(cron = "${app.analytics.active-customers.purge-cron:0 50 3 * * *}")
+    public void purge() {
+        LocalDate before = LocalDate.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> sketchRepository.deleteByBucketDateBefore(before));
+        log.info("Purged {} active customer sketches before {}", deleted, before);
+    }
+
+    private void add(Activity activity) {
+        add(new SketchKey(activity.day(), Dimension.TIER, activity.tier()), activity.customerId());
+        if (!activity.storeCode().isEmpty()) {
+            add(new SketchKey(activity.day(), Dimension.STORE, activity.storeCode()), activity.customerId());
+        }
+    }
+
+    private void add(SketchKey key, long customerId) {
+        pending.compute(key, (k, sketch) -> {
+            PendingSketch target = sketch != null ? sketch : new PendingSketch();
+            target.add(customerId);
+            return target;
+        });
+    }
+
+    private void createMissingRows(Collection<SketchKey> keys) {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        knownRows.removeIf(key -> key.day().isBefore(yesterday));
+        for (SketchKey key : keys) {
+            if (knownRows.contains(key)) {
+                continue;
+            }
+            if (!sketchRepository.existsByBucketDateAndDimensionAndDimensionValue(key.day(), key.dimension(),
+                    key.value())) {
+                createRow(key);
+            }
+            knownRows.add(key);
+        }
+    }
+
+    private void mergeRow(SketchKey key, HyperLogLog sketch) {
+        CustomerActivitySketch row = sketchRepository.findForUpdate(key.day(), key.dimension(), key.value())
+            .orElseThrow(() -> new IllegalStateException("Active customer sketch row missing for " + key));
+        HyperLogLog stored = HyperLogLog.fromBytes(row.getRegisters());
+        if (stored.merge(sketch)) {
+            row.setRegisters(stored.toBytes());
+        }
+    }
+
+    /**
+     * Insert an empty sketch in its own transaction so every node can merge into it.
+     * Another node creating it first is fine.
+     */
+    private void createRow(SketchKey key) {
+        try {
+            requiresNew.executeWithoutResult(status -> sketchRepository.saveAndFlush(CustomerActivitySketch.builder()
+                .bucketDate(key.day())
+                .dimension(key.dimension())
+                .dimensionValue(key.value())
+                .registers(new HyperLogLog().toBytes())
+                .build()));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Active customer sketch {} created concurrently", key);
+        }
+    }
+
+    private CachedDay cachedDay(LocalDate day) {
+        long now = System.nanoTime();
+        CachedDay cached = cachedDays.get(day);
+        if (cached != null && now < cached.expiresAt()) {
+            return cached;
+        }
+
+        Map<SketchKey, HyperLogLog> sketches = new HashMap<>();
+        for (CustomerActivitySketch row : sketchRepository.findByBucketDateBetween(day, day)) {
+            sketches.put(new SketchKey(day, row.getDimension(), row.getDimensionValue()),
+                HyperLogLog.fromBytes(row.getRegisters()));
+        }
+        // Yesterday still receives late flushes just after midnight
+        boolean recent = !day.isBefore(LocalDate.now().minusDays(1));
+        CachedDay loaded = new CachedDay(sketches, now + (recent ? recentTtlNanos : closedTtlNanos));
+        cachedDays.put(day, loaded);
+        while (cachedDays.size() > maxCachedDays) {
+            cachedDays.keySet().stream().min(Comparator.naturalOrder()).ifPresent(cachedDays::remove);
+        }
+        return loaded;
+    }
+
+    private static Map<String, Long> estimates(Map<String, HyperLogLog> sketches) {
+        Map<String, Long> estimates = new TreeMap<>();
+        sketches.forEach((value, sketch) -> {
+            if (!value.isEmpty()) {
+                estimates.put(value, sketch.estimate());
+            }
+        });
+        return estimates;
+    }
+
+    private record SketchKey(LocalDate day, Dimension dimension, String value) {
+    }
+
+    private record CachedDay(Map<SketchKey, HyperLogLog> sketches, long expiresAt) {
+    }
+
+    private record Activity(long customerId, LocalDate day, String storeCode, String tier) {
+
+        static Optional<Activity> of(Customer customer, LocalDateTime at, String storeCode) {
+            if (customer == null || customer.getId() == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new Activity(customer.getId(),
+                (at != null ? at : LocalDateTime.now()).toLocalDate(),
+                storeCode != null ? storeCode : "",
+                customer.getTier() != null ? customer.getTier().name() : ""));
+        }
+    }
+
+    /**
+     * A node's sketch for one row, marked dirty when it may hold ids the row has not seen.
+     */
+    private static final class PendingSketch {
+        private final HyperLogLog sketch = new HyperLogLog();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        synchronized void add(long customerId) {
+            sketch.add(customerId);
+            dirty.set(true);
+        }
+
+        synchronized HyperLogLog snapshot() {
+            return sketch.copy();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Promotion;
+import com.rewardplus.loyalty.repository.PromotionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the in-memory snapshot of active promotions used while recording transactions.
+ * The snapshot is rebuilt when PromotionService changes a promotion, at every day
+ * boundary (promotion start/end dates are day-granular), and on a short reconcile
+ * interval so changes made through another replica are picked up.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivePromotionRegistry {
+
+    private final PromotionRepository promotionRepository;
+
+    private final AtomicReference<ActivePromotionSnapshot> snapshot =
+        new AtomicReference<>(ActivePromotionSnapshot.EMPTY);
+
+    /**
+     * Get the current snapshot, loading it on first use.
+     */
+    public ActivePromotionSnapshot current() {
+        ActivePromotionSnapshot current = snapshot.get();
+        if (current.getVersion() == 0L) {
+            return refresh();
+        }
+        return current;
+    }
+
+    /**
+     * Rebuild the snapshot from the database.
+     * Synchronized so an older load can never replace a newer one.
+     */
+    public synchronized ActivePromotionSnapshot refresh() {
+        List<Promotion> promotions = promotionRepository.findByStatus(Promotion.PromotionStatus.ACTIVE);
+        promotions.sort(Comparator.comparing(Promotion::getId));
+
+        ActivePromotionSnapshot next = new ActivePromotionSnapshot(
+            snapshot.get().getVersion() + 1, promotions, LocalDateTime.now());
+        snapshot.set(next);
+
+        log.debug("Active promotion snapshot v{} loaded with {} promotions", next.getVersion(), next.size());
+        return next;
+    }
+
+    /**
+     * Rebuild the snapshot once the current transaction has committed.
+     */
+    public void refreshAfterCommit() {
+        TransactionCallbacks.afterCommit(this::refresh);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        ActivePromotionSnapshot loaded = refresh();
+        log.info("Loaded {} active promotions into snapshot v{}", loaded.size(), loaded.getVersion());
+    }
+
+    @Scheduled(cron = "${app.promotions.snapshot.boundary-cron:0 0 0 * * *}")
+    public void refreshOnDateBoundary() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.promotions.snapshot.refresh-interval-ms:60000}",
+               initialDelayString = "${app.promotions.snapshot.refresh-interval-ms:60000}")
+    public void reconcile() {
+        refresh();
+    }
+}
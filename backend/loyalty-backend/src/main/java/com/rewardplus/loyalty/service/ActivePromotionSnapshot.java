@@ -0,0 +1,62 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.Promotion;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, versioned view of the promotions in ACTIVE status.
+ * The contained entities are detached and shared between request threads,
+ * so they must be treated as read-only.
+ */
+@Getter
+public final class ActivePromotionSnapshot {
+
+    static final ActivePromotionSnapshot EMPTY = new ActivePromotionSnapshot(0L, List.of(), null);
+
+    private final long version;
+    private final List<Promotion> promotions;
+    private final LocalDateTime loadedAt;
+
+    @Getter(AccessLevel.NONE)
+    private final PromotionTargetingIndex targetingIndex;
+
+    ActivePromotionSnapshot(long version, List<Promotion> promotions, LocalDateTime loadedAt) {
+        this.version = version;
+        this.promotions = List.copyOf(promotions);
+        this.loadedAt = loadedAt;
+        this.targetingIndex = new PromotionTargetingIndex(this.promotions);
+    }
+
+    /**
+     * Promotions the customer qualifies for with this purchase amount, in load order.
+     */
+    public List<Promotion> candidatesFor(Customer customer, BigDecimal amount, LocalDate date) {
+        return targetingIndex.candidatesFor(customer, amount, date);
+    }
+
+    /**
+     * Promotions valid on the given date, in the same order as they were loaded.
+     * Applies the same date and usage rules as PromotionRepository.findActivePromotions().
+     */
+    public List<Promotion> activeOn(LocalDate date) {
+        List<Promotion> active = new ArrayList<>(promotions.size());
+        for (Promotion promotion : promotions) {
+            if (PromotionTargetingIndex.isLive(promotion, date)) {
+                active.add(promotion);
+            }
+        }
+        return active;
+    }
+
+    public int size() {
+        return promotions.size();
+    }
+}
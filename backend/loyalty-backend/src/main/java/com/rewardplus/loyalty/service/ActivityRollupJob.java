@@ -0,0 +1,29 @@
+package com.rewardplus.loyalty.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Nightly job that rebuilds the previous day's activity rollups from source, once its
+ * buffered activity has long been flushed. Repairs anything lost with a node's buffer.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityRollupJob {
+
+    private final ActivityRollupService activityRollupService;
+
+    @Scheduled(cron = "${app.analytics.rollups.rebuild-cron:0 20 0 * * *}")
+    public void rebuildPreviousDay() {
+        LocalDate day = LocalDate.now().minusDays(1);
+        activityRollupService.flush();
+        if (activityRollupService.rebuildDay(day) < 0) {
+            log.info("Activity rollups for {} left to the instance already rebuilding them", day);
+        }
+    }
+}
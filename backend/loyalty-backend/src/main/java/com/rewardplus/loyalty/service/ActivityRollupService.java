@@ -0,0 +1,482 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.ActivityRollupDTO;
+import com.rewardplus.loyalty.entity.ActivityRollup;
+import com.rewardplus.loyalty.entity.ActivityRollup.Activity;
+import com.rewardplus.loyalty.entity.ActivityRollup.Granularity;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.RedemptionLog;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.repository.ActivityRollupRepository;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.RedemptionLogRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maintains hourly and daily rollups of transactions, redemptions and enrollments per
+ * store, category (transaction type or redemption channel) and customer tier.
+ *
+ * The write paths hand committed activity to this service, which sums it in memory and
+ * flushes the sums to both granularities on a short interval, so a purchase never waits
+ * on a rollup row. Queries over a range read daily buckets for whole days and hourly
+ * buckets for the partial days at either end. A day can be rebuilt from source, which
+ * also repairs activity lost with an unflushed buffer; one instance rebuilds at a time.
+ *
+ * Buckets a flush has not seen before, such as the first one of every hour, are created
+ * before the flush transaction starts, each in a transaction of its own; the flush itself
+ * only increments existing rows. On MySQL an insert made while the flush transaction held
+ * the gap lock of its own UPDATE on the missing row would wait on that lock until it timed
+ * out.
+ */
+@Service
+@Slf4j
+public class ActivityRollupService {
+
+    private static final String REBUILD_LOCK = "activity_rollup_rebuild";
+
+    // Hourly series read one row per hour and key, so keep their range short
+    private static final long MAX_HOURLY_SERIES_DAYS = 7;
+
+    // Rows are updated in key order so concurrent flushes from several nodes cannot deadlock
+    private static final Comparator<RowKey> ROW_ORDER = Comparator.comparing(RowKey::granularity)
+        .thenComparing(RowKey::bucketStart)
+        .thenComparing(RowKey::activity)
+        .thenComparing(RowKey::storeCode)
+        .thenComparing(RowKey::category)
+        .thenComparing(RowKey::tier);
+
+    private final ActivityRollupRepository rollupRepository;
+    private final TransactionRepository transactionRepository;
+    private final RedemptionLogRepository redemptionLogRepository;
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate requiresNew;
+
+    // Writers add under the read lock; flush swaps the map under the write lock
+    private final ReentrantReadWriteLock bufferLock = new ReentrantReadWriteLock();
+    private Map<BucketKey, Delta> pending = new ConcurrentHashMap<>();
+    // Buckets this node has seen exist, so only new ones are looked up; guarded by flush
+    private final Set<RowKey> knownRows = new HashSet<>();
+
+    public ActivityRollupService(ActivityRollupRepository rollupRepository,
+                                 TransactionRepository transactionRepository,
+                                 RedemptionLogRepository redemptionLogRepository,
+                                 CustomerRepository customerRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.transactionRepository = transactionRepository;
+        this.redemptionLogRepository = redemptionLogRepository;
+        this.customerRepository = customerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Count recorded transactions once the current transaction commits.
+     */
+    public void recordTransactions(Collection<Transaction> transactions) {
+        List<Event> events = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            BucketKey key = new BucketKey(hourOf(transaction.getTransactionDate()), Activity.TRANSACTION,
+                transaction.getStoreCode(), name(transaction.getTransactionType()), tierOf(transaction.getCustomer()));
+            events.add(new Event(key, cents(transaction.getNetAmount()), 0));
+        }
+        bufferAfterCommit(events);
+    }
+
+    /**
+     * Count a redemption once the current transaction commits.
+     */
+    public void recordRedemption(RedemptionLog redemption) {
+        BucketKey key = new BucketKey(hourOf(redemption.getRedemptionDate()), Activity.REDEMPTION,
+            redemption.getStoreCode(), name(redemption.getChannel()), tierOf(redemption.getCustomer()));
+        long points = redemption.getPointsRedeemed() != null ? redemption.getPointsRedeemed() : 0;
+        bufferAfterCommit(List.of(new Event(key, 0, points)));
+    }
+
+    /**
+     * Count an enrollment once the current transaction commits.
+     */
+    public void recordEnrollment(Customer customer) {
+        recordEnrollments(List.of(customer));
+    }
+
+    /**
+     * Count a batch of enrollments once the current transaction commits.
+     */
+    public void recordEnrollments(Collection<Customer> customers) {
+        List<Event> events = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            BucketKey key = new BucketKey(hourOf(customer.getCreatedAt()), Activity.ENROLLMENT,
+                null, null, tierOf(customer));
+            events.add(new Event(key, 0, 0));
+        }
+        bufferAfterCommit(events);
+    }
+
+    /**
+     * Write the buffered activity to the hourly and daily buckets. On failure the
+     * activity goes back into the buffer for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.rollups.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Map<BucketKey, Delta> drained;
+        bufferLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            bufferLock.writeLock().unlock();
+        }
+
+        Map<RowKey, Totals> rows = new TreeMap<>(ROW_ORDER);
+        drained.forEach((key, delta) -> {
+            Totals totals = delta.totals();
+            rows.merge(RowKey.of(Granularity.HOUR, key), totals, Totals::plus);
+            rows.merge(RowKey.of(Granularity.DAY, key), totals, Totals::plus);
+        });
+
+        try {
+            createMissingRows(rows.keySet());
+            transactionTemplate.executeWithoutResult(status -> rows.forEach(this::apply));
+        } catch (RuntimeException e) {
+            // A rebuild may have deleted buckets this node thought existed
+            knownRows.clear();
+            log.warn("Could not flush {} activity rollup buckets, will retry: {}", drained.size(), e.getMessage());
+            requeue(drained);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Activity totals over [from, to), widened to whole hours, optionally for one store and
+     * with a series per hour or day. Activity flushed in the last few seconds may be missing.
+     */
+    @Transactional(readOnly = true)
+    public ActivityRollupDTO query(Activity activity, LocalDateTime from, LocalDateTime to,
+                                   String storeCode, Granularity interval) {
+        if (activity == null) {
+            throw new BadRequestException("Activity is required", "INVALID_ACTIVITY");
+        }
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new BadRequestException("Range start must be before its end", "INVALID_RANGE");
+        }
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        if (end.isBefore(to)) {
+            end = end.plusHours(1);
+        }
+        String store = storeCode == null || storeCode.isBlank() ? null : storeCode;
+
+        List<ActivityRollup> buckets = new ArrayList<>();
+        if (interval == Granularity.HOUR) {
+            if (Duration.between(start, end).toDays() > MAX_HOURLY_SERIES_DAYS) {
+                throw new BadRequestException("Hourly series are limited to " + MAX_HOURLY_SERIES_DAYS + " days",
+                    "RANGE_TOO_LARGE");
+            }
+            buckets.addAll(findBuckets(Granularity.HOUR, activity, start, end, store));
+        } else {
+            LocalDateTime firstDay = start.toLocalDate().atStartOfDay();
+            if (firstDay.isBefore(start)) {
+                firstDay = firstDay.plusDays(1);
+            }
+            LocalDateTime lastDay = end.toLocalDate().atStartOfDay();
+            if (firstDay.isBefore(lastDay)) {
+                buckets.addAll(findBuckets(Granularity.HOUR, activity, start, firstDay, store));
+                buckets.addAll(findBuckets(Granularity.DAY, activity, firstDay, lastDay, store));
+                buckets.addAll(findBuckets(Granularity.HOUR, activity, lastDay, end, store));
+            } else {
+                buckets.addAll(findBuckets(Granularity.HOUR, activity, start, end, store));
+            }
+        }
+
+        Totals total = Totals.ZERO;
+        Map<String, Long> byStore = new TreeMap<>();
+        Map<String, Long> byCategory = new TreeMap<>();
+        Map<String, Long> byTier = new TreeMap<>();
+        Map<LocalDateTime, Totals> series = new TreeMap<>();
+        for (ActivityRollup bucket : buckets) {
+            Totals totals = new Totals(bucket.getEventCount(), cents(bucket.getAmount()), bucket.getPoints());
+            total = total.plus(totals);
+            countBy(byStore, bucket.getStoreCode(), totals.count());
+            countBy(byCategory, bucket.getCategory(), totals.count());
+            countBy(byTier, bucket.getTier(), totals.count());
+            if (interval != null) {
+                LocalDateTime point = interval == Granularity.HOUR
+                    ? bucket.getBucketStart()
+                    : bucket.getBucketStart().toLocalDate().atStartOfDay();
+                series.merge(point, totals, Totals::plus);
+            }
+        }
+
+        ActivityRollupDTO.ActivityRollupDTOBuilder result = ActivityRollupDTO.builder()
+            .activity(activity)
+            .from(start)
+            .to(end)
+            .storeCode(store)
+            .count(total.count())
+            .amount(BigDecimal.valueOf(total.amountCents(), 2))
+            .points(total.points())
+            .countByStore(byStore)
+            .countByCategory(byCategory)
+            .countByTier(byTier);
+        if (interval != null) {
+            List<ActivityRollupDTO.Bucket> points = new ArrayList<>(series.size());
+            series.forEach((bucketStart, totals) -> points.add(ActivityRollupDTO.Bucket.builder()
+                .bucketStart(bucketStart)
+                .count(totals.count())
+                .amount(BigDecimal.valueOf(totals.amountCents(), 2))
+                .points(totals.points())
+                .build()));
+            result.interval(interval).series(points);
+        }
+        return result.build();
+    }
+
+    /**
+     * Replace every bucket of the given day with totals recomputed from the transactions,
+     * redemption_logs and customers tables. Tiers are the customers' current tiers.
+     * Only one instance rebuilds at a time, as concurrent rebuilds of a day would block or
+     * deadlock on each other's gap locks. Returns the number of buckets written, or -1 when
+     * another instance is already rebuilding.
+     */
+    @Transactional
+    public int rebuildDay(LocalDate day) {
+        if (!Integer.valueOf(1).equals(rollupRepository.acquireNamedLock(REBUILD_LOCK, 0))) {
+            log.info("Activity rollups are being rebuilt by another instance");
+            return -1;
+        }
+        try {
+            return rebuildFromSource(day);
+        } finally {
+            rollupRepository.releaseNamedLock(REBUILD_LOCK);
+        }
+    }
+
+    private int rebuildFromSource(LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+        Map<RowKey, Totals> rows = new TreeMap<>(ROW_ORDER);
+
+        for (Object[] row : transactionRepository.summarizeByHour(from, to)) {
+            BucketKey key = new BucketKey(from.plusHours(((Number) row[0]).intValue()), Activity.TRANSACTION,
+                (String) row[1], name(row[2]), name(row[3]));
+            addToBothGranularities(rows, key, new Totals(((Number) row[4]).longValue(), cents((BigDecimal) row[5]), 0));
+        }
+        for (Object[] row : redemptionLogRepository.summarizeByHour(from, to)) {
+            BucketKey key = new BucketKey(from.plusHours(((Number) row[0]).intValue()), Activity.REDEMPTION,
+                (String) row[1], name(row[2]), name(row[3]));
+            addToBothGranularities(rows, key, new Totals(((Number) row[4]).longValue(), 0, ((Number) row[5]).longValue()));
+        }
+        for (Object[] row : customerRepository.summarizeEnrollmentsByHour(from, to)) {
+            BucketKey key = new BucketKey(from.plusHours(((Number) row[0]).intValue()), Activity.ENROLLMENT,
+                null, null, name(row[1]));
+            addToBothGranularities(rows, key, new Totals(((Number) row[2]).longValue(), 0, 0));
+        }
+
+        rollupRepository.deleteBuckets(from, to);
+        List<ActivityRollup> buckets = new ArrayList<>(rows.size());
+        rows.forEach((key, totals) -> buckets.add(key.toEntity(totals)));
+        rollupRepository.saveAll(buckets);
+
+        log.info("Activity rollups for {} rebuilt: {} buckets", day, buckets.size());
+        return buckets.size();
+    }
+
+    private void bufferAfterCommit(List<Event> events) {
+        TransactionCallbacks.afterCommit(() -> {
+            bufferLock.readLock().lock();
+            try {
+                for (Event event : events) {
+                    pending.computeIfAbsent(event.key(), key -> new Delta()).add(1, event.amountCents(), event.points());
+                }
+            } finally {
+                bufferLock.readLock().unlock();
+            }
+        });
+    }
+
+    private void requeue(Map<BucketKey, Delta> drained) {
+        bufferLock.readLock().lock();
+        try {
+            drained.forEach((key, delta) -> {
+                Totals totals = delta.totals();
+                pending.computeIfAbsent(key, k -> new Delta()).add(totals.count(), totals.amountCents(), totals.points());
+            });
+        } finally {
+            bufferLock.readLock().unlock();
+        }
+    }
+
+    private List<ActivityRollup> findBuckets(Granularity granularity, Activity activity,
+                                             LocalDateTime from, LocalDateTime to, String storeCode) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        return rollupRepository.findBuckets(granularity, activity, from, to, storeCode);
+    }
+
+    private void createMissingRows(Collection<RowKey> keys) {
+        LocalDateTime oldest = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).minusDays(1);
+        knownRows.removeIf(key -> key.bucketStart().isBefore(oldest));
+        for (RowKey key : keys) {
+            if (knownRows.contains(key)) {
+                continue;
+            }
+            if (!rollupRepository.bucketExists(key.granularity(), key.bucketStart(), key.activity(),
+                    key.storeCode(), key.category(), key.tier())) {
+                createRow(key);
+            }
+            knownRows.add(key);
+        }
+    }
+
+    private void apply(RowKey key, Totals totals) {
+        if (increment(key, totals) == 0) {
+            throw new IllegalStateException("Activity rollup row missing for " + key);
+        }
+    }
+
+    private int increment(RowKey key, Totals totals) {
+        return rollupRepository.increment(key.granularity(), key.bucketStart(), key.activity(), key.storeCode(),
+            key.category(), key.tier(), totals.count(), BigDecimal.valueOf(totals.amountCents(), 2), totals.points());
+    }
+
+    /**
+     * Insert an empty bucket in its own transaction so every node can increment it.
+     * Another node creating it first is fine.
+     */
+    private void createRow(RowKey key) {
+        try {
+            requiresNew.executeWithoutResult(status -> rollupRepository.saveAndFlush(key.toEntity(Totals.ZERO)));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Activity rollup bucket {} created concurrently", key);
+        }
+    }
+
+    private static void addToBothGranularities(Map<RowKey, Totals> rows, BucketKey key, Totals totals) {
+        rows.merge(RowKey.of(Granularity.HOUR, key), totals, Totals::plus);
+        rows.merge(RowKey.of(Granularity.DAY, key), totals, Totals::plus);
+    }
+
+    private static void countBy(Map<String, Long> counts, String key, long count) {
+        if (key != null && !key.isEmpty()) {
+            counts.merge(key, count, Long::sum);
+        }
+    }
+
+    private static LocalDateTime hourOf(LocalDateTime time) {
+        return (time != null ? time : LocalDateTime.now()).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static String tierOf(Customer customer) {
+        return customer != null ? name(customer.getTier()) : "";
+    }
+
+    private static String name(Object value) {
+        return value instanceof Enum<?> constant ? constant.name() : "";
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount != null ? amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact() : 0;
+    }
+
+    /**
+     * Hourly bucket a piece of activity belongs to.
+     */
+    private record BucketKey(LocalDateTime hourStart, Activity activity, String storeCode, String category, String tier) {
+        BucketKey {
+            storeCode = storeCode != null ? storeCode : "";
+            category = category != null ? category : "";
+            tier = tier != null ? tier : "";
+        }
+    }
+
+    private record RowKey(Granularity granularity, LocalDateTime bucketStart, Activity activity,
+                          String storeCode, String category, String tier) {
+
+        static RowKey of(Granularity granularity, BucketKey key) {
+            LocalDateTime bucketStart = granularity == Granularity.HOUR
+                ? key.hourStart()
+                : key.hourStart().toLocalDate().atStartOfDay();
+            return new RowKey(granularity, bucketStart, key.activity(), key.storeCode(), key.category(), key.tier());
+        }
+
+        ActivityRollup toEntity(Totals totals) {
+            return ActivityRollup.builder()
+                .granularity(granularity)
+                .bucketStart(bucketStart)
+                .activity(activity)
+                .storeCode(storeCode)
+                .category(category)
+                .tier(tier)
+                .eventCount(totals.count())
+                .amount(BigDecimal.valueOf(totals.amountCents(), 2))
+                .points(totals.points())
+                .build();
+        }
+    }
+
+    private record Event(BucketKey key, long amountCents, long points) {
+    }
+
+    private record Totals(long count, long amountCents, long points) {
+        static final Totals ZERO = new Totals(0, 0, 0);
+
+        Totals plus(Totals other) {
+            return new Totals(count + other.count, amountCents + other.amountCents, points + other.points);
+        }
+    }
+
+    private static final class Delta {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder amountCents = new LongAdder();
+        private final LongAdder points = new LongAdder();
+
+        void add(long count, long amountCents, long points) {
+            this.count.add(count);
+            this.amountCents.add(amountCents);
+            this.points.add(points);
+        }
+
+        Totals totals() {
+            return new Totals(count.sum(), amountCents.sum(), points.sum());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.rewardplus.loyalty.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the independent queries behind a composite analytics report concurrently, each in
+ * its own read-only transaction, so the report takes as long as its slowest query rather
+ * than the sum of all of them.
+ *
+ * The pool is small and fixed, which also caps how many pooled connections analytics can
+ * hold at once; keep app.analytics.query.threads well below the datasource pool size so
+ * transactional endpoints always find a connection. Every query shares one deadline. A
+ * query that misses it, fails, or finds the pool saturated is left out and the report is
+ * returned as partial, with the time each query took.
+ */
+@Component
+@Slf4j
+public class AnalyticsQueryExecutor {
+
+    static final String PARTIAL = "partial";
+    static final String FAILED_METRICS = "failedMetrics";
+    static final String METRIC_TIMINGS = "metricTimingsMs";
+
+    private final ThreadPoolExecutor pool;
+    private final TransactionTemplate readOnly;
+    private final long timeoutMs;
+
+    public AnalyticsQueryExecutor(PlatformTransactionManager transactionManager,
+                                  @Value("${app.analytics.query.threads:4}") int threads,
+                                  @Value("${app.analytics.query.queue-capacity:64}") int queueCapacity,
+                                  @Value("${app.analytics.query.timeout-ms:3000}") long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Also applied as the JDBC statement timeout, so the database stops work nobody waits for
+        this.readOnly.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMs + 999)));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), task -> {
+                Thread thread = new Thread(task, "analytics-query-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Run each named query and merge the entries they put into one report, in query order.
+     * Each query writes only to the map it is handed; the maps are merged on the calling thread.
+     */
+    public Map<String, Object> execute(String report, Map<String, Consumer<Map<String, Object>>> queries) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Map<String, Future<Map<String, Object>>> futures = new LinkedHashMap<>();
+        Map<String, Long> timings = new LinkedHashMap<>();
+        List<String> failed = new ArrayList<>();
+
+        for (Map.Entry<String, Consumer<Map<String, Object>>> query : queries.entrySet()) {
+            try {
+                futures.put(query.getKey(), pool.submit(() -> runQuery(query.getKey(), query.getValue(), timings)));
+            } catch (RejectedExecutionException e) {
+                log.warn("Analytics pool saturated, skipping {}.{}", report, query.getKey());
+                failed.add(query.getKey());
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<Map<String, Object>>> future : futures.entrySet()) {
+            String metric = future.getKey();
+            try {
+                result.putAll(future.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.getValue().cancel(true);
+                log.warn("Analytics query {}.{} missed its {} ms deadline", report, metric, timeoutMs);
+                failed.add(metric);
+            } catch (ExecutionException e) {
+                log.warn("Analytics query {}.{} failed", report, metric, e.getCause());
+                failed.add(metric);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(pending -> pending.cancel(true));
+                failed.add(metric);
+                break;
+            }
+        }
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (!failed.isEmpty()) {
+            Map<String, Long> metricTimings;
+            synchronized (timings) {
+                metricTimings = new LinkedHashMap<>(timings);
+            }
+            for (String metric : failed) {
+                metricTimings.putIfAbsent(metric, elapsedMs);
+            }
+            result.put(PARTIAL, true);
+            result.put(FAILED_METRICS, failed);
+            result.put(METRIC_TIMINGS, metricTimings);
+        }
+        log.debug("Analytics report {} took {} ms across {} queries", report, elapsedMs, queries.size());
+        return result;
+    }
+
+    private Map<String, Object> runQuery(String metric, Consumer<Map<String, Object>> query, Map<String, Long> timings) {
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> entries = new HashMap<>();
+            readOnly.executeWithoutResult(status -> query.accept(entries));
+            return entries;
+        } finally {
+            synchronized (timings) {
+                timings.put(metric, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,199 @@
+package com.rewardplus.loyalty.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache for analytics reports, so a burst of dashboards opening at once costs
+ * one computation per report instead of one per request.
+ *
+ * A report is served as-is until its TTL runs out. After that it is still served, stale,
+ * for up to app.analytics.cache.max-stale-seconds while a single background refresh runs.
+ * Past that window, or before the first load, callers wait for the computation, and callers
+ * arriving meanwhile share it instead of starting their own. Partial reports are returned
+ * but never cached.
+ *
+ * Requests are counted in loyalty.analytics.cache.requests by report and result
+ * (hit, stale, miss, shared) and background refreshes in loyalty.analytics.cache.refreshes
+ * by report and outcome.
+ */
+@Component
+@Slf4j
+public class AnalyticsResultCache {
+
+    private final MeterRegistry meterRegistry;
+    private final long maxStaleNanos;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final ExecutorService refresher;
+
+    public AnalyticsResultCache(MeterRegistry meterRegistry,
+                                @Value("${app.analytics.cache.max-stale-seconds:300}") long maxStaleSeconds,
+                                @Value("${app.analytics.cache.refresh-threads:2}") int refreshThreads) {
+        this.meterRegistry = meterRegistry;
+        this.maxStaleNanos = TimeUnit.SECONDS.toNanos(maxStaleSeconds);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.refresher = Executors.newFixedThreadPool(refreshThreads, task -> {
+            Thread thread = new Thread(task, "analytics-refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Return the cached report, loading it if missing and refreshing it once past its TTL.
+     */
+    public Map<String, Object> get(String report, long ttlSeconds, Supplier<Map<String, Object>> loader) {
+        Slot slot = slots.computeIfAbsent(report, Slot::new);
+        Entry entry = slot.entry;
+        long age = entry == null ? Long.MAX_VALUE : System.nanoTime() - entry.loadedAt;
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+
+        if (age < ttlNanos) {
+            slot.hits.increment();
+            return entry.value;
+        }
+        if (age - ttlNanos < maxStaleNanos) {
+            slot.stale.increment();
+            refreshInBackground(slot, loader);
+            return entry.value;
+        }
+
+        CompletableFuture<Map<String, Object>> load;
+        boolean owner;
+        synchronized (slot) {
+            owner = slot.inFlight == null;
+            if (owner) {
+                slot.inFlight = new CompletableFuture<>();
+            }
+            load = slot.inFlight;
+        }
+        if (!owner) {
+            slot.shared.increment();
+            return await(load);
+        }
+        slot.misses.increment();
+        load(slot, loader, load);
+        return await(load);
+    }
+
+    /**
+     * Drop every cached report; the next request for each one loads it again. Called by
+     * the analytics cache refresh endpoint.
+     */
+    public void invalidateAll() {
+        slots.values().forEach(slot -> slot.entry = null);
+    }
+
+    private void refreshInBackground(Slot slot, Supplier<Map<String, Object>> loader) {
+        CompletableFuture<Map<String, Object>> load;
+        synchronized (slot) {
+            if (slot.inFlight != null) {
+                return;
+            }
+            load = new CompletableFuture<>();
+            slot.inFlight = load;
+        }
+        refresher.execute(() -> {
+            load(slot, loader, load);
+            if (load.isCompletedExceptionally()) {
+                slot.refreshFailures.increment();
+            } else {
+                slot.refreshes.increment();
+            }
+        });
+    }
+
+    private void load(Slot slot, Supplier<Map<String, Object>> loader, CompletableFuture<Map<String, Object>> load) {
+        try {
+            Map<String, Object> value = loader.get();
+            if (!value.containsKey(AnalyticsQueryExecutor.PARTIAL)) {
+                slot.entry = new Entry(value, System.nanoTime());
+            }
+            finish(slot);
+            load.complete(value);
+        } catch (RuntimeException e) {
+            log.warn("Could not compute analytics report {}", slot.report, e);
+            finish(slot);
+            load.completeExceptionally(e);
+        }
+    }
+
+    private static void finish(Slot slot) {
+        synchronized (slot) {
+            slot.inFlight = null;
+        }
+    }
+
+    private static Map<String, Object> await(CompletableFuture<Map<String, Object>> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private record Entry(Map<String, Object> value, long loadedAt) {
+    }
+
+    private final class Slot {
+
+        private final String report;
+        private final Counter hits;
+        private final Counter stale;
+        private final Counter misses;
+        private final Counter shared;
+        private final Counter refreshes;
+        private final Counter refreshFailures;
+        private volatile Entry entry;
+        // Guarded by this
+        private CompletableFuture<Map<String, Object>> inFlight;
+
+        private Slot(String report) {
+            this.report = report;
+            this.hits = request(report, "hit");
+            this.stale = request(report, "stale");
+            this.misses = request(report, "miss");
+            this.shared = request(report, "shared");
+            this.refreshes = refresh(report, "success");
+            this.refreshFailures = refresh(report, "failure");
+        }
+
+        private Counter request(String report, String result) {
+            return Counter.builder("loyalty.analytics.cache.requests")
+                .description("Analytics report requests by cache result")
+                .tag("report", report)
+                .tag("result", result)
+                .register(meterRegistry);
+        }
+
+        private Counter refresh(String report, String outcome) {
+            return Counter.builder("loyalty.analytics.cache.refreshes")
+                .description("Background refreshes of stale analytics reports")
+                .tag("report", report)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+        }
+    }
+}
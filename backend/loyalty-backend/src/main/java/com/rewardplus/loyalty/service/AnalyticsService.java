@@ -1,5 +1,11 @@
 package com.rewardplus.loyalty.service;
 
+import com.rewardplus.loyalty.dto.ActiveCustomersDTO;
+import com.rewardplus.loyalty.dto.ActivityRollupDTO;
+import com.rewardplus.loyalty.dto.AmountPercentilesDTO;
+import com.rewardplus.loyalty.dto.TopSpenderDTO;
+import com.rewardplus.loyalty.dto.TransactionScanResultDTO;
+import com.rewardplus.loyalty.entity.ActivityRollup;
 import com.rewardplus.loyalty.entity.Customer;
 import com.rewardplus.loyalty.entity.Reward;
 import com.rewardplus.loyalty.entity.Promotion;
@@ -11,8 +17,12 @@ import com.rewardplus.loyalty.repository.PromotionRepository;
 import com.rewardplus.loyalty.repository.RedemptionLogRepository;
 import com.rewardplus.loyalty.repository.TransactionRepository;
 import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
+import com.rewardplus.loyalty.repository.projection.GroupCount;
+import com.rewardplus.loyalty.repository.projection.GroupTotal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,12 +30,16 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Service class for Analytics and Reporting.
  * Provides business intelligence and summary data for managers.
+ * Composite reports fan their independent queries out through {@link AnalyticsQueryExecutor}
+ * and are served from {@link AnalyticsResultCache} within their per-report TTL.
  */
 @Service
 @RequiredArgsConstructor
@@ -38,194 +52,250 @@ public class AnalyticsService {
     private final RewardRepository rewardRepository;
     private final PromotionRepository promotionRepository;
     private final RedemptionLogRepository redemptionLogRepository;
+    private final TransactionAggregateService transactionAggregateService;
+    private final ActivityRollupService activityRollupService;
+    private final AnalyticsQueryExecutor analyticsQueryExecutor;
+    private final AnalyticsResultCache analyticsResultCache;
+    private final TopSpenderTracker topSpenderTracker;
+    private final TransactionColumnarSnapshot transactionColumnarSnapshot;
+    private final ActiveCustomerService activeCustomerService;
+    private final TransactionAmountDigestService transactionAmountDigestService;
+
+    @Value("${app.analytics.cache.ttl-seconds.summary:60}")
+    private long summaryTtlSeconds;
+
+    @Value("${app.analytics.cache.ttl-seconds.customers:120}")
+    private long customersTtlSeconds;
+
+    @Value("${app.analytics.cache.ttl-seconds.redemptions:60}")
+    private long redemptionsTtlSeconds;
+
+    @Value("${app.analytics.cache.ttl-seconds.sales:30}")
+    private long salesTtlSeconds;
+
+    @Value("${app.analytics.cache.ttl-seconds.promotions:60}")
+    private long promotionsTtlSeconds;
 
     /**
      * Get overall program summary.
      */
-    @Transactional(readOnly = true)
     public Map<String, Object> getProgramSummary() {
+        return analyticsResultCache.get("summary", summaryTtlSeconds, this::computeProgramSummary);
+    }
+
+    private Map<String, Object> computeProgramSummary() {
         log.info("Generating program summary");
 
-        Map<String, Object> summary = new HashMap<>();
+        Map<String, Consumer<Map<String, Object>>> queries = new LinkedHashMap<>();
 
         // Customer metrics
-        summary.put("totalCustomers", customerRepository.count());
-        summary.put("activeCustomers", customerRepository.countByStatus(Customer.CustomerStatus.ACTIVE));
-        summary.put("suspendedCustomers", customerRepository.countByStatus(Customer.CustomerStatus.SUSPENDED));
+        queries.put("customers", summary -> {
+            Map<String, Long> customersByStatus = countsByName(Customer.CustomerStatus.class,
+                customerRepository.countGroupedByStatus());
+            summary.put("totalCustomers", total(customersByStatus));
+            summary.put("activeCustomers", customersByStatus.get(Customer.CustomerStatus.ACTIVE.name()));
+            summary.put("suspendedCustomers", customersByStatus.get(Customer.CustomerStatus.SUSPENDED.name()));
+        });
 
         // Tier distribution
-        Map<String, Long> tierDistribution = new HashMap<>();
-        for (Customer.CustomerTier tier : Customer.CustomerTier.values()) {
-            tierDistribution.put(tier.name(), customerRepository.countByTier(tier));
-        }
-        summary.put("tierDistribution", tierDistribution);
+        queries.put("tierDistribution", summary -> summary.put("tierDistribution",
+            countsByName(Customer.CustomerTier.class, customerRepository.countGroupedByTier())));
 
         // Points metrics
-        summary.put("activeLoyaltyAccounts", loyaltyPointsRepository.countByStatus(
-            com.rewardplus.loyalty.entity.LoyaltyPoints.PointsStatus.ACTIVE));
-
-        // Transaction metrics
-        summary.put("totalTransactions", transactionRepository.count());
-        summary.put("completedTransactions", transactionRepository.countByStatus(
-            Transaction.TransactionStatus.COMPLETED));
+        queries.put("loyaltyAccounts", summary -> summary.put("activeLoyaltyAccounts",
+            loyaltyPointsRepository.countByStatus(com.rewardplus.loyalty.entity.LoyaltyPoints.PointsStatus.ACTIVE)));
 
-        BigDecimal totalRevenue = transactionRepository.findAll().stream()
-            .map(Transaction::getNetAmount)
-            .filter(amount -> amount != null)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        summary.put("totalRevenue", totalRevenue);
+        // Transaction metrics, from the maintained aggregates
+        queries.put("transactions", summary -> {
+            TransactionTotals transactionTotals = transactionAggregateService.getTotals();
+            summary.put("totalTransactions", transactionTotals.getCount());
+            summary.put("completedTransactions", transactionTotals.getCount(Transaction.TransactionStatus.COMPLETED));
+            summary.put("totalRevenue", transactionTotals.getNetAmount());
+        });
 
         // Reward metrics
-        summary.put("totalRewards", rewardRepository.count());
-        summary.put("activeRewards", rewardRepository.countByStatus(Reward.RewardStatus.ACTIVE));
+        queries.put("rewards", summary -> {
+            Map<String, Long> rewardsByStatus = countsByName(Reward.RewardStatus.class,
+                rewardRepository.countGroupedByStatus());
+            summary.put("totalRewards", total(rewardsByStatus));
+            summary.put("activeRewards", rewardsByStatus.get(Reward.RewardStatus.ACTIVE.name()));
+        });
 
         // Promotion metrics
-        summary.put("totalPromotions", promotionRepository.count());
-        summary.put("activePromotions", promotionRepository.countByStatus(Promotion.PromotionStatus.ACTIVE));
+        queries.put("promotions", summary -> {
+            Map<String, Long> promotionsByStatus = countsByName(Promotion.PromotionStatus.class,
+                promotionRepository.countGroupedByStatus());
+            summary.put("totalPromotions", total(promotionsByStatus));
+            summary.put("activePromotions", promotionsByStatus.get(Promotion.PromotionStatus.ACTIVE.name()));
+        });
 
         // Redemption metrics
-        summary.put("totalRedemptions", redemptionLogRepository.count());
-        summary.put("completedRedemptions", redemptionLogRepository.countByStatus(
-            RedemptionLog.RedemptionStatus.COMPLETED));
-
-        return summary;
+        queries.put("redemptions", summary -> {
+            Map<String, Long> redemptionsByStatus = countsByName(RedemptionLog.RedemptionStatus.class,
+                redemptionLogRepository.sumPointsGroupedByStatus());
+            summary.put("totalRedemptions", total(redemptionsByStatus));
+            summary.put("completedRedemptions",
+                redemptionsByStatus.get(RedemptionLog.RedemptionStatus.COMPLETED.name()));
+        });
+
+        return analyticsQueryExecutor.execute("programSummary", queries);
     }
 
     /**
      * Get customer activity summary.
      */
-    @Transactional(readOnly = true)
     public Map<String, Object> getCustomerActivitySummary() {
-        Map<String, Object> summary = new HashMap<>();
+        return analyticsResultCache.get("customers", customersTtlSeconds, this::computeCustomerActivitySummary);
+    }
+
+    private Map<String, Object> computeCustomerActivitySummary() {
+        Map<String, Consumer<Map<String, Object>>> queries = new LinkedHashMap<>();
 
         // New customers this month
-        LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
-        summary.put("newCustomersThisMonth", 
-            customerRepository.findByEnrollmentDateRange(startOfMonth, LocalDate.now()).size());
+        queries.put("newCustomers", summary -> {
+            LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
+            summary.put("newCustomersThisMonth",
+                customerRepository.countByEnrollmentDateBetween(startOfMonth, LocalDate.now()));
+        });
 
         // Customers by status
-        summary.put("activeCustomers", customerRepository.countByStatus(Customer.CustomerStatus.ACTIVE));
-        summary.put("inactiveCustomers", customerRepository.countByStatus(Customer.CustomerStatus.INACTIVE));
-
-        // Top spending customers
-        var topSpenders = transactionRepository.findTopSpendingCustomers(
-            org.springframework.data.domain.PageRequest.of(0, 10));
-        
-        Map<String, BigDecimal> topSpenderMap = new HashMap<>();
-        for (Object[] row : topSpenders) {
-            Long customerId = (Long) row[0];
-            customerRepository.findById(customerId).ifPresent(customer -> {
-                topSpenderMap.put(customer.getFullName(), (BigDecimal) row[1]);
-            });
-        }
-        summary.put("topSpenders", topSpenderMap);
-
+        queries.put("customers", summary -> {
+            Map<String, Long> customersByStatus = countsByName(Customer.CustomerStatus.class,
+                customerRepository.countGroupedByStatus());
+            summary.put("activeCustomers", customersByStatus.get(Customer.CustomerStatus.ACTIVE.name()));
+            summary.put("inactiveCustomers", customersByStatus.get(Customer.CustomerStatus.INACTIVE.name()));
+        });
+
+        Map<String, Object> summary = analyticsQueryExecutor.execute("customerActivity", queries);
+
+        // Top spending customers, read from the streaming top-K sketches
+        summary.put("topSpenders", topSpenderMap(TopSpenderTracker.Window.ALL_TIME));
+        summary.put("topSpendersLast" + topSpenderTracker.getWindowDays() + "Days",
+            topSpenderMap(TopSpenderTracker.Window.ROLLING));
+
+        // Distinct active customers, estimated from the HyperLogLog day sketches
+        summary.put("dailyActiveCustomers",
+            activeCustomerService.query(null, ActiveCustomerService.Window.DAY).getActiveCustomers());
+        summary.put("weeklyActiveCustomers",
+            activeCustomerService.query(null, ActiveCustomerService.Window.WEEK).getActiveCustomers());
+        summary.put("monthlyActiveCustomers",
+            activeCustomerService.query(null, ActiveCustomerService.Window.MONTH).getActiveCustomers());
         return summary;
     }
 
     /**
      * Get redemption trends.
      */
-    @Transactional(readOnly = true)
     public Map<String, Object> getRedemptionTrends() {
-        Map<String, Object> trends = new HashMap<>();
-
-        // Total redemptions
-        trends.put("totalRedemptions", redemptionLogRepository.count());
-
-        // Redemptions by status
-        Map<String, Long> statusCounts = new HashMap<>();
-        for (RedemptionLog.RedemptionStatus status : RedemptionLog.RedemptionStatus.values()) {
-            statusCounts.put(status.name(), redemptionLogRepository.countByStatus(status));
-        }
-        trends.put("byStatus", statusCounts);
+        return analyticsResultCache.get("redemptions", redemptionsTtlSeconds, this::computeRedemptionTrends);
+    }
 
-        // Redemptions by channel
-        Map<String, Long> channelCounts = new HashMap<>();
-        for (RedemptionLog.RedemptionChannel channel : RedemptionLog.RedemptionChannel.values()) {
-            channelCounts.put(channel.name(), 
-                (long) redemptionLogRepository.findByChannel(channel).size());
-        }
-        trends.put("byChannel", channelCounts);
+    private Map<String, Object> computeRedemptionTrends() {
+        Map<String, Consumer<Map<String, Object>>> queries = new LinkedHashMap<>();
+
+        // Redemptions and points by status
+        queries.put("byStatus", trends -> {
+            List<GroupTotal<RedemptionLog.RedemptionStatus>> byStatus =
+                redemptionLogRepository.sumPointsGroupedByStatus();
+            Map<String, Long> statusCounts = countsByName(RedemptionLog.RedemptionStatus.class, byStatus);
+            trends.put("totalRedemptions", total(statusCounts));
+            trends.put("byStatus", statusCounts);
+            trends.put("pointsByStatus", totalsByName(RedemptionLog.RedemptionStatus.class, byStatus));
+        });
+
+        // Redemptions and points by channel
+        queries.put("byChannel", trends -> {
+            List<GroupTotal<RedemptionLog.RedemptionChannel>> byChannel =
+                redemptionLogRepository.sumPointsGroupedByChannel();
+            trends.put("byChannel", countsByName(RedemptionLog.RedemptionChannel.class, byChannel));
+            trends.put("pointsByChannel", totalsByName(RedemptionLog.RedemptionChannel.class, byChannel));
+        });
 
         // Top redeemed rewards
-        trends.put("topRewards", rewardRepository.findTopRedemedRewards(
-            org.springframework.data.domain.PageRequest.of(0, 5)));
+        queries.put("topRewards", trends -> trends.put("topRewards",
+            rewardRepository.findTopRedemedRewards(PageRequest.of(0, 5))));
 
-        return trends;
+        return analyticsQueryExecutor.execute("redemptionTrends", queries);
     }
 
     /**
      * Get sales analytics.
      */
-    @Transactional(readOnly = true)
     public Map<String, Object> getSalesAnalytics() {
-        Map<String, Object> analytics = new HashMap<>();
-
-        // Total transactions
-        analytics.put("totalTransactions", transactionRepository.count());
-
-        // Completed transactions
-        analytics.put("completedTransactions", 
-            transactionRepository.countByStatus(Transaction.TransactionStatus.COMPLETED));
-
-        // Total revenue
-        BigDecimal totalRevenue = transactionRepository.findAll().stream()
-            .filter(t -> t.getStatus() == Transaction.TransactionStatus.COMPLETED)
-            .map(Transaction::getNetAmount)
-            .filter(amount -> amount != null)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        analytics.put("totalRevenue", totalRevenue);
-
-        // Average transaction value
-        long completedCount = transactionRepository.countByStatus(Transaction.TransactionStatus.COMPLETED);
-        if (completedCount > 0) {
-            analytics.put("averageTransactionValue", 
-                totalRevenue.divide(BigDecimal.valueOf(completedCount), 2, java.math.RoundingMode.HALF_UP));
-        } else {
-            analytics.put("averageTransactionValue", BigDecimal.ZERO);
-        }
+        return analyticsResultCache.get("sales", salesTtlSeconds, this::computeSalesAnalytics);
+    }
 
-        // Transactions by type
-        Map<String, Long> transactionTypeCounts = new HashMap<>();
-        for (Transaction.TransactionType type : Transaction.TransactionType.values()) {
-            transactionTypeCounts.put(type.name(), 
-                (long) transactionRepository.findByTransactionType(type).size());
-        }
-        analytics.put("byTransactionType", transactionTypeCounts);
+    private Map<String, Object> computeSalesAnalytics() {
+        Map<String, Consumer<Map<String, Object>>> queries = new LinkedHashMap<>();
+
+        queries.put("totals", analytics -> {
+            TransactionTotals transactionTotals = transactionAggregateService.getTotals();
+
+            // Total transactions
+            analytics.put("totalTransactions", transactionTotals.getCount());
+
+            // Completed transactions
+            long completedCount = transactionTotals.getCount(Transaction.TransactionStatus.COMPLETED);
+            analytics.put("completedTransactions", completedCount);
+
+            // Total revenue
+            BigDecimal totalRevenue = transactionTotals.getNetAmount(Transaction.TransactionStatus.COMPLETED);
+            analytics.put("totalRevenue", totalRevenue);
+
+            // Average transaction value
+            if (completedCount > 0) {
+                analytics.put("averageTransactionValue",
+                    totalRevenue.divide(BigDecimal.valueOf(completedCount), 2, java.math.RoundingMode.HALF_UP));
+            } else {
+                analytics.put("averageTransactionValue", BigDecimal.ZERO);
+            }
+
+            // Transactions by type
+            analytics.put("byTransactionType", transactionTotals.getCountByType());
+            analytics.put("byStatus", transactionTotals.getCountByStatus());
+        });
+
+        // Basket size percentiles over the last 30 days, merged from the daily amount digests
+        queries.put("basketSize", analytics -> {
+            LocalDate today = LocalDate.now();
+            analytics.put("basketSizeLast30Days", transactionAmountDigestService.query(today.minusDays(29), today,
+                null, null, null, null).getOverall().getPercentiles());
+        });
 
         // Recent transactions
-        analytics.put("recentTransactions", transactionRepository.findRecentTransactions(
-            org.springframework.data.domain.PageRequest.of(0, 10)));
+        queries.put("recentTransactions", analytics -> analytics.put("recentTransactions",
+            transactionRepository.findRecentTransactions(PageRequest.of(0, 10))));
 
-        return analytics;
+        return analyticsQueryExecutor.execute("salesAnalytics", queries);
     }
 
     /**
      * Get promotion performance.
      */
-    @Transactional(readOnly = true)
     public Map<String, Object> getPromotionPerformance() {
-        Map<String, Object> performance = new HashMap<>();
+        return analyticsResultCache.get("promotions", promotionsTtlSeconds, this::computePromotionPerformance);
+    }
 
-        // Total promotions
-        performance.put("totalPromotions", promotionRepository.count());
+    private Map<String, Object> computePromotionPerformance() {
+        Map<String, Consumer<Map<String, Object>>> queries = new LinkedHashMap<>();
 
-        // By status
-        Map<String, Long> statusCounts = new HashMap<>();
-        for (Promotion.PromotionStatus status : Promotion.PromotionStatus.values()) {
-            statusCounts.put(status.name(), promotionRepository.countByStatus(status));
-        }
-        performance.put("byStatus", statusCounts);
+        // Totals by status
+        queries.put("byStatus", performance -> {
+            Map<String, Long> statusCounts = countsByName(Promotion.PromotionStatus.class,
+                promotionRepository.countGroupedByStatus());
+            performance.put("totalPromotions", total(statusCounts));
+            performance.put("byStatus", statusCounts);
+        });
 
         // Active promotions
-        performance.put("activePromotions", promotionRepository.findActivePromotions());
+        queries.put("activePromotions", performance -> performance.put("activePromotions",
+            promotionRepository.findActivePromotions()));
 
         // Expiring soon
-        performance.put("expiringSoon", promotionRepository.findExpiringSoon(
-            java.time.LocalDate.now().plusDays(7)));
+        queries.put("expiringSoon", performance -> performance.put("expiringSoon",
+            promotionRepository.findExpiringSoon(LocalDate.now().plusDays(7))));
 
-        return performance;
+        return analyticsQueryExecutor.execute("promotionPerformance", queries);
     }
 
     /**
@@ -235,33 +305,125 @@ public class AnalyticsService {
     public Map<String, Object> getDailyStats() {
         Map<String, Object> stats = new HashMap<>();
         LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-        LocalDateTime endOfDay = LocalDate.now().atTime(23, 59, 59);
+        LocalDateTime endOfDay = startOfDay.plusDays(1);
 
-        // Transactions today
-        stats.put("transactionsToday", 
-            transactionRepository.findByDateRange(startOfDay, endOfDay).size());
+        // Today's counts come from the hourly rollups
+        ActivityRollupDTO transactions = activityRollupService.query(
+            ActivityRollup.Activity.TRANSACTION, startOfDay, endOfDay, null, null);
+        stats.put("transactionsToday", transactions.getCount());
+        stats.put("salesToday", transactions.getAmount());
 
-        // Redemptions today
-        stats.put("redemptionsToday", 
-            redemptionLogRepository.findByDateRange(startOfDay, endOfDay).size());
+        stats.put("redemptionsToday", activityRollupService.query(
+            ActivityRollup.Activity.REDEMPTION, startOfDay, endOfDay, null, null).getCount());
 
-        // New customers today
-        stats.put("newCustomersToday", 
-            customerRepository.findByEnrollmentDateRange(LocalDate.now(), LocalDate.now()).size());
+        stats.put("newCustomersToday", activityRollupService.query(
+            ActivityRollup.Activity.ENROLLMENT, startOfDay, endOfDay, null, null).getCount());
 
         return stats;
     }
 
+    /**
+     * Get activity totals over a time range from the hourly and daily rollups.
+     */
+    @Transactional(readOnly = true)
+    public ActivityRollupDTO getActivityRollup(ActivityRollup.Activity activity, LocalDateTime from,
+                                               LocalDateTime to, String storeCode,
+                                               ActivityRollup.Granularity interval) {
+        return activityRollupService.query(activity, from, to, storeCode, interval);
+    }
+
+    /**
+     * Drop every cached report, so the next request for each one computes it from the
+     * database, e.g. after a data correction or a rebuild.
+     */
+    public void refreshReports() {
+        log.info("Dropping cached analytics reports");
+        analyticsResultCache.invalidateAll();
+    }
+
     /**
      * Get tier progression data.
      */
     @Transactional(readOnly = true)
     public Map<String, Long> getTierProgression() {
-        Map<String, Long> progression = new HashMap<>();
-        for (Customer.CustomerTier tier : Customer.CustomerTier.values()) {
-            progression.put(tier.name(), customerRepository.countByTier(tier));
+        return countsByName(Customer.CustomerTier.class, customerRepository.countGroupedByTier());
+    }
+
+    /**
+     * Filter and group transactions over the in-memory columnar snapshot.
+     */
+    public TransactionScanResultDTO scanTransactions(TransactionScanQuery query) {
+        return transactionColumnarSnapshot.scan(query);
+    }
+
+    /**
+     * Get distinct active customers over a window ending on the given day, per store and tier.
+     */
+    public ActiveCustomersDTO getActiveCustomers(LocalDate date, ActiveCustomerService.Window window) {
+        return activeCustomerService.query(date, window);
+    }
+
+    /**
+     * Get purchase amount percentiles over a range of days from the daily amount digests.
+     */
+    public AmountPercentilesDTO getAmountPercentiles(LocalDate from, LocalDate to, String storeCode,
+                                                     String productCategory,
+                                                     TransactionAmountDigestService.GroupBy groupBy,
+                                                     List<Double> quantiles) {
+        return transactionAmountDigestService.query(from, to, storeCode, productCategory, groupBy, quantiles);
+    }
+
+    /**
+     * Get the heaviest spenders for a window, with customer names.
+     */
+    public List<TopSpenderDTO> getTopSpenders(TopSpenderTracker.Window window, int limit) {
+        return topSpenderTracker.getTopSpenders(window, limit);
+    }
+
+    private Map<String, BigDecimal> topSpenderMap(TopSpenderTracker.Window window) {
+        Map<String, BigDecimal> topSpenders = new LinkedHashMap<>();
+        for (TopSpenderDTO spender : topSpenderTracker.getTopSpenders(window, 10)) {
+            topSpenders.put(spender.getCustomerName(), spender.getTotalSpent());
+        }
+        return topSpenders;
+    }
+
+    /**
+     * Row counts keyed by constant name, with zero for constants the group query had no rows for.
+     */
+    static <K extends Enum<K>> Map<String, Long> countsByName(Class<K> type, List<? extends GroupCount<K>> groups) {
+        Map<String, Long> counts = zeroByName(type);
+        for (GroupCount<K> group : groups) {
+            if (group.getKey() != null) {
+                counts.merge(group.getKey().name(), group.getCount(), Long::sum);
+            }
         }
-        return progression;
+        return counts;
+    }
+
+    /**
+     * Summed totals keyed by constant name, with zero for constants the group query had no rows for.
+     */
+    static <K extends Enum<K>> Map<String, Long> totalsByName(Class<K> type, List<? extends GroupTotal<K>> groups) {
+        Map<String, Long> totals = zeroByName(type);
+        for (GroupTotal<K> group : groups) {
+            if (group.getKey() != null) {
+                totals.merge(group.getKey().name(), group.getTotal(), Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    private static <K extends Enum<K>> Map<String, Long> zeroByName(Class<K> type) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (K constant : type.getEnumConstants()) {
+            values.put(constant.name(), 0L);
+        }
+        return values;
+    }
+
+    private static long total(Map<String, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
     }
 }
 
@@ -0,0 +1,438 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.CustomerDTO;
+import com.rewardplus.loyalty.dto.CustomerEnrollmentResultDTO;
+import com.rewardplus.loyalty.dto.CustomerEnrollmentResultDTO.RowResult;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk enrollment of customers from a JSON batch or a CSV file.
+ *
+ * Records are enrolled in chunks, each in its own transaction: the chunk's emails are checked
+ * against existing customers with one set-based query, then the customers and their welcome
+ * bonus accounts go through saveAll so Hibernate JDBC-batches the inserts. Customer codes come
+ * from the Snowflake generator, so they never collide. Invalid and duplicate records are
+ * reported individually and do not fail the rest, and chunks that committed stay enrolled.
+ */
+@Service
+@Slf4j
+public class CustomerEnrollmentService {
+
+    // Upper bound for IN (...) lists issued while checking emails
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+
+    // Column limits of the customers table, checked up front so one long value cannot fail a chunk
+    private static final List<FieldLimit> FIELD_LIMITS = List.of(
+        new FieldLimit("firstName", CustomerDTO::getFirstName, 100),
+        new FieldLimit("lastName", CustomerDTO::getLastName, 100),
+        new FieldLimit("email", CustomerDTO::getEmail, 255),
+        new FieldLimit("phone", CustomerDTO::getPhone, 20),
+        new FieldLimit("gender", CustomerDTO::getGender, 10),
+        new FieldLimit("address", CustomerDTO::getAddress, 255),
+        new FieldLimit("city", CustomerDTO::getCity, 100),
+        new FieldLimit("state", CustomerDTO::getState, 50),
+        new FieldLimit("postalCode", CustomerDTO::getPostalCode, 20),
+        new FieldLimit("country", CustomerDTO::getCountry, 100),
+        new FieldLimit("occupation", CustomerDTO::getOccupation, 50),
+        new FieldLimit("company", CustomerDTO::getCompany, 100),
+        new FieldLimit("profileImageUrl", CustomerDTO::getProfileImageUrl, 255));
+
+    // Import columns by header name, lower-cased without separators so first_name matches firstName
+    private static final Map<String, BiConsumer<CustomerDTO, String>> IMPORT_COLUMNS = Map.ofEntries(
+        Map.entry("firstname", CustomerDTO::setFirstName),
+        Map.entry("lastname", CustomerDTO::setLastName),
+        Map.entry("email", CustomerDTO::setEmail),
+        Map.entry("phone", CustomerDTO::setPhone),
+        Map.entry("dateofbirth", (dto, value) -> dto.setDateOfBirth(LocalDate.parse(value))),
+        Map.entry("gender", CustomerDTO::setGender),
+        Map.entry("address", CustomerDTO::setAddress),
+        Map.entry("city", CustomerDTO::setCity),
+        Map.entry("state", CustomerDTO::setState),
+        Map.entry("postalcode", CustomerDTO::setPostalCode),
+        Map.entry("country", CustomerDTO::setCountry),
+        Map.entry("occupation", CustomerDTO::setOccupation),
+        Map.entry("company", CustomerDTO::setCompany),
+        Map.entry("preferences", CustomerDTO::setPreferences));
+
+    private static final List<String> REQUIRED_IMPORT_COLUMNS = List.of("firstname", "lastname", "email", "dateofbirth");
+
+    private final CustomerRepository customerRepository;
+    private final LoyaltyPointsRepository loyaltyPointsRepository;
+    private final ActivityRollupService activityRollupService;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final PointsLedgerService pointsLedgerService;
+    private final TransactionTemplate transactionTemplate;
+    private final int welcomeBonusPoints;
+    private final int chunkSize;
+    private final int maxBatchSize;
+    private final int maxImportRows;
+
+    public CustomerEnrollmentService(CustomerRepository customerRepository,
+                                     LoyaltyPointsRepository loyaltyPointsRepository,
+                                     ActivityRollupService activityRollupService,
+                                     CustomerSearchIndex customerSearchIndex,
+                                     PointsLedgerService pointsLedgerService,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.points.welcome-bonus:100}") int welcomeBonusPoints,
+                                     @Value("${app.customers.enrollment.chunk-size:1000}") int chunkSize,
+                                     @Value("${app.customers.enrollment.max-batch-size:10000}") int maxBatchSize,
+                                     @Value("${app.customers.enrollment.max-import-rows:500000}") int maxImportRows) {
+        this.customerRepository = customerRepository;
+        this.loyaltyPointsRepository = loyaltyPointsRepository;
+        this.activityRollupService = activityRollupService;
+        this.customerSearchIndex = customerSearchIndex;
+        this.pointsLedgerService = pointsLedgerService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.welcomeBonusPoints = welcomeBonusPoints;
+        this.chunkSize = chunkSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxImportRows = maxImportRows;
+    }
+
+    /**
+     * Enroll a batch of customers, each with the welcome bonus.
+     */
+    public CustomerEnrollmentResultDTO enrollCustomers(List<CustomerDTO> customerDTOs) {
+        if (customerDTOs == null || customerDTOs.isEmpty()) {
+            throw new BadRequestException("Enrollment batch must contain at least one customer");
+        }
+        if (customerDTOs.size() > maxBatchSize) {
+            throw new BadRequestException("Enrollment batch exceeds maximum size of " + maxBatchSize,
+                "BATCH_TOO_LARGE");
+        }
+        log.info("Enrolling batch of {} customers", customerDTOs.size());
+
+        Enrollment enrollment = new Enrollment();
+        for (int i = 0; i < customerDTOs.size(); i++) {
+            enrollment.add(i, customerDTOs.get(i));
+        }
+        return enrollment.finish();
+    }
+
+    /**
+     * Enroll the customers in a UTF-8 CSV file with a header row, reading it one record at a
+     * time. Columns are matched by header name (firstName or first_name, and so on) and unknown
+     * columns are ignored; dateOfBirth is an ISO date. Records past app.customers.enrollment.max-import-rows
+     * are not read.
+     */
+    public CustomerEnrollmentResultDTO importCustomers(InputStream csv) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(
+            new InputStreamReader(csv, StandardCharsets.UTF_8), READ_BUFFER_SIZE));
+        CsvReader.Record header = reader.next();
+        if (header == null) {
+            throw new BadRequestException("Import file is empty", "EMPTY_IMPORT");
+        }
+        List<BiConsumer<CustomerDTO, String>> columns = importColumns(header.fields());
+        log.info("Importing customers from a file with {} columns", columns.size());
+
+        Enrollment enrollment = new Enrollment();
+        CsvReader.Record record;
+        for (int index = 0; (record = reader.next()) != null; index++) {
+            if (index == maxImportRows) {
+                enrollment.reject(index, null, "IMPORT_TOO_LARGE",
+                    "Import stopped after " + maxImportRows + " records; split the file and import the rest");
+                break;
+            }
+            if (!record.complete()) {
+                enrollment.reject(index, null, "MALFORMED_ROW", "Quoted field is not closed before the end of the file");
+            } else if (record.fields().size() > columns.size()) {
+                enrollment.reject(index, null, "MALFORMED_ROW",
+                    "Record has " + record.fields().size() + " fields but the header has " + columns.size());
+            } else {
+                CustomerDTO dto = new CustomerDTO();
+                try {
+                    for (int i = 0; i < record.fields().size(); i++) {
+                        String value = record.fields().get(i).trim();
+                        if (columns.get(i) != null && !value.isEmpty()) {
+                            columns.get(i).accept(dto, value);
+                        }
+                    }
+                    enrollment.add(index, dto);
+                } catch (DateTimeParseException e) {
+                    enrollment.reject(index, dto.getEmail(), "INVALID_DATE_OF_BIRTH",
+                        "Date of birth must be an ISO date (yyyy-MM-dd)");
+                }
+            }
+        }
+        return enrollment.finish();
+    }
+
+    /**
+     * Setters for each header column, null for columns that are ignored.
+     */
+    private static List<BiConsumer<CustomerDTO, String>> importColumns(List<String> header) {
+        List<BiConsumer<CustomerDTO, String>> columns = new ArrayList<>(header.size());
+        Set<String> names = new HashSet<>();
+        for (String column : header) {
+            String name = column.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+            if (!names.add(name) && IMPORT_COLUMNS.containsKey(name)) {
+                throw new BadRequestException("Import header repeats column: " + column.trim(), "INVALID_IMPORT_HEADER");
+            }
+            columns.add(IMPORT_COLUMNS.get(name));
+        }
+        for (String required : REQUIRED_IMPORT_COLUMNS) {
+            if (!names.contains(required)) {
+                throw new BadRequestException("Import header must include firstName, lastName, email and dateOfBirth",
+                    "INVALID_IMPORT_HEADER");
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Enroll one chunk of valid records in a single transaction.
+     */
+    private List<RowResult> enrollChunk(List<PendingRow> chunk) {
+        return transactionTemplate.execute(status -> {
+            List<String> emails = chunk.stream().map(row -> row.dto().getEmail().trim()).toList();
+            Set<String> existing = new HashSet<>();
+            for (int from = 0; from < emails.size(); from += LOOKUP_CHUNK_SIZE) {
+                customerRepository.findExistingEmails(emails.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, emails.size())))
+                    .forEach(email -> existing.add(emailKey(email)));
+            }
+
+            LocalDate today = LocalDate.now();
+            List<RowResult> outcome = new ArrayList<>(chunk.size());
+            List<RowResult> enrolledRows = new ArrayList<>(chunk.size());
+            List<Customer> customers = new ArrayList<>(chunk.size());
+            for (PendingRow row : chunk) {
+                String email = row.dto().getEmail().trim();
+                if (existing.contains(emailKey(email))) {
+                    outcome.add(rejectedRow(row.index(), email, "DUPLICATE_EMAIL",
+                        "Customer already exists with email: '" + email + "'"));
+                    continue;
+                }
+                RowResult enrolled = RowResult.builder().index(row.index()).success(true).email(email).build();
+                outcome.add(enrolled);
+                enrolledRows.add(enrolled);
+                customers.add(newCustomer(row.dto(), email, today));
+            }
+
+            if (!customers.isEmpty()) {
+                List<Customer> saved = customerRepository.saveAll(customers);
+                List<LoyaltyPoints> accounts = new ArrayList<>(saved.size());
+                List<PointsLedgerEntry> bonuses = new ArrayList<>(saved.size());
+                for (int i = 0; i < saved.size(); i++) {
+                    Customer customer = saved.get(i);
+                    enrolledRows.get(i).setCustomerId(customer.getId());
+                    enrolledRows.get(i).setCustomerCode(customer.getCustomerCode());
+                    accounts.add(welcomeAccount(customer));
+                    if (welcomeBonusPoints > 0) {
+                        bonuses.add(pointsLedgerService.entry(customer.getId(), PointsLedgerEntry.EntryType.EARN,
+                            welcomeBonusPoints, null, null, CustomerService.WELCOME_BONUS_REASON));
+                    }
+                }
+                loyaltyPointsRepository.saveAll(accounts);
+                pointsLedgerService.recordAll(bonuses);
+                activityRollupService.recordEnrollments(saved);
+                customerSearchIndex.indexAll(saved);
+            }
+            return outcome;
+        });
+    }
+
+    /**
+     * Validate a single record, returning a failed row result or null if the record is valid.
+     */
+    private static RowResult validateRow(int index, CustomerDTO dto) {
+        if (dto == null) {
+            return rejectedRow(index, null, "EMPTY_ROW", "Customer record is empty");
+        }
+        if (isBlank(dto.getFirstName())) {
+            return rejectedRow(index, dto.getEmail(), "FIRST_NAME_REQUIRED", "First name is required");
+        }
+        if (isBlank(dto.getLastName())) {
+            return rejectedRow(index, dto.getEmail(), "LAST_NAME_REQUIRED", "Last name is required");
+        }
+        if (isBlank(dto.getEmail())) {
+            return rejectedRow(index, null, "EMAIL_REQUIRED", "Email is required");
+        }
+        if (!EMAIL.matcher(dto.getEmail().trim()).matches()) {
+            return rejectedRow(index, dto.getEmail(), "INVALID_EMAIL", "Invalid email format");
+        }
+        if (dto.getDateOfBirth() == null) {
+            return rejectedRow(index, dto.getEmail(), "DATE_OF_BIRTH_REQUIRED", "Date of birth is required");
+        }
+        if (!dto.getDateOfBirth().isBefore(LocalDate.now())) {
+            return rejectedRow(index, dto.getEmail(), "INVALID_DATE_OF_BIRTH", "Date of birth must be in the past");
+        }
+        for (FieldLimit limit : FIELD_LIMITS) {
+            String value = limit.value().apply(dto);
+            if (value != null && value.length() > limit.maxLength()) {
+                return rejectedRow(index, dto.getEmail(), "FIELD_TOO_LONG",
+                    limit.name() + " must be at most " + limit.maxLength() + " characters");
+            }
+        }
+        return null;
+    }
+
+    private static RowResult rejectedRow(int index, String email, String errorCode, String message) {
+        return RowResult.builder()
+            .index(index)
+            .success(false)
+            .email(email)
+            .errorCode(errorCode)
+            .message(message)
+            .build();
+    }
+
+    /**
+     * Build an active bronze customer from the record. The customer code is assigned on persist.
+     */
+    private static Customer newCustomer(CustomerDTO dto, String email, LocalDate enrollmentDate) {
+        return Customer.builder()
+            .firstName(dto.getFirstName())
+            .lastName(dto.getLastName())
+            .email(email)
+            .phone(dto.getPhone())
+            .dateOfBirth(dto.getDateOfBirth())
+            .gender(dto.getGender())
+            .address(dto.getAddress())
+            .city(dto.getCity())
+            .state(dto.getState())
+            .postalCode(dto.getPostalCode())
+            .country(dto.getCountry())
+            .occupation(dto.getOccupation())
+            .company(dto.getCompany())
+            .preferences(dto.getPreferences())
+            .profileImageUrl(dto.getProfileImageUrl())
+            .status(Customer.CustomerStatus.ACTIVE)
+            .tier(Customer.CustomerTier.BRONZE)
+            .enrollmentDate(enrollmentDate)
+            .build();
+    }
+
+    private LoyaltyPoints welcomeAccount(Customer customer) {
+        return LoyaltyPoints.builder()
+            .customer(customer)
+            .currentBalance((long) welcomeBonusPoints)
+            .lifetimePoints((long) welcomeBonusPoints)
+            .pointsEarned((long) welcomeBonusPoints)
+            .status(LoyaltyPoints.PointsStatus.ACTIVE)
+            .build();
+    }
+
+    // The customers.email collation is case-insensitive, so duplicates are too
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Collects valid records into chunks and the outcome of every record.
+     */
+    private final class Enrollment {
+
+        private final long startedAt = System.currentTimeMillis();
+        private final Set<String> claimedEmails = new HashSet<>();
+        private final List<PendingRow> pending = new ArrayList<>();
+        private final List<RowResult> results = new ArrayList<>();
+        private int succeeded;
+
+        void add(int index, CustomerDTO dto) {
+            RowResult rejection = validateRow(index, dto);
+            if (rejection == null && !claimedEmails.add(emailKey(dto.getEmail()))) {
+                rejection = rejectedRow(index, dto.getEmail(), "DUPLICATE_EMAIL",
+                    "Email appears earlier in this batch: '" + dto.getEmail().trim() + "'");
+            }
+            if (rejection != null) {
+                results.add(rejection);
+                return;
+            }
+            pending.add(new PendingRow(index, dto));
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(int index, String email, String errorCode, String message) {
+            results.add(rejectedRow(index, email, errorCode, message));
+        }
+
+        CustomerEnrollmentResultDTO finish() {
+            if (!pending.isEmpty()) {
+                flush();
+            }
+            results.sort(Comparator.comparingInt(RowResult::getIndex));
+            long elapsed = System.currentTimeMillis() - startedAt;
+            log.info("Enrolled {} of {} customers in {} ms", succeeded, results.size(), elapsed);
+
+            return CustomerEnrollmentResultDTO.builder()
+                .totalRows(results.size())
+                .succeeded(succeeded)
+                .failed(results.size() - succeeded)
+                .totalBonusPoints((long) succeeded * welcomeBonusPoints)
+                .elapsedMillis(elapsed)
+                .results(results)
+                .build();
+        }
+
+        private void flush() {
+            List<PendingRow> chunk = List.copyOf(pending);
+            pending.clear();
+            List<RowResult> outcome;
+            try {
+                outcome = enrollChunk(chunk);
+            } catch (DataIntegrityViolationException e) {
+                // Usually a concurrent enrollment took one of the emails after the check; the retry sees it
+                log.warn("Enrollment chunk of {} customers conflicted, retrying: {}", chunk.size(), e.getMessage());
+                try {
+                    outcome = enrollChunk(chunk);
+                } catch (DataAccessException retryFailure) {
+                    log.error("Enrollment chunk of {} customers failed", chunk.size(), retryFailure);
+                    outcome = chunk.stream()
+                        .map(row -> rejectedRow(row.index(), row.dto().getEmail(), "ENROLLMENT_FAILED",
+                            "Customer could not be enrolled, retry this record"))
+                        .toList();
+                }
+            }
+            for (RowResult row : outcome) {
+                if (row.isSuccess()) {
+                    succeeded++;
+                }
+            }
+            results.addAll(outcome);
+        }
+    }
+
+    private record PendingRow(int index, CustomerDTO dto) {
+    }
+
+    private record FieldLimit(String name, Function<CustomerDTO, String> value, int maxLength) {
+    }
+}
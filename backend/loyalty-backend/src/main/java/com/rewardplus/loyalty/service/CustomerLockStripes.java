@@ -0,0 +1,131 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-process locks that serialize balance changes per customer.
+ * Earning, redemption, cancellation and adjustment for one customer queue up here
+ * instead of piling onto the same loyalty_points row in MySQL, while customers on
+ * different stripes proceed in parallel. The stripes are taken before the work's
+ * transaction opens, so a waiting writer holds no pooled connection, and released once
+ * that transaction has committed or rolled back, so the next writer only starts after it.
+ *
+ * Per-stripe wait time (loyalty.points.lock.wait) and queue length
+ * (loyalty.points.lock.queue) are published as metrics.
+ */
+@Component
+@Slf4j
+public class CustomerLockStripes {
+
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock[] locks;
+    private final Timer[] waitTimers;
+    private final Counter timeouts;
+    private final long timeoutMillis;
+
+    public CustomerLockStripes(PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.points.locks.stripes:1024}") int stripes,
+                               @Value("${app.points.locks.timeout-ms:5000}") long timeoutMillis) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Lock stripes must be at least 1");
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.locks = new ReentrantLock[stripes];
+        this.waitTimers = new Timer[stripes];
+        this.timeoutMillis = timeoutMillis;
+
+        for (int i = 0; i < stripes; i++) {
+            String stripe = Integer.toString(i);
+            locks[i] = new ReentrantLock();
+            waitTimers[i] = Timer.builder("loyalty.points.lock.wait")
+                .description("Time spent waiting for a customer balance lock")
+                .tag("stripe", stripe)
+                .register(meterRegistry);
+            Gauge.builder("loyalty.points.lock.queue", locks[i], ReentrantLock::getQueueLength)
+                .description("Threads waiting for a customer balance lock")
+                .tag("stripe", stripe)
+                .register(meterRegistry);
+        }
+        this.timeouts = Counter.builder("loyalty.points.lock.timeouts")
+            .description("Balance changes refused because the customer lock was not acquired in time")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Run the work in a new transaction while holding the customer's stripe.
+     */
+    public <T> T withLock(Long customerId, Supplier<T> work) {
+        return withLocks(List.of(customerId), work);
+    }
+
+    /**
+     * Run the work in a new transaction while holding the stripes of several customers.
+     * Stripes are taken in ascending order so concurrent callers cannot deadlock.
+     */
+    public <T> T withLocks(Collection<Long> customerIds, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Customer balance locks must be taken before the transaction starts");
+        }
+        int[] stripes = customerIds.stream()
+            .filter(Objects::nonNull)
+            .mapToInt(this::stripeOf)
+            .distinct()
+            .sorted()
+            .toArray();
+
+        int held = 0;
+        try {
+            for (int stripe : stripes) {
+                acquire(stripe);
+                held++;
+            }
+            return transactionTemplate.execute(status -> work.get());
+        } finally {
+            for (int i = held - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    int stripeOf(Long customerId) {
+        // Spread sequential ids so neighbouring customers land on different stripes
+        return Math.floorMod(Long.hashCode(customerId * 0x9E3779B97F4A7C15L), locks.length);
+    }
+
+    private void acquire(int stripe) {
+        ReentrantLock lock = locks[stripe];
+        long startedAt = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for customer account", 1);
+        } finally {
+            waitTimers[stripe].record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            timeouts.increment();
+            log.warn("Timed out after {} ms waiting for customer lock stripe {}", timeoutMillis, stripe);
+            throw new ServiceBusyException("Customer account is busy, retry shortly", 1);
+        }
+    }
+}
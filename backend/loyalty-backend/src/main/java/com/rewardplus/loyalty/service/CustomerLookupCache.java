@@ -0,0 +1,245 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.CustomerDTO;
+import com.rewardplus.loyalty.dto.LoyaltyPointsDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Near cache for the customer lookups POS and the mobile app make on every scan: profiles and
+ * points balances by customer id, with customer code and email indexes onto the id.
+ *
+ * Lookups are read-through. A miss loads in a read-only transaction of its own, so hits never
+ * take a pooled connection. Every path that changes a customer or a balance calls
+ * invalidate, which drops the customer's entries once its transaction commits. A load that
+ * overlaps an invalidation of the same customer is returned but not kept, so a slow read can
+ * never put back what a commit just replaced. Callers already inside a transaction bypass the
+ * cache, so they see their own uncommitted changes and never publish them.
+ *
+ * Invalidation is local to this node; other replicas pick changes up when their entries
+ * expire (app.customers.cache.profile-ttl-seconds and balance-ttl-seconds).
+ *
+ * Requests are counted in loyalty.customers.cache.requests by cache and result (hit, miss),
+ * dropped entries in loyalty.customers.cache.evictions by cache and cause (size, expired), and
+ * loyalty.customers.cache.size and loyalty.customers.cache.hit.ratio are gauges per cache.
+ */
+@Component
+public class CustomerLookupCache {
+
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    private final boolean enabled;
+    private final TransactionTemplate readOnly;
+    private final TinyLfuCache<Long, CustomerDTO> profiles;
+    private final TinyLfuCache<Long, LoyaltyPointsDTO> balances;
+    private final TinyLfuCache<String, Long> idsByCode;
+    private final TinyLfuCache<String, Long> idsByEmail;
+    // Sequence of the latest invalidation overall, and of the latest one per stripe of customer ids
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLongArray stripeInvalidatedAt = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    public CustomerLookupCache(PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.customers.cache.enabled:true}") boolean enabled,
+                               @Value("${app.customers.cache.max-size:100000}") int maxSize,
+                               @Value("${app.customers.cache.profile-ttl-seconds:300}") long profileTtlSeconds,
+                               @Value("${app.customers.cache.balance-ttl-seconds:30}") long balanceTtlSeconds) {
+        this.enabled = enabled;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.profiles = new TinyLfuCache<>(maxSize, TimeUnit.SECONDS.toNanos(profileTtlSeconds));
+        this.balances = new TinyLfuCache<>(maxSize, TimeUnit.SECONDS.toNanos(balanceTtlSeconds));
+        this.idsByCode = new TinyLfuCache<>(maxSize, TimeUnit.SECONDS.toNanos(profileTtlSeconds));
+        this.idsByEmail = new TinyLfuCache<>(maxSize, TimeUnit.SECONDS.toNanos(profileTtlSeconds));
+        if (enabled) {
+            register(meterRegistry, "profiles", profiles);
+            register(meterRegistry, "balances", balances);
+            register(meterRegistry, "codes", idsByCode);
+            register(meterRegistry, "emails", idsByEmail);
+        }
+    }
+
+    /**
+     * The customer's profile, loading it on a miss. The loader throws if there is no such customer.
+     */
+    public CustomerDTO getProfile(Long customerId, Supplier<CustomerDTO> loader) {
+        if (bypass()) {
+            return load(loader);
+        }
+        CustomerDTO cached = profiles.get(customerId);
+        return cached != null ? cached.toBuilder().build() : loadProfile(loader);
+    }
+
+    public CustomerDTO getProfileByCode(String customerCode, Supplier<CustomerDTO> loader) {
+        if (bypass()) {
+            return load(loader);
+        }
+        Long customerId = idsByCode.get(customerCode);
+        CustomerDTO cached = customerId != null ? profiles.get(customerId) : null;
+        if (cached != null && customerCode.equals(cached.getCustomerCode())) {
+            return cached.toBuilder().build();
+        }
+        return loadProfile(loader);
+    }
+
+    public CustomerDTO getProfileByEmail(String email, Supplier<CustomerDTO> loader) {
+        if (bypass()) {
+            return load(loader);
+        }
+        Long customerId = idsByEmail.get(emailKey(email));
+        CustomerDTO cached = customerId != null ? profiles.get(customerId) : null;
+        if (cached != null && email.equalsIgnoreCase(cached.getEmail())) {
+            return cached.toBuilder().build();
+        }
+        return loadProfile(loader);
+    }
+
+    /**
+     * The customer's points balance, loading it on a miss.
+     */
+    public LoyaltyPointsDTO getBalance(Long customerId, Supplier<LoyaltyPointsDTO> loader) {
+        if (bypass()) {
+            return load(loader);
+        }
+        LoyaltyPointsDTO cached = balances.get(customerId);
+        return cached != null ? cached.toBuilder().build() : loadBalance(loader);
+    }
+
+    public LoyaltyPointsDTO getBalanceByCode(String customerCode, Supplier<LoyaltyPointsDTO> loader) {
+        if (bypass()) {
+            return load(loader);
+        }
+        Long customerId = idsByCode.get(customerCode);
+        LoyaltyPointsDTO cached = customerId != null ? balances.get(customerId) : null;
+        if (cached != null && customerCode.equals(cached.getCustomerCode())) {
+            return cached.toBuilder().build();
+        }
+        return loadBalance(loader);
+    }
+
+    /**
+     * Drop the customer's cached profile and balance once the current transaction commits.
+     */
+    public void invalidate(Long customerId) {
+        invalidateAll(List.of(customerId));
+    }
+
+    public void invalidateAll(Collection<Long> customerIds) {
+        if (!enabled || customerIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(customerIds);
+        TransactionCallbacks.afterCommit(() -> {
+            long sequence = invalidations.incrementAndGet();
+            for (Long id : ids) {
+                // Mark the stripe before removing, so a load racing with this either sees the
+                // mark and drops its own entry or is removed here
+                stripeInvalidatedAt.accumulateAndGet(stripe(id), sequence, Math::max);
+                profiles.remove(id);
+                balances.remove(id);
+            }
+        });
+    }
+
+    private CustomerDTO loadProfile(Supplier<CustomerDTO> loader) {
+        long sequence = invalidations.get();
+        CustomerDTO loaded = load(loader);
+        Long customerId = loaded.getId();
+        CustomerDTO stored = loaded.toBuilder().build();
+        profiles.put(customerId, stored);
+        if (invalidatedSince(customerId, sequence)) {
+            profiles.remove(customerId, stored);
+        }
+        // Index entries are checked against the profile they lead to, so they never need invalidating
+        if (loaded.getCustomerCode() != null) {
+            idsByCode.put(loaded.getCustomerCode(), customerId);
+        }
+        if (loaded.getEmail() != null) {
+            idsByEmail.put(emailKey(loaded.getEmail()), customerId);
+        }
+        return loaded;
+    }
+
+    private LoyaltyPointsDTO loadBalance(Supplier<LoyaltyPointsDTO> loader) {
+        long sequence = invalidations.get();
+        LoyaltyPointsDTO loaded = load(loader);
+        Long customerId = loaded.getCustomerId();
+        if (customerId == null) {
+            return loaded;
+        }
+        LoyaltyPointsDTO stored = loaded.toBuilder().build();
+        balances.put(customerId, stored);
+        if (invalidatedSince(customerId, sequence)) {
+            balances.remove(customerId, stored);
+        }
+        if (loaded.getCustomerCode() != null) {
+            idsByCode.put(loaded.getCustomerCode(), customerId);
+        }
+        return loaded;
+    }
+
+    private <T> T load(Supplier<T> loader) {
+        return readOnly.execute(status -> loader.get());
+    }
+
+    private boolean bypass() {
+        return !enabled || TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    private boolean invalidatedSince(Long customerId, long sequence) {
+        return stripeInvalidatedAt.get(stripe(customerId)) > sequence;
+    }
+
+    private static int stripe(Long customerId) {
+        return Long.hashCode(customerId) & (INVALIDATION_STRIPES - 1);
+    }
+
+    // The customers.email collation is case-insensitive
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static void register(MeterRegistry meterRegistry, String name, TinyLfuCache<?, ?> cache) {
+        counter(meterRegistry, "loyalty.customers.cache.requests", "Customer cache lookups by result",
+            name, "result", "hit", cache, TinyLfuCache::hitCount);
+        counter(meterRegistry, "loyalty.customers.cache.requests", "Customer cache lookups by result",
+            name, "result", "miss", cache, TinyLfuCache::missCount);
+        counter(meterRegistry, "loyalty.customers.cache.evictions", "Customer cache entries dropped by cause",
+            name, "cause", "size", cache, TinyLfuCache::evictionCount);
+        counter(meterRegistry, "loyalty.customers.cache.evictions", "Customer cache entries dropped by cause",
+            name, "cause", "expired", cache, TinyLfuCache::expirationCount);
+        Gauge.builder("loyalty.customers.cache.size", cache, TinyLfuCache::size)
+            .description("Entries held in the customer cache")
+            .tag("cache", name)
+            .register(meterRegistry);
+        Gauge.builder("loyalty.customers.cache.hit.ratio", cache, TinyLfuCache::hitRatio)
+            .description("Share of customer cache lookups served from memory since startup")
+            .tag("cache", name)
+            .register(meterRegistry);
+    }
+
+    private static void counter(MeterRegistry meterRegistry, String meter, String description, String cacheName,
+                                String tag, String value, TinyLfuCache<?, ?> cache,
+                                ToDoubleFunction<TinyLfuCache<?, ?>> count) {
+        FunctionCounter.builder(meter, cache, count)
+            .description(description)
+            .tag("cache", cacheName)
+            .tag(tag, value)
+            .register(meterRegistry);
+    }
+}
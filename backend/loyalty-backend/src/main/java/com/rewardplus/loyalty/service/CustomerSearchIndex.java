@@ -0,0 +1,164 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.projection.CustomerSearchRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps a trigram index of customer names, emails, codes and phone numbers in memory, so the
+ * search box is answered without a LIKE '%term%' scan of the customers table.
+ *
+ * Built at startup from a keyset scan of the table, then kept current twice over: customers
+ * enrolled or updated on this node are indexed when their transaction commits, and a short
+ * refresh reads every customer changed since the last one, which picks up other nodes'
+ * changes. The refresh re-reads app.customers.search.overlap-seconds behind its watermark to
+ * catch late commits. The index is rebuilt from scratch nightly, or sooner once more than half
+ * of its slots belong to superseded versions of customers.
+ */
+@Component
+@Slf4j
+public class CustomerSearchIndex {
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final CustomerRepository customerRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long overlapSeconds;
+    private final double minSimilarity;
+    private final int maxMatches;
+
+    private volatile CustomerTrigramIndex index;
+
+    // Guarded by this
+    private LocalDateTime watermark = BEGINNING;
+
+    public CustomerSearchIndex(CustomerRepository customerRepository,
+                               @Value("${app.customers.search.enabled:true}") boolean enabled,
+                               @Value("${app.customers.search.batch-size:10000}") int batchSize,
+                               @Value("${app.customers.search.overlap-seconds:300}") long overlapSeconds,
+                               @Value("${app.customers.search.min-similarity:0.4}") double minSimilarity,
+                               @Value("${app.customers.search.max-matches:1000}") int maxMatches) {
+        this.customerRepository = customerRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.overlapSeconds = overlapSeconds;
+        this.minSimilarity = minSimilarity;
+        this.maxMatches = maxMatches;
+    }
+
+    /**
+     * Build a fresh index from the customers table and swap it in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        CustomerTrigramIndex rebuilt = new CustomerTrigramIndex(index != null ? index.size() : batchSize);
+        // Changes committed while the scan ran fall inside the next refresh's overlap
+        watermark = readChangedSince(rebuilt, BEGINNING);
+        index = rebuilt;
+        log.info("Customer search index built: {} customers", rebuilt.size());
+    }
+
+    /**
+     * Index customers created or changed since the last refresh.
+     */
+    @Scheduled(fixedDelayString = "${app.customers.search.refresh-interval-ms:15000}")
+    public synchronized void refresh() {
+        CustomerTrigramIndex current = index;
+        if (current == null) {
+            return;
+        }
+        if (current.deadSlots() > current.size()) {
+            rebuild();
+            return;
+        }
+        LocalDateTime last = readChangedSince(current, watermark.minusSeconds(overlapSeconds));
+        if (last.isAfter(watermark)) {
+            watermark = last;
+        }
+    }
+
+    @Scheduled(cron = "${app.customers.search.rebuild-cron:0 30 4 * * *}")
+    public void nightlyRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Index a customer once the current transaction commits.
+     */
+    public void index(Customer customer) {
+        indexAll(List.of(customer));
+    }
+
+    /**
+     * Index a batch of customers once the current transaction commits.
+     */
+    public void indexAll(Collection<Customer> customers) {
+        List<Entry> entries = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            if (customer.getId() != null) {
+                entries.add(new Entry(customer.getId(), customer.getFirstName(), customer.getLastName(),
+                    customer.getEmail(), customer.getCustomerCode(), customer.getPhone()));
+            }
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            CustomerTrigramIndex current = index;
+            if (current != null) {
+                for (Entry entry : entries) {
+                    current.put(entry.id(), entry.firstName(), entry.lastName(), entry.email(),
+                        entry.customerCode(), entry.phone());
+                }
+            }
+        });
+    }
+
+    /**
+     * Matching customer ids, best first, or empty while the index is disabled or still building.
+     */
+    public Optional<CustomerTrigramIndex.Result> search(String query) {
+        CustomerTrigramIndex current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(current.search(query, minSimilarity, maxMatches));
+    }
+
+    private LocalDateTime readChangedSince(CustomerTrigramIndex target, LocalDateTime since) {
+        LocalDateTime last = since;
+        long afterId = Long.MIN_VALUE;
+        List<CustomerSearchRow> rows;
+        do {
+            rows = customerRepository.findSearchRowsChangedSince(last, afterId, PageRequest.of(0, batchSize));
+            for (CustomerSearchRow row : rows) {
+                target.put(row.getId(), row.getFirstName(), row.getLastName(), row.getEmail(),
+                    row.getCustomerCode(), row.getPhone());
+            }
+            if (!rows.isEmpty()) {
+                CustomerSearchRow lastRow = rows.get(rows.size() - 1);
+                last = lastRow.getUpdatedAt();
+                afterId = lastRow.getId();
+            }
+        } while (rows.size() == batchSize);
+        return last;
+    }
+
+    private record Entry(Long id, String firstName, String lastName, String email, String customerCode,
+                         String phone) {
+    }
+}
@@ -1,25 +1,35 @@
 package com.rewardplus.loyalty.service;
 
+import com.rewardplus.loyalty.dto.CursorPage;
 import com.rewardplus.loyalty.dto.CustomerDTO;
 import com.rewardplus.loyalty.dto.LoyaltyPointsDTO;
 import com.rewardplus.loyalty.entity.Customer;
 import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
+import com.rewardplus.loyalty.exception.BadRequestException;
 import com.rewardplus.loyalty.exception.DuplicateResourceException;
 import com.rewardplus.loyalty.exception.ResourceNotFoundException;
 import com.rewardplus.loyalty.repository.CustomerRepository;
 import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
+import com.rewardplus.loyalty.util.SeekCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Service class for Customer business logic.
@@ -30,8 +40,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CustomerService {
 
+    // Keeps the IN list of a balance lookup well inside database parameter limits
+    private static final int BALANCE_LOOKUP_CHUNK = 1000;
+
+    static final String WELCOME_BONUS_REASON = "Welcome bonus";
+
     private final CustomerRepository customerRepository;
     private final LoyaltyPointsRepository loyaltyPointsRepository;
+    private final ActivityRollupService activityRollupService;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final CustomerLookupCache customerLookupCache;
+    private final PointsLedgerService pointsLedgerService;
     private final ModelMapper modelMapper;
 
     @Value("${app.points.welcome-bonus:100}")
@@ -67,6 +86,12 @@ public class CustomerService {
             .status(LoyaltyPoints.PointsStatus.ACTIVE)
             .build();
         loyaltyPointsRepository.save(loyaltyPoints);
+        if (welcomeBonusPoints > 0) {
+            pointsLedgerService.record(customer.getId(), PointsLedgerEntry.EntryType.EARN, welcomeBonusPoints,
+                null, null, WELCOME_BONUS_REASON);
+        }
+        activityRollupService.recordEnrollment(customer);
+        customerSearchIndex.index(customer);
 
         log.info("Customer enrolled successfully with ID: {} and welcome bonus: {} points",
             customer.getId(), welcomeBonusPoints);
@@ -75,33 +100,36 @@ public class CustomerService {
     }
 
     /**
-     * Get customer by ID.
+     * Get customer by ID, served from the near cache when possible.
      */
-    @Transactional(readOnly = true)
     public CustomerDTO getCustomerById(Long id) {
-        Customer customer = customerRepository.findById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", id));
-        return mapToDTO(customer);
+        return customerLookupCache.getProfile(id, () -> {
+            Customer customer = customerRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", id));
+            return mapToDTO(customer);
+        });
     }
 
     /**
-     * Get customer by customer code.
+     * Get customer by customer code, served from the near cache when possible.
      */
-    @Transactional(readOnly = true)
     public CustomerDTO getCustomerByCode(String customerCode) {
-        Customer customer = customerRepository.findByCustomerCode(customerCode)
-            .orElseThrow(() -> new ResourceNotFoundException("Customer", "customerCode", customerCode));
-        return mapToDTO(customer);
+        return customerLookupCache.getProfileByCode(customerCode, () -> {
+            Customer customer = customerRepository.findByCustomerCode(customerCode)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "customerCode", customerCode));
+            return mapToDTO(customer);
+        });
     }
 
     /**
-     * Get customer by email.
+     * Get customer by email, served from the near cache when possible.
      */
-    @Transactional(readOnly = true)
     public CustomerDTO getCustomerByEmail(String email) {
-        Customer customer = customerRepository.findByEmail(email)
-            .orElseThrow(() -> new ResourceNotFoundException("Customer", "email", email));
-        return mapToDTO(customer);
+        return customerLookupCache.getProfileByEmail(email, () -> {
+            Customer customer = customerRepository.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "email", email));
+            return mapToDTO(customer);
+        });
     }
 
     /**
@@ -109,8 +137,33 @@ public class CustomerService {
      */
     @Transactional(readOnly = true)
     public Page<CustomerDTO> getAllCustomers(Pageable pageable) {
-        return customerRepository.findAll(pageable)
-            .map(this::mapToDTO);
+        return mapToDTOs(customerRepository.findAll(pageable));
+    }
+
+    /**
+     * Get a page of customers by creation time, continuing from a keyset cursor so deep pages
+     * cost the same as the first. The total is only counted when asked for.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CustomerDTO> getCustomersPage(String cursor, int size, String sortBy,
+                                                    Sort.Direction direction, boolean includeTotal) {
+        if (!"createdAt".equals(sortBy)) {
+            throw new BadRequestException("Cursor pagination of customers is sorted by createdAt", "INVALID_SORT");
+        }
+        SeekCursor position = SeekCursor.decode(cursor, sortBy, direction);
+        Pageable limit = PageRequest.of(0, SeekCursor.checkPageSize(size) + 1);
+        List<Customer> customers = direction.isAscending()
+            ? customerRepository.findPageAfter(position.value(), position.id(), limit)
+            : customerRepository.findPageBefore(position.value(), position.id(), limit);
+
+        String nextCursor = null;
+        if (customers.size() > size) {
+            customers = customers.subList(0, size);
+            Customer last = customers.get(size - 1);
+            nextCursor = position.next(last.getCreatedAt(), last.getId()).encode();
+        }
+        Long total = includeTotal ? customerRepository.count() : null;
+        return new CursorPage<>(mapToDTOs(customers), nextCursor, total);
     }
 
     /**
@@ -118,10 +171,7 @@ public class CustomerService {
      */
     @Transactional(readOnly = true)
     public List<CustomerDTO> getCustomersByStatus(Customer.CustomerStatus status) {
-        return customerRepository.findByStatus(status)
-            .stream()
-            .map(this::mapToDTO)
-            .collect(Collectors.toList());
+        return mapToDTOs(customerRepository.findByStatus(status));
     }
 
     /**
@@ -129,19 +179,36 @@ public class CustomerService {
      */
     @Transactional(readOnly = true)
     public List<CustomerDTO> getCustomersByTier(Customer.CustomerTier tier) {
-        return customerRepository.findByTier(tier)
-            .stream()
-            .map(this::mapToDTO)
-            .collect(Collectors.toList());
+        return mapToDTOs(customerRepository.findByTier(tier));
     }
 
     /**
-     * Search customers by name, email, or code.
+     * Search customers by name, email, code or phone, best matches first. Served from the
+     * in-memory search index, which also tolerates typos; while the index is building the
+     * database is searched instead.
      */
     @Transactional(readOnly = true)
     public Page<CustomerDTO> searchCustomers(String searchTerm, Pageable pageable) {
-        return customerRepository.searchCustomers(searchTerm, pageable)
-            .map(this::mapToDTO);
+        Optional<CustomerTrigramIndex.Result> indexed = customerSearchIndex.search(searchTerm);
+        if (indexed.isEmpty()) {
+            return mapToDTOs(customerRepository.searchCustomers(searchTerm, pageable));
+        }
+
+        List<Long> ids = indexed.get().customerIds();
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + pageable.getPageSize(), ids.size()));
+        Map<Long, Customer> customersById = new HashMap<>();
+        for (Customer customer : customerRepository.findAllById(pageIds)) {
+            customersById.put(customer.getId(), customer);
+        }
+        List<Customer> customers = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            Customer customer = customersById.get(id);
+            if (customer != null) {
+                customers.add(customer);
+            }
+        }
+        return new PageImpl<>(mapToDTOs(customers), pageable, ids.size());
     }
 
     /**
@@ -151,10 +218,7 @@ public class CustomerService {
     public List<CustomerDTO> getCustomersByAgeRange(int minAge, int maxAge) {
         LocalDate startDate = LocalDate.now().minusYears(maxAge);
         LocalDate endDate = LocalDate.now().minusYears(minAge);
-        return customerRepository.findByAgeRange(startDate, endDate)
-            .stream()
-            .map(this::mapToDTO)
-            .collect(Collectors.toList());
+        return mapToDTOs(customerRepository.findByAgeRange(startDate, endDate));
     }
 
     /**
@@ -182,6 +246,8 @@ public class CustomerService {
         customer.setProfileImageUrl(customerDTO.getProfileImageUrl());
 
         customer = customerRepository.save(customer);
+        customerSearchIndex.index(customer);
+        customerLookupCache.invalidate(id);
         log.info("Customer updated successfully: {}", id);
 
         return mapToDTO(customer);
@@ -199,6 +265,7 @@ public class CustomerService {
 
         customer.setStatus(status);
         customer = customerRepository.save(customer);
+        customerLookupCache.invalidate(id);
 
         return mapToDTO(customer);
     }
@@ -215,6 +282,7 @@ public class CustomerService {
 
         customer.setTier(tier);
         customer = customerRepository.save(customer);
+        customerLookupCache.invalidate(id);
 
         return mapToDTO(customer);
     }
@@ -262,19 +330,14 @@ public class CustomerService {
     @Transactional(readOnly = true)
     public List<CustomerDTO> getInactiveCustomers(int daysInactive) {
         LocalDate cutoffDate = LocalDate.now().minusDays(daysInactive);
-        return customerRepository.findInactiveCustomers(cutoffDate)
-            .stream()
-            .map(this::mapToDTO)
-            .collect(Collectors.toList());
+        return mapToDTOs(customerRepository.findInactiveCustomers(cutoffDate));
     }
 
     /**
      * Map Customer entity to CustomerDTO.
      */
     private CustomerDTO mapToDTO(Customer customer) {
-        CustomerDTO dto = modelMapper.map(customer, CustomerDTO.class);
-        dto.setFullName(customer.getFullName());
-        dto.setAge(customer.getAge());
+        CustomerDTO dto = toDTO(customer);
 
         // Get points balance
         loyaltyPointsRepository.findByCustomerId(customer.getId())
@@ -282,5 +345,45 @@ public class CustomerService {
 
         return dto;
     }
+
+    /**
+     * Map a page of customers, loading their balances in one query.
+     */
+    private Page<CustomerDTO> mapToDTOs(Page<Customer> customers) {
+        return new PageImpl<>(mapToDTOs(customers.getContent()), customers.getPageable(),
+            customers.getTotalElements());
+    }
+
+    /**
+     * Map a list of customers, loading their balances in one query per chunk of ids
+     * instead of one query per customer.
+     */
+    private List<CustomerDTO> mapToDTOs(List<Customer> customers) {
+        Map<Long, Long> balances = new HashMap<>();
+        for (int from = 0; from < customers.size(); from += BALANCE_LOOKUP_CHUNK) {
+            List<Long> ids = customers.subList(from, Math.min(from + BALANCE_LOOKUP_CHUNK, customers.size()))
+                .stream()
+                .map(Customer::getId)
+                .toList();
+            for (Object[] row : loyaltyPointsRepository.findBalancesByCustomerIdIn(ids)) {
+                balances.put((Long) row[0], (Long) row[1]);
+            }
+        }
+
+        List<CustomerDTO> dtos = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            CustomerDTO dto = toDTO(customer);
+            dto.setCurrentPointsBalance(balances.get(customer.getId()));
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    private CustomerDTO toDTO(Customer customer) {
+        CustomerDTO dto = modelMapper.map(customer, CustomerDTO.class);
+        dto.setFullName(customer.getFullName());
+        dto.setAge(customer.getAge());
+        return dto;
+    }
 }
 
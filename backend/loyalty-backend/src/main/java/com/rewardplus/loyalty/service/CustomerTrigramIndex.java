@@ -0,0 +1,363 @@
+package com.rewardplus.loyalty.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram inverted index over customer names, emails, codes and phone numbers.
+ *
+ * Each customer occupies a slot holding its normalized text; every trigram of that text maps
+ * to the ascending list of slots containing it. Word starts are also indexed with boundary
+ * padding, so one- and two-character prefixes are single lookups. Substring queries intersect
+ * the postings of their trigrams and confirm the survivors against the text; fuzzy queries
+ * rank slots by the share of the query's trigrams they contain. Updating a customer moves it
+ * to a new slot and leaves the old one dead, so postings are append-only and stay sorted;
+ * dead slots are dropped when the index is rebuilt. Thread-safe.
+ */
+final class CustomerTrigramIndex {
+
+    // Pads word starts so "j" and "jo" become the trigrams "__j" and "_jo"
+    private static final char BOUNDARY = '\u0002';
+    private static final char FIELD_SEPARATOR = '\u0001';
+
+    private static final int EXACT = 0;
+    private static final int PREFIX = 1;
+    private static final int INFIX = 2;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private long[] customerIds;
+    private String[] texts;
+    private int slots;
+
+    CustomerTrigramIndex(int expectedCustomers) {
+        int capacity = Math.max(16, expectedCustomers);
+        customerIds = new long[capacity];
+        texts = new String[capacity];
+    }
+
+    /**
+     * Add a customer or replace its indexed fields.
+     */
+    void put(long customerId, String firstName, String lastName, String email, String customerCode, String phone) {
+        String text = normalize(join(firstName, lastName)) + FIELD_SEPARATOR + normalize(email)
+            + FIELD_SEPARATOR + normalize(customerCode) + FIELD_SEPARATOR + digits(phone);
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = slotById.get(customerId);
+            if (previous != null) {
+                if (text.equals(texts[previous])) {
+                    return;
+                }
+                texts[previous] = null;
+            }
+            if (slots == texts.length) {
+                customerIds = Arrays.copyOf(customerIds, slots * 2);
+                texts = Arrays.copyOf(texts, slots * 2);
+            }
+            int slot = slots++;
+            customerIds[slot] = customerId;
+            texts[slot] = text;
+            slotById.put(customerId, slot);
+            for (long gram : indexGrams(text)) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Customers whose name, email, code or phone contains the query, best first: a whole field
+     * equal to the query, then a word starting with it, then any other substring. Queries of
+     * one or two characters only match word starts. When nothing contains the query, customers
+     * sharing at least minSimilarity of its trigrams are returned instead, most similar first.
+     * At most maxMatches customers are returned.
+     */
+    Result search(String query, double minSimilarity, int maxMatches) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return new Result(List.of(), false);
+        }
+        String phone = looksLikePhone(normalized) ? digits(normalized) : "";
+
+        lock.readLock().lock();
+        try {
+            List<Long> matches = collectSubstringMatches(normalized, phone, maxMatches);
+            if (!matches.isEmpty() || normalized.length() < 3) {
+                return new Result(matches, false);
+            }
+            return new Result(collectFuzzyMatches(normalized, minSimilarity, maxMatches), true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int deadSlots() {
+        lock.readLock().lock();
+        try {
+            return slots - slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked matches, kept per rank in slot order so no sort is needed; scanning stops once
+     * enough exact matches are found to fill the result.
+     */
+    private List<Long> collectSubstringMatches(String query, String phone, int maxMatches) {
+        int[] candidates;
+        if (query.length() >= 3) {
+            candidates = intersect(grams(query));
+        } else {
+            String padded = query.length() == 1 ? "" + BOUNDARY + BOUNDARY + query : BOUNDARY + query;
+            Postings prefix = postings.get(gram(padded, 0));
+            candidates = prefix != null ? prefix.toArray() : new int[0];
+        }
+        int[][] ranked = new int[INFIX + 1][];
+        int[] counts = new int[INFIX + 1];
+        for (int slot : candidates) {
+            String text = texts[slot];
+            if (text != null) {
+                int rank = rank(text, query);
+                if (rank >= 0 && addRanked(ranked, counts, rank, slot, maxMatches)) {
+                    break;
+                }
+            }
+        }
+
+        // Phone numbers are indexed as digits only, so "555-0101" must also match "5550101"
+        if (phone.length() >= 3 && !phone.equals(query) && counts[EXACT] < maxMatches) {
+            for (int slot : intersect(grams(phone))) {
+                String text = texts[slot];
+                if (text != null && rank(text, query) < 0) {
+                    String digits = text.substring(text.lastIndexOf(FIELD_SEPARATOR) + 1);
+                    int index = digits.indexOf(phone);
+                    int rank = index < 0 ? -1 : digits.length() == phone.length() ? EXACT : index == 0 ? PREFIX : INFIX;
+                    if (rank >= 0 && addRanked(ranked, counts, rank, slot, maxMatches)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(Math.min(maxMatches, counts[EXACT] + counts[PREFIX] + counts[INFIX]));
+        for (int rank = EXACT; rank <= INFIX; rank++) {
+            for (int i = 0; i < counts[rank] && ids.size() < maxMatches; i++) {
+                ids.add(customerIds[ranked[rank][i]]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns true once maxMatches exact matches are held, as nothing can outrank them.
+     */
+    private static boolean addRanked(int[][] ranked, int[] counts, int rank, int slot, int maxMatches) {
+        if (counts[rank] < maxMatches) {
+            if (ranked[rank] == null) {
+                ranked[rank] = new int[16];
+            } else if (counts[rank] == ranked[rank].length) {
+                ranked[rank] = Arrays.copyOf(ranked[rank], Math.min(maxMatches, counts[rank] * 2));
+            }
+            ranked[rank][counts[rank]++] = slot;
+        }
+        return counts[EXACT] >= maxMatches;
+    }
+
+    /**
+     * Slots sharing at least minSimilarity of the query's trigrams, most similar first, ties
+     * in slot order.
+     */
+    private List<Long> collectFuzzyMatches(String query, double minSimilarity, int maxMatches) {
+        Set<Long> queryGrams = indexGrams(query);
+        byte[] hits = new byte[slots];
+        for (long gram : queryGrams) {
+            Postings list = postings.get(gram);
+            if (list != null) {
+                for (int i = 0; i < list.size; i++) {
+                    if (hits[list.slots[i]] < Byte.MAX_VALUE) {
+                        hits[list.slots[i]]++;
+                    }
+                }
+            }
+        }
+        int needed = (int) Math.ceil(minSimilarity * queryGrams.size());
+        int most = Math.min(queryGrams.size(), Byte.MAX_VALUE);
+        // Bucket slots by hit count, then read the buckets from the most hits down
+        int[] perCount = new int[most + 2];
+        for (int slot = 0; slot < slots; slot++) {
+            if (hits[slot] >= Math.max(1, needed) && texts[slot] != null) {
+                perCount[hits[slot]]++;
+            }
+        }
+        List<Long> ids = new ArrayList<>();
+        for (int count = most; count >= Math.max(1, needed) && ids.size() < maxMatches; count--) {
+            if (perCount[count] == 0) {
+                continue;
+            }
+            for (int slot = 0; slot < slots && ids.size() < maxMatches; slot++) {
+                if (hits[slot] == count && texts[slot] != null) {
+                    ids.add(customerIds[slot]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Slots in every gram's postings, smallest list first so each step only probes survivors.
+     */
+    private int[] intersect(Set<Long> grams) {
+        List<Postings> lists = new ArrayList<>(grams.size());
+        for (long gram : grams) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        if (lists.isEmpty()) {
+            return new int[0];
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        int[] result = lists.get(0).toArray();
+        int size = result.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            Postings list = lists.get(i);
+            int kept = 0;
+            for (int j = 0; j < size; j++) {
+                if (Arrays.binarySearch(list.slots, 0, list.size, result[j]) >= 0) {
+                    result[kept++] = result[j];
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * EXACT when a whole field equals the query, PREFIX when a word starts with it,
+     * INFIX when it only appears mid-word, -1 when it does not appear.
+     */
+    private static int rank(String text, String query) {
+        int best = -1;
+        int from = 0;
+        int index;
+        while ((index = text.indexOf(query, from)) >= 0) {
+            int end = index + query.length();
+            boolean fieldStart = index == 0 || text.charAt(index - 1) == FIELD_SEPARATOR;
+            boolean fieldEnd = end == text.length() || text.charAt(end) == FIELD_SEPARATOR;
+            int rank = fieldStart && fieldEnd ? EXACT
+                : fieldStart || !Character.isLetterOrDigit(text.charAt(index - 1)) ? PREFIX
+                : INFIX;
+            if (best < 0 || rank < best) {
+                best = rank;
+            }
+            if (best == EXACT) {
+                break;
+            }
+            from = index + 1;
+        }
+        return best;
+    }
+
+    /**
+     * Plain trigrams of a query, which must all be present in a matching text.
+     */
+    private static Set<Long> grams(String text) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(gram(text, i));
+        }
+        return grams;
+    }
+
+    /**
+     * Plain trigrams of each field plus the padded prefixes of each word.
+     */
+    private static Set<Long> indexGrams(String text) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (String field : text.split(String.valueOf(FIELD_SEPARATOR))) {
+            grams.addAll(grams(field));
+            for (int i = 0; i < field.length(); i++) {
+                boolean wordStart = Character.isLetterOrDigit(field.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(field.charAt(i - 1)));
+                if (wordStart) {
+                    grams.add(gram("" + BOUNDARY + BOUNDARY + field.charAt(i), 0));
+                    if (i + 1 < field.length()) {
+                        grams.add(gram(BOUNDARY + field.substring(i, i + 2), 0));
+                    }
+                }
+            }
+        }
+        return grams;
+    }
+
+    private static long gram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    private static String join(String firstName, String lastName) {
+        return (firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "");
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ")
+            .replace(FIELD_SEPARATOR, ' ').replace(BOUNDARY, ' ');
+    }
+
+    private static boolean looksLikePhone(String query) {
+        return query.matches("[0-9+()\\-. ]+");
+    }
+
+    private static String digits(String value) {
+        return value == null ? "" : value.replaceAll("[^0-9]", "");
+    }
+
+    /**
+     * Matching customer ids, best first, and whether they came from the fuzzy fallback.
+     */
+    record Result(List<Long> customerIds, boolean fuzzy) {
+    }
+
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(slots, size);
+        }
+    }
+}
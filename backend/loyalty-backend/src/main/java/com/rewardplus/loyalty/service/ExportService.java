@@ -0,0 +1,204 @@
+package com.rewardplus.loyalty.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewardplus.loyalty.entity.Customer.CustomerStatus;
+import com.rewardplus.loyalty.entity.Customer.CustomerTier;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.exception.ServiceBusyException;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.RedemptionLogRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import com.rewardplus.loyalty.repository.projection.CustomerExportRow;
+import com.rewardplus.loyalty.repository.projection.RedemptionExportRow;
+import com.rewardplus.loyalty.repository.projection.TransactionExportRow;
+import com.rewardplus.loyalty.service.ExportWriter.Column;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk exports of customers, transactions and redemptions as NDJSON or CSV.
+ *
+ * Rows are streamed from a forward-only MySQL result set through a writer straight into the
+ * response, optionally gzipped, without collecting them into a list, so memory stays flat
+ * whatever the row count. Each running export holds a pooled connection until it finishes,
+ * so only app.exports.max-concurrent run at once; further requests get a 503.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private static final List<Column<CustomerExportRow>> CUSTOMER_COLUMNS = List.of(
+        new Column<>("id", CustomerExportRow::getId),
+        new Column<>("customerCode", CustomerExportRow::getCustomerCode),
+        new Column<>("firstName", CustomerExportRow::getFirstName),
+        new Column<>("lastName", CustomerExportRow::getLastName),
+        new Column<>("email", CustomerExportRow::getEmail),
+        new Column<>("phone", CustomerExportRow::getPhone),
+        new Column<>("status", CustomerExportRow::getStatus),
+        new Column<>("tier", CustomerExportRow::getTier),
+        new Column<>("city", CustomerExportRow::getCity),
+        new Column<>("country", CustomerExportRow::getCountry),
+        new Column<>("enrollmentDate", CustomerExportRow::getEnrollmentDate),
+        new Column<>("lastActivityDate", CustomerExportRow::getLastActivityDate),
+        new Column<>("currentPointsBalance", CustomerExportRow::getCurrentPointsBalance),
+        new Column<>("createdAt", CustomerExportRow::getCreatedAt));
+
+    private static final List<Column<TransactionExportRow>> TRANSACTION_COLUMNS = List.of(
+        new Column<>("id", TransactionExportRow::getId),
+        new Column<>("transactionCode", TransactionExportRow::getTransactionCode),
+        new Column<>("customerId", TransactionExportRow::getCustomerId),
+        new Column<>("customerCode", TransactionExportRow::getCustomerCode),
+        new Column<>("amount", TransactionExportRow::getAmount),
+        new Column<>("discountApplied", TransactionExportRow::getDiscountApplied),
+        new Column<>("netAmount", TransactionExportRow::getNetAmount),
+        new Column<>("transactionDate", TransactionExportRow::getTransactionDate),
+        new Column<>("transactionType", TransactionExportRow::getTransactionType),
+        new Column<>("status", TransactionExportRow::getStatus),
+        new Column<>("storeCode", TransactionExportRow::getStoreCode),
+        new Column<>("productCategory", TransactionExportRow::getProductCategory),
+        new Column<>("paymentMethod", TransactionExportRow::getPaymentMethod),
+        new Column<>("receiptNumber", TransactionExportRow::getReceiptNumber));
+
+    private static final List<Column<RedemptionExportRow>> REDEMPTION_COLUMNS = List.of(
+        new Column<>("id", RedemptionExportRow::getId),
+        new Column<>("redemptionCode", RedemptionExportRow::getRedemptionCode),
+        new Column<>("customerId", RedemptionExportRow::getCustomerId),
+        new Column<>("customerCode", RedemptionExportRow::getCustomerCode),
+        new Column<>("rewardId", RedemptionExportRow::getRewardId),
+        new Column<>("rewardCode", RedemptionExportRow::getRewardCode),
+        new Column<>("rewardName", RedemptionExportRow::getRewardName),
+        new Column<>("pointsRedeemed", RedemptionExportRow::getPointsRedeemed),
+        new Column<>("status", RedemptionExportRow::getStatus),
+        new Column<>("channel", RedemptionExportRow::getChannel),
+        new Column<>("redemptionDate", RedemptionExportRow::getRedemptionDate),
+        new Column<>("storeCode", RedemptionExportRow::getStoreCode),
+        new Column<>("voucherCode", RedemptionExportRow::getVoucherCode));
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final CustomerRepository customerRepository;
+    private final TransactionRepository transactionRepository;
+    private final RedemptionLogRepository redemptionLogRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnly;
+    private final Semaphore permits;
+
+    public ExportService(CustomerRepository customerRepository,
+                         TransactionRepository transactionRepository,
+                         RedemptionLogRepository redemptionLogRepository,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.exports.max-concurrent:2}") int maxConcurrent) {
+        this.customerRepository = customerRepository;
+        this.transactionRepository = transactionRepository;
+        this.redemptionLogRepository = redemptionLogRepository;
+        this.objectMapper = objectMapper;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Customers in id order, optionally filtered by status and tier.
+     */
+    public StreamingResponseBody exportCustomers(CustomerStatus status, CustomerTier tier, Format format,
+                                                 boolean gzip) {
+        return export("customers", () -> customerRepository.streamForExport(status, tier),
+            CUSTOMER_COLUMNS, format, gzip);
+    }
+
+    /**
+     * Transactions dated within the range, in date order.
+     */
+    public StreamingResponseBody exportTransactions(LocalDateTime startDate, LocalDateTime endDate, Format format,
+                                                    boolean gzip) {
+        checkRange(startDate, endDate);
+        return export("transactions", () -> transactionRepository.streamForExport(startDate, endDate),
+            TRANSACTION_COLUMNS, format, gzip);
+    }
+
+    /**
+     * Redemptions dated within the range, in date order.
+     */
+    public StreamingResponseBody exportRedemptions(LocalDateTime startDate, LocalDateTime endDate, Format format,
+                                                   boolean gzip) {
+        checkRange(startDate, endDate);
+        return export("redemptions", () -> redemptionLogRepository.streamForExport(startDate, endDate),
+            REDEMPTION_COLUMNS, format, gzip);
+    }
+
+    /**
+     * Takes an export slot now, so a busy node answers 503 before the response starts, and
+     * returns the body that streams the rows and gives the slot back.
+     */
+    private <R> StreamingResponseBody export(String name, Supplier<Stream<R>> query, List<Column<R>> columns,
+                                             Format format, boolean gzip) {
+        if (!permits.tryAcquire()) {
+            throw new ServiceBusyException("Too many exports are running, retry shortly", 30);
+        }
+        return out -> {
+            long started = System.nanoTime();
+            try {
+                GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, GZIP_BUFFER_SIZE) : null;
+                ExportWriter<R> writer = new ExportWriter<>(columns, format,
+                    compressed != null ? compressed : out, objectMapper.getFactory());
+                // The result set streams inside the transaction that opened it
+                readOnly.executeWithoutResult(status -> {
+                    try (Stream<R> rows = query.get()) {
+                        rows.forEach(writer::write);
+                    }
+                });
+                writer.finish();
+                if (compressed != null) {
+                    compressed.finish();
+                }
+                log.info("Exported {} {} as {} in {} ms", writer.rows(), name, format,
+                    (System.nanoTime() - started) / 1_000_000);
+            } catch (UncheckedIOException e) {
+                // Usually the client going away mid-download
+                throw e.getCause();
+            } finally {
+                permits.release();
+            }
+        };
+    }
+
+    private static void checkRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new BadRequestException("startDate must not be after endDate", "INVALID_DATE_RANGE");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.rewardplus.loyalty.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes export rows as newline-delimited JSON or CSV as they arrive, so an export holds one
+ * row and an output buffer in memory however many rows it has. Not thread-safe.
+ */
+final class ExportWriter<R> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final List<Column<R>> columns;
+    private final Writer out;
+    private final JsonGenerator json;
+    private long rows;
+
+    ExportWriter(List<Column<R>> columns, ExportService.Format format, OutputStream stream, JsonFactory jsonFactory)
+            throws IOException {
+        this.columns = columns;
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == ExportService.Format.NDJSON) {
+            json = jsonFactory.createGenerator(out);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN);
+            json.setRootValueSeparator(null);
+        } else {
+            json = null;
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(columns.get(i).name());
+            }
+            out.write("\r\n");
+        }
+    }
+
+    void write(R row) {
+        try {
+            if (json != null) {
+                writeJson(row);
+            } else {
+                writeCsv(row);
+            }
+            rows++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flush everything written so far to the underlying stream.
+     */
+    void finish() throws IOException {
+        if (json != null) {
+            json.flush();
+        }
+        out.flush();
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    private void writeJson(R row) throws IOException {
+        json.writeStartObject();
+        for (Column<R> column : columns) {
+            json.writeFieldName(column.name());
+            Object value = column.value().apply(row);
+            if (value == null) {
+                json.writeNull();
+            } else if (value instanceof BigDecimal decimal) {
+                json.writeNumber(decimal);
+            } else if (value instanceof Long || value instanceof Integer) {
+                json.writeNumber(((Number) value).longValue());
+            } else {
+                json.writeString(text(value));
+            }
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private void writeCsv(R row) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object value = columns.get(i).value().apply(row);
+            if (value != null) {
+                writeCsvField(text(value));
+            }
+        }
+        out.write("\r\n");
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks, doubling the quotes
+    private void writeCsvField(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static String text(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        if (value instanceof Enum<?> constant) {
+            return constant.name();
+        }
+        // Dates and date-times print as ISO-8601
+        return value.toString();
+    }
+
+    /**
+     * A named output column and how to read it from a row.
+     */
+    record Column<R>(String name, Function<R, Object> value) {
+    }
+}
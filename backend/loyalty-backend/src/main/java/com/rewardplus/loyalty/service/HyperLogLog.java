@@ -0,0 +1,197 @@
+package com.rewardplus.loyalty.service;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct customer ids added to it, with a
+ * standard error of about 1.6% (2^12 six-bit registers). Sketches merge by taking the larger
+ * of each register, so merging is lossless, order-independent and idempotent: the union of
+ * days, stores or nodes is estimated as well as any single sketch. Not thread-safe.
+ *
+ * The precision is part of the persisted format and must not change.
+ */
+final class HyperLogLog {
+
+    static final int PRECISION = 12;
+    static final int REGISTERS = 1 << PRECISION;
+    static final double RELATIVE_ERROR = 1.04 / Math.sqrt(REGISTERS);
+
+    // Serialized forms: a tag byte, then all registers or (index, value) triples for the set ones
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    private static final int MAX_RANK = 64 - PRECISION + 1;
+    private static final double ALPHA_INF = 0.5 / Math.log(2);
+
+    private final byte[] registers;
+
+    HyperLogLog() {
+        this(new byte[REGISTERS]);
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * Add a customer id; adding it again has no effect.
+     */
+    void add(long id) {
+        long hash = mix(id);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Leading zeros after the index bits, plus one; the sentinel bit caps the rank at MAX_RANK
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Fold another sketch into this one. Returns whether any register changed.
+     */
+    boolean merge(HyperLogLog other) {
+        boolean changed = false;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Estimated number of distinct ids added, using Ertl's improved estimator ("New cardinality
+     * estimation algorithms for HyperLogLog sketches", 2017), which stays unbiased across the
+     * switch from small to large counts without empirical correction tables.
+     */
+    long estimate() {
+        int[] histogram = new int[MAX_RANK + 1];
+        for (byte register : registers) {
+            histogram[register]++;
+        }
+        double z = REGISTERS * tau(1 - (double) histogram[MAX_RANK] / REGISTERS);
+        for (int rank = MAX_RANK - 1; rank >= 1; rank--) {
+            z = 0.5 * (z + histogram[rank]);
+        }
+        z += REGISTERS * sigma((double) histogram[0] / REGISTERS);
+        return Math.round(ALPHA_INF * REGISTERS * REGISTERS / z);
+    }
+
+    boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    HyperLogLog copy() {
+        return new HyperLogLog(registers.clone());
+    }
+
+    /**
+     * Compact form for storage: sparse while few registers are set, which is the common case
+     * for a single store's day, and at most REGISTERS + 1 bytes otherwise.
+     */
+    byte[] toBytes() {
+        int set = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                set++;
+            }
+        }
+        if (set * 3 >= REGISTERS) {
+            byte[] bytes = new byte[REGISTERS + 1];
+            bytes[0] = DENSE;
+            System.arraycopy(registers, 0, bytes, 1, REGISTERS);
+            return bytes;
+        }
+        byte[] bytes = new byte[1 + set * 3];
+        bytes[0] = SPARSE;
+        int offset = 1;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                bytes[offset++] = (byte) (i >>> 8);
+                bytes[offset++] = (byte) i;
+                bytes[offset++] = registers[i];
+            }
+        }
+        return bytes;
+    }
+
+    static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return new HyperLogLog();
+        }
+        if (bytes[0] == DENSE && bytes.length == REGISTERS + 1) {
+            byte[] registers = Arrays.copyOfRange(bytes, 1, bytes.length);
+            for (byte register : registers) {
+                checkRank(register);
+            }
+            return new HyperLogLog(registers);
+        }
+        if (bytes[0] == SPARSE && (bytes.length - 1) % 3 == 0) {
+            byte[] registers = new byte[REGISTERS];
+            for (int offset = 1; offset < bytes.length; offset += 3) {
+                int index = ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+                if (index >= REGISTERS) {
+                    throw new IllegalArgumentException("HyperLogLog register index out of range: " + index);
+                }
+                registers[index] = checkRank(bytes[offset + 2]);
+            }
+            return new HyperLogLog(registers);
+        }
+        throw new IllegalArgumentException("Unrecognised HyperLogLog encoding");
+    }
+
+    private static byte checkRank(byte rank) {
+        if (rank < 0 || rank > MAX_RANK) {
+            throw new IllegalArgumentException("HyperLogLog register value out of range: " + rank);
+        }
+        return rank;
+    }
+
+    private static double sigma(double x) {
+        if (x == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if (x == 0 || x == 1) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1 - x) * (1 - x) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+
+    // 64-bit finalizer from MurmurHash3; sequential ids come out uniformly spread
+    private static long mix(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
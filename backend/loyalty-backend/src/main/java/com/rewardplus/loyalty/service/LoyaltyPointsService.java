@@ -3,10 +3,13 @@ package com.rewardplus.loyalty.service;
 import com.rewardplus.loyalty.dto.LoyaltyPointsDTO;
 import com.rewardplus.loyalty.entity.Customer;
 import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
+import com.rewardplus.loyalty.exception.BadRequestException;
 import com.rewardplus.loyalty.exception.InsufficientPointsException;
 import com.rewardplus.loyalty.exception.ResourceNotFoundException;
 import com.rewardplus.loyalty.repository.CustomerRepository;
 import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
@@ -14,6 +17,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,91 +32,102 @@ public class LoyaltyPointsService {
 
     private final LoyaltyPointsRepository loyaltyPointsRepository;
     private final CustomerRepository customerRepository;
+    private final PointsLedgerService pointsLedgerService;
+    private final CustomerLockStripes customerLocks;
+    private final CustomerLookupCache customerLookupCache;
     private final ModelMapper modelMapper;
+    private final EntityManager entityManager;
 
     @Value("${app.points.redemption-rate:100}")
     private int pointsRedemptionRate; // Points needed per dollar redeemed
 
     /**
-     * Get points balance for a customer.
+     * Get points balance for a customer, served from the near cache when possible.
      */
-    @Transactional(readOnly = true)
     public LoyaltyPointsDTO getPointsBalance(Long customerId) {
-        Customer customer = customerRepository.findById(customerId)
-            .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
-
-        LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customerId)
-            .orElseThrow(() -> new ResourceNotFoundException("LoyaltyPoints", "customerId", customerId));
-
-        LoyaltyPointsDTO dto = modelMapper.map(loyaltyPoints, LoyaltyPointsDTO.class);
-        dto.setCustomerName(customer.getFullName());
-        dto.setCustomerCode(customer.getCustomerCode());
-        dto.setAvailableBalance(loyaltyPoints.getAvailableBalance());
-
-        return dto;
+        return customerLookupCache.getBalance(customerId, () -> {
+            Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
+            return loadBalance(customer);
+        });
     }
 
     /**
-     * Get points balance by customer code.
+     * Get points balance by customer code, served from the near cache when possible.
      */
-    @Transactional(readOnly = true)
     public LoyaltyPointsDTO getPointsBalanceByCode(String customerCode) {
-        Customer customer = customerRepository.findByCustomerCode(customerCode)
-            .orElseThrow(() -> new ResourceNotFoundException("Customer", "customerCode", customerCode));
+        return customerLookupCache.getBalanceByCode(customerCode, () -> {
+            Customer customer = customerRepository.findByCustomerCode(customerCode)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "customerCode", customerCode));
+            return loadBalance(customer);
+        });
+    }
 
-        return getPointsBalance(customer.getId());
+    private LoyaltyPointsDTO loadBalance(Customer customer) {
+        LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customer.getId())
+            .orElseThrow(() -> new ResourceNotFoundException("LoyaltyPoints", "customerId", customer.getId()));
+        return mapToDTO(loyaltyPoints, customer);
     }
 
     /**
      * Redeem points for a customer.
+     * The balance check and the deduction are one conditional UPDATE, so concurrent
+     * redemptions can never take the balance below zero.
      */
-    @Transactional
     public LoyaltyPointsDTO redeemPoints(Long customerId, Long pointsToRedeem, String reason) {
         log.info("Processing point redemption for customer {}: {} points", customerId, pointsToRedeem);
 
-        Customer customer = customerRepository.findById(customerId)
-            .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
-
-        LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customerId)
-            .orElseThrow(() -> new ResourceNotFoundException("LoyaltyPoints", "customerId", customerId));
-
-        if (loyaltyPoints.getCurrentBalance() < pointsToRedeem) {
-            throw new InsufficientPointsException(
-                customerId,
-                loyaltyPoints.getCurrentBalance(),
-                pointsToRedeem
-            );
+        if (pointsToRedeem == null || pointsToRedeem <= 0) {
+            throw new BadRequestException("Points to redeem must be greater than 0");
         }
-
-        loyaltyPoints.redeemPoints(pointsToRedeem);
-        if (reason != null) {
-            String existingNotes = loyaltyPoints.getNotes();
-            loyaltyPoints.setNotes(existingNotes != null ? existingNotes + "; " + reason : reason);
-        }
-
-        loyaltyPoints = loyaltyPointsRepository.save(loyaltyPoints);
-        log.info("Points redeemed successfully. New balance: {}", loyaltyPoints.getCurrentBalance());
-
-        LoyaltyPointsDTO dto = modelMapper.map(loyaltyPoints, LoyaltyPointsDTO.class);
-        dto.setCustomerName(customer.getFullName());
-        dto.setCustomerCode(customer.getCustomerCode());
-        dto.setAvailableBalance(loyaltyPoints.getAvailableBalance());
-
-        return dto;
+        return customerLocks.withLock(customerId, () -> {
+            Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
+
+            if (loyaltyPointsRepository.debitPoints(customerId, pointsToRedeem, LocalDateTime.now()) == 0) {
+                LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customerId)
+                    .orElseThrow(() -> new ResourceNotFoundException("LoyaltyPoints", "customerId", customerId));
+                throw new InsufficientPointsException(
+                    customerId,
+                    loyaltyPoints.getCurrentBalance(),
+                    pointsToRedeem
+                );
+            }
+            pointsLedgerService.record(customerId, PointsLedgerEntry.EntryType.REDEEM, -pointsToRedeem, null, null, reason);
+            customerLookupCache.invalidate(customerId);
+
+            LoyaltyPoints loyaltyPoints = reloadAccount(customerId);
+            log.info("Points redeemed successfully. New balance: {}", loyaltyPoints.getCurrentBalance());
+
+            return mapToDTO(loyaltyPoints, customer);
+        });
     }
 
     /**
      * Adjust points (add or deduct) for a customer.
+     * Applied as one conditional UPDATE; deductions that would take the balance below
+     * zero are rejected.
      */
-    @Transactional
     public LoyaltyPointsDTO adjustPoints(Long customerId, Long points, String reason) {
         log.info("Adjusting points for customer {}: {} points", customerId, points);
 
-        Customer customer = customerRepository.findById(customerId)
-            .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
+        return customerLocks.withLock(customerId, () -> {
+            Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
 
-        LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customerId)
-            .orElseGet(() -> {
+            if (loyaltyPointsRepository.adjustBalance(customerId, points, Math.abs(points), LocalDateTime.now()) == 0) {
+                LoyaltyPoints existing = loyaltyPointsRepository.findByCustomerId(customerId).orElse(null);
+
+                // If deducting more than available, throw exception
+                if (existing != null || points < 0) {
+                    throw new InsufficientPointsException(
+                        customerId,
+                        existing != null ? existing.getCurrentBalance() : 0L,
+                        Math.abs(points)
+                    );
+                }
+
+                // No account yet: open one holding the adjustment
                 LoyaltyPoints newPoints = LoyaltyPoints.builder()
                     .customer(customer)
                     .currentBalance(0L)
@@ -122,32 +137,44 @@ public class LoyaltyPointsService {
                     .pointsAdjusted(0L)
                     .status(LoyaltyPoints.PointsStatus.ACTIVE)
                     .build();
-                return loyaltyPointsRepository.save(newPoints);
-            });
-
-        // If deducting more than available, throw exception
-        if (points < 0 && Math.abs(points) > loyaltyPoints.getCurrentBalance()) {
-            throw new InsufficientPointsException(
-                customerId,
-                loyaltyPoints.getCurrentBalance(),
-                Math.abs(points)
-            );
-        }
-
-        loyaltyPoints.adjustPoints(points);
-        if (reason != null) {
-            String existingNotes = loyaltyPoints.getNotes();
-            loyaltyPoints.setNotes(existingNotes != null ? existingNotes + "; " + reason : reason);
-        }
+                newPoints.adjustPoints(points);
+                newPoints = loyaltyPointsRepository.save(newPoints);
+                pointsLedgerService.record(customerId, PointsLedgerEntry.EntryType.ADJUST, points, null, null, reason);
+                customerLookupCache.invalidate(customerId);
+                log.info("Points adjusted successfully. New balance: {}", newPoints.getCurrentBalance());
+                return mapToDTO(newPoints, customer);
+            }
+
+            pointsLedgerService.record(customerId, PointsLedgerEntry.EntryType.ADJUST, points, null, null, reason);
+            customerLookupCache.invalidate(customerId);
+
+            LoyaltyPoints loyaltyPoints = reloadAccount(customerId);
+            log.info("Points adjusted successfully. New balance: {}", loyaltyPoints.getCurrentBalance());
+
+            return mapToDTO(loyaltyPoints, customer);
+        });
+    }
 
-        loyaltyPoints = loyaltyPointsRepository.save(loyaltyPoints);
-        log.info("Points adjusted successfully. New balance: {}", loyaltyPoints.getCurrentBalance());
+    /**
+     * Read the account back after a bulk UPDATE. The UPDATE bypasses the persistence context,
+     * so an account already loaded in this transaction still holds the old balance until refreshed.
+     */
+    private LoyaltyPoints reloadAccount(Long customerId) {
+        LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customerId)
+            .orElseThrow(() -> new ResourceNotFoundException("LoyaltyPoints", "customerId", customerId));
+        entityManager.refresh(loyaltyPoints);
+        return loyaltyPoints;
+    }
 
+    /**
+     * Map LoyaltyPoints entity to LoyaltyPointsDTO.
+     */
+    private LoyaltyPointsDTO mapToDTO(LoyaltyPoints loyaltyPoints, Customer customer) {
         LoyaltyPointsDTO dto = modelMapper.map(loyaltyPoints, LoyaltyPointsDTO.class);
+        dto.setCustomerId(customer.getId());
         dto.setCustomerName(customer.getFullName());
         dto.setCustomerCode(customer.getCustomerCode());
         dto.setAvailableBalance(loyaltyPoints.getAvailableBalance());
-
         return dto;
     }
 
@@ -0,0 +1,180 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.PointsBalanceAsOfDTO;
+import com.rewardplus.loyalty.dto.PointsLedgerEntryDTO;
+import com.rewardplus.loyalty.entity.PointsBalanceSnapshot;
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
+import com.rewardplus.loyalty.exception.ResourceNotFoundException;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.PointsBalanceSnapshotRepository;
+import com.rewardplus.loyalty.repository.PointsLedgerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class for the append-only points ledger.
+ * Every balance change is recorded as a ledger entry; daily balance snapshots are
+ * built incrementally from the previous snapshot plus the day's entries, so
+ * balance-as-of queries only read one snapshot and the entries after it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PointsLedgerService {
+
+    private static final int REASON_MAX_LENGTH = 255;
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private final PointsLedgerRepository pointsLedgerRepository;
+    private final PointsBalanceSnapshotRepository pointsBalanceSnapshotRepository;
+    private final CustomerRepository customerRepository;
+    private final ModelMapper modelMapper;
+
+    /**
+     * Append a single entry to the ledger.
+     */
+    @Transactional
+    public PointsLedgerEntry record(Long customerId, PointsLedgerEntry.EntryType entryType, long points,
+                                   Long transactionId, Long redemptionId, String reason) {
+        return pointsLedgerRepository.save(entry(customerId, entryType, points, transactionId, redemptionId, reason));
+    }
+
+    /**
+     * Append several entries. Ledger ids are pooled, so Hibernate batches the inserts.
+     */
+    @Transactional
+    public void recordAll(List<PointsLedgerEntry> entries) {
+        if (!entries.isEmpty()) {
+            pointsLedgerRepository.saveAll(entries);
+        }
+    }
+
+    /**
+     * Build an unsaved ledger entry.
+     */
+    public PointsLedgerEntry entry(Long customerId, PointsLedgerEntry.EntryType entryType, long points,
+                                   Long transactionId, Long redemptionId, String reason) {
+        return PointsLedgerEntry.builder()
+            .customerId(customerId)
+            .entryType(entryType)
+            .points(points)
+            .transactionId(transactionId)
+            .redemptionId(redemptionId)
+            .reason(reason != null && reason.length() > REASON_MAX_LENGTH
+                ? reason.substring(0, REASON_MAX_LENGTH) : reason)
+            .build();
+    }
+
+    /**
+     * Get a customer's ledger entries, newest first.
+     */
+    @Transactional(readOnly = true)
+    public Page<PointsLedgerEntryDTO> getLedger(Long customerId, Pageable pageable) {
+        if (!customerRepository.existsById(customerId)) {
+            throw new ResourceNotFoundException("Customer", "id", customerId);
+        }
+        return pointsLedgerRepository.findByCustomerId(customerId, pageable)
+            .map(entry -> modelMapper.map(entry, PointsLedgerEntryDTO.class));
+    }
+
+    /**
+     * Get a customer's balance as of a point in time.
+     * Starts from the latest snapshot for a day before asOf and adds the entries since.
+     */
+    @Transactional(readOnly = true)
+    public PointsBalanceAsOfDTO getBalanceAsOf(Long customerId, LocalDateTime asOf) {
+        if (!customerRepository.existsById(customerId)) {
+            throw new ResourceNotFoundException("Customer", "id", customerId);
+        }
+
+        PointsBalanceSnapshot snapshot = pointsBalanceSnapshotRepository
+            .findFirstByCustomerIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(customerId, asOf.toLocalDate())
+            .orElse(null);
+
+        long sinceSnapshot = snapshot != null
+            ? pointsLedgerRepository.sumPointsBetween(customerId, snapshot.getSnapshotDate().plusDays(1).atStartOfDay(), asOf)
+            : pointsLedgerRepository.sumPointsBefore(customerId, asOf);
+        long snapshotBalance = snapshot != null ? snapshot.getBalance() : 0L;
+
+        return PointsBalanceAsOfDTO.builder()
+            .customerId(customerId)
+            .asOf(asOf)
+            .balance(snapshotBalance + sinceSnapshot)
+            .snapshotDate(snapshot != null ? snapshot.getSnapshotDate() : null)
+            .snapshotBalance(snapshot != null ? snapshotBalance : null)
+            .pointsSinceSnapshot(sinceSnapshot)
+            .build();
+    }
+
+    /**
+     * First day that still needs snapshots, or null if the ledger is empty.
+     */
+    @Transactional(readOnly = true)
+    public LocalDate nextSnapshotDate() {
+        LocalDate latest = pointsBalanceSnapshotRepository.findLatestSnapshotDate();
+        if (latest != null) {
+            return latest.plusDays(1);
+        }
+        LocalDateTime earliest = pointsLedgerRepository.findEarliestEntryTime();
+        return earliest != null ? earliest.toLocalDate() : null;
+    }
+
+    /**
+     * Write end-of-day snapshots for every customer with ledger activity on the date.
+     * Each snapshot is the customer's previous snapshot plus the day's entries.
+     * Returns the number of snapshots written (0 if the day was already processed).
+     */
+    @Transactional
+    public int snapshotDay(LocalDate date) {
+        if (pointsBalanceSnapshotRepository.existsBySnapshotDate(date)) {
+            return 0;
+        }
+
+        List<Object[]> totals = pointsLedgerRepository.sumPointsByCustomerBetween(
+            date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+        if (totals.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> customerIds = new ArrayList<>(totals.size());
+        totals.forEach(row -> customerIds.add((Long) row[0]));
+
+        Map<Long, PointsBalanceSnapshot> previous = new HashMap<>();
+        for (int from = 0; from < customerIds.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = customerIds.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, customerIds.size()));
+            pointsBalanceSnapshotRepository.findLatestBefore(chunk, date)
+                .forEach(snapshot -> previous.put(snapshot.getCustomerId(), snapshot));
+        }
+
+        List<PointsBalanceSnapshot> snapshots = new ArrayList<>(totals.size());
+        for (Object[] row : totals) {
+            Long customerId = (Long) row[0];
+            long netPoints = ((Number) row[1]).longValue();
+            long earned = ((Number) row[2]).longValue();
+            PointsBalanceSnapshot last = previous.get(customerId);
+
+            snapshots.add(PointsBalanceSnapshot.builder()
+                .customerId(customerId)
+                .snapshotDate(date)
+                .balance((last != null ? last.getBalance() : 0L) + netPoints)
+                .lifetimeEarned((last != null ? last.getLifetimeEarned() : 0L) + earned)
+                .build());
+        }
+        pointsBalanceSnapshotRepository.saveAll(snapshots);
+
+        log.info("Wrote {} points balance snapshots for {}", snapshots.size(), date);
+        return snapshots.size();
+    }
+}
@@ -0,0 +1,42 @@
+package com.rewardplus.loyalty.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Nightly job that brings points balance snapshots up to date.
+ * Processes every completed day since the last snapshot, one transaction per day.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PointsSnapshotJob {
+
+    private final PointsLedgerService pointsLedgerService;
+
+    @Scheduled(cron = "${app.points.snapshot.cron:0 30 0 * * *}")
+    public void snapshotCompletedDays() {
+        LocalDate today = LocalDate.now();
+        LocalDate date = pointsLedgerService.nextSnapshotDate();
+        int written = 0;
+
+        try {
+            for (; date != null && date.isBefore(today); date = date.plusDays(1)) {
+                written += pointsLedgerService.snapshotDay(date);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Another instance wrote the same day first; it will finish the run
+            log.info("Points snapshot for {} already written by another instance", date);
+            return;
+        }
+
+        if (written > 0) {
+            log.info("Points snapshot run complete: {} snapshots written", written);
+        }
+    }
+}
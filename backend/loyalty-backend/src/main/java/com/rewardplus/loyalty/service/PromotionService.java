@@ -30,6 +30,7 @@ public class PromotionService {
 
     private final PromotionRepository promotionRepository;
     private final CustomerRepository customerRepository;
+    private final ActivePromotionRegistry activePromotionRegistry;
     private final ModelMapper modelMapper;
 
     /**
@@ -46,6 +47,7 @@ public class PromotionService {
         Promotion promotion = modelMapper.map(promotionDTO, Promotion.class);
         promotion.setStatus(Promotion.PromotionStatus.DRAFT);
         promotion = promotionRepository.save(promotion);
+        activePromotionRegistry.refreshAfterCommit();
 
         log.info("Promotion created successfully: {} ({})", promotion.getName(), promotion.getId());
         return mapToDTO(promotion);
@@ -184,6 +186,7 @@ public class PromotionService {
         promotion.setImageUrl(promotionDTO.getImageUrl());
 
         promotion = promotionRepository.save(promotion);
+        activePromotionRegistry.refreshAfterCommit();
         log.info("Promotion updated successfully: {}", id);
 
         return mapToDTO(promotion);
@@ -201,6 +204,7 @@ public class PromotionService {
 
         promotion.setStatus(status);
         promotion = promotionRepository.save(promotion);
+        activePromotionRegistry.refreshAfterCommit();
 
         return mapToDTO(promotion);
     }
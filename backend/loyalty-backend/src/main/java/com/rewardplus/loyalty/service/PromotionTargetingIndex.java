@@ -0,0 +1,290 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.Promotion;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Targeting index over a fixed list of promotions.
+ * Each targeting dimension (tier, city, gender, age, minimum purchase and new-customer
+ * exclusivity) is compiled into bitsets over promotion positions, so finding the
+ * promotions a customer qualifies for is a few word-wise intersections plus map and
+ * binary-search lookups instead of evaluating every promotion's rules.
+ * Immutable once built and safe to share between threads.
+ */
+public final class PromotionTargetingIndex {
+
+    /** Ages above this (or negative ages) fall back to evaluating the age rule directly. */
+    static final int MAX_INDEXED_AGE = 130;
+
+    /** Customers enrolled within this many days count as new. */
+    static final int NEW_CUSTOMER_DAYS = 30;
+
+    private final Promotion[] promotions;
+
+    // tierMasks[0] is for customers without a tier, tierMasks[t + 1] for tier ordinal t
+    private final BitSet[] tierMasks;
+    private final BitSet anyCity;
+    private final Map<String, BitSet> cityMasks;
+    private final BitSet anyGender;
+    private final Map<String, BitSet> genderMasks;
+    private final BitSet[] ageMasks;
+    // purchaseMasks[k] covers promotions whose minimum is absent or among the k lowest thresholds
+    private final BigDecimal[] purchaseThresholds;
+    private final BitSet[] purchaseMasks;
+    private final BitSet openToAll;
+
+    private volatile DateMask dateMask;
+
+    public PromotionTargetingIndex(List<Promotion> promotions) {
+        this.promotions = promotions.toArray(new Promotion[0]);
+        int size = this.promotions.length;
+
+        // Tier: CustomerTier is declared from lowest to highest
+        Customer.CustomerTier[] tiers = Customer.CustomerTier.values();
+        tierMasks = new BitSet[tiers.length + 1];
+        for (int t = 0; t < tierMasks.length; t++) {
+            tierMasks[t] = new BitSet(size);
+        }
+
+        anyCity = new BitSet(size);
+        anyGender = new BitSet(size);
+        Map<String, BitSet> cities = new HashMap<>();
+        Map<String, BitSet> genders = new HashMap<>();
+
+        ageMasks = new BitSet[MAX_INDEXED_AGE + 1];
+        for (int age = 0; age <= MAX_INDEXED_AGE; age++) {
+            ageMasks[age] = new BitSet(size);
+        }
+
+        BitSet noMinimum = new BitSet(size);
+        TreeMap<BigDecimal, BitSet> byThreshold = new TreeMap<>();
+        openToAll = new BitSet(size);
+
+        for (int i = 0; i < size; i++) {
+            Promotion promo = this.promotions[i];
+
+            int minTier = promo.getMinimumTier() == null ? 0 : promo.getMinimumTier().ordinal() + 1;
+            for (int t = Math.max(minTier, 1); t < tierMasks.length; t++) {
+                tierMasks[t].set(i);
+            }
+            if (minTier == 0) {
+                tierMasks[0].set(i);
+            }
+
+            if (promo.getTargetCity() == null) {
+                anyCity.set(i);
+            } else {
+                cities.computeIfAbsent(key(promo.getTargetCity()), k -> new BitSet(size)).set(i);
+            }
+            if (promo.getTargetGender() == null) {
+                anyGender.set(i);
+            } else {
+                genders.computeIfAbsent(key(promo.getTargetGender()), k -> new BitSet(size)).set(i);
+            }
+
+            int minAge = promo.getMinimumAge() == null ? 0 : Math.max(promo.getMinimumAge(), 0);
+            int maxAge = promo.getMaximumAge() == null ? MAX_INDEXED_AGE : Math.min(promo.getMaximumAge(), MAX_INDEXED_AGE);
+            for (int age = minAge; age <= maxAge; age++) {
+                ageMasks[age].set(i);
+            }
+
+            if (promo.getMinimumPurchaseAmount() == null) {
+                noMinimum.set(i);
+            } else {
+                byThreshold.computeIfAbsent(promo.getMinimumPurchaseAmount(), k -> new BitSet(size)).set(i);
+            }
+
+            if (!Boolean.TRUE.equals(promo.getExclusiveToNewCustomers())) {
+                openToAll.set(i);
+            }
+        }
+
+        // Fold the wildcard promotions into every keyed mask so lookups need no union
+        cityMasks = withWildcard(cities, anyCity);
+        genderMasks = withWildcard(genders, anyGender);
+
+        purchaseThresholds = byThreshold.keySet().toArray(new BigDecimal[0]);
+        purchaseMasks = new BitSet[purchaseThresholds.length + 1];
+        purchaseMasks[0] = noMinimum;
+        int k = 0;
+        for (BitSet atThreshold : byThreshold.values()) {
+            BitSet cumulative = (BitSet) purchaseMasks[k].clone();
+            cumulative.or(atThreshold);
+            purchaseMasks[++k] = cumulative;
+        }
+    }
+
+    /**
+     * Promotions the customer qualifies for on the given date, in list order.
+     */
+    public List<Promotion> candidatesFor(Customer customer, BigDecimal amount, LocalDate date) {
+        if (promotions.length == 0 || amount == null) {
+            return List.of();
+        }
+
+        BitSet result = (BitSet) dateMask(date).clone();
+        result.and(tierMasks[customer.getTier() == null ? 0 : customer.getTier().ordinal() + 1]);
+        result.and(lookup(cityMasks, anyCity, customer.getCity()));
+        result.and(lookup(genderMasks, anyGender, customer.getGender()));
+        result.and(purchaseMasks[thresholdsAtOrBelow(amount)]);
+        result.and(ageMask(customer.getAge()));
+        if (!isNewCustomer(customer, date)) {
+            result.and(openToAll);
+        }
+
+        if (result.isEmpty()) {
+            return List.of();
+        }
+        List<Promotion> matches = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            matches.add(promotions[i]);
+        }
+        return matches;
+    }
+
+    public int size() {
+        return promotions.length;
+    }
+
+    /**
+     * The targeting rule the index compiles, evaluated directly for one promotion.
+     */
+    public static boolean matches(Promotion promo, Customer customer, BigDecimal amount, LocalDate date) {
+        if (!isLive(promo, date)) {
+            return false;
+        }
+
+        // Check minimum purchase amount
+        if (promo.getMinimumPurchaseAmount() != null &&
+            amount.compareTo(promo.getMinimumPurchaseAmount()) < 0) {
+            return false;
+        }
+
+        // Check tier requirement
+        if (promo.getMinimumTier() != null) {
+            if (customer.getTier() == null || customer.getTier().ordinal() < promo.getMinimumTier().ordinal()) {
+                return false;
+            }
+        }
+
+        // Check age range
+        if (!matchesAge(promo, customer.getAge())) {
+            return false;
+        }
+
+        // Check gender
+        if (promo.getTargetGender() != null &&
+            !promo.getTargetGender().equalsIgnoreCase(customer.getGender())) {
+            return false;
+        }
+
+        // Check city
+        if (promo.getTargetCity() != null &&
+            !promo.getTargetCity().equalsIgnoreCase(customer.getCity())) {
+            return false;
+        }
+
+        // Check for new customer exclusivity
+        return !Boolean.TRUE.equals(promo.getExclusiveToNewCustomers()) || isNewCustomer(customer, date);
+    }
+
+    /**
+     * Whether the promotion is within its dates and has uses left.
+     */
+    static boolean isLive(Promotion promo, LocalDate date) {
+        if (promo.getStartDate() != null && date.isBefore(promo.getStartDate())) {
+            return false;
+        }
+        if (promo.getEndDate() != null && date.isAfter(promo.getEndDate())) {
+            return false;
+        }
+        return promo.getUsageLimit() == null || promo.getUsageLimit() <= 0
+            || promo.getUsageCount() == null || promo.getUsageCount() < promo.getUsageLimit();
+    }
+
+    private static boolean matchesAge(Promotion promo, int age) {
+        if (promo.getMinimumAge() != null && age < promo.getMinimumAge()) {
+            return false;
+        }
+        return promo.getMaximumAge() == null || age <= promo.getMaximumAge();
+    }
+
+    private static boolean isNewCustomer(Customer customer, LocalDate date) {
+        return customer.getEnrollmentDate() != null
+            && !customer.getEnrollmentDate().isBefore(date.minusDays(NEW_CUSTOMER_DAYS));
+    }
+
+    private BitSet dateMask(LocalDate date) {
+        DateMask cached = dateMask;
+        if (cached != null && cached.date().equals(date)) {
+            return cached.mask();
+        }
+        BitSet mask = new BitSet(promotions.length);
+        for (int i = 0; i < promotions.length; i++) {
+            if (isLive(promotions[i], date)) {
+                mask.set(i);
+            }
+        }
+        dateMask = new DateMask(date, mask);
+        return mask;
+    }
+
+    private BitSet ageMask(int age) {
+        if (age >= 0 && age <= MAX_INDEXED_AGE) {
+            return ageMasks[age];
+        }
+        BitSet mask = new BitSet(promotions.length);
+        for (int i = 0; i < promotions.length; i++) {
+            if (matchesAge(promotions[i], age)) {
+                mask.set(i);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Number of distinct thresholds less than or equal to the amount.
+     */
+    private int thresholdsAtOrBelow(BigDecimal amount) {
+        int low = 0;
+        int high = purchaseThresholds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (purchaseThresholds[mid].compareTo(amount) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static BitSet lookup(Map<String, BitSet> masks, BitSet wildcard, String value) {
+        if (value == null) {
+            return wildcard;
+        }
+        return masks.getOrDefault(key(value), wildcard);
+    }
+
+    private static Map<String, BitSet> withWildcard(Map<String, BitSet> keyed, BitSet wildcard) {
+        keyed.values().forEach(mask -> mask.or(wildcard));
+        return Map.copyOf(keyed);
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private record DateMask(LocalDate date, BitSet mask) {
+    }
+}
@@ -0,0 +1,431 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Promotion;
+import com.rewardplus.loyalty.entity.PromotionUsageLease;
+import com.rewardplus.loyalty.repository.PromotionRepository;
+import com.rewardplus.loyalty.repository.PromotionUsageLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts promotion usage in memory so qualifying purchases never lock the promotion row.
+ * Uses are added to a striped LongAdder per promotion and the deltas are flushed to
+ * usage_count on a short interval.
+ *
+ * Promotions with a usage limit are claimed from quota blocks reserved up front with a
+ * guarded UPDATE on usage_reserved, so every node together can never hand out more than
+ * the limit. Blocks are reserved by one background thread per node, topped up before the
+ * local quota runs out, so a purchase does not open a second connection. A claim that finds
+ * no quota waits up to app.promotions.usage.reserve-wait-ms for the next block; if none has
+ * arrived by then, as on the first claim after startup or while the database is slow, it
+ * reserves its one use directly with the same guarded UPDATE, on the purchase's own
+ * connection, rather than refusing a promotion that still has uses left. That UPDATE holds
+ * the promotion row lock until the purchase commits, so under sustained load the wait trades
+ * claim latency against row contention. Blocks shrink as the remaining uses run low, and a
+ * claim rolled back with its transaction gives its use back.
+ *
+ * Unused quota is recorded per node (app.ids.node-id) in promotion_usage_leases. It is
+ * returned on shutdown and, after a crash, when the node starts again; the leases of a
+ * node that stops renewing for app.promotions.usage.lease-ttl-seconds are reclaimed by
+ * reconcile, which resets usage_reserved from the uses actually consumed. A direct claim
+ * that commits just before a reconcile and is flushed just after it can be taken for a leak,
+ * letting that promotion overshoot its limit by the few uses claimed in that window.
+ */
+@Component
+@Slf4j
+public class PromotionUsageCounter {
+
+    // After a promotion runs out, wait this long before asking the database again
+    private static final long EXHAUSTED_RECHECK_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int RESERVE_ATTEMPTS = 3;
+
+    private final PromotionRepository promotionRepository;
+    private final PromotionUsageLeaseRepository leaseRepository;
+    private final ActivePromotionRegistry activePromotionRegistry;
+    private final TransactionTemplate requiresNew;
+    private final ExecutorService reserver;
+    private final Map<Long, Usage> usageByPromotion = new ConcurrentHashMap<>();
+    private final AtomicBoolean exhaustedSinceFlush = new AtomicBoolean();
+
+    @Value("${app.promotions.usage.quota-block:50}")
+    private int quotaBlock;
+
+    @Value("${app.promotions.usage.reserve-wait-ms:500}")
+    private long reserveWaitMillis;
+
+    @Value("${app.promotions.usage.lease-ttl-seconds:300}")
+    private long leaseTtlSeconds;
+
+    @Value("${app.ids.node-id}")
+    private int nodeId;
+
+    public PromotionUsageCounter(PromotionRepository promotionRepository,
+                                 PromotionUsageLeaseRepository leaseRepository,
+                                 ActivePromotionRegistry activePromotionRegistry,
+                                 PlatformTransactionManager transactionManager) {
+        this.promotionRepository = promotionRepository;
+        this.leaseRepository = leaseRepository;
+        this.activePromotionRegistry = activePromotionRegistry;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reserver = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "promotion-quota-reserver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Return the quota this node still held when it last stopped without releasing it.
+     * Queued ahead of any reservation, so it only ever sees leases of a previous run.
+     */
+    @PostConstruct
+    public void recover() {
+        reserver.execute(() -> {
+            try {
+                requiresNew.executeWithoutResult(status -> {
+                    for (PromotionUsageLease lease : leaseRepository.findByNodeId(nodeId)) {
+                        if (lease.getUnused() > 0) {
+                            promotionRepository.releaseUsage(lease.getPromotionId(), lease.getUnused());
+                            leaseRepository.addUnused(lease.getPromotionId(), nodeId, -lease.getUnused(), LocalDateTime.now());
+                            log.info("Returned {} uses of promotion {} left reserved by a previous run",
+                                lease.getUnused(), lease.getPromotionId());
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.warn("Could not return quota left by a previous run, reconcile will reclaim it: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Record one use of the promotion if it still has uses left.
+     */
+    public boolean tryClaim(Promotion promotion) {
+        Usage usage = usageByPromotion.computeIfAbsent(promotion.getId(), id -> new Usage());
+        boolean limited = promotion.getUsageLimit() != null && promotion.getUsageLimit() > 0;
+        Claim claim = Claim.UNLIMITED;
+        if (limited) {
+            usage.limited = true;
+            claim = takeQuota(promotion.getId(), usage);
+            if (claim == Claim.REFUSED) {
+                return false;
+            }
+        }
+        usage.uses.increment();
+
+        Claim claimed = claim;
+        TransactionCallbacks.afterRollback(() -> {
+            usage.uses.decrement();
+            if (claimed == Claim.QUOTA) {
+                usage.quota.incrementAndGet();
+            } else if (claimed == Claim.DIRECT) {
+                // Its reservation rolled back with the purchase
+                usage.directUses.decrement();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Write the uses counted since the last flush to usage_count, moving them out of this
+     * node's leases, and renew the leases.
+     */
+    @Scheduled(fixedDelayString = "${app.promotions.usage.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        usageByPromotion.forEach((promotionId, usage) -> {
+            long total = usage.uses.sum();
+            long direct = usage.directUses.sum();
+            long delta = total - usage.flushed;
+            if (delta == 0) {
+                return;
+            }
+            // Direct claims were reserved one by one and never entered the lease
+            long fromLease = delta - (direct - usage.directFlushed);
+            try {
+                requiresNew.executeWithoutResult(status -> {
+                    promotionRepository.addUsage(promotionId, Math.toIntExact(delta));
+                    if (usage.limited && fromLease != 0) {
+                        leaseRepository.addUnused(promotionId, nodeId, -Math.toIntExact(fromLease), LocalDateTime.now());
+                    }
+                });
+                usage.flushed = total;
+                usage.directFlushed = direct;
+            } catch (RuntimeException e) {
+                log.warn("Could not flush {} uses of promotion {}, will retry: {}", delta, promotionId, e.getMessage());
+            }
+        });
+        renewLeases();
+
+        // A promotion ran out: once its final uses are written, drop it from the snapshot
+        if (exhaustedSinceFlush.getAndSet(false)) {
+            activePromotionRegistry.refresh();
+        }
+    }
+
+    /**
+     * Reclaim quota leaked by nodes that stopped without returning it: drop leases that were
+     * not renewed within the TTL, then cut usage_reserved of each limited promotion back to
+     * the uses consumed plus the quota live nodes still hold.
+     */
+    @Scheduled(cron = "${app.promotions.usage.reconcile-cron:0 */5 * * * *}")
+    public void reconcile() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(leaseTtlSeconds);
+        try {
+            Integer expired = requiresNew.execute(status -> leaseRepository.deleteExpired(cutoff));
+            if (expired != null && expired > 0) {
+                log.info("Dropped {} promotion usage leases not renewed since {}", expired, cutoff);
+            }
+            for (Long promotionId : promotionRepository.findIdsWithUnconsumedReservations()) {
+                requiresNew.executeWithoutResult(status -> reconcilePromotion(promotionId, cutoff));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Promotion usage reconciliation failed, will retry on the next run: {}", e.getMessage());
+        }
+    }
+
+    private void reconcilePromotion(Long promotionId, LocalDateTime cutoff) {
+        // The row lock holds off reservations, flushes and releases of this promotion, which
+        // all change usage_reserved or usage_count before touching a lease
+        Promotion promotion = promotionRepository.findByIdForUpdate(promotionId).orElse(null);
+        if (promotion == null || promotion.getUsageLimit() <= 0) {
+            return;
+        }
+        long held = leaseRepository.sumLiveUnused(promotionId, cutoff);
+        int expected = (int) Math.min(promotion.getUsageLimit(), promotion.getUsageCount() + held);
+        if (expected < promotion.getUsageReserved()) {
+            promotionRepository.setReservedUsage(promotionId, expected);
+            log.warn("Reclaimed {} leaked reserved uses of promotion {}",
+                promotion.getUsageReserved() - expected, promotion.getPromotionCode());
+        }
+    }
+
+    /**
+     * Flush outstanding uses and return unused quota so other nodes can claim it.
+     */
+    @PreDestroy
+    public synchronized void release() {
+        reserver.shutdown();
+        try {
+            reserver.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        usageByPromotion.forEach((promotionId, usage) -> {
+            long unused = usage.quota.getAndSet(0);
+            if (unused <= 0) {
+                return;
+            }
+            try {
+                requiresNew.executeWithoutResult(status -> {
+                    promotionRepository.releaseUsage(promotionId, Math.toIntExact(unused));
+                    leaseRepository.addUnused(promotionId, nodeId, -Math.toIntExact(unused), LocalDateTime.now());
+                });
+                log.debug("Released {} unused uses of promotion {}", unused, promotionId);
+            } catch (RuntimeException e) {
+                log.warn("Could not release {} unused uses of promotion {}: {}", unused, promotionId, e.getMessage());
+            }
+        });
+    }
+
+    private void renewLeases() {
+        int held = (int) usageByPromotion.values().stream().filter(usage -> usage.leased).count();
+        if (held == 0) {
+            return;
+        }
+        try {
+            Integer renewed = requiresNew.execute(status -> leaseRepository.renew(nodeId, LocalDateTime.now()));
+            if (renewed != null && renewed < held) {
+                // Reconcile already gave this node's quota back to the pool; stop using it
+                log.warn("Promotion usage leases of node {} expired, dropping local quota", nodeId);
+                usageByPromotion.values().forEach(usage -> {
+                    usage.quota.set(0);
+                    usage.leased = false;
+                });
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not renew promotion usage leases, will retry: {}", e.getMessage());
+        }
+    }
+
+    private Claim takeQuota(Long promotionId, Usage usage) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(reserveWaitMillis);
+        while (true) {
+            long available = usage.quota.get();
+            if (available > 0) {
+                if (usage.quota.compareAndSet(available, available - 1)) {
+                    // Top up in the background before the quota runs out
+                    if (available - 1 <= quotaBlock / 4) {
+                        requestRefill(promotionId, usage);
+                    }
+                    return Claim.QUOTA;
+                }
+                continue;
+            }
+            if (System.nanoTime() - usage.exhaustedAt < EXHAUSTED_RECHECK_NANOS) {
+                return Claim.REFUSED;
+            }
+            long wait = deadline - System.nanoTime();
+            if (wait <= 0) {
+                return claimDirectly(promotionId, usage);
+            }
+            try {
+                requestRefill(promotionId, usage).get(wait, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                return claimDirectly(promotionId, usage);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Claim.REFUSED;
+            }
+        }
+    }
+
+    /**
+     * Reserve a single use on the calling thread once the reserver has not delivered a block
+     * in time. Inside a transaction the guarded UPDATE joins it, so no second connection is
+     * taken and the reservation commits or rolls back with the purchase.
+     */
+    private Claim claimDirectly(Long promotionId, Usage usage) {
+        log.debug("No quota block for promotion {} within {} ms, reserving one use directly",
+            promotionId, reserveWaitMillis);
+        Integer reserved;
+        try {
+            reserved = TransactionSynchronizationManager.isActualTransactionActive()
+                ? promotionRepository.reserveUsage(promotionId, 1)
+                : requiresNew.execute(status -> promotionRepository.reserveUsage(promotionId, 1));
+        } catch (RuntimeException e) {
+            log.warn("Could not reserve a use of promotion {}: {}", promotionId, e.getMessage());
+            return Claim.REFUSED;
+        }
+        if (reserved == null || reserved == 0) {
+            usage.exhaustedAt = System.nanoTime();
+            exhaustedSinceFlush.set(true);
+            return Claim.REFUSED;
+        }
+        usage.directUses.increment();
+        return Claim.DIRECT;
+    }
+
+    /**
+     * Queue a reservation of the next quota block unless one is already pending.
+     */
+    private CompletableFuture<Void> requestRefill(Long promotionId, Usage usage) {
+        synchronized (usage) {
+            if (usage.refill == null || usage.refill.isDone()) {
+                if (System.nanoTime() - usage.exhaustedAt < EXHAUSTED_RECHECK_NANOS) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                try {
+                    usage.refill = CompletableFuture.runAsync(() -> refill(promotionId, usage), reserver);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    return CompletableFuture.completedFuture(null);
+                }
+            }
+            return usage.refill;
+        }
+    }
+
+    private void refill(Long promotionId, Usage usage) {
+        long granted = reserve(promotionId);
+        if (granted < 0) {
+            // Lost every race for the row to other nodes; not exhausted, just busy
+            return;
+        }
+        if (granted == 0) {
+            usage.exhaustedAt = System.nanoTime();
+            exhaustedSinceFlush.set(true);
+            return;
+        }
+        usage.leased = true;
+        usage.quota.addAndGet(granted);
+    }
+
+    /**
+     * Reserve the next quota block and record it in this node's lease, in one short
+     * transaction on the reserver thread. Returns 0 when no uses are left and -1 when other
+     * nodes kept reserving first or the database could not be reached.
+     */
+    private long reserve(Long promotionId) {
+        for (int attempt = 0; attempt < RESERVE_ATTEMPTS; attempt++) {
+            Integer granted;
+            try {
+                granted = requiresNew.execute(status -> {
+                    Integer remaining = promotionRepository.findUnreservedUses(promotionId);
+                    if (remaining == null || remaining <= 0) {
+                        return 0;
+                    }
+                    // Take a quarter of what is left so the last uses are spread across nodes
+                    int block = Math.max(1, Math.min(quotaBlock, remaining / 4));
+                    if (promotionRepository.reserveUsage(promotionId, block) == 0) {
+                        return -1;
+                    }
+                    LocalDateTime now = LocalDateTime.now();
+                    if (leaseRepository.addUnused(promotionId, nodeId, block, now) == 0) {
+                        leaseRepository.save(PromotionUsageLease.builder()
+                            .promotionId(promotionId)
+                            .nodeId(nodeId)
+                            .unused(block)
+                            .renewedAt(now)
+                            .build());
+                    }
+                    return block;
+                });
+            } catch (RuntimeException e) {
+                log.warn("Could not reserve uses of promotion {}: {}", promotionId, e.getMessage());
+                return -1;
+            }
+            if (granted != null && granted >= 0) {
+                return granted;
+            }
+            // Another node reserved in between; read the remaining uses again
+        }
+        return -1;
+    }
+
+    /**
+     * How a use was claimed: without a limit, from this node's quota, or reserved directly.
+     */
+    private enum Claim {
+        UNLIMITED,
+        QUOTA,
+        DIRECT,
+        REFUSED
+    }
+
+    private static final class Usage {
+        private final LongAdder uses = new LongAdder();
+        private final LongAdder directUses = new LongAdder();
+        private final AtomicLong quota = new AtomicLong();
+        private long flushed;                                // guarded by flush()
+        private long directFlushed;                          // guarded by flush()
+        private volatile boolean limited;
+        private volatile boolean leased;
+        private volatile long exhaustedAt = System.nanoTime() - EXHAUSTED_RECHECK_NANOS;
+        private CompletableFuture<Void> refill;              // guarded by this
+    }
+}
@@ -1,8 +1,10 @@
 package com.rewardplus.loyalty.service;
 
+import com.rewardplus.loyalty.dto.CursorPage;
 import com.rewardplus.loyalty.dto.RedemptionDTO;
 import com.rewardplus.loyalty.entity.Customer;
 import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
 import com.rewardplus.loyalty.entity.Reward;
 import com.rewardplus.loyalty.entity.RedemptionLog;
 import com.rewardplus.loyalty.exception.InsufficientPointsException;
@@ -11,14 +13,19 @@ import com.rewardplus.loyalty.repository.CustomerRepository;
 import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
 import com.rewardplus.loyalty.repository.RewardRepository;
 import com.rewardplus.loyalty.repository.RedemptionLogRepository;
+import com.rewardplus.loyalty.util.SeekCursor;
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -35,76 +42,83 @@ public class RedemptionService {
     private final CustomerRepository customerRepository;
     private final RewardRepository rewardRepository;
     private final LoyaltyPointsRepository loyaltyPointsRepository;
+    private final PointsLedgerService pointsLedgerService;
+    private final CustomerLockStripes customerLocks;
+    private final CustomerLookupCache customerLookupCache;
+    private final ActivityRollupService activityRollupService;
+    private final ActiveCustomerService activeCustomerService;
     private final ModelMapper modelMapper;
 
     /**
      * Redeem a reward for a customer.
      */
-    @Transactional
     public RedemptionDTO redeemReward(Long customerId, Long rewardId, RedemptionDTO redemptionDTO) {
         log.info("Processing reward redemption for customer {} and reward {}", customerId, rewardId);
 
-        Customer customer = customerRepository.findById(customerId)
-            .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
-
-        Reward reward = rewardRepository.findById(rewardId)
-            .orElseThrow(() -> new ResourceNotFoundException("Reward", "id", rewardId));
-
-        // Check if reward is available
-        if (!reward.isAvailable()) {
-            throw new ResourceNotFoundException("Reward", "id", rewardId);
-        }
-
-        // Check customer points balance
-        LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customerId)
-            .orElseThrow(() -> new ResourceNotFoundException("LoyaltyPoints", "customerId", customerId));
-
-        if (loyaltyPoints.getCurrentBalance() < reward.getPointsRequired()) {
-            throw new InsufficientPointsException(
-                customerId,
-                loyaltyPoints.getCurrentBalance(),
-                reward.getPointsRequired()
-            );
-        }
-
-        // Redeem points
-        loyaltyPoints.redeemPoints(reward.getPointsRequired());
-        loyaltyPointsRepository.save(loyaltyPoints);
-
-        // Create redemption log
-        RedemptionLog redemptionLog = RedemptionLog.builder()
-            .customer(customer)
-            .reward(reward)
-            .pointsRedeemed(reward.getPointsRequired())
-            .status(RedemptionLog.RedemptionStatus.COMPLETED)
-            .channel(redemptionDTO.getChannel() != null ? 
-                redemptionDTO.getChannel() : RedemptionLog.RedemptionChannel.ONLINE)
-            .redemptionDate(java.time.LocalDateTime.now())
-            .storeCode(redemptionDTO.getStoreCode())
-            .storeName(redemptionDTO.getStoreName())
-            .processedBy(redemptionDTO.getProcessedBy())
-            .notes(redemptionDTO.getNotes())
-            .build();
-
-        // Generate redemption code
-        String redemptionCode = "RDM" + System.currentTimeMillis();
-        redemptionLog.setRedemptionCode(redemptionCode);
-        redemptionLog.setVoucherCode("VCHR" + System.currentTimeMillis());
-        redemptionLog.setRedemptionUrl("/rewards/redemption/" + redemptionCode);
-
-        redemptionLog = redemptionLogRepository.save(redemptionLog);
-
-        // Update reward redemption count
-        reward.incrementRedemptionCount();
-        rewardRepository.save(reward);
+        return customerLocks.withLock(customerId, () -> {
+            Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
+
+            Reward reward = rewardRepository.findById(rewardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reward", "id", rewardId));
+
+            // Check if reward is available
+            if (!reward.isAvailable()) {
+                throw new ResourceNotFoundException("Reward", "id", rewardId);
+            }
+
+            // Redeem points (balance check and deduction in one conditional UPDATE)
+            if (loyaltyPointsRepository.debitPoints(customerId, reward.getPointsRequired(),
+                    LocalDateTime.now()) == 0) {
+                LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customerId)
+                    .orElseThrow(() -> new ResourceNotFoundException("LoyaltyPoints", "customerId", customerId));
+                throw new InsufficientPointsException(
+                    customerId,
+                    loyaltyPoints.getCurrentBalance(),
+                    reward.getPointsRequired()
+                );
+            }
+
+            // Create redemption log
+            RedemptionLog redemptionLog = RedemptionLog.builder()
+                .customer(customer)
+                .reward(reward)
+                .pointsRedeemed(reward.getPointsRequired())
+                .status(RedemptionLog.RedemptionStatus.COMPLETED)
+                .channel(redemptionDTO.getChannel() != null ? 
+                    redemptionDTO.getChannel() : RedemptionLog.RedemptionChannel.ONLINE)
+                .redemptionDate(LocalDateTime.now())
+                .storeCode(redemptionDTO.getStoreCode())
+                .storeName(redemptionDTO.getStoreName())
+                .processedBy(redemptionDTO.getProcessedBy())
+                .notes(redemptionDTO.getNotes())
+                .build();
+
+            // Generate redemption code
+            String redemptionCode = SnowflakeIdGenerator.next("RDM");
+            redemptionLog.setRedemptionCode(redemptionCode);
+            redemptionLog.setVoucherCode(SnowflakeIdGenerator.next("VCHR"));
+            redemptionLog.setRedemptionUrl("/rewards/redemption/" + redemptionCode);
+
+            redemptionLog = redemptionLogRepository.save(redemptionLog);
+            pointsLedgerService.record(customerId, PointsLedgerEntry.EntryType.REDEEM, -reward.getPointsRequired(),
+                null, redemptionLog.getId(), "Reward " + reward.getRewardCode());
+            activityRollupService.recordRedemption(redemptionLog);
+            activeCustomerService.recordRedemption(redemptionLog);
+
+            // Update reward redemption count
+            reward.incrementRedemptionCount();
+            rewardRepository.save(reward);
 
-        // Add reward to customer's redeemed rewards
-        customer.getRedeemedRewards().add(reward);
-        customerRepository.save(customer);
+            // Add reward to customer's redeemed rewards
+            customer.getRedeemedRewards().add(reward);
+            customerRepository.save(customer);
+            customerLookupCache.invalidate(customerId);
 
-        log.info("Reward redeemed successfully. Redemption code: {}", redemptionCode);
+            log.info("Reward redeemed successfully. Redemption code: {}", redemptionCode);
 
-        return mapToDTO(redemptionLog);
+            return mapToDTO(redemptionLog);
+        });
     }
 
     /**
@@ -139,6 +153,33 @@ public class RedemptionService {
             .map(this::mapToDTO);
     }
 
+    /**
+     * Get a page of a customer's redemptions by redemption date, continuing from a keyset
+     * cursor so deep pages cost the same as the first. The total is only counted when asked for.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<RedemptionDTO> getCustomerRedemptionsPage(Long customerId, String cursor, int size,
+                                                                Sort.Direction direction, boolean includeTotal) {
+        SeekCursor position = SeekCursor.decode(cursor, "redemptionDate", direction);
+        Pageable limit = PageRequest.of(0, SeekCursor.checkPageSize(size) + 1);
+        List<RedemptionLog> redemptions = direction.isAscending()
+            ? redemptionLogRepository.findCustomerPageAfter(customerId, position.value(), position.id(), limit)
+            : redemptionLogRepository.findCustomerPageBefore(customerId, position.value(), position.id(), limit);
+        // Only an empty page needs telling apart from an unknown customer
+        if (redemptions.isEmpty() && !customerRepository.existsById(customerId)) {
+            throw new ResourceNotFoundException("Customer", "id", customerId);
+        }
+
+        String nextCursor = null;
+        if (redemptions.size() > size) {
+            redemptions = redemptions.subList(0, size);
+            RedemptionLog last = redemptions.get(size - 1);
+            nextCursor = position.next(last.getRedemptionDate(), last.getId()).encode();
+        }
+        Long total = includeTotal ? redemptionLogRepository.countByCustomerId(customerId) : null;
+        return new CursorPage<>(redemptions.stream().map(this::mapToDTO).toList(), nextCursor, total);
+    }
+
     /**
      * Get redemptions by status.
      */
@@ -163,8 +204,8 @@ public class RedemptionService {
      * Get redemptions by date range.
      */
     @Transactional(readOnly = true)
-    public List<RedemptionDTO> getRedemptionsByDateRange(java.time.LocalDateTime startDate, 
-                                                          java.time.LocalDateTime endDate) {
+    public List<RedemptionDTO> getRedemptionsByDateRange(LocalDateTime startDate, 
+                                                          LocalDateTime endDate) {
         return redemptionLogRepository.findByDateRange(startDate, endDate)
             .stream()
             .map(this::mapToDTO)
@@ -194,37 +235,46 @@ public class RedemptionService {
     /**
      * Cancel a redemption.
      */
-    @Transactional
     public RedemptionDTO cancelRedemption(Long redemptionId, String reason) {
         log.info("Cancelling redemption {}: {}", redemptionId, reason);
 
-        RedemptionLog redemptionLog = redemptionLogRepository.findById(redemptionId)
+        Long customerId = redemptionLogRepository.findCustomerIdById(redemptionId)
             .orElseThrow(() -> new ResourceNotFoundException("RedemptionLog", "id", redemptionId));
 
-        if (redemptionLog.getStatus() == RedemptionLog.RedemptionStatus.USED) {
-            throw new IllegalStateException("Cannot cancel a redemption that has already been used");
-        }
-
-        // Refund points
-        Long customerId = redemptionLog.getCustomer().getId();
-        LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customerId)
-            .orElseThrow(() -> new ResourceNotFoundException("LoyaltyPoints", "customerId", customerId));
-
-        loyaltyPoints.addPoints(redemptionLog.getPointsRedeemed());
-        loyaltyPointsRepository.save(loyaltyPoints);
-
-        // Cancel redemption
-        redemptionLog.cancel(reason);
-        redemptionLog = redemptionLogRepository.save(redemptionLog);
-
-        // Update reward redemption count
-        Reward reward = redemptionLog.getReward();
-        if (reward.getQuantityRedeemed() > 0) {
-            reward.setQuantityRedeemed(reward.getQuantityRedeemed() - 1);
-            rewardRepository.save(reward);
-        }
-
-        return mapToDTO(redemptionLog);
+        return customerLocks.withLock(customerId, () -> {
+            // Read under a row lock so a concurrent cancel cannot refund twice
+            RedemptionLog redemptionLog = redemptionLogRepository.findByIdForUpdate(redemptionId)
+                .orElseThrow(() -> new ResourceNotFoundException("RedemptionLog", "id", redemptionId));
+
+            if (redemptionLog.getStatus() == RedemptionLog.RedemptionStatus.USED) {
+                throw new IllegalStateException("Cannot cancel a redemption that has already been used");
+            }
+            if (redemptionLog.getStatus() == RedemptionLog.RedemptionStatus.CANCELLED) {
+                throw new IllegalStateException("Redemption has already been cancelled");
+            }
+
+            // Refund points
+            if (loyaltyPointsRepository.refundPoints(customerId, redemptionLog.getPointsRedeemed(),
+                    LocalDateTime.now()) == 0) {
+                throw new ResourceNotFoundException("LoyaltyPoints", "customerId", customerId);
+            }
+            pointsLedgerService.record(customerId, PointsLedgerEntry.EntryType.REFUND, redemptionLog.getPointsRedeemed(),
+                null, redemptionId, reason);
+            customerLookupCache.invalidate(customerId);
+
+            // Cancel redemption
+            redemptionLog.cancel(reason);
+            redemptionLog = redemptionLogRepository.save(redemptionLog);
+
+            // Update reward redemption count
+            Reward reward = redemptionLog.getReward();
+            if (reward.getQuantityRedeemed() > 0) {
+                reward.setQuantityRedeemed(reward.getQuantityRedeemed() - 1);
+                rewardRepository.save(reward);
+            }
+
+            return mapToDTO(redemptionLog);
+        });
     }
 
     /**
@@ -0,0 +1,105 @@
+package com.rewardplus.loyalty.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Weighted Space-Saving sketch: tracks the heaviest keys of a stream in a fixed number of
+ * counters. A key that is not tracked while the sketch is full takes over the smallest
+ * counter and inherits its total as possible overestimate, so any key whose true total
+ * exceeds total weight / capacity is guaranteed to be tracked. Not thread-safe.
+ */
+final class SpaceSavingSketch {
+
+    private static final Comparator<Counter> BY_TOTAL = Comparator.<Counter>comparingLong(counter -> counter.total)
+        .thenComparingLong(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byTotal = new TreeSet<>(BY_TOTAL);
+
+    SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Sketch capacity must be at least 1");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add weight to a key. Non-positive weights are ignored.
+     */
+    void offer(long key, long weight) {
+        offer(key, weight, 0);
+    }
+
+    /**
+     * Add every counter of another sketch to this one, keeping its overestimates.
+     */
+    void mergeFrom(SpaceSavingSketch other) {
+        for (Counter counter : other.byTotal) {
+            offer(counter.key, counter.total, counter.overestimate);
+        }
+    }
+
+    private void offer(long key, long weight, long overestimate) {
+        if (weight <= 0) {
+            return;
+        }
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byTotal.remove(counter);
+            counter.total += weight;
+            counter.overestimate += overestimate;
+        } else if (counters.size() < capacity) {
+            counter = new Counter(key, weight, overestimate);
+            counters.put(key, counter);
+        } else {
+            Counter smallest = byTotal.pollFirst();
+            counters.remove(smallest.key);
+            counter = new Counter(key, smallest.total + weight, smallest.total + overestimate);
+            counters.put(key, counter);
+        }
+        byTotal.add(counter);
+    }
+
+    /**
+     * The heaviest keys, largest total first.
+     */
+    List<Estimate> top(int limit) {
+        List<Estimate> top = new ArrayList<>(Math.min(limit, byTotal.size()));
+        for (Counter counter : byTotal.descendingSet()) {
+            if (top.size() == limit) {
+                break;
+            }
+            top.add(new Estimate(counter.key, counter.total, counter.overestimate));
+        }
+        return top;
+    }
+
+    int size() {
+        return counters.size();
+    }
+
+    /**
+     * A tracked key's total; the true total lies between total - overestimate and total.
+     */
+    record Estimate(long key, long total, long overestimate) {
+    }
+
+    private static final class Counter {
+
+        private final long key;
+        private long total;
+        private long overestimate;
+
+        private Counter(long key, long total, long overestimate) {
+            this.key = key;
+            this.total = total;
+            this.overestimate = overestimate;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.rewardplus.loyalty.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Merging t-digest (Dunning and Ertl, "Computing extremely accurate quantiles using
+ * t-digests") over transaction amounts. Values are collected into weighted centroids that are
+ * small near the tails and large near the median, so p99 stays accurate with a few hundred
+ * centroids whatever the number of values. Digests merge by pooling their centroids, which
+ * makes a digest per store, category and day combinable over any range. Not thread-safe.
+ */
+final class TDigest {
+
+    static final double COMPRESSION = 200;
+
+    // Serialized form: version, min, max, centroid count, then (mean, weight) per centroid
+    private static final byte VERSION = 1;
+    private static final int MAX_CENTROIDS = (int) Math.ceil(COMPRESSION * Math.PI / 2) + 1;
+    private static final int BUFFER_SIZE = 5 * MAX_CENTROIDS;
+    private static final double NORMALIZER = COMPRESSION / (2 * Math.PI);
+
+    private double[] means = new double[MAX_CENTROIDS];
+    private long[] weights = new long[MAX_CENTROIDS];
+    private int centroids;
+    private long totalWeight;
+
+    private final double[] bufferMeans = new double[BUFFER_SIZE];
+    private final long[] bufferWeights = new long[BUFFER_SIZE];
+    private int buffered;
+
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    void add(double value) {
+        add(value, 1);
+    }
+
+    void add(double value, long weight) {
+        if (Double.isNaN(value) || weight <= 0) {
+            return;
+        }
+        if (buffered == BUFFER_SIZE) {
+            compress();
+        }
+        bufferMeans[buffered] = value;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Fold another digest's centroids into this one.
+     */
+    void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return totalWeight + bufferedWeight();
+    }
+
+    double min() {
+        return min;
+    }
+
+    double max() {
+        return max;
+    }
+
+    /**
+     * Estimated value at quantile q in [0, 1], or NaN for an empty digest. Between centroid
+     * centres the value is interpolated; beyond the outermost centres it is interpolated
+     * towards the exact minimum and maximum.
+     */
+    double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+
+        double index = q * totalWeight;
+        if (index < 1) {
+            return min;
+        }
+        if (index > totalWeight - 1) {
+            return max;
+        }
+
+        // Left tail: between the minimum and the first centroid's centre
+        double firstHalf = weights[0] / 2.0;
+        if (index < firstHalf) {
+            return min + (index - 1) / (firstHalf - 1) * (means[0] - min);
+        }
+
+        double weightSoFar = firstHalf;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2.0;
+            if (weightSoFar + step > index) {
+                double fromLeft = index - weightSoFar;
+                return means[i] + fromLeft / step * (means[i + 1] - means[i]);
+            }
+            weightSoFar += step;
+        }
+
+        // Right tail: between the last centroid's centre and the maximum
+        double lastHalf = weights[centroids - 1] / 2.0;
+        double fromLast = index - weightSoFar;
+        double span = lastHalf - 1;
+        double last = means[centroids - 1];
+        return span <= 0 ? last : last + Math.min(1, fromLast / span) * (max - last);
+    }
+
+    /**
+     * Compact form for storage, at most a few kilobytes.
+     */
+    byte[] toBytes() {
+        compress();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 8 + 4 + centroids * (8 + 8));
+        buffer.put(VERSION).putDouble(min).putDouble(max).putInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            buffer.putDouble(means[i]).putLong(weights[i]);
+        }
+        return buffer.array();
+    }
+
+    static TDigest fromBytes(byte[] bytes) {
+        TDigest digest = new TDigest();
+        if (bytes == null || bytes.length == 0) {
+            return digest;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() != VERSION || bytes.length < 21) {
+            throw new IllegalArgumentException("Unrecognised t-digest encoding");
+        }
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        int centroids = buffer.getInt();
+        if (centroids < 0 || buffer.remaining() != centroids * 16) {
+            throw new IllegalArgumentException("Truncated t-digest encoding");
+        }
+        for (int i = 0; i < centroids; i++) {
+            digest.add(buffer.getDouble(), buffer.getLong());
+        }
+        if (centroids > 0) {
+            digest.min = min;
+            digest.max = max;
+        }
+        return digest;
+    }
+
+    /**
+     * Sort the buffered values in with the centroids and merge neighbours while the merged
+     * centroid stays within one unit of the k1 scale function, k(q) = d / 2pi * asin(2q - 1).
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        sortBuffer();
+        int total = centroids + buffered;
+        double[] allMeans = new double[total];
+        long[] allWeights = new long[total];
+        int left = 0;
+        int right = 0;
+        for (int i = 0; i < total; i++) {
+            if (right == buffered || (left < centroids && means[left] <= bufferMeans[right])) {
+                allMeans[i] = means[left];
+                allWeights[i] = weights[left++];
+            } else {
+                allMeans[i] = bufferMeans[right];
+                allWeights[i] = bufferWeights[right++];
+            }
+        }
+        long weight = totalWeight + bufferedWeight();
+        buffered = 0;
+
+        double[] mergedMeans = new double[MAX_CENTROIDS];
+        long[] mergedWeights = new long[MAX_CENTROIDS];
+        int merged = 0;
+        mergedMeans[0] = allMeans[0];
+        mergedWeights[0] = allWeights[0];
+        long weightBefore = 0;
+        double limit = weight * q(k(0) + 1);
+
+        for (int next = 1; next < total; next++) {
+            long proposed = weightBefore + mergedWeights[merged] + allWeights[next];
+            if (proposed <= limit) {
+                long combined = proposed - weightBefore;
+                mergedMeans[merged] += (allMeans[next] - mergedMeans[merged]) * allWeights[next] / combined;
+                mergedWeights[merged] = combined;
+            } else {
+                weightBefore += mergedWeights[merged];
+                limit = weight * q(k((double) weightBefore / weight) + 1);
+                merged++;
+                if (merged == mergedMeans.length) {
+                    mergedMeans = Arrays.copyOf(mergedMeans, merged * 2);
+                    mergedWeights = Arrays.copyOf(mergedWeights, merged * 2);
+                }
+                mergedMeans[merged] = allMeans[next];
+                mergedWeights[merged] = allWeights[next];
+            }
+        }
+
+        means = mergedMeans;
+        weights = mergedWeights;
+        centroids = merged + 1;
+        totalWeight = weight;
+    }
+
+    /**
+     * Sort the buffer by value. Values added one at a time all weigh 1, so only merged
+     * centroids need the slower paired sort.
+     */
+    private void sortBuffer() {
+        boolean unitWeights = true;
+        for (int i = 0; i < buffered && unitWeights; i++) {
+            unitWeights = bufferWeights[i] == 1;
+        }
+        if (unitWeights) {
+            Arrays.sort(bufferMeans, 0, buffered);
+            return;
+        }
+        Integer[] order = new Integer[buffered];
+        for (int i = 0; i < buffered; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(bufferMeans[a], bufferMeans[b]));
+        double[] sortedMeans = new double[buffered];
+        long[] sortedWeights = new long[buffered];
+        for (int i = 0; i < buffered; i++) {
+            sortedMeans[i] = bufferMeans[order[i]];
+            sortedWeights[i] = bufferWeights[order[i]];
+        }
+        System.arraycopy(sortedMeans, 0, bufferMeans, 0, buffered);
+        System.arraycopy(sortedWeights, 0, bufferWeights, 0, buffered);
+    }
+
+    private long bufferedWeight() {
+        long weight = 0;
+        for (int i = 0; i < buffered; i++) {
+            weight += bufferWeights[i];
+        }
+        return weight;
+    }
+
+    private static double k(double q) {
+        return NORMALIZER * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    private static double q(double k) {
+        return k >= NORMALIZER * Math.PI / 2 ? 1 : (Math.sin(k / NORMALIZER) + 1) / 2;
+    }
+}
@@ -0,0 +1,398 @@
+package com.rewardplus.loyalty.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded in-memory cache with W-TinyLFU eviction and a time-to-live after each write.
+ *
+ * New entries land in a small LRU window. An entry pushed out of the window only enters the
+ * main segmented LRU if a count-min sketch of recent accesses, misses included, says it is
+ * used more often than the main victim it would replace; otherwise it is dropped. One-off
+ * lookups therefore never flush out the entries that are read over and over. The sketch's
+ * counters are halved periodically so popularity fades. Expired entries are dropped when
+ * next read or when they reach the eviction end.
+ *
+ * Keys are spread over independently locked segments, each with its own window, main area
+ * and sketch. Thread-safe.
+ */
+final class TinyLfuCache<K, V> {
+
+    private static final int MIN_SEGMENT_SIZE = 64;
+    private static final int MAX_SEGMENTS = 16;
+
+    // Which of a segment's lists an entry is on
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final Segment[] segments;
+    private final LongSupplier ticker;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    TinyLfuCache(int maximumSize, long ttlNanos) {
+        this(maximumSize, ttlNanos, System::nanoTime);
+    }
+
+    TinyLfuCache(int maximumSize, long ttlNanos, LongSupplier ticker) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        if (ttlNanos <= 0) {
+            throw new IllegalArgumentException("Cache TTL must be positive");
+        }
+        int count = 1;
+        while (count < MAX_SEGMENTS && maximumSize / (count * 2) >= MIN_SEGMENT_SIZE) {
+            count *= 2;
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0), ttlNanos,
+                evictions, expirations);
+        }
+        this.ticker = ticker;
+    }
+
+    /**
+     * The live value for the key, or null if it is absent or expired.
+     */
+    @SuppressWarnings("unchecked")
+    V get(K key) {
+        int hash = spread(key.hashCode());
+        V value = (V) segmentFor(hash).get(key, hash, ticker.getAsLong());
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Store the value, unless the admission policy turns it away as less popular than the
+     * entry it would evict.
+     */
+    void put(K key, V value) {
+        int hash = spread(key.hashCode());
+        segmentFor(hash).put(key, hash, value, ticker.getAsLong());
+    }
+
+    void remove(K key) {
+        segmentFor(spread(key.hashCode())).remove(key, null);
+    }
+
+    /**
+     * Remove the entry only while it still holds this exact value.
+     */
+    void remove(K key, V value) {
+        segmentFor(spread(key.hashCode())).remove(key, value);
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Entries dropped to stay within the size limit, including candidates the admission
+     * policy turned away.
+     */
+    long evictionCount() {
+        return evictions.sum();
+    }
+
+    long expirationCount() {
+        return expirations.sum();
+    }
+
+    double hitRatio() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return requests == 0 ? 0.0 : (double) hitCount / requests;
+    }
+
+    private Segment segmentFor(int hash) {
+        // The sketch uses the low bits; pick the segment from the high ones
+        return segments[(hash >>> 16) & (segments.length - 1)];
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Window, probation and protected lists plus the sketch for one share of the keys.
+     */
+    private static final class Segment {
+
+        private final Map<Object, Node> data = new HashMap<>();
+        private final Node window = Node.sentinel();
+        private final Node probation = Node.sentinel();
+        private final Node protectedArea = Node.sentinel();
+        private final FrequencySketch sketch;
+        private final int maximumSize;
+        private final int windowMax;
+        private final int protectedMax;
+        private final long ttlNanos;
+        private final LongAdder evictions;
+        private final LongAdder expirations;
+        private int windowSize;
+        private int protectedSize;
+
+        private Segment(int maximumSize, long ttlNanos, LongAdder evictions, LongAdder expirations) {
+            this.maximumSize = maximumSize;
+            this.windowMax = Math.max(1, maximumSize / 100);
+            this.protectedMax = (maximumSize - windowMax) * 4 / 5;
+            this.sketch = new FrequencySketch(maximumSize);
+            this.ttlNanos = ttlNanos;
+            this.evictions = evictions;
+            this.expirations = expirations;
+        }
+
+        synchronized Object get(Object key, int hash, long now) {
+            sketch.increment(hash);
+            Node node = data.get(key);
+            if (node == null) {
+                return null;
+            }
+            if (now - node.writtenAt >= ttlNanos) {
+                discard(node);
+                expirations.increment();
+                return null;
+            }
+            onAccess(node);
+            return node.value;
+        }
+
+        synchronized void put(Object key, int hash, Object value, long now) {
+            sketch.increment(hash);
+            Node node = data.get(key);
+            if (node != null) {
+                node.value = value;
+                node.writtenAt = now;
+                onAccess(node);
+                return;
+            }
+            node = new Node(key, hash, value, now);
+            data.put(key, node);
+            node.area = WINDOW;
+            node.linkLast(window);
+            windowSize++;
+            if (windowSize > windowMax) {
+                evictFromWindow(now);
+            }
+        }
+
+        synchronized void remove(Object key, Object expected) {
+            Node node = data.get(key);
+            if (node != null && (expected == null || node.value == expected)) {
+                discard(node);
+            }
+        }
+
+        synchronized void clear() {
+            data.clear();
+            window.next = window.prev = window;
+            probation.next = probation.prev = probation;
+            protectedArea.next = protectedArea.prev = protectedArea;
+            windowSize = 0;
+            protectedSize = 0;
+        }
+
+        synchronized int size() {
+            return data.size();
+        }
+
+        private void onAccess(Node node) {
+            if (node.area == PROBATION) {
+                node.unlink();
+                node.area = PROTECTED;
+                node.linkLast(protectedArea);
+                protectedSize++;
+                if (protectedSize > protectedMax) {
+                    // Demote the least recently used protected entry back to probation
+                    Node demoted = protectedArea.next;
+                    demoted.unlink();
+                    protectedSize--;
+                    demoted.area = PROBATION;
+                    demoted.linkLast(probation);
+                }
+            } else {
+                node.moveToEnd(node.area == WINDOW ? window : protectedArea);
+            }
+        }
+
+        /**
+         * Move the window's oldest entry into the main area if it is more popular than the
+         * main area's victim, evicting whichever of the two loses.
+         */
+        private void evictFromWindow(long now) {
+            Node candidate = window.next;
+            candidate.unlink();
+            windowSize--;
+            if (data.size() <= maximumSize) {
+                admit(candidate);
+                return;
+            }
+            Node victim = probation.next != probation ? probation.next : protectedArea.next;
+            if (victim == protectedArea) {
+                // Everything lives in the window; only a tiny cache gets here
+                data.remove(candidate.key);
+                evictions.increment();
+            } else if (now - victim.writtenAt >= ttlNanos) {
+                discard(victim);
+                expirations.increment();
+                admit(candidate);
+            } else if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+                discard(victim);
+                evictions.increment();
+                admit(candidate);
+            } else {
+                data.remove(candidate.key);
+                evictions.increment();
+            }
+        }
+
+        private void admit(Node node) {
+            node.area = PROBATION;
+            node.linkLast(probation);
+        }
+
+        private void discard(Node node) {
+            node.unlink();
+            if (node.area == WINDOW) {
+                windowSize--;
+            } else if (node.area == PROTECTED) {
+                protectedSize--;
+            }
+            data.remove(node.key);
+        }
+    }
+
+    /**
+     * Entry in one of a segment's access-ordered lists, oldest first after the sentinel.
+     */
+    private static final class Node {
+
+        private final Object key;
+        private final int hash;
+        private Object value;
+        private long writtenAt;
+        private int area;
+        private Node prev;
+        private Node next;
+
+        private Node(Object key, int hash, Object value, long writtenAt) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+
+        private static Node sentinel() {
+            Node sentinel = new Node(null, 0, null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        private void linkLast(Node list) {
+            prev = list.prev;
+            next = list;
+            list.prev.next = this;
+            list.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+
+        private void moveToEnd(Node list) {
+            unlink();
+            linkLast(list);
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, four per key, estimating how often each key was
+     * seen recently. Once it has counted ten accesses per entry the cache can hold, every
+     * counter is halved.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long HALF_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int counterMask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int maximumSize) {
+            // One long of 16 counters per entry, rounded up to a power of two
+            this.table = new long[Integer.highestOneBit(Math.max(1, maximumSize - 1)) << 1];
+            this.counterMask = table.length * 16 - 1;
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        private int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int counter = counterIndex(hash, i);
+                frequency = Math.min(frequency, (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 15));
+            }
+            return frequency;
+        }
+
+        private void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int counter = counterIndex(hash, i);
+                int shift = (counter & 15) << 2;
+                if (((table[counter >>> 4] >>> shift) & 15) < 15) {
+                    table[counter >>> 4] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & HALF_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int counterIndex(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h ^= h >>> 32;
+            return (int) h & counterMask;
+        }
+    }
+}
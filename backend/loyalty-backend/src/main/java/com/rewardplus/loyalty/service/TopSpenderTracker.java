@@ -0,0 +1,271 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.TopSpenderDTO;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import com.rewardplus.loyalty.repository.projection.CustomerSpend;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the heaviest spenders in Space-Saving sketches fed by committed transactions, so the
+ * top spenders are read from memory instead of grouping the whole transactions table.
+ *
+ * The all-time sketch runs over every transaction; the rolling window keeps one sketch per day
+ * and drops days as they leave the window. Both are seeded from the database at startup and
+ * reseeded nightly, which also folds in transactions recorded by other instances and later
+ * changes such as cancellations. Published rankings, customer names included, are rebuilt on a
+ * short interval and handed out as-is.
+ *
+ * Seeding runs on a background thread so startup does not wait on its queries; rankings are
+ * empty until the first seed completes. A seed reads transactions dated before the moment it
+ * starts, and transactions committed while it runs and dated from that moment on are replayed
+ * onto the seeded sketches, so none are lost in the swap. A transaction dated earlier but
+ * committed after the seed queries read its day, such as a backdated import, is only counted
+ * from the next reseed.
+ */
+@Component
+@Slf4j
+public class TopSpenderTracker {
+
+    public enum Window {
+        ALL_TIME,
+        ROLLING
+    }
+
+    private final CustomerRepository customerRepository;
+    private final TransactionRepository transactionRepository;
+    private final int capacity;
+    private final int publishSize;
+    private final int windowDays;
+
+    // Guarded by this
+    private SpaceSavingSketch allTime;
+    private final TreeMap<LocalDate, SpaceSavingSketch> days = new TreeMap<>();
+    // Transactions committed while a seed runs, replayed onto its sketches; guarded by this
+    private List<Transaction> committedDuringSeed;
+
+    private final ExecutorService seeder;
+    private volatile boolean seeded;
+    private volatile Map<Window, List<TopSpenderDTO>> published = emptyRankings();
+
+    public TopSpenderTracker(CustomerRepository customerRepository,
+                             TransactionRepository transactionRepository,
+                             @Value("${app.analytics.top-spenders.capacity:1000}") int capacity,
+                             @Value("${app.analytics.top-spenders.publish-size:100}") int publishSize,
+                             @Value("${app.analytics.top-spenders.window-days:30}") int windowDays) {
+        this.customerRepository = customerRepository;
+        this.transactionRepository = transactionRepository;
+        this.capacity = capacity;
+        this.publishSize = Math.min(publishSize, capacity);
+        this.windowDays = windowDays;
+        this.allTime = new SpaceSavingSketch(capacity);
+        this.seeder = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "top-spender-seed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Count the transactions' amounts once the current transaction commits.
+     */
+    public void record(Collection<Transaction> transactions) {
+        List<Transaction> committed = List.copyOf(transactions);
+        TransactionCallbacks.afterCommit(() -> offer(committed));
+    }
+
+    private synchronized void offer(List<Transaction> transactions) {
+        if (committedDuringSeed != null) {
+            committedDuringSeed.addAll(transactions);
+        }
+        offerToSketches(transactions);
+    }
+
+    // Caller holds the monitor
+    private void offerToSketches(List<Transaction> transactions) {
+        LocalDate oldest = LocalDate.now().minusDays(windowDays - 1L);
+        for (Transaction transaction : transactions) {
+            if (transaction.getCustomer() == null || transaction.getCustomer().getId() == null) {
+                continue;
+            }
+            long customerId = transaction.getCustomer().getId();
+            long cents = cents(transaction.getAmount());
+            allTime.offer(customerId, cents);
+            LocalDate day = transaction.getTransactionDate() != null
+                ? transaction.getTransactionDate().toLocalDate()
+                : LocalDate.now();
+            if (!day.isBefore(oldest)) {
+                days.computeIfAbsent(day, d -> new SpaceSavingSketch(capacity)).offer(customerId, cents);
+            }
+        }
+    }
+
+    /**
+     * The current ranking for a window, largest spend first; read from memory. Empty until
+     * the sketches are first seeded.
+     */
+    public List<TopSpenderDTO> getTopSpenders(Window window, int limit) {
+        List<TopSpenderDTO> ranking = published.get(window);
+        return ranking.subList(0, Math.min(limit, ranking.size()));
+    }
+
+    public int getWindowDays() {
+        return windowDays;
+    }
+
+    /**
+     * Rebuild the published rankings from the sketches, loading names in one query.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.top-spenders.publish-interval-ms:10000}")
+    public void publish() {
+        if (!seeded) {
+            return;
+        }
+        List<SpaceSavingSketch.Estimate> allTimeTop;
+        List<SpaceSavingSketch.Estimate> rollingTop;
+        synchronized (this) {
+            days.headMap(LocalDate.now().minusDays(windowDays - 1L)).clear();
+            SpaceSavingSketch rolling = new SpaceSavingSketch(capacity);
+            days.values().forEach(rolling::mergeFrom);
+            allTimeTop = allTime.top(publishSize);
+            rollingTop = rolling.top(publishSize);
+        }
+
+        Set<Long> customerIds = new HashSet<>();
+        allTimeTop.forEach(estimate -> customerIds.add(estimate.key()));
+        rollingTop.forEach(estimate -> customerIds.add(estimate.key()));
+        Map<Long, String> names = customerRepository.findAllById(customerIds).stream()
+            .collect(Collectors.toMap(Customer::getId, Customer::getFullName));
+
+        Map<Window, List<TopSpenderDTO>> rankings = new EnumMap<>(Window.class);
+        rankings.put(Window.ALL_TIME, toDTOs(allTimeTop, names));
+        rankings.put(Window.ROLLING, toDTOs(rollingTop, names));
+        published = rankings;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedInBackground() {
+        seeder.execute(this::seedQuietly);
+    }
+
+    @Scheduled(cron = "${app.analytics.top-spenders.reseed-cron:0 40 3 * * *}")
+    public void reseed() {
+        seeder.execute(this::seedQuietly);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        seeder.shutdownNow();
+    }
+
+    private void seedQuietly() {
+        try {
+            seed();
+        } catch (RuntimeException e) {
+            log.error("Could not seed top spender sketches: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replace the sketches with the top spenders read from the database, then publish.
+     * Runs on the seeder thread, one seed at a time.
+     */
+    void seed() {
+        LocalDateTime cutoff;
+        synchronized (this) {
+            committedDuringSeed = new ArrayList<>();
+            cutoff = LocalDateTime.now();
+        }
+        try {
+            SpaceSavingSketch seededAllTime = new SpaceSavingSketch(capacity);
+            offerAll(seededAllTime, transactionRepository.findTopSpendersBefore(cutoff, PageRequest.of(0, capacity)));
+
+            TreeMap<LocalDate, SpaceSavingSketch> seededDays = new TreeMap<>();
+            LocalDate today = cutoff.toLocalDate();
+            for (LocalDate day = today.minusDays(windowDays - 1L); !day.isAfter(today); day = day.plusDays(1)) {
+                LocalDateTime end = day.equals(today) ? cutoff : day.plusDays(1).atStartOfDay();
+                SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+                offerAll(sketch, transactionRepository.findTopSpendersBetween(day.atStartOfDay(), end,
+                    PageRequest.of(0, capacity)));
+                seededDays.put(day, sketch);
+            }
+
+            int replayed;
+            synchronized (this) {
+                allTime = seededAllTime;
+                days.clear();
+                days.putAll(seededDays);
+                List<Transaction> replay = committedDuringSeed.stream()
+                    .filter(transaction -> transaction.getTransactionDate() == null
+                        || !transaction.getTransactionDate().isBefore(cutoff))
+                    .toList();
+                offerToSketches(replay);
+                replayed = replay.size();
+                seeded = true;
+            }
+            log.info("Top spender sketches seeded: {} all-time customers over {} days, {} transactions replayed",
+                seededAllTime.size(), windowDays, replayed);
+        } finally {
+            synchronized (this) {
+                committedDuringSeed = null;
+            }
+        }
+        publish();
+    }
+
+    private static void offerAll(SpaceSavingSketch sketch, List<CustomerSpend> spenders) {
+        for (CustomerSpend spender : spenders) {
+            sketch.offer(spender.getCustomerId(), cents(spender.getTotalSpent()));
+        }
+    }
+
+    private static List<TopSpenderDTO> toDTOs(List<SpaceSavingSketch.Estimate> estimates, Map<Long, String> names) {
+        List<TopSpenderDTO> dtos = new ArrayList<>(estimates.size());
+        for (SpaceSavingSketch.Estimate estimate : estimates) {
+            dtos.add(TopSpenderDTO.builder()
+                .customerId(estimate.key())
+                .customerName(names.get(estimate.key()))
+                .totalSpent(BigDecimal.valueOf(estimate.total(), 2))
+                .maxOverestimate(BigDecimal.valueOf(estimate.overestimate(), 2))
+                .build());
+        }
+        return List.copyOf(dtos);
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static Map<Window, List<TopSpenderDTO>> emptyRankings() {
+        Map<Window, List<TopSpenderDTO>> rankings = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            rankings.put(window, List.of());
+        }
+        return rankings;
+    }
+}
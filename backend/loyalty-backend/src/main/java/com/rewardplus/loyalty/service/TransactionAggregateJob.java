@@ -0,0 +1,40 @@
+package com.rewardplus.loyalty.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the maintained transaction aggregates consistent with the transactions table.
+ * On startup the aggregate rows are created, and rebuilt from source if the table was
+ * empty (first deployment); a nightly reconciliation corrects any drift afterwards.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionAggregateJob {
+
+    private final TransactionAggregateService transactionAggregateService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        int created = transactionAggregateService.ensureRows();
+        if (created > 0) {
+            log.info("Created {} transaction aggregate rows, rebuilding totals from source", created);
+            transactionAggregateService.rebuild();
+        }
+    }
+
+    @Scheduled(cron = "${app.analytics.aggregates.reconcile-cron:0 15 3 * * *}")
+    public void reconcile() {
+        try {
+            transactionAggregateService.ensureRows();
+            transactionAggregateService.rebuild();
+        } catch (RuntimeException e) {
+            log.error("Transaction aggregate reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+}
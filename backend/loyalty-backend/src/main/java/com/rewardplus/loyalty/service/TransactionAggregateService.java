@@ -0,0 +1,211 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+import com.rewardplus.loyalty.entity.TransactionAggregate;
+import com.rewardplus.loyalty.repository.TransactionAggregateRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Maintains running transaction totals per type and status in transaction_aggregates.
+ * Totals are incremented in the same database transaction that records the purchase,
+ * so they commit or roll back with it, and analytics read them without touching the
+ * transactions table. Each type and status is split over a few stripes chosen by
+ * customer, so concurrent purchases rarely wait on the same aggregate row.
+ *
+ * A rebuild recomputes the totals from the transactions table and corrects any drift.
+ */
+@Service
+@Slf4j
+public class TransactionAggregateService {
+
+    private static final String REBUILD_LOCK = "transaction_aggregate_rebuild";
+
+    // Rows are incremented in key order so concurrent batches cannot deadlock
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingInt(Key::stripe)
+        .thenComparing(key -> key.type().name())
+        .thenComparing(key -> key.status().name());
+
+    private final TransactionAggregateRepository aggregateRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate requiresNew;
+    private final int stripes;
+
+    public TransactionAggregateService(TransactionAggregateRepository aggregateRepository,
+                                       TransactionRepository transactionRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.analytics.aggregates.stripes:16}") int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Aggregate stripes must be at least 1");
+        }
+        this.aggregateRepository = aggregateRepository;
+        this.transactionRepository = transactionRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripes = stripes;
+    }
+
+    /**
+     * Add newly recorded transactions to the running totals.
+     */
+    @Transactional
+    public void record(Collection<Transaction> transactions) {
+        Map<Key, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        for (Transaction transaction : transactions) {
+            Long customerId = transaction.getCustomer() != null ? transaction.getCustomer().getId() : null;
+            Key key = new Key(stripeOf(customerId), transaction.getTransactionType(), transaction.getStatus());
+            BigDecimal netAmount = transaction.getNetAmount() != null ? transaction.getNetAmount() : BigDecimal.ZERO;
+            deltas.merge(key, new Delta(1, netAmount), Delta::plus);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        deltas.forEach((key, delta) -> apply(key, delta, now));
+    }
+
+    /**
+     * Current totals, summed over the aggregate stripes.
+     */
+    @Transactional(readOnly = true)
+    public TransactionTotals getTotals() {
+        return TransactionTotals.of(aggregateRepository.sumByTypeAndStatus());
+    }
+
+    /**
+     * Create any missing aggregate rows, each in its own transaction. Must run before
+     * transactions are recorded, as record never creates rows.
+     * Returns the number of rows created.
+     */
+    public int ensureRows() {
+        Set<Key> existing = new HashSet<>();
+        aggregateRepository.findAll()
+            .forEach(row -> existing.add(new Key(row.getStripe(), row.getTransactionType(), row.getStatus())));
+
+        int created = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            for (TransactionType type : TransactionType.values()) {
+                for (TransactionStatus status : TransactionStatus.values()) {
+                    Key key = new Key(stripe, type, status);
+                    if (!existing.contains(key) && createRow(key)) {
+                        created++;
+                    }
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Recompute totals from the transactions table and correct the aggregates by the
+     * difference. The aggregates and the source are read from the same snapshot, and
+     * the correction is applied as an increment, so purchases recorded while the
+     * rebuild scans are neither blocked nor lost. Only one instance rebuilds at a time;
+     * returns false when another instance is already rebuilding.
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ, timeout = 3600)
+    public boolean rebuild() {
+        // Taken before the first read so a second rebuild's snapshot includes the first one's corrections
+        if (!Integer.valueOf(1).equals(aggregateRepository.acquireNamedLock(REBUILD_LOCK, 0))) {
+            log.info("Transaction aggregates are being rebuilt by another instance");
+            return false;
+        }
+        try {
+            return rebuildFromSource();
+        } finally {
+            aggregateRepository.releaseNamedLock(REBUILD_LOCK);
+        }
+    }
+
+    private boolean rebuildFromSource() {
+        long startedAt = System.currentTimeMillis();
+        TransactionTotals current = TransactionTotals.of(aggregateRepository.sumByTypeAndStatus());
+        TransactionTotals source = TransactionTotals.of(transactionRepository.summarizeByTypeAndStatus());
+
+        LocalDateTime now = LocalDateTime.now();
+        int corrected = 0;
+        for (TransactionType type : TransactionType.values()) {
+            for (TransactionStatus status : TransactionStatus.values()) {
+                long countDrift = source.getCount(type, status) - current.getCount(type, status);
+                BigDecimal amountDrift = source.getNetAmount(type, status).subtract(current.getNetAmount(type, status));
+                if (countDrift == 0 && amountDrift.signum() == 0) {
+                    continue;
+                }
+                log.warn("Transaction aggregate drift for {}/{}: count {}, net amount {}",
+                    type, status, countDrift, amountDrift);
+                apply(new Key(0, type, status), new Delta(countDrift, amountDrift), now);
+                corrected++;
+            }
+        }
+
+        log.info("Transaction aggregates rebuilt in {} ms: {} transactions, {} totals corrected",
+            System.currentTimeMillis() - startedAt, source.getCount(), corrected);
+        return true;
+    }
+
+    int stripeOf(Long customerId) {
+        if (customerId == null) {
+            return 0;
+        }
+        return Math.floorMod(Long.hashCode(customerId * 0x9E3779B97F4A7C15L), stripes);
+    }
+
+    /**
+     * Rows are only ever created by ensureRows, outside any transaction that increments them:
+     * creating one here would wait on the gap lock this transaction's own UPDATE just took.
+     */
+    private void apply(Key key, Delta delta, LocalDateTime now) {
+        if (increment(key, delta, now) == 0) {
+            throw new IllegalStateException("Transaction aggregate row missing for " + key
+                + "; rows are created on startup by ensureRows");
+        }
+    }
+
+    private int increment(Key key, Delta delta, LocalDateTime now) {
+        return aggregateRepository.increment(key.stripe(), key.type(), key.status(),
+            delta.count(), delta.netAmount(), now);
+    }
+
+    /**
+     * Insert an empty aggregate row in its own transaction, so it is visible to every
+     * writer at once. Returns false when another writer created it first.
+     */
+    private boolean createRow(Key key) {
+        try {
+            requiresNew.executeWithoutResult(status -> aggregateRepository.saveAndFlush(TransactionAggregate.builder()
+                .stripe(key.stripe())
+                .transactionType(key.type())
+                .status(key.status())
+                .build()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private record Key(int stripe, TransactionType type, TransactionStatus status) {
+    }
+
+    private record Delta(long count, BigDecimal netAmount) {
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, netAmount.add(other.netAmount));
+        }
+    }
+}
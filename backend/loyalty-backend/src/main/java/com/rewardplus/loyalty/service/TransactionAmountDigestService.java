@@ -0,0 +1,367 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.AmountPercentilesDTO;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.entity.TransactionAmountDigest;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.repository.TransactionAmountDigestRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maintains a t-digest of completed purchase amounts per store, product category and day, so
+ * basket size percentiles over any range are a merge of a few digests instead of a sort of
+ * the transactions in it.
+ *
+ * Committed purchases are added to in-memory digests, which are merged into their rows on a
+ * short interval under a row lock, so several nodes can feed the same row. Unlike the active
+ * customer sketches a digest cannot absorb the same values twice, so the buffer is swapped out
+ * on flush and put back only if the flush rolls back. Yesterday is rebuilt from source each
+ * night, which folds in cancellations and repairs purchases lost with an unflushed buffer.
+ *
+ * Rows a flush has not seen before are created ahead of the transaction that locks and merges
+ * them, each in a transaction of its own. Creating one inside it would, on MySQL, wait on the
+ * gap lock its own SELECT ... FOR UPDATE took on the missing row.
+ */
+@Service
+@Slf4j
+public class TransactionAmountDigestService {
+
+    /**
+     * How a percentile query is broken down.
+     */
+    public enum GroupBy {
+        STORE,
+        CATEGORY,
+        DAY
+    }
+
+    static final List<Double> DEFAULT_QUANTILES = List.of(0.5, 0.9, 0.99);
+
+    private static final String REBUILD_LOCK = "transaction_amount_digest_rebuild";
+
+    // Rows are locked in key order so concurrent flushes from several nodes cannot deadlock
+    private static final Comparator<DigestKey> ROW_ORDER = Comparator.comparing(DigestKey::day)
+        .thenComparing(DigestKey::storeCode)
+        .thenComparing(DigestKey::productCategory);
+
+    private final TransactionAmountDigestRepository digestRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate requiresNew;
+    private final long maxRangeDays;
+
+    // Writers add under the read lock; flush swaps the map under the write lock
+    private final ReentrantReadWriteLock bufferLock = new ReentrantReadWriteLock();
+    private Map<DigestKey, TDigest> pending = new ConcurrentHashMap<>();
+    // Rows this node has seen exist, so only new ones are looked up; guarded by flush
+    private final Set<DigestKey> knownRows = new HashSet<>();
+
+    public TransactionAmountDigestService(TransactionAmountDigestRepository digestRepository,
+                                          TransactionRepository transactionRepository,
+                                          PlatformTransactionManager transactionManager,
+                                          @Value("${app.analytics.amount-digests.max-range-days:366}") long maxRangeDays) {
+        this.digestRepository = digestRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxRangeDays = maxRangeDays;
+    }
+
+    /**
+     * Add completed purchases' amounts once the current transaction commits.
+     */
+    public void recordTransactions(Collection<Transaction> transactions) {
+        Map<DigestKey, List<Double>> amounts = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getTransactionType() != Transaction.TransactionType.PURCHASE
+                || transaction.getStatus() != Transaction.TransactionStatus.COMPLETED
+                || transaction.getAmount() == null) {
+                continue;
+            }
+            LocalDate day = (transaction.getTransactionDate() != null
+                ? transaction.getTransactionDate()
+                : LocalDateTime.now()).toLocalDate();
+            amounts.computeIfAbsent(new DigestKey(day, transaction.getStoreCode(), transaction.getProductCategory()),
+                key -> new ArrayList<>()).add(transaction.getAmount().doubleValue());
+        }
+        if (amounts.isEmpty()) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            bufferLock.readLock().lock();
+            try {
+                amounts.forEach((key, values) -> {
+                    TDigest digest = pending.computeIfAbsent(key, k -> new TDigest());
+                    synchronized (digest) {
+                        values.forEach(digest::add);
+                    }
+                });
+            } finally {
+                bufferLock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Merge the buffered digests into their rows. On failure the digests go back into the
+     * buffer for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.amount-digests.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        Map<DigestKey, TDigest> drained;
+        bufferLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            bufferLock.writeLock().unlock();
+        }
+
+        Map<DigestKey, TDigest> rows = new TreeMap<>(ROW_ORDER);
+        rows.putAll(drained);
+        try {
+            createMissingRows(rows.keySet());
+            transactionTemplate.executeWithoutResult(status -> rows.forEach(this::mergeRow));
+        } catch (RuntimeException e) {
+            // A rebuild may have deleted rows this node thought existed
+            knownRows.clear();
+            log.warn("Could not flush {} amount digests, will retry: {}", drained.size(), e.getMessage());
+            requeue(drained);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Percentiles of completed purchase amounts for days within [from, to], optionally for one
+     * store and category and broken down by store, category or day. Quantiles default to
+     * p50, p90 and p99. Purchases flushed in the last few seconds may be missing.
+     */
+    @Transactional(readOnly = true)
+    public AmountPercentilesDTO query(LocalDate from, LocalDate to, String storeCode, String productCategory,
+                                      GroupBy groupBy, List<Double> quantiles) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new BadRequestException("Range start must not be after its end", "INVALID_RANGE");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new BadRequestException("Percentile ranges are limited to " + maxRangeDays + " days",
+                "RANGE_TOO_LARGE");
+        }
+        List<Double> requested = quantiles == null || quantiles.isEmpty() ? DEFAULT_QUANTILES : quantiles;
+        for (Double quantile : requested) {
+            if (quantile == null || quantile <= 0 || quantile >= 1) {
+                throw new BadRequestException("Quantiles must be between 0 and 1", "INVALID_QUANTILE");
+            }
+        }
+        String store = storeCode == null || storeCode.isBlank() ? null : storeCode;
+        String category = productCategory == null || productCategory.isBlank() ? null : productCategory;
+
+        TDigest overall = new TDigest();
+        Map<String, TDigest> groups = new TreeMap<>();
+        for (TransactionAmountDigest row : digestRepository.findDigests(from, to, store, category)) {
+            TDigest digest = TDigest.fromBytes(row.getDigest());
+            if (groupBy != null) {
+                groups.computeIfAbsent(groupKey(groupBy, row), key -> new TDigest()).merge(digest);
+            }
+            overall.merge(digest);
+        }
+
+        AmountPercentilesDTO.AmountPercentilesDTOBuilder result = AmountPercentilesDTO.builder()
+            .from(from)
+            .to(to)
+            .storeCode(store)
+            .productCategory(category)
+            .overall(distribution(null, overall, requested));
+        if (groupBy != null) {
+            List<AmountPercentilesDTO.Distribution> distributions = new ArrayList<>(groups.size());
+            groups.forEach((key, digest) -> distributions.add(distribution(key, digest, requested)));
+            result.groupBy(groupBy).groups(distributions);
+        }
+        return result.build();
+    }
+
+    /**
+     * Replace every digest of the given day with digests rebuilt from the transactions table.
+     * Only one instance rebuilds at a time. Returns the number of digests written, or -1 when
+     * another instance is already rebuilding.
+     */
+    @Transactional
+    public int rebuildDay(LocalDate day) {
+        return rebuildExclusively(day);
+    }
+
+    /**
+     * Rebuild yesterday's digests. This node's buffer is flushed first, so purchases it holds
+     * for yesterday are in the rows the rebuild replaces instead of merged on top of them.
+     */
+    @Scheduled(cron = "${app.analytics.amount-digests.rebuild-cron:0 25 0 * * *}")
+    public void rebuildYesterday() {
+        flush();
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        // Called on this bean directly, so the transaction is not left to rebuildDay's proxy
+        transactionTemplate.execute(status -> rebuildExclusively(yesterday));
+    }
+
+    private int rebuildExclusively(LocalDate day) {
+        if (!Integer.valueOf(1).equals(digestRepository.acquireNamedLock(REBUILD_LOCK, 0))) {
+            log.info("Amount digests are being rebuilt by another instance");
+            return -1;
+        }
+        try {
+            return rebuildFromSource(day);
+        } finally {
+            digestRepository.releaseNamedLock(REBUILD_LOCK);
+        }
+    }
+
+    private int rebuildFromSource(LocalDate day) {
+        Map<DigestKey, TDigest> digests = new TreeMap<>(ROW_ORDER);
+        for (Object[] row : transactionRepository.findPurchaseAmountsBetween(day.atStartOfDay(),
+                day.plusDays(1).atStartOfDay())) {
+            if (row[2] != null) {
+                digests.computeIfAbsent(new DigestKey(day, (String) row[0], (String) row[1]), key -> new TDigest())
+                    .add(((BigDecimal) row[2]).doubleValue());
+            }
+        }
+
+        digestRepository.deleteByBucketDate(day);
+        List<TransactionAmountDigest> rows = new ArrayList<>(digests.size());
+        digests.forEach((key, digest) -> rows.add(key.toEntity(digest)));
+        digestRepository.saveAll(rows);
+
+        log.info("Amount digests for {} rebuilt: {} digests", day, rows.size());
+        return rows.size();
+    }
+
+    private void createMissingRows(Collection<DigestKey> keys) {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        knownRows.removeIf(key -> key.day().isBefore(yesterday));
+        for (DigestKey key : keys) {
+            if (knownRows.contains(key)) {
+                continue;
+            }
+            if (!digestRepository.existsByBucketDateAndStoreCodeAndProductCategory(key.day(), key.storeCode(),
+                    key.productCategory())) {
+                createRow(key);
+            }
+            knownRows.add(key);
+        }
+    }
+
+    private void mergeRow(DigestKey key, TDigest digest) {
+        TransactionAmountDigest row = digestRepository.findForUpdate(key.day(), key.storeCode(), key.productCategory())
+            .orElseThrow(() -> new IllegalStateException("Amount digest row missing for " + key));
+        TDigest stored = TDigest.fromBytes(row.getDigest());
+        stored.merge(digest);
+        row.setDigest(stored.toBytes());
+    }
+
+    /**
+     * Insert an empty digest in its own transaction so every node can merge into it.
+     * Another node creating it first is fine.
+     */
+    private void createRow(DigestKey key) {
+        try {
+            requiresNew.executeWithoutResult(status -> digestRepository.saveAndFlush(key.toEntity(new TDigest())));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Amount digest {} created concurrently", key);
+        }
+    }
+
+    private void requeue(Map<DigestKey, TDigest> drained) {
+        bufferLock.readLock().lock();
+        try {
+            drained.forEach((key, digest) -> {
+                TDigest target = pending.computeIfAbsent(key, k -> new TDigest());
+                synchronized (target) {
+                    target.merge(digest);
+                }
+            });
+        } finally {
+            bufferLock.readLock().unlock();
+        }
+    }
+
+    private static String groupKey(GroupBy groupBy, TransactionAmountDigest row) {
+        return switch (groupBy) {
+            case STORE -> row.getStoreCode();
+            case CATEGORY -> row.getProductCategory();
+            case DAY -> row.getBucketDate().toString();
+        };
+    }
+
+    private static AmountPercentilesDTO.Distribution distribution(String key, TDigest digest, List<Double> quantiles) {
+        Map<String, BigDecimal> percentiles = new LinkedHashMap<>();
+        if (digest.count() > 0) {
+            for (double quantile : quantiles) {
+                percentiles.put(label(quantile), money(digest.quantile(quantile)));
+            }
+        }
+        return AmountPercentilesDTO.Distribution.builder()
+            .key(key)
+            .count(digest.count())
+            .min(digest.count() > 0 ? money(digest.min()) : null)
+            .max(digest.count() > 0 ? money(digest.max()) : null)
+            .percentiles(percentiles)
+            .build();
+    }
+
+    // 0.5 -> "p50", 0.999 -> "p99.9"
+    private static String label(double quantile) {
+        return "p" + BigDecimal.valueOf(quantile).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private record DigestKey(LocalDate day, String storeCode, String productCategory) {
+        DigestKey {
+            storeCode = storeCode != null ? storeCode : "";
+            productCategory = productCategory != null ? productCategory : "";
+        }
+
+        TransactionAmountDigest toEntity(TDigest digest) {
+            return TransactionAmountDigest.builder()
+                .bucketDate(day)
+                .storeCode(storeCode)
+                .productCategory(productCategory)
+                .digest(digest.toBytes())
+                .build();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.TransactionScanResultDTO;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.exception.ServiceBusyException;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import com.rewardplus.loyalty.repository.projection.TransactionRow;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a columnar copy of the transactions table in memory for ad-hoc breakdowns, so a new
+ * filter or grouping is a scan over primitive arrays instead of a new finder over the table.
+ *
+ * Loaded at startup and then refreshed incrementally: each refresh reads the rows created or
+ * changed since the last one, walking (updated_at, id) with keyset pages. The watermark is
+ * rewound by app.analytics.columnar.overlap-seconds on every refresh so rows committed late,
+ * or stamped by a node with a lagging clock, are still picked up; re-read rows are overwritten.
+ * Scans run on a dedicated fork-join pool so they never occupy the common pool.
+ */
+@Component
+@Slf4j
+public class TransactionColumnarSnapshot {
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long overlapSeconds;
+    private final TransactionColumns columns;
+    private final ForkJoinPool pool;
+
+    // Guarded by this
+    private LocalDateTime watermark = BEGINNING;
+    private volatile LocalDateTime asOf;
+
+    public TransactionColumnarSnapshot(TransactionRepository transactionRepository,
+                                       @Value("${app.analytics.columnar.enabled:false}") boolean enabled,
+                                       @Value("${app.analytics.columnar.initial-capacity:1048576}") int initialCapacity,
+                                       @Value("${app.analytics.columnar.batch-size:10000}") int batchSize,
+                                       @Value("${app.analytics.columnar.overlap-seconds:300}") long overlapSeconds,
+                                       @Value("${app.analytics.columnar.parallelism:0}") int parallelism) {
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.overlapSeconds = overlapSeconds;
+        this.columns = new TransactionColumns(enabled ? initialCapacity : 0);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            refresh();
+        }
+    }
+
+    /**
+     * Read rows created or changed since the last refresh into the columns and publish them.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.columnar.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        LocalDateTime since = watermark.equals(BEGINNING) ? BEGINNING : watermark.minusSeconds(overlapSeconds);
+        long afterId = Long.MIN_VALUE;
+        int read = 0;
+
+        List<TransactionRow> rows;
+        do {
+            rows = transactionRepository.findRowsChangedSince(since, afterId, PageRequest.of(0, batchSize));
+            for (TransactionRow row : rows) {
+                columns.upsert(row.getId(), row.getCustomerId(), row.getAmount(), row.getNetAmount(),
+                    row.getTransactionDate(), row.getTransactionType(), row.getStatus(), row.getStoreCode(),
+                    row.getCashierCode(), row.getProductCategory(), row.getPaymentMethod());
+            }
+            if (!rows.isEmpty()) {
+                TransactionRow last = rows.get(rows.size() - 1);
+                since = last.getUpdatedAt();
+                afterId = last.getId();
+                if (since.isAfter(watermark)) {
+                    watermark = since;
+                }
+            }
+            read += rows.size();
+        } while (rows.size() == batchSize);
+
+        columns.publish();
+        if (asOf == null) {
+            log.info("Columnar transaction snapshot loaded: {} rows", columns.size());
+        } else {
+            log.debug("Columnar transaction snapshot refreshed: {} rows read, {} total", read, columns.size());
+        }
+        asOf = started;
+    }
+
+    /**
+     * Filter and group the snapshot's transactions.
+     */
+    public TransactionScanResultDTO scan(TransactionScanQuery query) {
+        if (!enabled) {
+            throw new BadRequestException("Columnar transaction snapshot is not enabled", "SNAPSHOT_DISABLED");
+        }
+        if (asOf == null) {
+            throw new ServiceBusyException("Columnar transaction snapshot is still loading, retry shortly", 30);
+        }
+        if (query.getFrom() != null && query.getTo() != null && !query.getFrom().isBefore(query.getTo())) {
+            throw new BadRequestException("'from' must be before 'to'", "INVALID_RANGE");
+        }
+        if (query.getAmountBucket() != null && query.getAmountBucket().compareTo(new BigDecimal("0.01")) < 0) {
+            throw new BadRequestException("Amount bucket must be at least 0.01", "INVALID_BUCKET");
+        }
+
+        long start = System.nanoTime();
+        TransactionColumns.Result result = columns.scan(query, pool);
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+        return TransactionScanResultDTO.builder()
+            .groupBy(query.getGroupBy() != null ? query.getGroupBy().name() : null)
+            .rowsScanned(result.rowsScanned())
+            .matchedRows(result.matchedRows())
+            .scanMicros(micros)
+            .snapshotAsOf(asOf)
+            .groups(result.groups().stream()
+                .map(group -> TransactionScanResultDTO.Group.builder()
+                    .key(group.key())
+                    .count(group.count())
+                    .amount(BigDecimal.valueOf(group.amountCents(), 2))
+                    .netAmount(BigDecimal.valueOf(group.netAmountCents(), 2))
+                    .build())
+                .toList())
+            .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
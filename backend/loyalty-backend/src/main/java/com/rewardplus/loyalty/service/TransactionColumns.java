@@ -0,0 +1,495 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Column store of transactions for ad-hoc analytics scans: one primitive array per column,
+ * amounts as cents, enums as ordinals and strings as codes into per-column dictionaries.
+ * A scan filters and groups with tight loops over the arrays, split across a fork-join pool.
+ *
+ * One writer upserts rows and then publishes them; any number of readers scan the last
+ * published view without locking. Rows updated in place are visible to scans at once, so a
+ * scan running during an update may see that row half-updated, or skip it.
+ */
+public final class TransactionColumns {
+
+    static final int NO_CODE = -1;
+    static final int MAX_AMOUNT_BUCKETS = 1000;
+    private static final int LEAF_ROWS = 1 << 15;
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private final Dictionary stores = new Dictionary();
+    private final Dictionary cashiers = new Dictionary();
+    private final Dictionary categories = new Dictionary();
+    private final Dictionary paymentMethods = new Dictionary();
+    private final LongIntMap rowById;
+
+    // Writer-side state; readers only reach the arrays through a published View
+    private long[] ids;
+    private long[] customerIds;
+    private long[] amounts;
+    private long[] netAmounts;
+    private long[] seconds;
+    private int[] types;
+    private int[] statuses;
+    private int[] storeCodes;
+    private int[] cashierCodes;
+    private int[] categoryCodes;
+    private int[] paymentCodes;
+    private int size;
+    private long minSecond = Long.MAX_VALUE;
+    private long maxSecond = Long.MIN_VALUE;
+
+    private volatile View view;
+
+    public TransactionColumns(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ids = new long[capacity];
+        customerIds = new long[capacity];
+        amounts = new long[capacity];
+        netAmounts = new long[capacity];
+        seconds = new long[capacity];
+        types = new int[capacity];
+        statuses = new int[capacity];
+        storeCodes = new int[capacity];
+        cashierCodes = new int[capacity];
+        categoryCodes = new int[capacity];
+        paymentCodes = new int[capacity];
+        rowById = new LongIntMap(capacity);
+        publish();
+    }
+
+    /**
+     * Add a transaction, or overwrite it in place if its id is already stored.
+     * New rows become visible to scans on the next publish.
+     */
+    public void upsert(long id, long customerId, BigDecimal amount, BigDecimal netAmount, LocalDateTime date,
+                       TransactionType type, TransactionStatus status, String storeCode, String cashierCode,
+                       String productCategory, String paymentMethod) {
+        int row = rowById.get(id);
+        if (row < 0) {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowById.put(id, row);
+        }
+        long second = date != null ? date.toEpochSecond(ZoneOffset.UTC) : 0;
+        ids[row] = id;
+        customerIds[row] = customerId;
+        amounts[row] = cents(amount);
+        netAmounts[row] = cents(netAmount);
+        seconds[row] = second;
+        types[row] = type != null ? type.ordinal() : NO_CODE;
+        statuses[row] = status != null ? status.ordinal() : NO_CODE;
+        storeCodes[row] = stores.encode(storeCode);
+        cashierCodes[row] = cashiers.encode(cashierCode);
+        categoryCodes[row] = categories.encode(productCategory);
+        paymentCodes[row] = paymentMethods.encode(paymentMethod);
+        minSecond = Math.min(minSecond, second);
+        maxSecond = Math.max(maxSecond, second);
+    }
+
+    /**
+     * Make every row upserted so far visible to scans.
+     */
+    public void publish() {
+        view = new View(size, ids, customerIds, amounts, netAmounts, seconds, types, statuses,
+            storeCodes, cashierCodes, categoryCodes, paymentCodes, minSecond, maxSecond);
+    }
+
+    /**
+     * Rows visible to scans.
+     */
+    public int size() {
+        return view.size;
+    }
+
+    /**
+     * Filter, group and total the published rows, splitting the work across the pool.
+     */
+    public Result scan(TransactionScanQuery query, ForkJoinPool pool) {
+        View snapshot = view;
+        Plan plan = new Plan(query, snapshot);
+        long[][] totals = snapshot.size == 0
+            ? new long[3][plan.keySpace]
+            : pool.invoke(new ScanTask(snapshot, plan, 0, snapshot.size));
+        return plan.result(totals, snapshot.size);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        customerIds = Arrays.copyOf(customerIds, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        netAmounts = Arrays.copyOf(netAmounts, capacity);
+        seconds = Arrays.copyOf(seconds, capacity);
+        types = Arrays.copyOf(types, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        storeCodes = Arrays.copyOf(storeCodes, capacity);
+        cashierCodes = Arrays.copyOf(cashierCodes, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        paymentCodes = Arrays.copyOf(paymentCodes, capacity);
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Totals of one group: row count and summed amounts in cents.
+     */
+    public record GroupTotals(String key, long count, long amountCents, long netAmountCents) {
+    }
+
+    public record Result(List<GroupTotals> groups, long matchedRows, long rowsScanned) {
+    }
+
+    private record View(int size, long[] ids, long[] customerIds, long[] amounts, long[] netAmounts,
+                        long[] seconds, int[] types, int[] statuses, int[] storeCodes, int[] cashierCodes,
+                        int[] categoryCodes, int[] paymentCodes, long minSecond, long maxSecond) {
+    }
+
+    /**
+     * A query compiled against one view: time bounds, per-code masks and the group key layout.
+     */
+    private final class Plan {
+
+        private final long fromSecond;
+        private final long toSecond;
+        private final long minCents;
+        private final long maxCents;
+        private final boolean[] typeMask;
+        private final boolean[] statusMask;
+        private final boolean[] storeMask;
+        private final boolean[] cashierMask;
+        private final boolean[] categoryMask;
+        private final boolean[] paymentMask;
+        private final TransactionScanQuery.Dimension groupBy;
+        private final Dictionary groupDictionary;
+        private final long bucketCents;
+        private final long baseDay;
+        private final int keySpace;
+
+        private Plan(TransactionScanQuery query, View snapshot) {
+            fromSecond = query.getFrom() != null ? query.getFrom().toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+            toSecond = query.getTo() != null ? query.getTo().toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE;
+            minCents = query.getMinAmount() != null ? cents(query.getMinAmount()) : Long.MIN_VALUE;
+            maxCents = query.getMaxAmount() != null ? cents(query.getMaxAmount()) : Long.MAX_VALUE;
+            typeMask = enumMask(query.getTypes(), TYPES.length);
+            statusMask = enumMask(query.getStatuses(), STATUSES.length);
+            // Dictionaries only grow, so every code in the view is below the sizes read here
+            storeMask = stores.mask(query.getStoreCodes());
+            cashierMask = cashiers.mask(query.getCashierCodes());
+            categoryMask = categories.mask(query.getProductCategories());
+            paymentMask = paymentMethods.mask(query.getPaymentMethods());
+            groupBy = query.getGroupBy();
+            bucketCents = query.getAmountBucket() != null ? cents(query.getAmountBucket()) : 1000;
+
+            groupDictionary = switch (groupBy == null ? TransactionScanQuery.Dimension.TYPE : groupBy) {
+                case STORE -> stores;
+                case CASHIER -> cashiers;
+                case PRODUCT_CATEGORY -> categories;
+                case PAYMENT_METHOD -> paymentMethods;
+                default -> null;
+            };
+
+            long firstDay = Math.floorDiv(Math.max(snapshot.minSecond, fromSecond), SECONDS_PER_DAY);
+            long lastDay = Math.floorDiv(Math.min(snapshot.maxSecond, toSecond - 1), SECONDS_PER_DAY);
+            baseDay = firstDay;
+
+            if (groupBy == null) {
+                keySpace = 1;
+            } else {
+                keySpace = switch (groupBy) {
+                    case TYPE -> TYPES.length + 1;
+                    case STATUS -> STATUSES.length + 1;
+                    case AMOUNT_RANGE -> MAX_AMOUNT_BUCKETS;
+                    case DAY -> snapshot.size == 0 || lastDay < firstDay ? 1 : (int) (lastDay - firstDay + 1);
+                    default -> groupDictionary.size() + 1;
+                };
+            }
+        }
+
+        private static boolean[] enumMask(Set<? extends Enum<?>> values, int length) {
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+            boolean[] mask = new boolean[length];
+            values.forEach(value -> mask[value.ordinal()] = true);
+            return mask;
+        }
+
+        private Result result(long[][] totals, long rowsScanned) {
+            List<GroupTotals> groups = new ArrayList<>();
+            long matched = 0;
+            for (int key = 0; key < keySpace; key++) {
+                if (totals[0][key] > 0) {
+                    groups.add(new GroupTotals(label(key), totals[0][key], totals[1][key], totals[2][key]));
+                    matched += totals[0][key];
+                }
+            }
+            if (groupBy != TransactionScanQuery.Dimension.DAY && groupBy != TransactionScanQuery.Dimension.AMOUNT_RANGE) {
+                groups.sort(Comparator.comparingLong(GroupTotals::amountCents).reversed());
+            }
+            return new Result(groups, matched, rowsScanned);
+        }
+
+        private String label(int key) {
+            if (groupBy == null) {
+                return "ALL";
+            }
+            return switch (groupBy) {
+                case TYPE -> key < TYPES.length ? TYPES[key].name() : "NONE";
+                case STATUS -> key < STATUSES.length ? STATUSES[key].name() : "NONE";
+                case AMOUNT_RANGE -> {
+                    BigDecimal lower = BigDecimal.valueOf(key * bucketCents, 2);
+                    yield key == MAX_AMOUNT_BUCKETS - 1
+                        ? lower + "+"
+                        : lower + "-" + BigDecimal.valueOf((key + 1) * bucketCents, 2);
+                }
+                case DAY -> LocalDate.ofEpochDay(baseDay + key).toString();
+                default -> key < groupDictionary.size() ? groupDictionary.value(key) : "NONE";
+            };
+        }
+    }
+
+    /**
+     * Scans a row range, splitting it in halves down to LEAF_ROWS and summing the halves' totals.
+     */
+    private static final class ScanTask extends RecursiveTask<long[][]> {
+
+        private final View view;
+        private final Plan plan;
+        private final int from;
+        private final int to;
+
+        private ScanTask(View view, Plan plan, int from, int to) {
+            this.view = view;
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (to - from <= LEAF_ROWS) {
+                return scanRange();
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(view, plan, from, middle);
+            left.fork();
+            long[][] right = new ScanTask(view, plan, middle, to).compute();
+            long[][] totals = left.join();
+            for (int measure = 0; measure < totals.length; measure++) {
+                for (int key = 0; key < plan.keySpace; key++) {
+                    totals[measure][key] += right[measure][key];
+                }
+            }
+            return totals;
+        }
+
+        private long[][] scanRange() {
+            long[] count = new long[plan.keySpace];
+            long[] amount = new long[plan.keySpace];
+            long[] net = new long[plan.keySpace];
+            long[] seconds = view.seconds;
+            long[] amounts = view.amounts;
+            long[] netAmounts = view.netAmounts;
+            int[] types = view.types;
+            int[] statuses = view.statuses;
+            int[] storeCodes = view.storeCodes;
+            int[] cashierCodes = view.cashierCodes;
+            int[] categoryCodes = view.categoryCodes;
+            int[] paymentCodes = view.paymentCodes;
+
+            for (int row = from; row < to; row++) {
+                long second = seconds[row];
+                long cents = amounts[row];
+                if (second < plan.fromSecond || second >= plan.toSecond
+                        || cents < plan.minCents || cents >= plan.maxCents
+                        || !allowed(plan.typeMask, types[row])
+                        || !allowed(plan.statusMask, statuses[row])
+                        || !allowed(plan.storeMask, storeCodes[row])
+                        || !allowed(plan.cashierMask, cashierCodes[row])
+                        || !allowed(plan.categoryMask, categoryCodes[row])
+                        || !allowed(plan.paymentMask, paymentCodes[row])) {
+                    continue;
+                }
+                int key = key(row, second, cents);
+                if (key < 0 || key >= count.length) {
+                    // Row was updated in place after this view was published
+                    continue;
+                }
+                count[key]++;
+                amount[key] += cents;
+                net[key] += netAmounts[row];
+            }
+            return new long[][]{count, amount, net};
+        }
+
+        private int key(int row, long second, long cents) {
+            if (plan.groupBy == null) {
+                return 0;
+            }
+            return switch (plan.groupBy) {
+                case TYPE -> codeKey(view.types[row]);
+                case STATUS -> codeKey(view.statuses[row]);
+                case STORE -> codeKey(view.storeCodes[row]);
+                case CASHIER -> codeKey(view.cashierCodes[row]);
+                case PRODUCT_CATEGORY -> codeKey(view.categoryCodes[row]);
+                case PAYMENT_METHOD -> codeKey(view.paymentCodes[row]);
+                case AMOUNT_RANGE -> (int) Math.min(Math.max(cents, 0) / plan.bucketCents, MAX_AMOUNT_BUCKETS - 1);
+                case DAY -> (int) (Math.floorDiv(second, SECONDS_PER_DAY) - plan.baseDay);
+            };
+        }
+
+        // Rows without a value are grouped under the last key
+        private int codeKey(int code) {
+            return code == NO_CODE ? plan.keySpace - 1 : code;
+        }
+
+        private static boolean allowed(boolean[] mask, int code) {
+            return mask == null || (code != NO_CODE && code < mask.length && mask[code]);
+        }
+    }
+
+    /**
+     * Append-only string dictionary. Codes are assigned by the writer; readers may look
+     * values and codes up concurrently.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[16];
+        private volatile int size;
+
+        private int encode(String value) {
+            if (value == null) {
+                return NO_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int next = size;
+            String[] current = values;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = value;
+            values = current;
+            codes.put(value, next);
+            size = next + 1;
+            return next;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private String value(int code) {
+            return values[code];
+        }
+
+        private boolean[] mask(Set<String> allowed) {
+            if (allowed == null || allowed.isEmpty()) {
+                return null;
+            }
+            boolean[] mask = new boolean[size];
+            for (String value : allowed) {
+                Integer code = codes.get(value);
+                if (code != null && code < mask.length) {
+                    mask[code] = true;
+                }
+            }
+            return mask;
+        }
+    }
+
+    /**
+     * Open-addressing map from transaction id to row, avoiding a boxed entry per row.
+     * Only used by the writer.
+     */
+    private static final class LongIntMap {
+
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        private LongIntMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        private int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        private void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
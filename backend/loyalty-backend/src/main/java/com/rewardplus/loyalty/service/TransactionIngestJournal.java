@@ -0,0 +1,222 @@
+package com.rewardplus.loyalty.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewardplus.loyalty.dto.TransactionDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only local journal of transactions accepted for asynchronous ingest.
+ * Each line is a JSON entry: ACCEPTED carries the transaction and is fsync'd before the
+ * caller is acknowledged, COMPLETED marks a code as finished (recorded or rejected).
+ * Concurrent appends share a single fsync where they overlap.
+ *
+ * Opening the journal replays it: transactions accepted but never completed are kept
+ * for re-processing and the file is rewritten to hold only those. Once nothing is
+ * pending and the file has grown past the compaction threshold it is truncated.
+ */
+@Slf4j
+public final class TransactionIngestJournal implements Closeable {
+
+    static final String FILE_NAME = "transaction-ingest.journal";
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final long compactThresholdBytes;
+    private final List<TransactionDTO> recovered;
+    private final FileChannel channel;
+
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private long writtenSeq;      // guarded by writeLock
+    private long pending;         // guarded by writeLock
+    private volatile long syncedSeq;
+
+    private TransactionIngestJournal(Path file, ObjectMapper objectMapper, long compactThresholdBytes) throws IOException {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.recovered = replay();
+        this.pending = recovered.size();
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Open (or create) the journal in the given directory, replaying any previous contents.
+     */
+    public static TransactionIngestJournal open(Path directory, ObjectMapper objectMapper,
+                                                long compactThresholdBytes) throws IOException {
+        Files.createDirectories(directory);
+        return new TransactionIngestJournal(directory.resolve(FILE_NAME), objectMapper, compactThresholdBytes);
+    }
+
+    /**
+     * Transactions found accepted but not completed when the journal was opened, in acceptance order.
+     */
+    public List<TransactionDTO> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Durably record that a transaction was accepted. Returns once the entry is on disk.
+     */
+    public void appendAccepted(TransactionDTO transaction) throws IOException {
+        Entry entry = new Entry(EntryType.ACCEPTED, transaction.getTransactionCode(), transaction);
+        sync(append(List.of(entry), 1));
+    }
+
+    /**
+     * Record that transactions finished processing. Not fsync'd: if the marker is lost
+     * the transaction is replayed and rejected as a duplicate code.
+     */
+    public void appendCompleted(Collection<String> transactionCodes) throws IOException {
+        if (transactionCodes.isEmpty()) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(transactionCodes.size());
+        for (String code : transactionCodes) {
+            entries.add(new Entry(EntryType.COMPLETED, code, null));
+        }
+        append(entries, -entries.size());
+    }
+
+    /**
+     * Number of accepted transactions without a completion marker.
+     */
+    public long getPending() {
+        synchronized (writeLock) {
+            return pending;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private long append(List<Entry> entries, int pendingDelta) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries) {
+            lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(lines.toString());
+
+        synchronized (writeLock) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            pending += pendingDelta;
+            if (pending == 0 && channel.size() > compactThresholdBytes) {
+                channel.truncate(0);
+                log.debug("Transaction ingest journal compacted");
+            }
+            return ++writtenSeq;
+        }
+    }
+
+    /**
+     * Force everything written up to seq to disk. A caller whose write was already
+     * covered by another thread's fsync returns without forcing again.
+     */
+    private void sync(long seq) throws IOException {
+        if (syncedSeq >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSeq >= seq) {
+                return;
+            }
+            long target;
+            synchronized (writeLock) {
+                target = writtenSeq;
+            }
+            channel.force(false);
+            syncedSeq = target;
+        }
+    }
+
+    private List<TransactionDTO> replay() throws IOException {
+        Map<String, TransactionDTO> accepted = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    Entry entry;
+                    try {
+                        entry = objectMapper.readValue(line, Entry.class);
+                    } catch (JsonProcessingException e) {
+                        // A torn final line from a crash mid-append was never acknowledged
+                        log.warn("Skipping unreadable transaction ingest journal line: {}", e.getOriginalMessage());
+                        continue;
+                    }
+                    if (entry.getType() == EntryType.ACCEPTED) {
+                        accepted.put(entry.getCode(), entry.getTransaction());
+                    } else {
+                        accepted.remove(entry.getCode());
+                    }
+                }
+            }
+        }
+
+        // Rewrite the journal with only the pending entries
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<String, TransactionDTO> pendingEntry : accepted.entrySet()) {
+                Entry entry = new Entry(EntryType.ACCEPTED, pendingEntry.getKey(), pendingEntry.getValue());
+                ByteBuffer buffer = StandardCharsets.UTF_8.encode(objectMapper.writeValueAsString(entry) + "\n");
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+            out.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (!accepted.isEmpty()) {
+            log.info("Recovered {} pending transactions from the ingest journal", accepted.size());
+        }
+        return List.copyOf(accepted.values());
+    }
+
+    enum EntryType {
+        ACCEPTED, COMPLETED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class Entry {
+        private EntryType type;
+        private String code;
+        private TransactionDTO transaction;
+    }
+}
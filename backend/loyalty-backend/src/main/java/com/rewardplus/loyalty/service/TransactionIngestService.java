@@ -0,0 +1,439 @@
+package com.rewardplus.loyalty.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewardplus.loyalty.dto.TransactionBatchResultDTO;
+import com.rewardplus.loyalty.dto.TransactionDTO;
+import com.rewardplus.loyalty.dto.TransactionIngestStatusDTO;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.exception.DuplicateResourceException;
+import com.rewardplus.loyalty.exception.ResourceNotFoundException;
+import com.rewardplus.loyalty.exception.ServiceBusyException;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous transaction ingest.
+ * An accepted transaction is validated, appended to the local journal (fsync'd) and
+ * queued; the caller is acknowledged straight away and polls the status by transaction
+ * code. A fixed pool of workers drains the queue in micro-batches through
+ * TransactionService.recordTransactionsBatch. When the queue is full new transactions
+ * are refused with a 503 so terminals can back off or fall back to lock-step mode.
+ *
+ * Disabled unless app.ingest.async.enabled is set; lock-step recording is unaffected.
+ * The journal must be on a persistent volume: startup fails if it is on the container's
+ * own file system.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionIngestService {
+
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+    private static final Path MOUNTS = Path.of("/proc/self/mounts");
+    // File systems that vanish with the container: its writable layer and memory-backed mounts
+    private static final Set<String> EPHEMERAL_FILE_SYSTEMS = Set.of("overlay", "aufs", "tmpfs", "ramfs");
+
+    private final TransactionService transactionService;
+    private final CustomerRepository customerRepository;
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.ingest.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.ingest.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.ingest.async.workers:4}")
+    private int workerCount;
+
+    @Value("${app.ingest.async.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${app.ingest.async.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.ingest.async.journal-dir:./data/ingest}")
+    private String journalDir;
+
+    @Value("${app.ingest.async.allow-ephemeral-journal:false}")
+    private boolean allowEphemeralJournal;
+
+    @Value("${app.ingest.async.journal-compact-bytes:67108864}")
+    private long journalCompactBytes;
+
+    @Value("${app.ingest.async.status-retention-minutes:60}")
+    private long statusRetentionMinutes;
+
+    @Value("${app.ingest.async.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    private final BlockingQueue<TransactionDTO> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Map<String, TransactionIngestStatusDTO> statuses = new ConcurrentHashMap<>();
+
+    private volatile TransactionIngestJournal journal;
+    private volatile ExecutorService workers;
+    private volatile boolean running;
+
+    /**
+     * Open the journal, re-queue anything left pending and start the workers.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        recover();
+        startWorkers();
+        log.info("Async transaction ingest started: {} workers, queue capacity {}, journal {}",
+            workerCount, queueCapacity, journalDir);
+    }
+
+    /**
+     * Open the journal and re-queue what it still holds; transactions are accepted from here on.
+     */
+    void recover() {
+        try {
+            Path directory = Path.of(journalDir);
+            if (!allowEphemeralJournal) {
+                requirePersistentStorage(directory);
+            }
+            journal = TransactionIngestJournal.open(directory, objectMapper, journalCompactBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open transaction ingest journal in " + journalDir, e);
+        }
+        for (TransactionDTO transaction : journal.getRecovered()) {
+            statuses.put(transaction.getTransactionCode(), queuedStatus(transaction, LocalDateTime.now()));
+            depth.incrementAndGet();
+            queue.add(transaction);
+        }
+        running = true;
+    }
+
+    private void startWorkers() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, task -> {
+            Thread thread = new Thread(task, "txn-ingest-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::drainLoop);
+        }
+    }
+
+    /**
+     * Stop the workers after their current batch. Queued transactions stay in the
+     * journal and are replayed on the next start.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                    workers.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Could not close transaction ingest journal", e);
+        }
+        log.info("Async transaction ingest stopped with {} transactions left queued", depth.get());
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Accept a transaction for asynchronous recording.
+     * Returns once the transaction is durably journaled and queued.
+     */
+    public TransactionIngestStatusDTO enqueue(Long customerId, TransactionDTO transactionDTO) {
+        if (!running) {
+            throw new BadRequestException("Asynchronous ingest is not enabled", "ASYNC_INGEST_DISABLED");
+        }
+        String code = transactionDTO.getTransactionCode();
+        if (!customerRepository.existsById(customerId)) {
+            throw new ResourceNotFoundException("Customer", "id", customerId);
+        }
+        if (transactionRepository.existsByTransactionCode(code)) {
+            throw new DuplicateResourceException("Transaction", "transactionCode", code);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        transactionDTO.setCustomerId(customerId);
+        if (transactionDTO.getTransactionDate() == null) {
+            // Keep the time the terminal submitted it, not the time a worker gets to it
+            transactionDTO.setTransactionDate(now);
+        }
+
+        TransactionIngestStatusDTO status = queuedStatus(transactionDTO, now);
+        if (statuses.putIfAbsent(code, status) != null) {
+            throw new DuplicateResourceException("Transaction", "transactionCode", code);
+        }
+        if (depth.incrementAndGet() > queueCapacity) {
+            depth.decrementAndGet();
+            statuses.remove(code, status);
+            throw new ServiceBusyException("Transaction ingest queue is full, retry shortly", retryAfterSeconds);
+        }
+        try {
+            journal.appendAccepted(transactionDTO);
+        } catch (IOException e) {
+            depth.decrementAndGet();
+            statuses.remove(code, status);
+            throw new UncheckedIOException("Could not journal transaction " + code, e);
+        }
+        queue.add(transactionDTO);
+
+        log.debug("Transaction {} queued for async ingest", code);
+        return status;
+    }
+
+    /**
+     * Get the ingest status of a transaction by code. Transactions no longer tracked in
+     * memory (finished earlier, recorded lock-step or on another replica) are looked up
+     * in the database.
+     */
+    public TransactionIngestStatusDTO getStatus(String transactionCode) {
+        TransactionIngestStatusDTO status = statuses.get(transactionCode);
+        if (status != null) {
+            return status;
+        }
+        return transactionRepository.findByTransactionCode(transactionCode)
+            .map(transaction -> TransactionIngestStatusDTO.builder()
+                .transactionCode(transactionCode)
+                .customerId(transaction.getCustomer().getId())
+                .state(TransactionIngestStatusDTO.State.COMPLETED)
+                .completedAt(transaction.getCreatedAt())
+                .transactionId(transaction.getId())
+                .build())
+            .orElseThrow(() -> new ResourceNotFoundException("Transaction", "transactionCode", transactionCode));
+    }
+
+    /**
+     * Number of transactions waiting for a worker.
+     */
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Forget finished statuses once they are past the retention window.
+     */
+    @Scheduled(fixedDelayString = "${app.ingest.async.status-sweep-ms:60000}")
+    public void evictFinishedStatuses() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(statusRetentionMinutes);
+        statuses.values().removeIf(status -> status.getCompletedAt() != null && status.getCompletedAt().isBefore(cutoff));
+    }
+
+    private void drainLoop() {
+        List<TransactionDTO> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                TransactionDTO first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                depth.addAndGet(-batch.size());
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Async transaction ingest worker failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Record one micro-batch, retrying transient failures and rows whose customers were
+     * busy. A batch that still fails is split into single rows so one bad transaction
+     * cannot sink its neighbours.
+     */
+    void process(List<TransactionDTO> batch) {
+        batch.forEach(dto -> statuses.computeIfPresent(dto.getTransactionCode(),
+            (code, status) -> status.toBuilder().state(TransactionIngestStatusDTO.State.PROCESSING).build()));
+
+        List<TransactionDTO> pending = batch;
+        RuntimeException failure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                pending = complete(pending, transactionService.recordTransactionsBatch(pending));
+                if (pending.isEmpty()) {
+                    return;
+                }
+                failure = new ServiceBusyException("Customer account is busy, retry shortly", 1);
+                log.warn("Async ingest left {} transactions of busy customers (attempt {} of {})",
+                    pending.size(), attempt, maxAttempts);
+            } catch (RuntimeException e) {
+                failure = e;
+                log.warn("Async ingest of {} transactions failed (attempt {} of {}): {}",
+                    pending.size(), attempt, maxAttempts, e.getMessage());
+            }
+            if (attempt < maxAttempts && !pause(RETRY_BACKOFF_MILLIS * attempt)) {
+                break;
+            }
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            // Shutting down: leave the batch pending in the journal for the next start
+            return;
+        }
+        if (pending.size() > 1) {
+            for (TransactionDTO dto : pending) {
+                process(List.of(dto));
+            }
+            return;
+        }
+        fail(pending.get(0), failure);
+    }
+
+    /**
+     * Publish the outcome of every recorded row and return the rows left for busy customers.
+     */
+    private List<TransactionDTO> complete(List<TransactionDTO> batch, TransactionBatchResultDTO result) {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> codes = new ArrayList<>(batch.size());
+        List<TransactionDTO> busy = new ArrayList<>();
+        for (TransactionBatchResultDTO.RowResult row : result.getResults()) {
+            TransactionDTO dto = batch.get(row.getIndex());
+            if (TransactionService.CUSTOMER_BUSY.equals(row.getErrorCode())) {
+                busy.add(dto);
+                continue;
+            }
+            String code = dto.getTransactionCode();
+            codes.add(code);
+            statuses.computeIfPresent(code, (key, status) -> status.toBuilder()
+                .state(row.isSuccess() ? TransactionIngestStatusDTO.State.COMPLETED : TransactionIngestStatusDTO.State.FAILED)
+                .completedAt(now)
+                .transactionId(row.getTransactionId())
+                .pointsEarned(row.getPointsEarned())
+                .errorCode(row.getErrorCode())
+                .message(row.getMessage())
+                .build());
+        }
+        markCompleted(codes);
+        return busy;
+    }
+
+    private void fail(TransactionDTO dto, RuntimeException failure) {
+        String code = dto.getTransactionCode();
+        log.error("Async ingest gave up on transaction {}", code, failure);
+        statuses.computeIfPresent(code, (key, status) -> status.toBuilder()
+            .state(TransactionIngestStatusDTO.State.FAILED)
+            .completedAt(LocalDateTime.now())
+            .errorCode("INGEST_FAILED")
+            .message(failure != null ? failure.getMessage() : "Processing interrupted")
+            .build());
+        markCompleted(List.of(code));
+    }
+
+    private void markCompleted(List<String> codes) {
+        try {
+            journal.appendCompleted(codes);
+        } catch (IOException e) {
+            // The transactions are replayed on restart and rejected as duplicates
+            log.error("Could not journal completion of {} transactions", codes.size(), e);
+        }
+    }
+
+    private TransactionIngestStatusDTO queuedStatus(TransactionDTO dto, LocalDateTime acceptedAt) {
+        return TransactionIngestStatusDTO.builder()
+            .transactionCode(dto.getTransactionCode())
+            .customerId(dto.getCustomerId())
+            .state(TransactionIngestStatusDTO.State.QUEUED)
+            .acceptedAt(acceptedAt)
+            .build();
+    }
+
+    /**
+     * Refuse a journal directory on container or memory storage: callers are acknowledged once
+     * a transaction is journaled, so the journal has to survive the pod being rescheduled.
+     * Not checked where /proc/self/mounts does not exist.
+     */
+    private static void requirePersistentStorage(Path directory) throws IOException {
+        if (!Files.isReadable(MOUNTS)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        String fileSystem = ephemeralFileSystem(directory.toRealPath(), Files.readAllLines(MOUNTS));
+        if (fileSystem != null) {
+            throw new IllegalStateException("Transaction ingest journal " + directory + " is on " + fileSystem
+                + " storage, which is lost with the container. Mount a persistent volume there "
+                + "or set app.ingest.async.allow-ephemeral-journal");
+        }
+    }
+
+    /**
+     * Type of the ephemeral file system holding the directory, per the mount table lines
+     * (device, mount point, type, ...), or null if it is on persistent storage.
+     */
+    static String ephemeralFileSystem(Path directory, List<String> mounts) {
+        Path bestMount = null;
+        String bestType = null;
+        for (String line : mounts) {
+            String[] fields = line.split(" ");
+            if (fields.length < 3) {
+                continue;
+            }
+            Path mountPoint = Path.of(fields[1].replace("\\040", " "));
+            if (directory.startsWith(mountPoint)
+                    && (bestMount == null || mountPoint.getNameCount() >= bestMount.getNameCount())) {
+                bestMount = mountPoint;
+                bestType = fields[2];
+            }
+        }
+        return bestType != null && EPHEMERAL_FILE_SYSTEMS.contains(bestType) ? bestType : null;
+    }
+
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
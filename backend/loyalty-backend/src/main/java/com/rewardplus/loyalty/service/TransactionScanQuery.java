@@ -0,0 +1,51 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Filter, grouping and bucket width for a scan of the columnar transaction snapshot.
+ * Unset filters match every row; a row must match all filters that are set.
+ */
+@Getter
+@Builder
+public class TransactionScanQuery {
+
+    public enum Dimension {
+        TYPE,
+        STATUS,
+        STORE,
+        CASHIER,
+        PRODUCT_CATEGORY,
+        PAYMENT_METHOD,
+        AMOUNT_RANGE,
+        DAY
+    }
+
+    // Transaction date range, from inclusive and to exclusive
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    private final Set<TransactionType> types;
+    private final Set<TransactionStatus> statuses;
+    private final Set<String> storeCodes;
+    private final Set<String> cashierCodes;
+    private final Set<String> productCategories;
+    private final Set<String> paymentMethods;
+
+    // Amount range, min inclusive and max exclusive
+    private final BigDecimal minAmount;
+    private final BigDecimal maxAmount;
+
+    // Null returns a single total over all matching rows
+    private final Dimension groupBy;
+
+    // Width of each AMOUNT_RANGE bucket
+    private final BigDecimal amountBucket;
+}
@@ -1,21 +1,28 @@
 package com.rewardplus.loyalty.service;
 
+import com.rewardplus.loyalty.dto.CursorPage;
+import com.rewardplus.loyalty.dto.TransactionBatchResultDTO;
 import com.rewardplus.loyalty.dto.TransactionDTO;
 import com.rewardplus.loyalty.entity.Customer;
 import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
 import com.rewardplus.loyalty.entity.Promotion;
 import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.exception.BadRequestException;
 import com.rewardplus.loyalty.exception.ResourceNotFoundException;
+import com.rewardplus.loyalty.exception.ServiceBusyException;
 import com.rewardplus.loyalty.repository.CustomerRepository;
 import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
-import com.rewardplus.loyalty.repository.PromotionRepository;
 import com.rewardplus.loyalty.repository.TransactionRepository;
+import com.rewardplus.loyalty.util.SeekCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,7 +30,14 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -38,26 +52,310 @@ public class TransactionService {
     private final TransactionRepository transactionRepository;
     private final CustomerRepository customerRepository;
     private final LoyaltyPointsRepository loyaltyPointsRepository;
-    private final PromotionRepository promotionRepository;
+    private final PromotionUsageCounter promotionUsageCounter;
+    private final ActivePromotionRegistry activePromotionRegistry;
+    private final PointsLedgerService pointsLedgerService;
+    private final TransactionAggregateService transactionAggregateService;
+    private final ActivityRollupService activityRollupService;
+    private final TopSpenderTracker topSpenderTracker;
+    private final ActiveCustomerService activeCustomerService;
+    private final TransactionAmountDigestService transactionAmountDigestService;
+    private final CustomerLockStripes customerLocks;
+    private final CustomerLookupCache customerLookupCache;
     private final ModelMapper modelMapper;
 
     @Value("${app.points.earn-rate:10}")
     private int pointsEarnRate; // Points per dollar
 
+    @Value("${app.transactions.batch.max-size:10000}")
+    private int maxBatchSize;
+
+    @Value("${app.transactions.batch.customers-per-commit:50}")
+    private int customersPerCommit;
+
+    // Batch rows left unrecorded because their customers stayed locked; safe to retry
+    static final String CUSTOMER_BUSY = "CUSTOMER_BUSY";
+
+    // Upper bound for IN (...) lists issued while resolving a batch
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
     /**
      * Record a new purchase transaction and calculate loyalty points.
      */
-    @Transactional
     public TransactionDTO recordTransaction(Long customerId, TransactionDTO transactionDTO) {
         log.info("Recording transaction for customer ID: {}", customerId);
 
-        Customer customer = customerRepository.findById(customerId)
-            .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
+        return customerLocks.withLock(customerId, () -> {
+            Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
+
+            // Create transaction
+            Transaction transaction = newTransaction(transactionDTO, customer, LocalDateTime.now());
+
+            // Save transaction
+            transaction = transactionRepository.save(transaction);
+            transactionAggregateService.record(List.of(transaction));
+            activityRollupService.recordTransactions(List.of(transaction));
+            topSpenderTracker.record(List.of(transaction));
+            activeCustomerService.recordTransactions(List.of(transaction));
+            transactionAmountDigestService.recordTransactions(List.of(transaction));
+
+            // Calculate and award loyalty points
+            Long pointsEarned = calculatePoints(transaction.getNetAmount(), customer);
+            awardPoints(customer, transaction, pointsEarned);
+
+            // Update customer's last activity date
+            customer.setLastActivityDate(LocalDate.now());
+            customerRepository.save(customer);
+            customerLookupCache.invalidate(customer.getId());
+
+            log.info("Transaction recorded successfully: {} with {} points earned",
+                transaction.getTransactionCode(), pointsEarned);
+
+            TransactionDTO result = mapToDTO(transaction);
+            result.setPointsEarned(pointsEarned);
+            result.setEligibleForPoints(true);
+
+            return result;
+        });
+    }
+
+    /**
+     * Record a batch of purchase transactions in one pass.
+     * Customers and existing transaction codes are resolved with set-based queries,
+     * promotions are matched against the in-memory snapshot, points are grouped per
+     * customer so each account is credited once, and rows are persisted through saveAll
+     * so Hibernate can JDBC-batch them.
+     * Valid rows are committed in chunks of at most app.transactions.batch.customers-per-commit
+     * customers, each holding only its own customers' locks, so a large batch never stalls
+     * balance changes for everyone else on the node. A chunk whose customers stay busy past
+     * the lock timeout is reported as failed rows; chunks committed before an error stay
+     * committed, and retrying the batch reports their rows as duplicates.
+     * Invalid rows are reported individually and do not fail the rest of the batch.
+     * Unlike the single-row path, a transaction date supplied by the caller is kept.
+     */
+    public TransactionBatchResultDTO recordTransactionsBatch(List<TransactionDTO> transactionDTOs) {
+        long startedAt = System.currentTimeMillis();
+
+        if (transactionDTOs == null || transactionDTOs.isEmpty()) {
+            throw new BadRequestException("Transaction batch must contain at least one transaction");
+        }
+        if (transactionDTOs.size() > maxBatchSize) {
+            throw new BadRequestException("Transaction batch exceeds maximum size of " + maxBatchSize,
+                "BATCH_TOO_LARGE");
+        }
+        log.info("Recording batch of {} transactions", transactionDTOs.size());
+
+        // Resolve everything the batch refers to up front
+        Set<Long> customerIds = new HashSet<>();
+        Set<String> transactionCodes = new HashSet<>();
+        for (TransactionDTO dto : transactionDTOs) {
+            if (dto == null) {
+                continue;
+            }
+            if (dto.getCustomerId() != null) {
+                customerIds.add(dto.getCustomerId());
+            }
+            if (dto.getTransactionCode() != null) {
+                transactionCodes.add(dto.getTransactionCode());
+            }
+        }
+
+        Set<Long> knownCustomers = new HashSet<>();
+        for (List<Long> chunk : partition(customerIds)) {
+            customerRepository.findByIdIn(chunk)
+                .forEach(customer -> knownCustomers.add(customer.getId()));
+        }
+
+        Set<String> existingCodes = new HashSet<>();
+        for (List<String> chunk : partition(transactionCodes)) {
+            existingCodes.addAll(transactionRepository.findExistingTransactionCodes(chunk));
+        }
+
+        // Validate rows and group the valid ones by customer
+        TransactionBatchResultDTO.RowResult[] results = new TransactionBatchResultDTO.RowResult[transactionDTOs.size()];
+        Map<Long, List<Integer>> rowsByCustomer = new LinkedHashMap<>();
+        Set<String> seenCodes = new HashSet<>();
+
+        for (int i = 0; i < transactionDTOs.size(); i++) {
+            TransactionDTO dto = transactionDTOs.get(i);
+            TransactionBatchResultDTO.RowResult rejection = validateBatchRow(i, dto, knownCustomers, existingCodes, seenCodes);
+            if (rejection != null) {
+                results[i] = rejection;
+            } else {
+                rowsByCustomer.computeIfAbsent(dto.getCustomerId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // Persist and credit the valid rows a few customers at a time
+        ActivePromotionSnapshot activePromotions = activePromotionRegistry.current();
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> acceptedCustomers = new ArrayList<>(rowsByCustomer.keySet());
+        for (int from = 0; from < acceptedCustomers.size(); from += customersPerCommit) {
+            List<Long> chunk = acceptedCustomers.subList(from, Math.min(from + customersPerCommit, acceptedCustomers.size()));
+            try {
+                customerLocks.withLocks(chunk, () -> {
+                    recordBatchChunk(transactionDTOs, chunk, rowsByCustomer, activePromotions, now, results);
+                    return null;
+                });
+            } catch (ServiceBusyException e) {
+                for (Long customerId : chunk) {
+                    for (int i : rowsByCustomer.get(customerId)) {
+                        results[i] = rejectedRow(i, transactionDTOs.get(i), CUSTOMER_BUSY, e.getMessage());
+                    }
+                }
+            }
+        }
+
+        int succeeded = 0;
+        long totalPoints = 0;
+        Set<Long> creditedCustomers = new HashSet<>();
+        for (TransactionBatchResultDTO.RowResult row : results) {
+            if (row.isSuccess()) {
+                succeeded++;
+                totalPoints += row.getPointsEarned();
+                creditedCustomers.add(row.getCustomerId());
+            }
+        }
+        long elapsed = System.currentTimeMillis() - startedAt;
+
+        log.info("Batch recorded: {} of {} transactions, {} points earned across {} customers in {} ms",
+            succeeded, transactionDTOs.size(), totalPoints, creditedCustomers.size(), elapsed);
+
+        return TransactionBatchResultDTO.builder()
+            .totalRows(transactionDTOs.size())
+            .succeeded(succeeded)
+            .failed(transactionDTOs.size() - succeeded)
+            .totalPointsEarned(totalPoints)
+            .elapsedMillis(elapsed)
+            .results(List.of(results))
+            .build();
+    }
+
+    /**
+     * Record the valid rows of a batch belonging to one chunk of customers, inside that
+     * chunk's transaction and customer locks.
+     */
+    private void recordBatchChunk(List<TransactionDTO> transactionDTOs, List<Long> customerIds,
+                                  Map<Long, List<Integer>> rowsByCustomer, ActivePromotionSnapshot activePromotions,
+                                  LocalDateTime now, TransactionBatchResultDTO.RowResult[] results) {
+        // Read the customers again under their locks, so the activity date is saved on current state
+        Map<Long, Customer> customers = new HashMap<>();
+        customerRepository.findByIdIn(customerIds).forEach(customer -> customers.put(customer.getId(), customer));
+
+        List<Transaction> transactions = new ArrayList<>();
+        List<Integer> transactionRows = new ArrayList<>();
+        Map<Long, Long> pointsByCustomer = new LinkedHashMap<>();
+        Map<Long, Transaction> latestTransactionByCustomer = new HashMap<>();
+
+        for (Long customerId : customerIds) {
+            Customer customer = customers.get(customerId);
+            for (int i : rowsByCustomer.get(customerId)) {
+                TransactionDTO dto = transactionDTOs.get(i);
+                if (customer == null) {
+                    results[i] = rejectedRow(i, dto, "CUSTOMER_NOT_FOUND", "Customer not found with id: '" + customerId + "'");
+                    continue;
+                }
+                Transaction transaction = newTransaction(dto, customer,
+                    dto.getTransactionDate() != null ? dto.getTransactionDate() : now);
+
+                long points = calculatePoints(transaction.getNetAmount(), customer, activePromotions);
+                pointsByCustomer.merge(customerId, points, Long::sum);
+                latestTransactionByCustomer.put(customerId, transaction);
+
+                transactions.add(transaction);
+                transactionRows.add(i);
+                results[i] = TransactionBatchResultDTO.RowResult.builder()
+                    .index(i)
+                    .success(true)
+                    .transactionCode(transaction.getTransactionCode())
+                    .customerId(customerId)
+                    .pointsEarned(points)
+                    .build();
+            }
+        }
+        if (transactions.isEmpty()) {
+            return;
+        }
+
+        // Persist transactions, then one points update per customer
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        transactionAggregateService.record(saved);
+        activityRollupService.recordTransactions(saved);
+        topSpenderTracker.record(saved);
+        activeCustomerService.recordTransactions(saved);
+        transactionAmountDigestService.recordTransactions(saved);
+        List<PointsLedgerEntry> ledgerEntries = new ArrayList<>(saved.size());
+        for (int j = 0; j < saved.size(); j++) {
+            TransactionBatchResultDTO.RowResult row = results[transactionRows.get(j)];
+            row.setTransactionId(saved.get(j).getId());
+            if (row.getPointsEarned() > 0) {
+                ledgerEntries.add(pointsLedgerService.entry(row.getCustomerId(), PointsLedgerEntry.EntryType.EARN,
+                    row.getPointsEarned(), row.getTransactionId(), null, null));
+            }
+        }
+        awardPointsBatch(customers, pointsByCustomer, latestTransactionByCustomer);
+        pointsLedgerService.recordAll(ledgerEntries);
+
+        List<Customer> touchedCustomers = pointsByCustomer.keySet().stream()
+            .map(customers::get)
+            .collect(Collectors.toList());
+        touchedCustomers.forEach(customer -> customer.setLastActivityDate(LocalDate.now()));
+        customerRepository.saveAll(touchedCustomers);
+        customerLookupCache.invalidateAll(pointsByCustomer.keySet());
+    }
+
+    /**
+     * Validate a single batch row, returning a failed row result or null if the row is valid.
+     */
+    private TransactionBatchResultDTO.RowResult validateBatchRow(int index, TransactionDTO dto,
+                                                                 Set<Long> knownCustomers,
+                                                                 Set<String> existingCodes,
+                                                                 Set<String> seenCodes) {
+        if (dto == null) {
+            return rejectedRow(index, null, "EMPTY_ROW", "Transaction row is empty");
+        }
+        String code = dto.getTransactionCode();
+        if (code == null || code.isBlank()) {
+            return rejectedRow(index, dto, "TRANSACTION_CODE_REQUIRED", "Transaction code is required");
+        }
+        if (dto.getCustomerId() == null) {
+            return rejectedRow(index, dto, "CUSTOMER_REQUIRED", "Customer ID is required");
+        }
+        if (!knownCustomers.contains(dto.getCustomerId())) {
+            return rejectedRow(index, dto, "CUSTOMER_NOT_FOUND", "Customer not found with id: '" + dto.getCustomerId() + "'");
+        }
+        if (dto.getAmount() == null || dto.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return rejectedRow(index, dto, "INVALID_AMOUNT", "Amount must be greater than 0");
+        }
+        if (dto.getDiscountApplied() != null && dto.getDiscountApplied().compareTo(BigDecimal.ZERO) < 0) {
+            return rejectedRow(index, dto, "INVALID_DISCOUNT", "Discount cannot be negative");
+        }
+        if (existingCodes.contains(code) || !seenCodes.add(code)) {
+            return rejectedRow(index, dto, "DUPLICATE_TRANSACTION_CODE", "Transaction code already exists: " + code);
+        }
+        return null;
+    }
+
+    private TransactionBatchResultDTO.RowResult rejectedRow(int index, TransactionDTO dto, String errorCode, String message) {
+        return TransactionBatchResultDTO.RowResult.builder()
+            .index(index)
+            .success(false)
+            .transactionCode(dto != null ? dto.getTransactionCode() : null)
+            .customerId(dto != null ? dto.getCustomerId() : null)
+            .errorCode(errorCode)
+            .message(message)
+            .build();
+    }
 
-        // Create transaction
+    /**
+     * Build a completed transaction entity from the incoming DTO.
+     */
+    private Transaction newTransaction(TransactionDTO transactionDTO, Customer customer, LocalDateTime transactionDate) {
         Transaction transaction = modelMapper.map(transactionDTO, Transaction.class);
+        transaction.setId(null);
         transaction.setCustomer(customer);
-        transaction.setTransactionDate(LocalDateTime.now());
+        transaction.setTransactionDate(transactionDate);
         transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
 
         // Calculate net amount
@@ -66,32 +364,20 @@ public class TransactionService {
         } else {
             transaction.setNetAmount(transaction.getAmount());
         }
-
-        // Save transaction
-        transaction = transactionRepository.save(transaction);
-
-        // Calculate and award loyalty points
-        Long pointsEarned = calculatePoints(transaction.getNetAmount(), customer);
-        awardPoints(customer, transaction, pointsEarned);
-
-        // Update customer's last activity date
-        customer.setLastActivityDate(LocalDate.now());
-        customerRepository.save(customer);
-
-        log.info("Transaction recorded successfully: {} with {} points earned",
-            transaction.getTransactionCode(), pointsEarned);
-
-        TransactionDTO result = mapToDTO(transaction);
-        result.setPointsEarned(pointsEarned);
-        result.setEligibleForPoints(true);
-
-        return result;
+        return transaction;
     }
 
     /**
      * Calculate points based on transaction amount and applicable promotions.
      */
     private Long calculatePoints(BigDecimal netAmount, Customer customer) {
+        return calculatePoints(netAmount, customer, activePromotionRegistry.current());
+    }
+
+    /**
+     * Calculate points against a given active promotion snapshot.
+     */
+    private long calculatePoints(BigDecimal netAmount, Customer customer, ActivePromotionSnapshot activePromotions) {
         if (netAmount == null || netAmount.compareTo(BigDecimal.ZERO) <= 0) {
             return 0L;
         }
@@ -102,7 +388,8 @@ public class TransactionService {
             .longValue();
 
         // Check for applicable promotions
-        Promotion activePromotion = findApplicablePromotion(customer, netAmount);
+        Promotion activePromotion = claimApplicablePromotion(
+            activePromotions.candidatesFor(customer, netAmount, LocalDate.now()));
         if (activePromotion != null) {
             if (activePromotion.getBonusPointsMultiplier() != null) {
                 basePoints = BigDecimal.valueOf(basePoints).multiply(activePromotion.getBonusPointsMultiplier()).longValue();
@@ -110,114 +397,89 @@ public class TransactionService {
             if (activePromotion.getBonusPointsFixed() != null) {
                 basePoints += activePromotion.getBonusPointsFixed();
             }
-            activePromotion.incrementUsage();
-            promotionRepository.save(activePromotion);
         }
 
         return basePoints;
     }
 
     /**
-     * Find applicable promotion for the customer.
+     * Record one use of the first candidate promotion that still has uses left.
+     * Usage is counted in memory by PromotionUsageCounter, so claiming never touches
+     * the promotion row.
      */
-    private Promotion findApplicablePromotion(Customer customer, BigDecimal amount) {
-        List<Promotion> activePromotions = promotionRepository.findActivePromotions();
-
-        return activePromotions.stream()
-            .filter(promo -> isPromotionApplicable(promo, customer, amount))
-            .findFirst()
-            .orElse(null);
+    private Promotion claimApplicablePromotion(List<Promotion> candidates) {
+        for (Promotion promo : candidates) {
+            if (promotionUsageCounter.tryClaim(promo)) {
+                return promo;
+            }
+            log.debug("Promotion {} reached its usage limit", promo.getPromotionCode());
+        }
+        return null;
     }
 
     /**
-     * Check if a promotion is applicable to the customer.
+     * Award points to customer.
+     * The balance is credited with a single atomic UPDATE; an account is only created
+     * here for customers enrolled before accounts were opened at enrollment.
      */
-    private boolean isPromotionApplicable(Promotion promo, Customer customer, BigDecimal amount) {
-        // Check minimum purchase amount
-        if (promo.getMinimumPurchaseAmount() != null && 
-            amount.compareTo(promo.getMinimumPurchaseAmount()) < 0) {
-            return false;
-        }
-
-        // Check tier requirement
-        if (promo.getMinimumTier() != null) {
-            if (customer.getTier() == null) {
-                return false;
-            }
-            int customerTierValue = getTierValue(customer.getTier());
-            int promoTierValue = getTierValue(promo.getMinimumTier());
-            if (customerTierValue < promoTierValue) {
-                return false;
-            }
-        }
-
-        // Check age range
-        if (promo.getMinimumAge() != null && customer.getAge() < promo.getMinimumAge()) {
-            return false;
-        }
-        if (promo.getMaximumAge() != null && customer.getAge() > promo.getMaximumAge()) {
-            return false;
-        }
-
-        // Check gender
-        if (promo.getTargetGender() != null && 
-            !promo.getTargetGender().equalsIgnoreCase(customer.getGender())) {
-            return false;
+    private void awardPoints(Customer customer, Transaction transaction, Long points) {
+        if (loyaltyPointsRepository.creditPoints(customer.getId(), points, transaction, LocalDateTime.now()) == 0) {
+            loyaltyPointsRepository.save(newAccount(customer, transaction, points));
         }
-
-        // Check city
-        if (promo.getTargetCity() != null && 
-            !promo.getTargetCity().equalsIgnoreCase(customer.getCity())) {
-            return false;
+        if (points > 0) {
+            pointsLedgerService.record(customer.getId(), PointsLedgerEntry.EntryType.EARN, points,
+                transaction.getId(), null, null);
         }
 
-        // Check for new customer exclusivity (enrolled in last 30 days)
-        if (Boolean.TRUE.equals(promo.getExclusiveToNewCustomers())) {
-            if (customer.getEnrollmentDate() == null || 
-                customer.getEnrollmentDate().isBefore(LocalDate.now().minusDays(30))) {
-                return false;
-            }
-        }
-
-        return true;
+        log.info("Awarded {} points to customer {}", points, customer.getId());
     }
 
     /**
-     * Get tier numeric value for comparison.
+     * Award points for a batch, issuing one atomic credit per customer.
      */
-    private int getTierValue(Customer.CustomerTier tier) {
-        return switch (tier) {
-            case BRONZE -> 1;
-            case SILVER -> 2;
-            case GOLD -> 3;
-            case PLATINUM -> 4;
-            case DIAMOND -> 5;
-        };
+    private void awardPointsBatch(Map<Long, Customer> customers, Map<Long, Long> pointsByCustomer,
+                                  Map<Long, Transaction> latestTransactionByCustomer) {
+        LocalDateTime now = LocalDateTime.now();
+        List<LoyaltyPoints> created = new ArrayList<>();
+        pointsByCustomer.forEach((customerId, points) -> {
+            Transaction transaction = latestTransactionByCustomer.get(customerId);
+            if (loyaltyPointsRepository.creditPoints(customerId, points, transaction, now) == 0) {
+                created.add(newAccount(customers.get(customerId), transaction, points));
+            }
+        });
+        if (!created.isEmpty()) {
+            loyaltyPointsRepository.saveAll(created);
+        }
     }
 
     /**
-     * Award points to customer.
+     * Build a new loyalty account already holding the first award.
      */
-    private void awardPoints(Customer customer, Transaction transaction, Long points) {
-        LoyaltyPoints loyaltyPoints = loyaltyPointsRepository.findByCustomerId(customer.getId())
-            .orElseGet(() -> {
-                LoyaltyPoints newPoints = LoyaltyPoints.builder()
-                    .customer(customer)
-                    .currentBalance(0L)
-                    .lifetimePoints(0L)
-                    .pointsEarned(0L)
-                    .pointsRedeemed(0L)
-                    .pointsAdjusted(0L)
-                    .status(LoyaltyPoints.PointsStatus.ACTIVE)
-                    .build();
-                return loyaltyPointsRepository.save(newPoints);
-            });
-
+    private LoyaltyPoints newAccount(Customer customer, Transaction transaction, Long points) {
+        LoyaltyPoints loyaltyPoints = LoyaltyPoints.builder()
+            .customer(customer)
+            .currentBalance(0L)
+            .lifetimePoints(0L)
+            .pointsEarned(0L)
+            .pointsRedeemed(0L)
+            .pointsAdjusted(0L)
+            .status(LoyaltyPoints.PointsStatus.ACTIVE)
+            .build();
         loyaltyPoints.addPoints(points);
         loyaltyPoints.setTransaction(transaction);
-        loyaltyPointsRepository.save(loyaltyPoints);
+        return loyaltyPoints;
+    }
 
-        log.info("Awarded {} points to customer {}", points, customer.getId());
+    /**
+     * Split a collection into lists small enough for an IN (...) clause.
+     */
+    private static <T> List<List<T>> partition(Collection<T> values) {
+        List<T> all = new ArrayList<>(values);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += LOOKUP_CHUNK_SIZE) {
+            chunks.add(all.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, all.size())));
+        }
+        return chunks;
     }
 
     /**
@@ -252,6 +514,38 @@ public class TransactionService {
             .map(this::mapToDTO);
     }
 
+    /**
+     * Get a page of a customer's transactions by transaction date, continuing from a keyset
+     * cursor so deep pages cost the same as the first. The total is only counted when asked for.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionDTO> getCustomerTransactionsPage(Long customerId, String cursor, int size,
+                                                                  String sortBy, Sort.Direction direction,
+                                                                  boolean includeTotal) {
+        if (!"transactionDate".equals(sortBy)) {
+            throw new BadRequestException("Cursor pagination of transactions is sorted by transactionDate",
+                "INVALID_SORT");
+        }
+        SeekCursor position = SeekCursor.decode(cursor, sortBy, direction);
+        Pageable limit = PageRequest.of(0, SeekCursor.checkPageSize(size) + 1);
+        List<Transaction> transactions = direction.isAscending()
+            ? transactionRepository.findCustomerPageAfter(customerId, position.value(), position.id(), limit)
+            : transactionRepository.findCustomerPageBefore(customerId, position.value(), position.id(), limit);
+        // Only an empty page needs telling apart from an unknown customer
+        if (transactions.isEmpty() && !customerRepository.existsById(customerId)) {
+            throw new ResourceNotFoundException("Customer", "id", customerId);
+        }
+
+        String nextCursor = null;
+        if (transactions.size() > size) {
+            transactions = transactions.subList(0, size);
+            Transaction last = transactions.get(size - 1);
+            nextCursor = position.next(last.getTransactionDate(), last.getId()).encode();
+        }
+        Long total = includeTotal ? transactionRepository.countByCustomerId(customerId) : null;
+        return new CursorPage<>(transactions.stream().map(this::mapToDTO).toList(), nextCursor, total);
+    }
+
     /**
      * Get recent transactions.
      */
@@ -0,0 +1,112 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable transaction counts and net amounts per transaction type and status,
+ * read from the maintained aggregates or recomputed from source.
+ */
+public final class TransactionTotals {
+
+    private final Map<TransactionType, Map<TransactionStatus, Totals>> totals = new EnumMap<>(TransactionType.class);
+
+    private TransactionTotals(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            TransactionType type = (TransactionType) row[0];
+            TransactionStatus status = (TransactionStatus) row[1];
+            long count = row[2] != null ? ((Number) row[2]).longValue() : 0L;
+            BigDecimal netAmount = row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO;
+            totals.computeIfAbsent(type, t -> new EnumMap<>(TransactionStatus.class))
+                .merge(status, new Totals(count, netAmount), Totals::plus);
+        }
+    }
+
+    /**
+     * Build totals from (type, status, count, netAmount) rows.
+     */
+    public static TransactionTotals of(List<Object[]> rows) {
+        return new TransactionTotals(rows);
+    }
+
+    public long getCount() {
+        return totals.values().stream()
+            .flatMap(byStatus -> byStatus.values().stream())
+            .mapToLong(Totals::count)
+            .sum();
+    }
+
+    public long getCount(TransactionStatus status) {
+        return totals.values().stream()
+            .map(byStatus -> byStatus.get(status))
+            .filter(Objects::nonNull)
+            .mapToLong(Totals::count)
+            .sum();
+    }
+
+    public long getCount(TransactionType type, TransactionStatus status) {
+        return get(type, status).count();
+    }
+
+    public BigDecimal getNetAmount() {
+        return totals.values().stream()
+            .flatMap(byStatus -> byStatus.values().stream())
+            .map(Totals::netAmount)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public BigDecimal getNetAmount(TransactionStatus status) {
+        return totals.values().stream()
+            .map(byStatus -> byStatus.get(status))
+            .filter(Objects::nonNull)
+            .map(Totals::netAmount)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public BigDecimal getNetAmount(TransactionType type, TransactionStatus status) {
+        return get(type, status).netAmount();
+    }
+
+    /**
+     * Transaction count per type, with every type present.
+     */
+    public Map<String, Long> getCountByType() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (TransactionType type : TransactionType.values()) {
+            counts.put(type.name(), totals.getOrDefault(type, Map.of()).values().stream()
+                .mapToLong(Totals::count)
+                .sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Transaction count per status, with every status present.
+     */
+    public Map<String, Long> getCountByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (TransactionStatus status : TransactionStatus.values()) {
+            counts.put(status.name(), getCount(status));
+        }
+        return counts;
+    }
+
+    private Totals get(TransactionType type, TransactionStatus status) {
+        return totals.getOrDefault(type, Map.of()).getOrDefault(status, Totals.ZERO);
+    }
+
+    private record Totals(long count, BigDecimal netAmount) {
+        static final Totals ZERO = new Totals(0, BigDecimal.ZERO);
+
+        Totals plus(Totals other) {
+            return new Totals(count + other.count, netAmount.add(other.netAmount));
+        }
+    }
+}
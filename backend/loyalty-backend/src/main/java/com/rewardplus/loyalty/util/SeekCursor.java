@@ -0,0 +1,78 @@
+package com.rewardplus.loyalty.util;
+
+import com.rewardplus.loyalty.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (sortKey, id), handed to clients as an opaque token.
+ *
+ * The next page is read with "WHERE (sortKey, id) is past the cursor ORDER BY sortKey, id
+ * LIMIT size", which walks the (sortKey, id) index from the cursor instead of skipping
+ * OFFSET rows, so every page costs the same however deep it is. The token also records the
+ * sort it was issued for and is rejected if replayed against a different one.
+ */
+public record SeekCursor(String sortBy, Sort.Direction direction, LocalDateTime value, long id) {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Cursor before the first row of a listing in the given order.
+     */
+    public static SeekCursor start(String sortBy, Sort.Direction direction) {
+        return direction.isAscending()
+            ? new SeekCursor(sortBy, direction, LocalDateTime.of(1000, 1, 1, 0, 0), Long.MIN_VALUE)
+            : new SeekCursor(sortBy, direction, LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+    }
+
+    /**
+     * Cursor from a client token, or the start of the listing for a blank token.
+     */
+    public static SeekCursor decode(String token, String sortBy, Sort.Direction direction) {
+        if (token == null || token.isBlank()) {
+            return start(sortBy, direction);
+        }
+        SeekCursor cursor;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                .split("\\" + SEPARATOR, -1);
+            if (parts.length != 5 || !VERSION.equals(parts[0])) {
+                throw new BadRequestException("Invalid page cursor", "INVALID_CURSOR");
+            }
+            cursor = new SeekCursor(parts[1], Sort.Direction.fromString(parts[2]),
+                LocalDateTime.parse(parts[3]), Long.parseLong(parts[4]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid page cursor", "INVALID_CURSOR");
+        }
+        if (!cursor.sortBy().equals(sortBy) || cursor.direction() != direction) {
+            throw new BadRequestException("Page cursor was issued for a different sort order", "INVALID_CURSOR");
+        }
+        return cursor;
+    }
+
+    /**
+     * Cursor just past the given row, in the same order.
+     */
+    public SeekCursor next(LocalDateTime value, long id) {
+        return new SeekCursor(sortBy, direction, value, id);
+    }
+
+    public static int checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE, "INVALID_PAGE_SIZE");
+        }
+        return size;
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, VERSION, sortBy, direction.name(), value.toString(), Long.toString(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,132 @@
+package com.rewardplus.loyalty.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style 63-bit id generator used for business codes (transaction, redemption,
+ * voucher, reward, promotion and customer codes).
+ *
+ * Layout: 41 bits of milliseconds since {@link #EPOCH_MILLIS}, 10 bits of node id and a
+ * 12-bit per-millisecond sequence. Ids are unique across nodes with distinct node ids and
+ * strictly increasing per node. Generation is a single CAS loop with no locking and no
+ * allocation; codes are encoded as fixed-width Crockford base32 so they sort in id order.
+ *
+ * Entities are not Spring beans, so the node-wide instance is reachable statically.
+ * IdGeneratorConfig sets it from the required app.ids.node-id at startup; until then
+ * generating a code fails rather than risk two nodes sharing a node id.
+ */
+public final class SnowflakeIdGenerator {
+
+    /** Custom epoch: 2024-01-01T00:00:00Z. */
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /** Encoded length of a 63-bit id in base32 (5 bits per character). */
+    public static final int ENCODED_LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private static volatile SnowflakeIdGenerator shared;
+
+    private final long nodeId;
+
+    // Last issued (timestamp << SEQUENCE_BITS | sequence); the node bits are added on the way out
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Next id for this node.
+     * Within one millisecond the sequence increments; if it overflows, or the clock moves
+     * backwards, ids keep counting on from the last timestamp rather than repeating.
+     */
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                    | (nodeId << SEQUENCE_BITS)
+                    | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Next code for this node: the prefix followed by the encoded id.
+     */
+    public String nextCode(String prefix) {
+        return encode(prefix, nextId());
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Next code from the node-wide generator.
+     */
+    public static String next(String prefix) {
+        return shared().nextCode(prefix);
+    }
+
+    /**
+     * The node-wide generator.
+     *
+     * @throws IllegalStateException if no node id has been configured
+     */
+    public static SnowflakeIdGenerator shared() {
+        SnowflakeIdGenerator generator = shared;
+        if (generator == null) {
+            throw new IllegalStateException("Code generator node id is not configured; set app.ids.node-id");
+        }
+        return generator;
+    }
+
+    /**
+     * Replace the node-wide generator with one for the given node id.
+     */
+    public static void configure(long nodeId) {
+        SnowflakeIdGenerator current = shared;
+        if (current == null || current.nodeId != nodeId) {
+            shared = new SnowflakeIdGenerator(nodeId);
+        }
+    }
+
+    /**
+     * Encode an id as the prefix followed by fixed-width Crockford base32.
+     */
+    public static String encode(String prefix, long id) {
+        int length = prefix.length();
+        char[] chars = new char[length + ENCODED_LENGTH];
+        prefix.getChars(0, length, chars, 0);
+        for (int i = chars.length - 1; i >= length; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Milliseconds since the Unix epoch at which the id was generated.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    /**
+     * Node that generated the id.
+     */
+    public static long nodeOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+}
@@ -0,0 +1,177 @@
+package com.rewardplus.loyalty.benchmark;
+
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.RedemptionLog.RedemptionChannel;
+import com.rewardplus.loyalty.entity.RedemptionLog.RedemptionStatus;
+import com.rewardplus.loyalty.entity.Reward;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.RedemptionLogRepository;
+import com.rewardplus.loyalty.repository.RewardRepository;
+import com.rewardplus.loyalty.repository.projection.GroupCount;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the old analytics pattern of one query per enum value (loading every matching
+ * redemption just to take the list size) against a single GROUP BY returning typed projections.
+ * Seeds benchmark.rows redemptions on the configured datasource, so it is skipped unless
+ * -Dbenchmark=true is set:
+ *
+ *   mvn test -Dtest=AnalyticsQueryBenchmarkTest -Dbenchmark=true -Dbenchmark.rows=1000000
+ */
+@Slf4j
+@SpringBootTest(properties = "app.ids.node-id=1023")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AnalyticsQueryBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int BATCH_SIZE = 5000;
+    // Far above anything the pooled generator hands out, so seeded rows never collide
+    private static final long FIRST_ID = 9_000_000_000_000L;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private RewardRepository rewardRepository;
+
+    @Autowired
+    private RedemptionLogRepository redemptionLogRepository;
+
+    private Customer customer;
+    private Reward reward;
+
+    @BeforeEach
+    void seed() throws SQLException {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        customer = customerRepository.save(Customer.builder()
+            .firstName("Bench")
+            .lastName("Analytics")
+            .email("bench-analytics-" + runId + "@example.com")
+            .dateOfBirth(LocalDate.of(1985, 1, 1))
+            .build());
+        reward = rewardRepository.save(Reward.builder()
+            .name("Bench reward")
+            .rewardCode("BENCH-" + runId)
+            .pointsRequired(100L)
+            .build());
+        insertRedemptions(runId);
+    }
+
+    @AfterEach
+    void cleanUp() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM redemption_logs WHERE id >= " + FIRST_ID);
+        }
+        rewardRepository.deleteById(reward.getId());
+        customerRepository.deleteById(customer.getId());
+    }
+
+    @Test
+    void groupedQuery_OutperformsPerValueQueries() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        // Warm up both paths before measuring them
+        readOnly.execute(status -> perValueCounts());
+        readOnly.execute(status -> groupedCounts());
+
+        long perValueStart = System.nanoTime();
+        Map<RedemptionChannel, Long> perValue = readOnly.execute(status -> perValueCounts());
+        long perValueMillis = (System.nanoTime() - perValueStart) / 1_000_000;
+
+        long groupedStart = System.nanoTime();
+        Map<RedemptionChannel, Long> grouped = readOnly.execute(status -> groupedCounts());
+        long groupedMillis = (System.nanoTime() - groupedStart) / 1_000_000;
+
+        log.info("Redemption analytics over {} rows: per-value queries {} ms, grouped query {} ms, speedup {}x",
+            ROWS, perValueMillis, groupedMillis,
+            String.format("%.1f", perValueMillis / (double) Math.max(groupedMillis, 1)));
+
+        assertEquals(perValue, grouped);
+        assertTrue(groupedMillis < perValueMillis, "Grouped query should be faster than per-value queries");
+    }
+
+    private Map<RedemptionChannel, Long> perValueCounts() {
+        Map<RedemptionChannel, Long> counts = new EnumMap<>(RedemptionChannel.class);
+        for (RedemptionChannel channel : RedemptionChannel.values()) {
+            counts.put(channel, (long) redemptionLogRepository.findByChannel(channel).size());
+        }
+        for (RedemptionStatus status : RedemptionStatus.values()) {
+            redemptionLogRepository.countByStatus(status);
+        }
+        return counts;
+    }
+
+    private Map<RedemptionChannel, Long> groupedCounts() {
+        Map<RedemptionChannel, Long> counts = new EnumMap<>(RedemptionChannel.class);
+        for (RedemptionChannel channel : RedemptionChannel.values()) {
+            counts.put(channel, 0L);
+        }
+        for (GroupCount<RedemptionChannel> group : redemptionLogRepository.sumPointsGroupedByChannel()) {
+            if (group.getKey() != null) {
+                counts.put(group.getKey(), group.getCount());
+            }
+        }
+        redemptionLogRepository.sumPointsGroupedByStatus();
+        return counts;
+    }
+
+    private void insertRedemptions(String runId) throws SQLException {
+        String sql = "INSERT INTO redemption_logs (id, redemption_code, customer_id, reward_id, points_redeemed, "
+            + "status, channel, redemption_date, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        RedemptionChannel[] channels = RedemptionChannel.values();
+        RedemptionStatus[] statuses = RedemptionStatus.values();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < ROWS; i++) {
+                insert.setLong(1, FIRST_ID + i);
+                insert.setString(2, "BENCH-" + runId + "-" + i);
+                insert.setLong(3, customer.getId());
+                insert.setLong(4, reward.getId());
+                insert.setLong(5, 100L + (i % 50) * 10L);
+                insert.setString(6, statuses[i % statuses.length].name());
+                insert.setString(7, channels[(i / 7) % channels.length].name());
+                insert.setTimestamp(8, now);
+                insert.setTimestamp(9, now);
+                insert.setTimestamp(10, now);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        log.info("Seeded {} redemptions", ROWS);
+    }
+}
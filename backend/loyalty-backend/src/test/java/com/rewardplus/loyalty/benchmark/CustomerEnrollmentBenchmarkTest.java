@@ -0,0 +1,144 @@
+package com.rewardplus.loyalty.benchmark;
+
+import com.rewardplus.loyalty.dto.CustomerDTO;
+import com.rewardplus.loyalty.dto.CustomerEnrollmentResultDTO;
+import com.rewardplus.loyalty.service.CustomerEnrollmentService;
+import com.rewardplus.loyalty.service.CustomerService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares customers/sec of the single enrollment path (existence check, customer insert and
+ * points insert per record) against bulk enrollment and the CSV file import, which check emails
+ * per chunk and batch the inserts. Runs against the configured datasource, so it is skipped
+ * unless -Dbenchmark=true is set:
+ *
+ *   mvn test -Dtest=CustomerEnrollmentBenchmarkTest -Dbenchmark=true -Dbenchmark.rows=100000
+ */
+@Slf4j
+@SpringBootTest(properties = "app.ids.node-id=1023")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerEnrollmentBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int SINGLE_ROWS = Integer.getInteger("benchmark.single-rows", 2000);
+    private static final int BATCH_SIZE = Integer.getInteger("benchmark.batch-size", 10_000);
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerEnrollmentService customerEnrollmentService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void cleanUp() throws SQLException {
+        String emails = "'bench-enroll-" + runId + "-%'";
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE lp FROM loyalty_points lp JOIN customers c ON c.id = lp.customer_id "
+                + "WHERE c.email LIKE " + emails);
+            statement.executeUpdate("DELETE FROM customers WHERE email LIKE " + emails);
+        }
+    }
+
+    @Test
+    void bulkEnrollment_OutperformsSingleEnrollment() throws IOException {
+        // Warm up every path so JIT and connection pool effects don't skew the first measurement
+        enrollSingle(buildRows("WS", 200));
+        enrollBulk(buildRows("WB", 200));
+        importCsv(buildRows("WI", 200));
+
+        List<CustomerDTO> singleRows = buildRows("S", SINGLE_ROWS);
+        long singleStart = System.nanoTime();
+        enrollSingle(singleRows);
+        double singleRate = ratePerSecond(SINGLE_ROWS, System.nanoTime() - singleStart);
+
+        List<CustomerDTO> bulkRows = buildRows("B", ROWS);
+        long bulkStart = System.nanoTime();
+        int bulkEnrolled = enrollBulk(bulkRows);
+        double bulkRate = ratePerSecond(ROWS, System.nanoTime() - bulkStart);
+
+        List<CustomerDTO> importRows = buildRows("I", ROWS);
+        long importStart = System.nanoTime();
+        int imported = importCsv(importRows);
+        double importRate = ratePerSecond(ROWS, System.nanoTime() - importStart);
+
+        log.info("Customer enrollment: single {} customers/sec, bulk ({} per request) {} customers/sec, "
+                + "CSV import {} customers/sec, bulk speedup {}x",
+            String.format("%.0f", singleRate), BATCH_SIZE, String.format("%.0f", bulkRate),
+            String.format("%.0f", importRate), String.format("%.1f", bulkRate / singleRate));
+
+        assertEquals(ROWS, bulkEnrolled);
+        assertEquals(ROWS, imported);
+        assertEquals(0, enrollBulk(bulkRows.subList(0, Math.min(ROWS, BATCH_SIZE))),
+            "Re-submitted customers should all be reported as duplicates");
+        assertTrue(bulkRate > singleRate, "Bulk enrollment should be faster than the single path");
+    }
+
+    private void enrollSingle(List<CustomerDTO> rows) {
+        for (CustomerDTO row : rows) {
+            customerService.enrollCustomer(row);
+        }
+    }
+
+    private int enrollBulk(List<CustomerDTO> rows) {
+        int enrolled = 0;
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            CustomerEnrollmentResultDTO result = customerEnrollmentService.enrollCustomers(
+                rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+            enrolled += result.getSucceeded();
+        }
+        return enrolled;
+    }
+
+    private int importCsv(List<CustomerDTO> rows) throws IOException {
+        StringBuilder csv = new StringBuilder("firstName,lastName,email,dateOfBirth,city\r\n");
+        for (CustomerDTO row : rows) {
+            csv.append(row.getFirstName()).append(',').append(row.getLastName()).append(',')
+                .append(row.getEmail()).append(',').append(row.getDateOfBirth()).append(',')
+                .append(row.getCity()).append("\r\n");
+        }
+        CustomerEnrollmentResultDTO result = customerEnrollmentService.importCustomers(
+            new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        return result.getSucceeded();
+    }
+
+    private List<CustomerDTO> buildRows(String prefix, int count) {
+        List<CustomerDTO> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(CustomerDTO.builder()
+                .firstName("Bench")
+                .lastName("Enroll" + i)
+                .email("bench-enroll-" + runId + "-" + prefix + "-" + i + "@example.com")
+                .dateOfBirth(LocalDate.of(1960, 1, 1).plusDays(i % 15_000))
+                .city("City" + (i % 50))
+                .build());
+        }
+        return rows;
+    }
+
+    private static double ratePerSecond(int rows, long elapsedNanos) {
+        return rows / (elapsedNanos / 1_000_000_000.0);
+    }
+}
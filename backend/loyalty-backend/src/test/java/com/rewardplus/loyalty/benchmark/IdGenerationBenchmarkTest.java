@@ -0,0 +1,162 @@
+package com.rewardplus.loyalty.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares insert throughput of IDENTITY ids (one round trip per row, key read back, which is
+ * what Hibernate is forced into) against ids reserved in pooled blocks from id_generators and
+ * sent as JDBC batches. Uses a scratch table on the configured datasource, so it is skipped
+ * unless -Dbenchmark=true is set:
+ *
+ *   mvn test -Dtest=IdGenerationBenchmarkTest -Dbenchmark=true -Dbenchmark.rows=20000
+ */
+@Slf4j
+@SpringBootTest(properties = "app.ids.node-id=1023")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class IdGenerationBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 10000);
+    private static final int ALLOCATION_SIZE = 500;
+    private static final String TABLE = "bench_id_inserts";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void createScratchTable() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "customer_id BIGINT NOT NULL, points BIGINT NOT NULL, code VARCHAR(50) NOT NULL)");
+            statement.execute("DELETE FROM id_generators WHERE gen_name = '" + TABLE + "'");
+        }
+    }
+
+    @AfterEach
+    void dropScratchTable() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("DELETE FROM id_generators WHERE gen_name = '" + TABLE + "'");
+        }
+    }
+
+    @Test
+    void pooledIds_OutperformIdentityInserts() throws SQLException {
+        // Warm up each path before measuring it. All IDENTITY inserts run first: AUTO_INCREMENT
+        // would otherwise jump past the explicit pooled ids and collide with later blocks.
+        insertWithIdentity(500);
+        long identityStart = System.nanoTime();
+        insertWithIdentity(ROWS);
+        double identityRate = ratePerSecond(ROWS, System.nanoTime() - identityStart);
+
+        insertWithPooledIds(500);
+        long pooledStart = System.nanoTime();
+        insertWithPooledIds(ROWS);
+        double pooledRate = ratePerSecond(ROWS, System.nanoTime() - pooledStart);
+
+        log.info("Inserts: IDENTITY {} rows/sec, pooled ids + batch of {} {} rows/sec, speedup {}x",
+            String.format("%.0f", identityRate), ALLOCATION_SIZE, String.format("%.0f", pooledRate),
+            String.format("%.1f", pooledRate / identityRate));
+
+        assertEquals(2L * ROWS + 1000, countRows());
+        assertTrue(pooledRate > identityRate, "Pooled ids with batching should be faster than IDENTITY");
+    }
+
+    private void insertWithIdentity(int rows) throws SQLException {
+        String sql = "INSERT INTO " + TABLE + " (customer_id, points, code) VALUES (?, ?, ?)";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                bindRow(insert, 1, i, "I");
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    assertTrue(keys.next());
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    private void insertWithPooledIds(int rows) throws SQLException {
+        String sql = "INSERT INTO " + TABLE + " (id, customer_id, points, code) VALUES (?, ?, ?, ?)";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            long nextId = 0;
+            long blockEnd = 0;
+            for (int i = 0; i < rows; i++) {
+                if (nextId == blockEnd) {
+                    blockEnd = reserveBlock();
+                    nextId = blockEnd - ALLOCATION_SIZE;
+                }
+                insert.setLong(1, nextId++);
+                bindRow(insert, 2, i, "P");
+                insert.addBatch();
+                if ((i + 1) % ALLOCATION_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+    }
+
+    /**
+     * Reserves the next block on its own connection, as Hibernate's table generator does,
+     * and returns its exclusive upper bound.
+     */
+    private long reserveBlock() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                // Start past the ids AUTO_INCREMENT handed out during the identity run
+                statement.executeUpdate("INSERT IGNORE INTO id_generators (gen_name, next_val) "
+                    + "SELECT '" + TABLE + "', COALESCE(MAX(id), 0) + 1000000 FROM " + TABLE);
+                statement.executeUpdate("UPDATE id_generators SET next_val = next_val + " + ALLOCATION_SIZE
+                    + " WHERE gen_name = '" + TABLE + "'");
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT next_val FROM id_generators WHERE gen_name = '" + TABLE + "'")) {
+                    assertTrue(rs.next());
+                    long blockEnd = rs.getLong(1);
+                    connection.commit();
+                    return blockEnd;
+                }
+            }
+        }
+    }
+
+    private static void bindRow(PreparedStatement insert, int firstIndex, int i, String prefix) throws SQLException {
+        insert.setLong(firstIndex, 1 + (i % 200));
+        insert.setLong(firstIndex + 1, 10L * (i % 50));
+        insert.setString(firstIndex + 2, prefix + i);
+    }
+
+    private long countRows() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + TABLE)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static double ratePerSecond(int rows, long elapsedNanos) {
+        return rows / (elapsedNanos / 1_000_000_000.0);
+    }
+}
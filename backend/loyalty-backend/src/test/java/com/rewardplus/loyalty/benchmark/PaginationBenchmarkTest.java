@@ -0,0 +1,169 @@
+package com.rewardplus.loyalty.benchmark;
+
+import com.rewardplus.loyalty.dto.CursorPage;
+import com.rewardplus.loyalty.dto.TransactionDTO;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.service.TransactionService;
+import com.rewardplus.loyalty.util.SeekCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares OFFSET pagination of a customer's transactions (plus its COUNT(*)) against keyset
+ * pagination at increasing page depths. OFFSET cost grows with the depth; the keyset page is
+ * an index seek and should cost the same at every depth. Seeds benchmark.rows transactions on
+ * the configured datasource, so it is skipped unless -Dbenchmark=true is set:
+ *
+ *   mvn test -Dtest=PaginationBenchmarkTest -Dbenchmark=true -Dbenchmark.rows=500000
+ */
+@Slf4j
+@SpringBootTest(properties = "app.ids.node-id=1023")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PaginationBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 500_000);
+    private static final int PAGE_SIZE = 20;
+    private static final int BATCH_SIZE = 5000;
+    private static final int REPEATS = 5;
+    // Far above anything the pooled generator hands out, so seeded rows never collide
+    private static final long FIRST_ID = 9_100_000_000_000L;
+    private static final LocalDateTime FIRST_DATE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private Customer customer;
+
+    @BeforeEach
+    void seed() throws SQLException {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        customer = customerRepository.save(Customer.builder()
+            .firstName("Bench")
+            .lastName("Pagination")
+            .email("bench-pagination-" + runId + "@example.com")
+            .dateOfBirth(LocalDate.of(1985, 1, 1))
+            .build());
+        insertTransactions(runId);
+    }
+
+    @AfterEach
+    void cleanUp() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM transactions WHERE id >= " + FIRST_ID);
+        }
+        customerRepository.deleteById(customer.getId());
+    }
+
+    @Test
+    void keysetPages_CostTheSameAtEveryDepth() {
+        Sort sort = Sort.by("transactionDate").descending();
+        int[] depths = {0, ROWS / 10, ROWS / 2, ROWS - PAGE_SIZE};
+
+        long deepestOffset = 0;
+        long shallowestKeyset = Long.MAX_VALUE;
+        long deepestKeyset = 0;
+        for (int depth : depths) {
+            int page = depth / PAGE_SIZE;
+            String cursor = cursorAt(page * PAGE_SIZE);
+
+            // Warm up both paths before measuring them
+            List<TransactionDTO> offsetRows = transactionService.getCustomerTransactions(
+                customer.getId(), PageRequest.of(page, PAGE_SIZE, sort)).getContent();
+            CursorPage<TransactionDTO> keysetPage = transactionService.getCustomerTransactionsPage(
+                customer.getId(), cursor, PAGE_SIZE, "transactionDate", Sort.Direction.DESC, false);
+            assertEquals(offsetRows.stream().map(TransactionDTO::getId).toList(),
+                keysetPage.getContent().stream().map(TransactionDTO::getId).toList());
+
+            long offsetStart = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                transactionService.getCustomerTransactions(customer.getId(), PageRequest.of(page, PAGE_SIZE, sort));
+            }
+            long offsetMicros = (System.nanoTime() - offsetStart) / 1000 / REPEATS;
+
+            long keysetStart = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                transactionService.getCustomerTransactionsPage(
+                    customer.getId(), cursor, PAGE_SIZE, "transactionDate", Sort.Direction.DESC, false);
+            }
+            long keysetMicros = (System.nanoTime() - keysetStart) / 1000 / REPEATS;
+
+            log.info("Page at depth {} of {}: offset + count {} us, keyset {} us", depth, ROWS, offsetMicros,
+                keysetMicros);
+            deepestOffset = offsetMicros;
+            deepestKeyset = keysetMicros;
+            shallowestKeyset = Math.min(shallowestKeyset, keysetMicros);
+        }
+
+        assertTrue(deepestKeyset < deepestOffset, "Deep keyset page should be faster than the OFFSET page");
+        assertTrue(deepestKeyset < shallowestKeyset * 5 + 1000, "Keyset page cost should not grow with depth");
+    }
+
+    /**
+     * Cursor positioned just before the row at the given depth in newest-first order. Row i
+     * was seeded with id FIRST_ID + i, one second after row i - 1.
+     */
+    private String cursorAt(int depth) {
+        if (depth == 0) {
+            return "";
+        }
+        int previous = ROWS - depth;
+        return new SeekCursor("transactionDate", Sort.Direction.DESC, FIRST_DATE.plusSeconds(previous),
+            FIRST_ID + previous).encode();
+    }
+
+    private void insertTransactions(String runId) throws SQLException {
+        String sql = "INSERT INTO transactions (id, transaction_code, customer_id, amount, net_amount, "
+            + "transaction_date, transaction_type, status, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 'PURCHASE', 'COMPLETED', ?, ?)";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < ROWS; i++) {
+                insert.setLong(1, FIRST_ID + i);
+                insert.setString(2, "BENCH-" + runId + "-" + i);
+                insert.setLong(3, customer.getId());
+                insert.setBigDecimal(4, BigDecimal.valueOf(10 + i % 90));
+                insert.setBigDecimal(5, BigDecimal.valueOf(10 + i % 90));
+                insert.setTimestamp(6, Timestamp.valueOf(FIRST_DATE.plusSeconds(i)));
+                insert.setTimestamp(7, now);
+                insert.setTimestamp(8, now);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        log.info("Seeded {} transactions", ROWS);
+    }
+}
@@ -0,0 +1,134 @@
+package com.rewardplus.loyalty.benchmark;
+
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.Promotion;
+import com.rewardplus.loyalty.service.PromotionTargetingIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of promotion matching: evaluating every promotion's targeting rules
+ * (the previous TransactionService behaviour) against the compiled targeting index.
+ *
+ *   mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main PromotionTargetingBenchmark"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionTargetingBenchmark {
+
+    private static final String[] CITIES = {"Mumbai", "Pune", "Delhi", "Chennai", "Kolkata",
+        "Bengaluru", "Hyderabad", "Ahmedabad", "Jaipur", "Lucknow"};
+    private static final String[] GENDERS = {"Male", "Female"};
+    private static final int CUSTOMER_SAMPLES = 1024;
+
+    @Param({"10", "100", "1000"})
+    private int activePromotions;
+
+    private List<Promotion> promotions;
+    private PromotionTargetingIndex index;
+    private Customer[] customers;
+    private BigDecimal[] amounts;
+    private LocalDate today;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        today = LocalDate.now();
+
+        promotions = new ArrayList<>(activePromotions);
+        for (int i = 0; i < activePromotions; i++) {
+            promotions.add(promotion(random, i + 1L));
+        }
+        index = new PromotionTargetingIndex(promotions);
+
+        customers = new Customer[CUSTOMER_SAMPLES];
+        amounts = new BigDecimal[CUSTOMER_SAMPLES];
+        for (int i = 0; i < CUSTOMER_SAMPLES; i++) {
+            customers[i] = customer(random);
+            amounts[i] = BigDecimal.valueOf(1000 + random.nextInt(99000), 2);
+        }
+    }
+
+    @Benchmark
+    public List<Promotion> linearScan() {
+        int i = next();
+        List<Promotion> matches = new ArrayList<>();
+        for (Promotion promotion : promotions) {
+            if (PromotionTargetingIndex.matches(promotion, customers[i], amounts[i], today)) {
+                matches.add(promotion);
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public List<Promotion> targetingIndex() {
+        int i = next();
+        return index.candidatesFor(customers[i], amounts[i], today);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (CUSTOMER_SAMPLES - 1);
+        return cursor;
+    }
+
+    private Promotion promotion(Random random, Long id) {
+        Promotion promotion = new Promotion();
+        promotion.setId(id);
+        promotion.setPromotionCode("PROMO" + id);
+        promotion.setStatus(Promotion.PromotionStatus.ACTIVE);
+        promotion.setStartDate(today.minusDays(random.nextInt(30)));
+        promotion.setEndDate(today.plusDays(1 + random.nextInt(30)));
+        // Most campaigns target at least one dimension, as they do in production
+        if (random.nextInt(2) == 0) {
+            promotion.setMinimumTier(Customer.CustomerTier.values()[random.nextInt(5)]);
+        }
+        if (random.nextInt(3) > 0) {
+            promotion.setTargetCity(CITIES[random.nextInt(CITIES.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            promotion.setTargetGender(GENDERS[random.nextInt(GENDERS.length)]);
+        }
+        if (random.nextInt(3) == 0) {
+            promotion.setMinimumAge(18 + random.nextInt(20));
+            promotion.setMaximumAge(40 + random.nextInt(30));
+        }
+        if (random.nextInt(2) == 0) {
+            promotion.setMinimumPurchaseAmount(BigDecimal.valueOf(random.nextInt(500)));
+        }
+        promotion.setExclusiveToNewCustomers(random.nextInt(10) == 0);
+        return promotion;
+    }
+
+    private Customer customer(Random random) {
+        Customer customer = new Customer();
+        customer.setTier(Customer.CustomerTier.values()[random.nextInt(5)]);
+        customer.setCity(CITIES[random.nextInt(CITIES.length)].toUpperCase());
+        customer.setGender(GENDERS[random.nextInt(GENDERS.length)]);
+        customer.setDateOfBirth(today.minusYears(18 + random.nextInt(60)));
+        customer.setEnrollmentDate(today.minusDays(random.nextInt(720)));
+        return customer;
+    }
+}
@@ -0,0 +1,115 @@
+package com.rewardplus.loyalty.benchmark;
+
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+import com.rewardplus.loyalty.service.TransactionColumns;
+import com.rewardplus.loyalty.service.TransactionScanQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of scans over the columnar transaction snapshot, on one core and on every
+ * core. Rows per second is the score times the row count.
+ *
+ *   mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main TransactionColumnsBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class TransactionColumnsBenchmark {
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final String[] CATEGORIES = {"GROCERY", "ELECTRONICS", "APPAREL", "HOME", "TOYS",
+        "BEAUTY", "SPORTS", "BOOKS"};
+    private static final String[] PAYMENTS = {"CARD", "CASH", "UPI", "WALLET"};
+
+    @Param({"1000000", "5000000"})
+    private int rows;
+
+    private TransactionColumns columns;
+    private ForkJoinPool singleCore;
+    private ForkJoinPool allCores;
+    private TransactionScanQuery byStore;
+    private TransactionScanQuery filteredByCategory;
+    private TransactionScanQuery amountRanges;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        LocalDateTime now = LocalDateTime.now();
+        columns = new TransactionColumns(rows);
+        for (int i = 0; i < rows; i++) {
+            BigDecimal amount = BigDecimal.valueOf(100 + random.nextInt(50_000), 2);
+            columns.upsert(i, random.nextInt(200_000), amount, amount, now.minusMinutes(random.nextInt(525_600)),
+                TYPES[random.nextInt(TYPES.length)], STATUSES[random.nextInt(STATUSES.length)],
+                "STORE" + random.nextInt(200), "CASHIER" + random.nextInt(2_000),
+                CATEGORIES[random.nextInt(CATEGORIES.length)], PAYMENTS[random.nextInt(PAYMENTS.length)]);
+        }
+        columns.publish();
+
+        singleCore = new ForkJoinPool(1);
+        allCores = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        byStore = TransactionScanQuery.builder()
+            .groupBy(TransactionScanQuery.Dimension.STORE)
+            .build();
+        filteredByCategory = TransactionScanQuery.builder()
+            .from(now.minusDays(30))
+            .statuses(Set.of(TransactionStatus.COMPLETED))
+            .minAmount(new BigDecimal("50.00"))
+            .groupBy(TransactionScanQuery.Dimension.PRODUCT_CATEGORY)
+            .build();
+        amountRanges = TransactionScanQuery.builder()
+            .groupBy(TransactionScanQuery.Dimension.AMOUNT_RANGE)
+            .amountBucket(new BigDecimal("25.00"))
+            .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        singleCore.shutdownNow();
+        allCores.shutdownNow();
+    }
+
+    @Benchmark
+    public TransactionColumns.Result groupByStoreSingleCore() {
+        return columns.scan(byStore, singleCore);
+    }
+
+    @Benchmark
+    public TransactionColumns.Result groupByStoreAllCores() {
+        return columns.scan(byStore, allCores);
+    }
+
+    @Benchmark
+    public TransactionColumns.Result filteredByCategoryAllCores() {
+        return columns.scan(filteredByCategory, allCores);
+    }
+
+    @Benchmark
+    public TransactionColumns.Result amountRangesAllCores() {
+        return columns.scan(amountRanges, allCores);
+    }
+}
@@ -0,0 +1,114 @@
+package com.rewardplus.loyalty.benchmark;
+
+import com.rewardplus.loyalty.dto.TransactionBatchResultDTO;
+import com.rewardplus.loyalty.dto.TransactionDTO;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.service.TransactionService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares rows/sec of the single-row transaction path against the batch ingest path.
+ * Runs against the configured datasource, so it is skipped unless -Dbenchmark=true is set:
+ *
+ *   mvn test -Dtest=TransactionIngestBenchmarkTest -Dbenchmark=true -Dbenchmark.rows=20000
+ */
+@Slf4j
+@SpringBootTest(properties = "app.ids.node-id=1023")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TransactionIngestBenchmarkTest {
+
+    private static final int CUSTOMERS = 200;
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 5000);
+    private static final int BATCH_SIZE = Integer.getInteger("benchmark.batch-size", 1000);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Test
+    void batchIngest_OutperformsSingleRowPath() {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<Long> customerIds = seedCustomers(runId);
+
+        // Warm up both paths so JIT and connection pool effects don't skew the first measurement
+        ingestSingle(buildRows(runId + "-WS", customerIds, 200));
+        ingestBatch(buildRows(runId + "-WB", customerIds, 200));
+
+        List<TransactionDTO> singleRows = buildRows(runId + "-S", customerIds, ROWS);
+        long singleStart = System.nanoTime();
+        ingestSingle(singleRows);
+        double singleRate = ratePerSecond(ROWS, System.nanoTime() - singleStart);
+
+        List<TransactionDTO> batchRows = buildRows(runId + "-B", customerIds, ROWS);
+        long batchStart = System.nanoTime();
+        int recorded = ingestBatch(batchRows);
+        double batchRate = ratePerSecond(ROWS, System.nanoTime() - batchStart);
+
+        log.info("Transaction ingest: single-row {} rows/sec, batch ({} per request) {} rows/sec, speedup {}x",
+            String.format("%.0f", singleRate), BATCH_SIZE, String.format("%.0f", batchRate),
+            String.format("%.1f", batchRate / singleRate));
+
+        assertEquals(ROWS, recorded);
+        assertTrue(batchRate > singleRate, "Batch ingest should be faster than the single-row path");
+    }
+
+    private void ingestSingle(List<TransactionDTO> rows) {
+        for (TransactionDTO row : rows) {
+            transactionService.recordTransaction(row.getCustomerId(), row);
+        }
+    }
+
+    private int ingestBatch(List<TransactionDTO> rows) {
+        int recorded = 0;
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            TransactionBatchResultDTO result = transactionService.recordTransactionsBatch(
+                rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+            recorded += result.getSucceeded();
+        }
+        return recorded;
+    }
+
+    private List<Long> seedCustomers(String runId) {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = new Customer();
+            customer.setFirstName("Bench");
+            customer.setLastName("Customer" + i);
+            customer.setEmail("bench-" + runId + "-" + i + "@example.com");
+            customer.setDateOfBirth(LocalDate.of(1985, 1, 1).plusDays(i));
+            customers.add(customer);
+        }
+        return customerRepository.saveAll(customers).stream().map(Customer::getId).toList();
+    }
+
+    private List<TransactionDTO> buildRows(String prefix, List<Long> customerIds, int count) {
+        List<TransactionDTO> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TransactionDTO dto = new TransactionDTO();
+            dto.setTransactionCode("BENCH-" + prefix + "-" + i);
+            dto.setCustomerId(customerIds.get(i % customerIds.size()));
+            dto.setAmount(BigDecimal.valueOf(5 + (i % 200), 0));
+            dto.setStoreCode("STORE" + (i % 20));
+            rows.add(dto);
+        }
+        return rows;
+    }
+
+    private static double ratePerSecond(int rows, long elapsedNanos) {
+        return rows / (elapsedNanos / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,186 @@
+package com.rewardplus.loyalty.repository;
+
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers a single loyalty account from many threads, each operation in its own
+ * transaction, and checks the balance invariants the atomic UPDATEs guarantee.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:points_stress;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoyaltyPointsRepositoryConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 200;
+
+    @Autowired
+    private LoyaltyPointsRepository loyaltyPointsRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Long customerId;
+
+    @BeforeAll
+    static void configureCodes() {
+        // Entities and services generate business codes; IdGeneratorConfig is not part of this test
+        SnowflakeIdGenerator.configure(0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        customerId = transactionTemplate.execute(status -> {
+            Customer customer = customerRepository.save(Customer.builder()
+                .firstName("Stress")
+                .lastName("Test")
+                .email("stress-" + System.nanoTime() + "@example.com")
+                .dateOfBirth(LocalDate.of(1990, 1, 1))
+                .build());
+            loyaltyPointsRepository.save(LoyaltyPoints.builder().customer(customer).build());
+            return customer.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            loyaltyPointsRepository.findByCustomerId(customerId).ifPresent(loyaltyPointsRepository::delete);
+            customerRepository.deleteById(customerId);
+        });
+    }
+
+    @Test
+    void concurrentCreditsAndDebits_NeverLoseUpdatesOrOverdraw() throws Exception {
+        long credit = 7L;
+        long debit = 13L;
+        AtomicLong credits = new AtomicLong();
+        AtomicLong debits = new AtomicLong();
+
+        runConcurrently(operation -> {
+            if (operation % 2 == 0) {
+                int updated = transactionTemplate.execute(status ->
+                    loyaltyPointsRepository.creditPoints(customerId, credit, null, LocalDateTime.now()));
+                assertEquals(1, updated);
+                credits.incrementAndGet();
+            } else {
+                int updated = transactionTemplate.execute(status ->
+                    loyaltyPointsRepository.debitPoints(customerId, debit, LocalDateTime.now()));
+                if (updated == 1) {
+                    debits.incrementAndGet();
+                }
+            }
+        });
+
+        LoyaltyPoints account = loyaltyPointsRepository.findByCustomerId(customerId).orElseThrow();
+        assertEquals(credits.get() * credit, account.getPointsEarned());
+        assertEquals(credits.get() * credit, account.getLifetimePoints());
+        assertEquals(debits.get() * debit, account.getPointsRedeemed());
+        assertEquals(credits.get() * credit - debits.get() * debit, account.getCurrentBalance());
+        assertTrue(account.getCurrentBalance() >= 0);
+    }
+
+    @Test
+    void concurrentDebits_StopExactlyAtZero() throws Exception {
+        long startingBalance = 5_000L;
+        long debit = 10L;
+        transactionTemplate.execute(status ->
+            loyaltyPointsRepository.adjustBalance(customerId, startingBalance, startingBalance, LocalDateTime.now()));
+        AtomicLong debits = new AtomicLong();
+
+        runConcurrently(operation -> {
+            int updated = transactionTemplate.execute(status ->
+                loyaltyPointsRepository.debitPoints(customerId, debit, LocalDateTime.now()));
+            if (updated == 1) {
+                debits.incrementAndGet();
+            }
+        });
+
+        LoyaltyPoints account = loyaltyPointsRepository.findByCustomerId(customerId).orElseThrow();
+        assertEquals(startingBalance / debit, debits.get());
+        assertEquals(0L, account.getCurrentBalance());
+        assertEquals(startingBalance, account.getPointsRedeemed());
+    }
+
+    @Test
+    void concurrentAdjustments_NeverTakeBalanceBelowZero() throws Exception {
+        AtomicLong applied = new AtomicLong();
+
+        runConcurrently(operation -> {
+            long points = operation % 3 == 0 ? 20L : -9L;
+            int updated = transactionTemplate.execute(status ->
+                loyaltyPointsRepository.adjustBalance(customerId, points, Math.abs(points), LocalDateTime.now()));
+            if (updated == 1) {
+                applied.addAndGet(points);
+            }
+        });
+
+        LoyaltyPoints account = loyaltyPointsRepository.findByCustomerId(customerId).orElseThrow();
+        assertEquals(applied.get(), account.getCurrentBalance());
+        assertTrue(account.getCurrentBalance() >= 0);
+    }
+
+    private void runConcurrently(Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        operation.run(i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(int index);
+    }
+}
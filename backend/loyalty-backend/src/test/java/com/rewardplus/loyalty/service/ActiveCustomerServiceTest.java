@@ -0,0 +1,171 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.ActiveCustomersDTO;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.CustomerActivitySketch;
+import com.rewardplus.loyalty.entity.CustomerActivitySketch.Dimension;
+import com.rewardplus.loyalty.entity.RedemptionLog;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.repository.CustomerActivitySketchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveCustomerServiceTest {
+
+    @Mock
+    private CustomerActivitySketchRepository sketchRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ActiveCustomerService service;
+
+    // Rows as stored, keyed by date, dimension and value
+    private final Map<String, CustomerActivitySketch> rows = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new ActiveCustomerService(sketchRepository, transactionManager, 30, 3600, 62, 400);
+    }
+
+    @Test
+    void flush_MergesSketchesIntoRowsAndQueryCountsDistinctCustomers() {
+        storeRowsInMemory();
+        LocalDateTime today = LocalDateTime.now();
+
+        service.recordTransactions(List.of(
+            transaction(1L, Customer.CustomerTier.GOLD, "S001", today),
+            transaction(1L, Customer.CustomerTier.GOLD, "S002", today),
+            transaction(2L, Customer.CustomerTier.SILVER, "S001", today.minusDays(3))));
+        service.recordRedemption(redemption(3L, Customer.CustomerTier.GOLD, null, today));
+        service.flush();
+
+        ActiveCustomersDTO day = service.query(null, ActiveCustomerService.Window.DAY);
+        assertEquals(2, day.getActiveCustomers());
+        assertEquals(Map.of("S001", 1L, "S002", 1L), day.getByStore());
+        assertEquals(Map.of("GOLD", 2L), day.getByTier());
+
+        ActiveCustomersDTO week = service.query(null, ActiveCustomerService.Window.WEEK);
+        assertEquals(3, week.getActiveCustomers());
+        assertEquals(2L, week.getByStore().get("S001"));
+        assertEquals(LocalDate.now().minusDays(6), week.getFrom());
+    }
+
+    @Test
+    void flush_ReMergingUnchangedSketchesDoesNotTouchRows() {
+        storeRowsInMemory();
+        service.recordTransactions(List.of(transaction(1L, Customer.CustomerTier.BRONZE, "S001", LocalDateTime.now())));
+        service.flush();
+        clearInvocations(sketchRepository);
+        service.flush();
+
+        verify(sketchRepository, never()).findForUpdate(any(), any(), any());
+    }
+
+    @Test
+    void flush_KeepsSketchesForRetryWhenMergeFails() {
+        when(sketchRepository.findForUpdate(any(), any(), any()))
+            .thenThrow(new QueryTimeoutException("lock wait timeout"));
+        service.recordTransactions(List.of(transaction(1L, Customer.CustomerTier.GOLD, "S001", LocalDateTime.now())));
+        service.flush();
+
+        reset(sketchRepository);
+        storeRowsInMemory();
+        service.flush();
+
+        assertEquals(1, service.query(null, ActiveCustomerService.Window.DAY).getActiveCustomers());
+    }
+
+    @Test
+    void flush_CreatesFirstRowBeforeTheLockingTransaction() {
+        storeRowsInMemory();
+        service.recordTransactions(List.of(transaction(1L, Customer.CustomerTier.GOLD, "", LocalDateTime.now())));
+        service.flush();
+
+        // Created and committed, and only then locked by the merge transaction
+        InOrder order = inOrder(sketchRepository, transactionManager);
+        order.verify(sketchRepository).saveAndFlush(any(CustomerActivitySketch.class));
+        order.verify(transactionManager).commit(any());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(sketchRepository).findForUpdate(any(), any(), any());
+        verify(sketchRepository, times(1)).saveAndFlush(any(CustomerActivitySketch.class));
+
+        service.recordTransactions(List.of(transaction(2L, Customer.CustomerTier.GOLD, "", LocalDateTime.now())));
+        service.flush();
+        verify(sketchRepository, times(1)).existsByBucketDateAndDimensionAndDimensionValue(any(), any(), any());
+    }
+
+    @Test
+    void query_RejectsFutureDates() {
+        assertThrows(BadRequestException.class,
+            () -> service.query(LocalDate.now().plusDays(1), ActiveCustomerService.Window.DAY));
+    }
+
+    private void storeRowsInMemory() {
+        when(sketchRepository.findForUpdate(any(), any(), any())).thenAnswer(invocation ->
+            Optional.ofNullable(rows.get(rowKey(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)))));
+        lenient().when(sketchRepository.existsByBucketDateAndDimensionAndDimensionValue(any(), any(), any()))
+            .thenAnswer(invocation -> rows.containsKey(
+                rowKey(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2))));
+        lenient().when(sketchRepository.saveAndFlush(any(CustomerActivitySketch.class))).thenAnswer(invocation -> {
+            CustomerActivitySketch row = invocation.getArgument(0);
+            rows.put(rowKey(row.getBucketDate(), row.getDimension(), row.getDimensionValue()), row);
+            return row;
+        });
+        lenient().when(sketchRepository.findByBucketDateBetween(any(), any())).thenAnswer(invocation -> {
+            LocalDate day = invocation.getArgument(0);
+            List<CustomerActivitySketch> found = new ArrayList<>();
+            rows.values().stream().filter(row -> row.getBucketDate().equals(day)).forEach(found::add);
+            return found;
+        });
+    }
+
+    private static String rowKey(LocalDate day, Dimension dimension, String value) {
+        return day + "/" + dimension + "/" + value;
+    }
+
+    private static Customer customer(Long id, Customer.CustomerTier tier) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setTier(tier);
+        return customer;
+    }
+
+    private static Transaction transaction(Long customerId, Customer.CustomerTier tier, String storeCode,
+                                           LocalDateTime at) {
+        Transaction transaction = new Transaction();
+        transaction.setCustomer(customer(customerId, tier));
+        transaction.setStoreCode(storeCode);
+        transaction.setTransactionDate(at);
+        return transaction;
+    }
+
+    private static RedemptionLog redemption(Long customerId, Customer.CustomerTier tier, String storeCode,
+                                            LocalDateTime at) {
+        RedemptionLog redemption = new RedemptionLog();
+        redemption.setCustomer(customer(customerId, tier));
+        redemption.setStoreCode(storeCode);
+        redemption.setRedemptionDate(at);
+        return redemption;
+    }
+}
@@ -0,0 +1,250 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.ActivityRollupDTO;
+import com.rewardplus.loyalty.entity.ActivityRollup;
+import com.rewardplus.loyalty.entity.ActivityRollup.Activity;
+import com.rewardplus.loyalty.entity.ActivityRollup.Granularity;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.RedemptionLog;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.repository.ActivityRollupRepository;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.RedemptionLogRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActivityRollupServiceTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 3, 2, 12, 0);
+
+    @Mock
+    private ActivityRollupRepository rollupRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private RedemptionLogRepository redemptionLogRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ActivityRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ActivityRollupService(rollupRepository, transactionRepository, redemptionLogRepository,
+            customerRepository, transactionManager);
+    }
+
+    @Test
+    void flush_WritesHourAndDayBucketsOnce() {
+        when(rollupRepository.bucketExists(any(), any(), any(), any(), any(), any())).thenReturn(true);
+        when(rollupRepository.increment(any(), any(), any(), any(), any(), any(), anyLong(), any(), anyLong()))
+            .thenReturn(1);
+
+        service.recordTransactions(List.of(
+            transaction("S001", NOON.plusMinutes(5), "10.00"),
+            transaction("S001", NOON.plusMinutes(40), "2.50")));
+        service.flush();
+        service.flush();
+
+        verify(rollupRepository).increment(Granularity.HOUR, NOON, Activity.TRANSACTION, "S001", "PURCHASE", "GOLD",
+            2L, new BigDecimal("12.50"), 0L);
+        verify(rollupRepository).increment(Granularity.DAY, NOON.toLocalDate().atStartOfDay(), Activity.TRANSACTION,
+            "S001", "PURCHASE", "GOLD", 2L, new BigDecimal("12.50"), 0L);
+        verify(rollupRepository, times(2)).bucketExists(any(), any(), any(), any(), any(), any());
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    @Test
+    void flush_FailureKeepsActivityForNextFlush() {
+        when(rollupRepository.increment(any(), any(), any(), any(), any(), any(), anyLong(), any(), anyLong()))
+            .thenThrow(new QueryTimeoutException("timeout"))
+            .thenReturn(1);
+
+        service.recordRedemption(RedemptionLog.builder()
+            .customer(customer())
+            .channel(RedemptionLog.RedemptionChannel.IN_STORE)
+            .storeCode("S002")
+            .pointsRedeemed(500L)
+            .redemptionDate(NOON)
+            .build());
+        service.flush();
+        service.flush();
+
+        verify(rollupRepository, times(2)).increment(eq(Granularity.HOUR), eq(NOON), eq(Activity.REDEMPTION),
+            eq("S002"), eq("IN_STORE"), eq("GOLD"), eq(1L), any(), eq(500L));
+    }
+
+    @Test
+    void flush_CreatesFirstBucketBeforeTheFlushTransaction() {
+        when(rollupRepository.increment(any(), any(), any(), any(), any(), any(), anyLong(), any(), anyLong()))
+            .thenReturn(1);
+
+        Customer customer = customer();
+        customer.setCreatedAt(NOON);
+        service.recordEnrollment(customer);
+        service.flush();
+
+        // Created, committed, and only then incremented by the flush transaction
+        InOrder order = inOrder(rollupRepository, transactionManager);
+        ArgumentCaptor<ActivityRollup> created = ArgumentCaptor.forClass(ActivityRollup.class);
+        order.verify(rollupRepository).saveAndFlush(created.capture());
+        order.verify(transactionManager).commit(any());
+        order.verify(rollupRepository).saveAndFlush(any());
+        order.verify(transactionManager).commit(any());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(rollupRepository, times(2))
+            .increment(any(), any(), any(), any(), any(), any(), anyLong(), any(), anyLong());
+        assertEquals(Activity.ENROLLMENT, created.getValue().getActivity());
+        assertEquals("", created.getValue().getStoreCode());
+        assertEquals(0L, created.getValue().getEventCount());
+    }
+
+    @Test
+    void flush_LooksUpEachBucketOnce() {
+        when(rollupRepository.bucketExists(any(), any(), any(), any(), any(), any())).thenReturn(true);
+        when(rollupRepository.increment(any(), any(), any(), any(), any(), any(), anyLong(), any(), anyLong()))
+            .thenReturn(1);
+        LocalDateTime now = LocalDateTime.now();
+
+        service.recordTransactions(List.of(transaction("S001", now, "10.00")));
+        service.flush();
+        service.recordTransactions(List.of(transaction("S001", now, "5.00")));
+        service.flush();
+
+        verify(rollupRepository, times(2)).bucketExists(any(), any(), any(), any(), any(), any());
+        verify(rollupRepository, never()).saveAndFlush(any());
+        verify(rollupRepository, times(4))
+            .increment(any(), any(), any(), any(), any(), any(), anyLong(), any(), anyLong());
+    }
+
+    @Test
+    void query_MergesDailyBucketsWithHourlyEdges() {
+        LocalDateTime from = LocalDateTime.of(2026, 3, 1, 22, 30);
+        LocalDateTime to = LocalDateTime.of(2026, 3, 4, 5, 10);
+        LocalDateTime day2 = LocalDate.of(2026, 3, 2).atStartOfDay();
+        LocalDateTime day4 = LocalDate.of(2026, 3, 4).atStartOfDay();
+
+        when(rollupRepository.findBuckets(Granularity.HOUR, Activity.TRANSACTION, from.withMinute(0), day2, null))
+            .thenReturn(List.of(bucket(Granularity.HOUR, from.withMinute(0), "S001", 2, "20.00")));
+        when(rollupRepository.findBuckets(Granularity.DAY, Activity.TRANSACTION, day2, day4, null))
+            .thenReturn(List.of(bucket(Granularity.DAY, day2, "S001", 10, "100.00"),
+                bucket(Granularity.DAY, day2.plusDays(1), "S002", 5, "50.00")));
+        when(rollupRepository.findBuckets(Granularity.HOUR, Activity.TRANSACTION, day4, day4.plusHours(6), null))
+            .thenReturn(List.of(bucket(Granularity.HOUR, day4.plusHours(5), "S002", 1, "5.00")));
+
+        ActivityRollupDTO result = service.query(Activity.TRANSACTION, from, to, " ", Granularity.DAY);
+
+        assertEquals(18L, result.getCount());
+        assertEquals(new BigDecimal("175.00"), result.getAmount());
+        assertEquals(12L, result.getCountByStore().get("S001"));
+        assertEquals(6L, result.getCountByStore().get("S002"));
+        assertEquals(4, result.getSeries().size());
+        assertEquals(day4, result.getSeries().get(3).getBucketStart());
+        assertEquals(1L, result.getSeries().get(3).getCount());
+    }
+
+    @Test
+    void query_RejectsEmptyRange() {
+        assertThrows(BadRequestException.class,
+            () -> service.query(Activity.TRANSACTION, NOON, NOON, null, null));
+        verify(rollupRepository, never()).findBuckets(any(), any(), any(), any(), isNull());
+    }
+
+    @Test
+    void rebuildDay_ReplacesBucketsFromSource() {
+        when(rollupRepository.acquireNamedLock(anyString(), anyInt())).thenReturn(1);
+        LocalDate day = NOON.toLocalDate();
+        when(transactionRepository.summarizeByHour(day.atStartOfDay(), day.plusDays(1).atStartOfDay()))
+            .thenReturn(List.<Object[]>of(
+                new Object[]{9, "S001", Transaction.TransactionType.PURCHASE, Customer.CustomerTier.GOLD, 3L, new BigDecimal("30.00")},
+                new Object[]{14, "S001", Transaction.TransactionType.PURCHASE, Customer.CustomerTier.GOLD, 2L, new BigDecimal("20.00")}));
+        when(redemptionLogRepository.summarizeByHour(any(), any())).thenReturn(List.of());
+        when(customerRepository.summarizeEnrollmentsByHour(any(), any())).thenReturn(List.of());
+
+        assertEquals(3, service.rebuildDay(day));
+
+        verify(rollupRepository).deleteBuckets(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ActivityRollup>> saved = ArgumentCaptor.forClass(List.class);
+        verify(rollupRepository).saveAll(saved.capture());
+        ActivityRollup daily = saved.getValue().stream()
+            .filter(rollup -> rollup.getGranularity() == Granularity.DAY)
+            .findFirst()
+            .orElseThrow();
+        assertEquals(5L, daily.getEventCount());
+        assertEquals(new BigDecimal("50.00"), daily.getAmount());
+        verify(rollupRepository).releaseNamedLock(anyString());
+    }
+
+    @Test
+    void rebuildDay_SkippedWhileAnotherInstanceRebuilds() {
+        when(rollupRepository.acquireNamedLock(anyString(), anyInt())).thenReturn(0);
+
+        assertEquals(-1, service.rebuildDay(NOON.toLocalDate()));
+
+        verify(transactionRepository, never()).summarizeByHour(any(), any());
+        verify(rollupRepository, never()).deleteBuckets(any(), any());
+        verify(rollupRepository, never()).releaseNamedLock(anyString());
+    }
+
+    private static Customer customer() {
+        Customer customer = new Customer();
+        customer.setId(1L);
+        customer.setTier(Customer.CustomerTier.GOLD);
+        return customer;
+    }
+
+    private static Transaction transaction(String storeCode, LocalDateTime date, String netAmount) {
+        Transaction transaction = new Transaction();
+        transaction.setCustomer(customer());
+        transaction.setStoreCode(storeCode);
+        transaction.setTransactionDate(date);
+        transaction.setTransactionType(Transaction.TransactionType.PURCHASE);
+        transaction.setNetAmount(new BigDecimal(netAmount));
+        return transaction;
+    }
+
+    private static ActivityRollup bucket(Granularity granularity, LocalDateTime start, String storeCode,
+                                         long count, String amount) {
+        return ActivityRollup.builder()
+            .granularity(granularity)
+            .bucketStart(start)
+            .activity(Activity.TRANSACTION)
+            .storeCode(storeCode)
+            .category("PURCHASE")
+            .tier("GOLD")
+            .eventCount(count)
+            .amount(new BigDecimal(amount))
+            .build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.rewardplus.loyalty.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AnalyticsQueryExecutorTest {
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private AnalyticsQueryExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void execute_RunsQueriesConcurrentlyInOwnTransactions() {
+        executor = new AnalyticsQueryExecutor(transactionManager, 3, 10, 2000);
+        // Every query waits for the others, so this only completes if all three run at once
+        CountDownLatch started = new CountDownLatch(3);
+        Map<String, Consumer<Map<String, Object>>> queries = new LinkedHashMap<>();
+        for (String metric : List.of("a", "b", "c")) {
+            queries.put(metric, result -> {
+                started.countDown();
+                await(started);
+                result.put(metric, metric.toUpperCase());
+            });
+        }
+
+        Map<String, Object> result = executor.execute("test", queries);
+
+        assertEquals(Map.of("a", "A", "b", "B", "c", "C"), result);
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void execute_ReportsPartialResultWhenQueryMissesDeadline() {
+        executor = new AnalyticsQueryExecutor(transactionManager, 2, 10, 200);
+        CountDownLatch never = new CountDownLatch(1);
+        Map<String, Consumer<Map<String, Object>>> queries = new LinkedHashMap<>();
+        queries.put("fast", result -> result.put("fast", 1L));
+        queries.put("slow", result -> {
+            await(never);
+            result.put("slow", 2L);
+        });
+
+        Map<String, Object> result = executor.execute("test", queries);
+
+        assertEquals(1L, result.get("fast"));
+        assertFalse(result.containsKey("slow"));
+        assertEquals(true, result.get(AnalyticsQueryExecutor.PARTIAL));
+        assertEquals(List.of("slow"), result.get(AnalyticsQueryExecutor.FAILED_METRICS));
+        @SuppressWarnings("unchecked")
+        Map<String, Long> timings = (Map<String, Long>) result.get(AnalyticsQueryExecutor.METRIC_TIMINGS);
+        assertTrue(timings.containsKey("fast"));
+        assertTrue(timings.containsKey("slow"));
+    }
+
+    @Test
+    void execute_ReportsFailedQueryWithoutFailingReport() {
+        executor = new AnalyticsQueryExecutor(transactionManager, 2, 10, 2000);
+        Map<String, Consumer<Map<String, Object>>> queries = new LinkedHashMap<>();
+        queries.put("ok", result -> result.put("ok", 1L));
+        queries.put("broken", result -> {
+            throw new IllegalStateException("boom");
+        });
+
+        Map<String, Object> result = executor.execute("test", queries);
+
+        assertEquals(1L, result.get("ok"));
+        assertEquals(List.of("broken"), result.get(AnalyticsQueryExecutor.FAILED_METRICS));
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void execute_SkipsQueriesWhenPoolIsSaturated() {
+        executor = new AnalyticsQueryExecutor(transactionManager, 1, 1, 500);
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, Consumer<Map<String, Object>>> queries = new LinkedHashMap<>();
+        queries.put("running", result -> await(release));
+        queries.put("queued", result -> result.put("queued", 1L));
+        queries.put("rejected", result -> result.put("rejected", 1L));
+
+        Map<String, Object> result = executor.execute("test", queries);
+        release.countDown();
+
+        @SuppressWarnings("unchecked")
+        List<String> failed = (List<String>) result.get(AnalyticsQueryExecutor.FAILED_METRICS);
+        assertTrue(failed.contains("rejected"));
+        assertFalse(result.containsKey("rejected"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
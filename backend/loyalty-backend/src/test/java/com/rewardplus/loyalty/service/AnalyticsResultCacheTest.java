@@ -0,0 +1,153 @@
+package com.rewardplus.loyalty.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsResultCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AnalyticsResultCache cache = new AnalyticsResultCache(meterRegistry, 300, 1);
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void get_ServesCachedReportWithinTtl() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("summary", 60, () -> Map.of("loads", loads.incrementAndGet()));
+        Map<String, Object> second = cache.get("summary", 60, () -> Map.of("loads", loads.incrementAndGet()));
+
+        assertEquals(1, second.get("loads"));
+        assertEquals(1.0, requests("summary", "miss"));
+        assertEquals(1.0, requests("summary", "hit"));
+    }
+
+    @Test
+    void get_ConcurrentMissesShareOneComputation() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Map<String, Object>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> cache.get("sales", 60, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return Map.of("total", 42L);
+                })));
+            }
+            // Let every caller arrive before the single computation finishes
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Map<String, Object>> result : results) {
+                assertEquals(42L, result.get(5, TimeUnit.SECONDS).get("total"));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, requests("sales", "miss"));
+    }
+
+    @Test
+    void get_ServesStaleReportWhileRefreshingInBackground() throws Exception {
+        cache.get("customers", 0, () -> Map.of("version", 1));
+        CountDownLatch refreshed = new CountDownLatch(1);
+
+        Map<String, Object> stale = cache.get("customers", 0, () -> {
+            refreshed.countDown();
+            return Map.of("version", 2);
+        });
+
+        assertEquals(1, stale.get("version"));
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        waitForRefreshCount("customers", 1.0);
+        assertEquals(2, cache.get("customers", 60, () -> Map.of("version", 3)).get("version"));
+    }
+
+    @Test
+    void get_DoesNotCachePartialReports() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("redemptions", 60, () -> {
+            loads.incrementAndGet();
+            return Map.of(AnalyticsQueryExecutor.PARTIAL, true);
+        });
+        cache.get("redemptions", 60, () -> {
+            loads.incrementAndGet();
+            return Map.of("complete", true);
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_PropagatesLoadFailureAndRetriesNextTime() {
+        assertThrows(IllegalStateException.class, () -> cache.get("promotions", 60, () -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        assertEquals(true, cache.get("promotions", 60, () -> Map.of("ok", true)).get("ok"));
+    }
+
+    @Test
+    void invalidateAll_NextRequestLoadsAgain() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("sales", 60, () -> Map.of("loads", loads.incrementAndGet()));
+
+        cache.invalidateAll();
+
+        assertEquals(2, cache.get("sales", 60, () -> Map.of("loads", loads.incrementAndGet())).get("loads"));
+        assertEquals(2.0, requests("sales", "miss"));
+    }
+
+    private double requests(String report, String result) {
+        return meterRegistry.get("loyalty.analytics.cache.requests")
+            .tag("report", report)
+            .tag("result", result)
+            .counter()
+            .count();
+    }
+
+    private void waitForRefreshCount(String report, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            double count = meterRegistry.get("loyalty.analytics.cache.refreshes")
+                .tag("report", report)
+                .tag("outcome", "success")
+                .counter()
+                .count();
+            if (count >= expected) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Background refresh did not complete");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.CustomerDTO;
+import com.rewardplus.loyalty.dto.CustomerEnrollmentResultDTO;
+import com.rewardplus.loyalty.dto.CustomerEnrollmentResultDTO.RowResult;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerEnrollmentServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private LoyaltyPointsRepository loyaltyPointsRepository;
+
+    @Mock
+    private ActivityRollupService activityRollupService;
+
+    @Mock
+    private CustomerSearchIndex customerSearchIndex;
+
+    @Mock
+    private PointsLedgerService pointsLedgerService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @Test
+    void enrollCustomers_ChecksEmailsOnceAndBatchesInserts() {
+        CustomerEnrollmentService service = service(1000);
+        when(customerRepository.findExistingEmails(anyCollection())).thenReturn(List.of("Taken@example.com"));
+        when(pointsLedgerService.entry(anyLong(), any(), anyLong(), any(), any(), any())).thenCallRealMethod();
+        stubSaveAll();
+
+        CustomerEnrollmentResultDTO result = service.enrollCustomers(List.of(
+            customer("ann@example.com"),
+            customer("bob@example.com"),
+            customer("ANN@example.com"),
+            customer("not-an-email"),
+            customer("taken@example.com"),
+            customer("cy@example.com")));
+
+        assertEquals(6, result.getTotalRows());
+        assertEquals(3, result.getSucceeded());
+        assertEquals(3, result.getFailed());
+        assertEquals(300L, result.getTotalBonusPoints());
+        assertEquals(List.of(true, true, false, false, false, true),
+            result.getResults().stream().map(RowResult::isSuccess).toList());
+        assertEquals("DUPLICATE_EMAIL", result.getResults().get(2).getErrorCode());
+        assertEquals("INVALID_EMAIL", result.getResults().get(3).getErrorCode());
+        assertEquals("DUPLICATE_EMAIL", result.getResults().get(4).getErrorCode());
+        assertEquals("CUST-1", result.getResults().get(0).getCustomerCode());
+        assertEquals(3L, result.getResults().get(5).getCustomerId());
+
+        verify(customerRepository, times(1)).findExistingEmails(anyCollection());
+        verify(customerRepository, never()).existsByEmail(any());
+        ArgumentCaptor<List<LoyaltyPoints>> accounts = ArgumentCaptor.forClass(List.class);
+        verify(loyaltyPointsRepository).saveAll(accounts.capture());
+        assertEquals(3, accounts.getValue().size());
+        assertTrue(accounts.getValue().stream().allMatch(account -> account.getCurrentBalance() == 100L));
+        ArgumentCaptor<List<PointsLedgerEntry>> bonuses = ArgumentCaptor.forClass(List.class);
+        verify(pointsLedgerService).recordAll(bonuses.capture());
+        assertEquals(List.of(1L, 2L, 3L), bonuses.getValue().stream().map(PointsLedgerEntry::getCustomerId).toList());
+        assertTrue(bonuses.getValue().stream().allMatch(entry -> entry.getEntryType() == PointsLedgerEntry.EntryType.EARN
+            && entry.getPoints() == 100L));
+        verify(activityRollupService).recordEnrollments(anyList());
+        verify(customerSearchIndex).indexAll(anyList());
+    }
+
+    @Test
+    void enrollCustomers_CommitsInChunks() {
+        CustomerEnrollmentService service = service(2);
+        when(customerRepository.findExistingEmails(anyCollection())).thenReturn(Collections.emptyList());
+        stubSaveAll();
+
+        List<CustomerDTO> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(customer("c" + i + "@example.com"));
+        }
+        CustomerEnrollmentResultDTO result = service.enrollCustomers(batch);
+
+        assertEquals(5, result.getSucceeded());
+        verify(customerRepository, times(3)).findExistingEmails(anyCollection());
+        verify(customerRepository, times(3)).saveAll(anyList());
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void enrollCustomers_RetriesAChunkThatLostAnEmailToAConcurrentEnrollment() {
+        CustomerEnrollmentService service = service(1000);
+        when(customerRepository.findExistingEmails(anyCollection()))
+            .thenReturn(Collections.emptyList(), List.of("bob@example.com"));
+        when(customerRepository.saveAll(anyList()))
+            .thenThrow(new DataIntegrityViolationException("Duplicate entry 'bob@example.com'"))
+            .thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        CustomerEnrollmentResultDTO result = service.enrollCustomers(List.of(
+            customer("ann@example.com"), customer("bob@example.com")));
+
+        assertEquals(1, result.getSucceeded());
+        assertEquals("DUPLICATE_EMAIL", result.getResults().get(1).getErrorCode());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void enrollCustomers_RejectsOversizedBatchUpFront() {
+        CustomerEnrollmentService service = new CustomerEnrollmentService(customerRepository, loyaltyPointsRepository,
+            activityRollupService, customerSearchIndex, pointsLedgerService, transactionManager, 100, 1000, 1, 10);
+
+        BadRequestException error = assertThrows(BadRequestException.class,
+            () -> service.enrollCustomers(List.of(customer("a@example.com"), customer("b@example.com"))));
+
+        assertEquals("BATCH_TOO_LARGE", error.getErrorCode());
+        verifyNoInteractions(customerRepository);
+    }
+
+    @Test
+    void importCustomers_MapsColumnsByHeaderAndReportsBadRecords() throws IOException {
+        CustomerEnrollmentService service = service(1000);
+        when(customerRepository.findExistingEmails(anyCollection())).thenReturn(Collections.emptyList());
+        stubSaveAll();
+
+        String csv = "email,first_name,Last Name,date_of_birth,city,partner_ref\r\n"
+            + "ann@example.com,Ann,\"O'Neil, Jr\",1990-05-15,Austin,P-1\r\n"
+            + "bob@example.com,Bob,Lee,15/05/1990,Austin,P-2\r\n"
+            + "cy@example.com,Cy,Young,1985-01-01,Austin,P-3,extra\r\n"
+            + "dee@example.com,Dee,Dee,1970-12-31,,\n";
+
+        CustomerEnrollmentResultDTO result = service.importCustomers(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(4, result.getTotalRows());
+        assertEquals(2, result.getSucceeded());
+        assertEquals("INVALID_DATE_OF_BIRTH", result.getResults().get(1).getErrorCode());
+        assertEquals("MALFORMED_ROW", result.getResults().get(2).getErrorCode());
+        assertTrue(result.getResults().get(3).isSuccess());
+
+        ArgumentCaptor<List<Customer>> saved = ArgumentCaptor.forClass(List.class);
+        verify(customerRepository).saveAll(saved.capture());
+        Customer ann = saved.getValue().get(0);
+        assertEquals("O'Neil, Jr", ann.getLastName());
+        assertEquals(LocalDate.of(1990, 5, 15), ann.getDateOfBirth());
+        assertEquals("Austin", ann.getCity());
+        assertNull(saved.getValue().get(1).getCity());
+    }
+
+    @Test
+    void importCustomers_RejectsHeaderWithoutRequiredColumns() {
+        CustomerEnrollmentService service = service(1000);
+        String csv = "email,firstName,lastName\r\nann@example.com,Ann,Lee\r\n";
+
+        BadRequestException error = assertThrows(BadRequestException.class, () -> service.importCustomers(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals("INVALID_IMPORT_HEADER", error.getErrorCode());
+        verifyNoInteractions(customerRepository);
+    }
+
+    private CustomerEnrollmentService service(int chunkSize) {
+        return new CustomerEnrollmentService(customerRepository, loyaltyPointsRepository, activityRollupService,
+            customerSearchIndex, pointsLedgerService, transactionManager, 100, chunkSize, 10000, 500000);
+    }
+
+    private void stubSaveAll() {
+        when(customerRepository.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+    }
+
+    // Stands in for the pooled id generator and the @PrePersist customer code
+    private List<Customer> assignIds(List<Customer> customers) {
+        for (Customer customer : customers) {
+            customer.setId(nextId.getAndIncrement());
+            customer.setCustomerCode("CUST-" + customer.getId());
+        }
+        return customers;
+    }
+
+    private static CustomerDTO customer(String email) {
+        return CustomerDTO.builder()
+            .firstName("Test")
+            .lastName("Customer")
+            .email(email)
+            .dateOfBirth(LocalDate.of(1990, 1, 1))
+            .build();
+    }
+}
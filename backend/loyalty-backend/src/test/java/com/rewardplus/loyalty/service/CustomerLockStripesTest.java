@@ -0,0 +1,143 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CustomerLockStripesTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Test
+    void withLock_SerializesSameCustomerUntilTransactionCompletes() throws Exception {
+        CustomerLockStripes locks = new CustomerLockStripes(transactionManager, meterRegistry, 16, 5000);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        locks.withLock(42L, () -> {
+                            maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                            Thread.yield();
+                            return inside.decrementAndGet();
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, maxInside.get());
+        verify(transactionManager, times(400)).commit(any());
+        assertEquals(400, meterRegistry.get("loyalty.points.lock.wait")
+            .tag("stripe", Integer.toString(locks.stripeOf(42L))).timer().count());
+    }
+
+    @Test
+    void withLock_OtherStripesProceedWhileOneIsHeld() throws Exception {
+        CustomerLockStripes locks = new CustomerLockStripes(transactionManager, meterRegistry, 16, 5000);
+        long held = 1L;
+        long other = 2L;
+        while (locks.stripeOf(other) == locks.stripeOf(held)) {
+            other++;
+        }
+        long otherCustomer = other;
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> locks.withLock(held, () -> {
+            locked.countDown();
+            return awaitQuietly(release);
+        }));
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        try {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                executor.submit(() -> locks.withLocks(List.of(otherCustomer), () -> true)).get(1, TimeUnit.SECONDS);
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    @Test
+    void withLock_TimesOutWhenStripeStaysBusy() throws Exception {
+        CustomerLockStripes locks = new CustomerLockStripes(transactionManager, meterRegistry, 4, 50);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> locks.withLock(7L, () -> {
+            locked.countDown();
+            return awaitQuietly(release);
+        }));
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        try {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<?> waiter = executor.submit(() -> locks.withLock(7L, () -> true));
+                Exception failure = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(ServiceBusyException.class, failure.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+        assertEquals(1.0, meterRegistry.get("loyalty.points.lock.timeouts").counter().count());
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void withLock_RefusesToRunInsideATransaction() {
+        CustomerLockStripes locks = new CustomerLockStripes(transactionManager, meterRegistry, 4, 50);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThrows(IllegalStateException.class, () -> locks.withLock(1L, () -> true));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        verifyNoInteractions(transactionManager);
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
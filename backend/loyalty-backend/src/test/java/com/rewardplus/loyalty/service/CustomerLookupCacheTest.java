@@ -0,0 +1,132 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.CustomerDTO;
+import com.rewardplus.loyalty.dto.LoyaltyPointsDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CustomerLookupCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CustomerLookupCache cache = new CustomerLookupCache(
+        mock(PlatformTransactionManager.class), meterRegistry, true, 1000, 300, 30);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void getProfile_ServesRepeatLookupsFromMemoryAsCopies() {
+        CustomerDTO first = cache.getProfile(1L, profileLoader(1L, 100L));
+        first.setFirstName("Changed by caller");
+        CustomerDTO second = cache.getProfile(1L, profileLoader(1L, 200L));
+
+        assertEquals(1, loads.get());
+        assertEquals("John", second.getFirstName());
+        assertEquals(100L, second.getCurrentPointsBalance());
+        assertNotSame(second, cache.getProfile(1L, profileLoader(1L, 300L)));
+        assertEquals(2.0, requests("profiles", "hit"));
+        assertEquals(1.0, requests("profiles", "miss"));
+    }
+
+    @Test
+    void getProfileByCodeAndEmail_ResolveThroughTheIdOfALoadedProfile() {
+        CustomerDTO byId = cache.getProfile(1L, profileLoader(1L, 100L));
+
+        assertEquals(byId, cache.getProfileByCode("CUST000001", profileLoader(1L, 200L)));
+        assertEquals(byId, cache.getProfileByEmail("John.Doe1@Email.com", profileLoader(1L, 300L)));
+        assertEquals(1, loads.get());
+
+        cache.getProfileByCode("CUST000002", profileLoader(2L, 400L));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidate_DropsProfileAndBalanceOnceTheTransactionCommits() {
+        cache.getProfile(1L, profileLoader(1L, 100L));
+        cache.getBalanceByCode("CUST000001", balanceLoader(1L, 100L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(1L);
+            assertEquals(100L, cache.getProfile(1L, profileLoader(1L, 150L)).getCurrentPointsBalance());
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(150L, cache.getProfile(1L, profileLoader(1L, 150L)).getCurrentPointsBalance());
+        assertEquals(150L, cache.getBalance(1L, balanceLoader(1L, 150L)).getCurrentBalance());
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void getBalance_DoesNotKeepALoadThatOverlappedAnInvalidation() {
+        LoyaltyPointsDTO stale = cache.getBalance(1L, () -> {
+            // The customer's balance changes and commits while this read is in flight
+            cache.invalidate(1L);
+            return balanceLoader(1L, 100L).get();
+        });
+
+        assertEquals(100L, stale.getCurrentBalance());
+        assertEquals(250L, cache.getBalance(1L, balanceLoader(1L, 250L)).getCurrentBalance());
+        assertEquals(250L, cache.getBalance(1L, balanceLoader(1L, 300L)).getCurrentBalance());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getProfile_BypassesTheCacheInsideATransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            cache.getProfile(1L, profileLoader(1L, 100L));
+            cache.getProfile(1L, profileLoader(1L, 100L));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertEquals(2, loads.get());
+        cache.getProfile(1L, profileLoader(1L, 100L));
+        assertEquals(3, loads.get(), "nothing loaded inside the transaction was kept");
+    }
+
+    private Supplier<CustomerDTO> profileLoader(Long id, Long balance) {
+        return () -> {
+            loads.incrementAndGet();
+            return CustomerDTO.builder()
+                .id(id)
+                .customerCode(String.format("CUST%06d", id))
+                .firstName("John")
+                .lastName("Doe")
+                .email("john.doe" + id + "@email.com")
+                .currentPointsBalance(balance)
+                .build();
+        };
+    }
+
+    private Supplier<LoyaltyPointsDTO> balanceLoader(Long customerId, Long balance) {
+        return () -> {
+            loads.incrementAndGet();
+            return LoyaltyPointsDTO.builder()
+                .customerId(customerId)
+                .customerCode(String.format("CUST%06d", customerId))
+                .currentBalance(balance)
+                .build();
+        };
+    }
+
+    private double requests(String cache, String result) {
+        return meterRegistry.get("loyalty.customers.cache.requests")
+            .tag("cache", cache)
+            .tag("result", result)
+            .functionCounter()
+            .count();
+    }
+}
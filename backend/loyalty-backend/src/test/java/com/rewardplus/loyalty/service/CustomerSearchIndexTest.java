@@ -0,0 +1,103 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.projection.CustomerSearchRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerSearchIndexTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    private CustomerSearchIndex searchIndex;
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new CustomerSearchIndex(customerRepository, true, 2, 300, 0.4, 1000);
+    }
+
+    @Test
+    void search_IsEmptyUntilTheIndexIsBuilt() {
+        assertTrue(searchIndex.search("john").isEmpty());
+    }
+
+    @Test
+    void rebuild_ReadsAllCustomersInKeysetPages() {
+        CustomerSearchRow first = row(1L, "John", "Smith", start);
+        CustomerSearchRow second = row(2L, "Jane", "Doe", start);
+        CustomerSearchRow third = row(3L, "Johnny", "Cash", start.plusMinutes(1));
+        when(customerRepository.findSearchRowsChangedSince(any(), anyLong(), any(Pageable.class)))
+            .thenReturn(List.of(first, second), List.of(third));
+
+        searchIndex.rebuild();
+
+        assertEquals(List.of(1L, 3L), searchIndex.search("john").orElseThrow().customerIds());
+        // The second page continues after the last row of the first
+        verify(customerRepository).findSearchRowsChangedSince(eq(start), eq(2L), any(Pageable.class));
+    }
+
+    @Test
+    void refresh_RereadsFromTheWatermarkMinusTheOverlap() {
+        CustomerSearchRow first = row(1L, "John", "Smith", start);
+        CustomerSearchRow renamed = row(1L, "John", "Baker", start.plusMinutes(5));
+        when(customerRepository.findSearchRowsChangedSince(any(), anyLong(), any(Pageable.class)))
+            .thenReturn(List.of(first), List.of(renamed));
+        searchIndex.rebuild();
+
+        searchIndex.refresh();
+
+        verify(customerRepository).findSearchRowsChangedSince(eq(start.minusSeconds(300)), eq(Long.MIN_VALUE),
+            any(Pageable.class));
+        assertEquals(List.of(1L), searchIndex.search("baker").orElseThrow().customerIds());
+        assertTrue(searchIndex.search("smith").orElseThrow().customerIds().isEmpty());
+    }
+
+    @Test
+    void index_AddsCustomerImmediatelyOutsideATransaction() {
+        when(customerRepository.findSearchRowsChangedSince(any(), anyLong(), any(Pageable.class)))
+            .thenReturn(List.of());
+        searchIndex.rebuild();
+
+        Customer customer = Customer.builder()
+            .id(7L)
+            .firstName("Priya")
+            .lastName("Nair")
+            .email("priya@example.com")
+            .customerCode("CUST000007")
+            .phone("555-123-4567")
+            .build();
+        searchIndex.index(customer);
+
+        assertEquals(List.of(7L), searchIndex.search("555 123").orElseThrow().customerIds());
+    }
+
+    private CustomerSearchRow row(Long id, String firstName, String lastName, LocalDateTime updatedAt) {
+        CustomerSearchRow row = mock(CustomerSearchRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getFirstName()).thenReturn(firstName);
+        when(row.getLastName()).thenReturn(lastName);
+        lenient().when(row.getEmail()).thenReturn(firstName.toLowerCase() + "@example.com");
+        lenient().when(row.getCustomerCode()).thenReturn("CUST" + id);
+        lenient().when(row.getPhone()).thenReturn(null);
+        lenient().when(row.getUpdatedAt()).thenReturn(updatedAt);
+        return row;
+    }
+}
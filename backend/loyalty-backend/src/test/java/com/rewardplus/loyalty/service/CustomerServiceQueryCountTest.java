@@ -0,0 +1,169 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.config.AppConfig;
+import com.rewardplus.loyalty.dto.CursorPage;
+import com.rewardplus.loyalty.dto.CustomerDTO;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that listing customers costs a fixed number of statements however many
+ * customers are on the page, rather than one balance lookup per customer.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:customer_queries;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CustomerService.class, AppConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerServiceQueryCountTest {
+
+    private static final int CUSTOMERS = 25;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @MockBean
+    private ActivityRollupService activityRollupService;
+
+    @MockBean
+    private CustomerSearchIndex customerSearchIndex;
+
+    @MockBean
+    private CustomerLookupCache customerLookupCache;
+
+    @MockBean
+    private PointsLedgerService pointsLedgerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LoyaltyPointsRepository loyaltyPointsRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeAll
+    static void configureCodes() {
+        // Entities and services generate business codes; IdGeneratorConfig is not part of this test
+        SnowflakeIdGenerator.configure(0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < CUSTOMERS; i++) {
+                Customer customer = customerRepository.save(Customer.builder()
+                    .firstName("Query")
+                    .lastName("Count" + i)
+                    .email("query-count-" + i + "@example.com")
+                    .dateOfBirth(LocalDate.of(1990, 1, 1))
+                    .status(Customer.CustomerStatus.ACTIVE)
+                    .tier(Customer.CustomerTier.BRONZE)
+                    .build());
+                loyaltyPointsRepository.save(LoyaltyPoints.builder()
+                    .customer(customer)
+                    .currentBalance(100L * i)
+                    .build());
+            }
+        });
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            loyaltyPointsRepository.deleteAllInBatch();
+            customerRepository.deleteAllInBatch();
+        });
+    }
+
+    @Test
+    void getAllCustomers_LoadsBalancesInOneQuery() {
+        Page<CustomerDTO> page = customerService.getAllCustomers(PageRequest.of(0, 20));
+
+        assertEquals(20, page.getContent().size());
+        assertEquals(CUSTOMERS, page.getTotalElements());
+        page.getContent().forEach(dto -> assertNotNull(dto.getCurrentPointsBalance()));
+        // Page of customers, total count, and one balance query for the whole page
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getCustomersPage_WalksEveryCustomerWithoutCounting() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        do {
+            statistics.clear();
+            CursorPage<CustomerDTO> page = customerService.getCustomersPage(
+                cursor, 10, "createdAt", Sort.Direction.DESC, false);
+            page.getContent().forEach(dto -> seen.add(dto.getId()));
+            assertNull(page.getTotalElements());
+            // Page of customers and one balance query, at every depth
+            assertEquals(2, statistics.getPrepareStatementCount());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(CUSTOMERS, seen.size());
+        assertEquals(CUSTOMERS, new HashSet<>(seen).size());
+        List<Long> newestFirst = customerRepository.findAll(Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id")))
+            .stream().map(Customer::getId).toList();
+        assertEquals(newestFirst, seen);
+    }
+
+    @Test
+    void getCustomersByStatus_LoadsBalancesInOneQuery() {
+        List<CustomerDTO> customers = customerService.getCustomersByStatus(Customer.CustomerStatus.ACTIVE);
+
+        assertEquals(CUSTOMERS, customers.size());
+        for (CustomerDTO dto : customers) {
+            int index = Integer.parseInt(dto.getLastName().substring("Count".length()));
+            assertEquals(100L * index, dto.getCurrentPointsBalance());
+        }
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
@@ -4,15 +4,20 @@ import com.rewardplus.loyalty.dto.CustomerDTO;
 import com.rewardplus.loyalty.dto.LoyaltyPointsDTO;
 import com.rewardplus.loyalty.entity.Customer;
 import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
 import com.rewardplus.loyalty.exception.ResourceNotFoundException;
 import com.rewardplus.loyalty.repository.CustomerRepository;
 import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
 import java.util.Optional;
@@ -30,6 +35,20 @@ class CustomerServiceTest {
     @Mock
     private LoyaltyPointsRepository loyaltyPointsRepository;
 
+    @Mock
+    private ActivityRollupService activityRollupService;
+
+    @Mock
+    private CustomerSearchIndex customerSearchIndex;
+
+    @Mock
+    private PointsLedgerService pointsLedgerService;
+
+    // Disabled, so every lookup goes through to the repositories
+    @Spy
+    private CustomerLookupCache customerLookupCache = new CustomerLookupCache(
+        mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), false, 100, 60, 60);
+
     @InjectMocks
     private CustomerService customerService;
 
@@ -65,6 +84,7 @@ class CustomerServiceTest {
         inputDTO.setLastName("Doe");
         inputDTO.setEmail("john.doe@email.com");
         inputDTO.setDateOfBirth("1990-05-15");
+        ReflectionTestUtils.setField(customerService, "welcomeBonusPoints", 100);
 
         when(customerRepository.save(any(Customer.class))).thenAnswer(invocation -> {
             Customer saved = invocation.getArgument(0);
@@ -89,6 +109,7 @@ class CustomerServiceTest {
 
         verify(customerRepository, times(1)).save(any(Customer.class));
         verify(loyaltyPointsRepository, times(1)).save(any(LoyaltyPoints.class));
+        verify(pointsLedgerService).record(1L, PointsLedgerEntry.EntryType.EARN, 100L, null, null, "Welcome bonus");
     }
 
     @Test
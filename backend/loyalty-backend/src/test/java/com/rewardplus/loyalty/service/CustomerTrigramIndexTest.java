@@ -0,0 +1,70 @@
+package com.rewardplus.loyalty.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerTrigramIndexTest {
+
+    private CustomerTrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CustomerTrigramIndex(16);
+        index.put(1L, "John", "Smith", "john.smith@example.com", "CUST000001", "+1 (555) 010-1234");
+        index.put(2L, "Johanna", "Berg", "jberg@example.com", "CUST000002", "555-777-0000");
+        index.put(3L, "Mary", "Johnson", "mary.j@example.com", "CUST000003", null);
+    }
+
+    @Test
+    void search_RanksExactThenPrefixThenInfixMatches() {
+        index.put(4L, "Ann", "Blacksmith", "ann@example.com", "CUST000004", null);
+        index.put(5L, "Smith", null, "s5@example.com", "CUST000005", null);
+
+        CustomerTrigramIndex.Result result = index.search("smith", 0.4, 100);
+
+        // 5's whole name is "smith", 1 has a word starting with it, 4 only contains it
+        assertEquals(List.of(5L, 1L, 4L), result.customerIds());
+        assertFalse(result.fuzzy());
+        assertEquals(List.of(2L), index.search("cust000002", 0.4, 100).customerIds());
+    }
+
+    @Test
+    void search_MatchesShortPrefixesAtWordStarts() {
+        assertEquals(List.of(1L, 2L, 3L), index.search("Jo", 0.4, 100).customerIds());
+        assertEquals(List.of(2L), index.search("b", 0.4, 100).customerIds());
+        assertTrue(index.search("hn", 0.4, 100).customerIds().isEmpty());
+    }
+
+    @Test
+    void search_MatchesPhoneNumbersWhateverTheFormatting() {
+        assertEquals(List.of(1L), index.search("555-010", 0.4, 100).customerIds());
+        assertEquals(List.of(2L), index.search("7770000", 0.4, 100).customerIds());
+    }
+
+    @Test
+    void search_FallsBackToFuzzyMatchesForTypos() {
+        CustomerTrigramIndex.Result result = index.search("jonh smtih", 0.4, 100);
+
+        assertTrue(result.fuzzy());
+        assertEquals(1L, result.customerIds().get(0));
+    }
+
+    @Test
+    void put_ReplacesPreviousFieldsOfACustomer() {
+        index.put(3L, "Mary", "Peters", "mary.p@example.com", "CUST000003", null);
+
+        assertTrue(index.search("johnson", 0.9, 100).customerIds().isEmpty());
+        assertEquals(List.of(3L), index.search("peters", 0.4, 100).customerIds());
+        assertEquals(3, index.size());
+        assertEquals(1, index.deadSlots());
+    }
+
+    @Test
+    void search_CapsTheNumberOfMatches() {
+        assertEquals(1, index.search("example", 0.4, 1).customerIds().size());
+    }
+}
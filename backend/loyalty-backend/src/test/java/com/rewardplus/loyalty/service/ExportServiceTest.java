@@ -0,0 +1,154 @@
+package com.rewardplus.loyalty.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.exception.ServiceBusyException;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.RedemptionLogRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import com.rewardplus.loyalty.repository.projection.CustomerExportRow;
+import com.rewardplus.loyalty.repository.projection.TransactionExportRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private RedemptionLogRepository redemptionLogRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private final LocalDateTime end = LocalDateTime.of(2024, 3, 31, 23, 59, 59);
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(customerRepository, transactionRepository, redemptionLogRepository,
+            objectMapper, transactionManager, 1);
+    }
+
+    @Test
+    void exportTransactions_WritesCsvWithHeaderAndQuotedFields() throws IOException {
+        when(transactionRepository.streamForExport(start, end)).thenReturn(Stream.of(
+            transaction(1L, "TXN-1", "Main St, Store 4", new BigDecimal("12.50")),
+            transaction(2L, "TXN-2", "Mall", new BigDecimal("100.00"))));
+
+        String csv = write(exportService.exportTransactions(start, end, ExportService.Format.CSV, false), false);
+
+        String[] lines = csv.split("\r\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("id,transactionCode,customerId,customerCode,amount,"));
+        assertTrue(lines[1].startsWith("1,TXN-1,7,CUST7,12.50,"));
+        assertTrue(lines[1].contains(",PURCHASE,COMPLETED,\"Main St, Store 4\","));
+        assertTrue(lines[2].contains("2024-03-02T10:00"));
+    }
+
+    @Test
+    void exportCustomers_WritesGzippedNdjsonAndClosesTheStream() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        CustomerExportRow row = mock(CustomerExportRow.class);
+        when(row.getId()).thenReturn(5L);
+        when(row.getFirstName()).thenReturn("Ana");
+        when(row.getTier()).thenReturn(Customer.CustomerTier.GOLD);
+        when(row.getEnrollmentDate()).thenReturn(LocalDate.of(2023, 6, 1));
+        when(row.getCurrentPointsBalance()).thenReturn(1500L);
+        when(customerRepository.streamForExport(Customer.CustomerStatus.ACTIVE, null))
+            .thenReturn(Stream.of(row).onClose(() -> closed.set(true)));
+
+        String ndjson = write(exportService.exportCustomers(Customer.CustomerStatus.ACTIVE, null,
+            ExportService.Format.NDJSON, true), true);
+
+        String[] lines = ndjson.split("\n");
+        assertEquals(1, lines.length);
+        JsonNode customer = objectMapper.readTree(lines[0]);
+        assertEquals(5L, customer.get("id").asLong());
+        assertEquals("Ana", customer.get("firstName").asText());
+        assertEquals("GOLD", customer.get("tier").asText());
+        assertEquals("2023-06-01", customer.get("enrollmentDate").asText());
+        assertEquals(1500L, customer.get("currentPointsBalance").asLong());
+        assertTrue(customer.get("email").isNull());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void export_RejectsRequestsBeyondTheConcurrencyLimitUntilOneFinishes() throws IOException {
+        when(transactionRepository.streamForExport(start, end)).thenReturn(Stream.empty(), Stream.empty());
+
+        StreamingResponseBody running = exportService.exportTransactions(start, end, ExportService.Format.CSV, false);
+        assertThrows(ServiceBusyException.class,
+            () -> exportService.exportTransactions(start, end, ExportService.Format.CSV, false));
+
+        write(running, false);
+        StreamingResponseBody next = exportService.exportTransactions(start, end, ExportService.Format.CSV, false);
+        assertEquals("id,", write(next, false).substring(0, 3));
+    }
+
+    @Test
+    void exportTransactions_RejectsAnInvertedRangeWithoutTakingASlot() {
+        assertThrows(BadRequestException.class,
+            () -> exportService.exportTransactions(end, start, ExportService.Format.CSV, false));
+
+        assertDoesNotThrow(() -> exportService.exportTransactions(start, end, ExportService.Format.CSV, false));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private TransactionExportRow transaction(Long id, String code, String storeCode, BigDecimal amount) {
+        TransactionExportRow row = mock(TransactionExportRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getTransactionCode()).thenReturn(code);
+        when(row.getCustomerId()).thenReturn(7L);
+        when(row.getCustomerCode()).thenReturn("CUST7");
+        when(row.getAmount()).thenReturn(amount);
+        when(row.getNetAmount()).thenReturn(amount);
+        when(row.getTransactionDate()).thenReturn(LocalDateTime.of(2024, 3, id.intValue(), 10, 0));
+        when(row.getTransactionType()).thenReturn(Transaction.TransactionType.PURCHASE);
+        when(row.getStatus()).thenReturn(Transaction.TransactionStatus.COMPLETED);
+        when(row.getStoreCode()).thenReturn(storeCode);
+        return row;
+    }
+
+    private static String write(StreamingResponseBody body, boolean gzipped) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        if (!gzipped) {
+            return out.toString(StandardCharsets.UTF_8);
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.rewardplus.loyalty.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_IsExactForSmallCounts() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long id = 1; id <= 100; id++) {
+            sketch.add(id);
+            sketch.add(id);
+        }
+
+        assertEquals(100, sketch.estimate(), 1);
+    }
+
+    @Test
+    void estimate_StaysWithinErrorBoundForLargeCounts() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long id = 1; id <= 200_000; id++) {
+            sketch.add(id);
+        }
+
+        assertEquals(200_000, sketch.estimate(), 200_000 * 3 * HyperLogLog.RELATIVE_ERROR);
+    }
+
+    @Test
+    void merge_EstimatesUnionAndIsIdempotent() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (long id = 1; id <= 30_000; id++) {
+            monday.add(id);
+            tuesday.add(id + 20_000);
+        }
+
+        HyperLogLog week = monday.copy();
+        assertTrue(week.merge(tuesday));
+        long union = week.estimate();
+        assertFalse(week.merge(tuesday));
+
+        assertEquals(union, week.estimate());
+        assertEquals(50_000, union, 50_000 * 3 * HyperLogLog.RELATIVE_ERROR);
+    }
+
+    @Test
+    void toBytes_RoundTripsSparseAndDenseSketches() {
+        HyperLogLog small = new HyperLogLog();
+        for (long id = 1; id <= 50; id++) {
+            small.add(id);
+        }
+        HyperLogLog large = new HyperLogLog();
+        for (long id = 1; id <= 100_000; id++) {
+            large.add(id);
+        }
+
+        byte[] sparse = small.toBytes();
+        byte[] dense = large.toBytes();
+
+        assertTrue(sparse.length <= 1 + 50 * 3);
+        assertEquals(HyperLogLog.REGISTERS + 1, dense.length);
+        assertEquals(small.estimate(), HyperLogLog.fromBytes(sparse).estimate());
+        assertEquals(large.estimate(), HyperLogLog.fromBytes(dense).estimate());
+        assertTrue(HyperLogLog.fromBytes(new HyperLogLog().toBytes()).isEmpty());
+    }
+
+    @Test
+    void fromBytes_RejectsUnknownEncoding() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{7, 1, 2}));
+    }
+}
@@ -0,0 +1,137 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.PointsBalanceAsOfDTO;
+import com.rewardplus.loyalty.entity.PointsBalanceSnapshot;
+import com.rewardplus.loyalty.entity.PointsLedgerEntry;
+import com.rewardplus.loyalty.exception.ResourceNotFoundException;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.PointsBalanceSnapshotRepository;
+import com.rewardplus.loyalty.repository.PointsLedgerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.modelmapper.ModelMapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PointsLedgerServiceTest {
+
+    @Mock
+    private PointsLedgerRepository pointsLedgerRepository;
+
+    @Mock
+    private PointsBalanceSnapshotRepository pointsBalanceSnapshotRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Spy
+    private ModelMapper modelMapper = new ModelMapper();
+
+    @InjectMocks
+    private PointsLedgerService pointsLedgerService;
+
+    @Test
+    void getBalanceAsOf_AddsEntriesAfterLatestSnapshot() {
+        LocalDateTime asOf = LocalDateTime.of(2024, 3, 10, 15, 0);
+        PointsBalanceSnapshot snapshot = PointsBalanceSnapshot.builder()
+            .customerId(1L)
+            .snapshotDate(LocalDate.of(2024, 3, 8))
+            .balance(1200L)
+            .build();
+
+        when(customerRepository.existsById(1L)).thenReturn(true);
+        when(pointsBalanceSnapshotRepository.findFirstByCustomerIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(
+            1L, asOf.toLocalDate())).thenReturn(Optional.of(snapshot));
+        when(pointsLedgerRepository.sumPointsBetween(1L, LocalDate.of(2024, 3, 9).atStartOfDay(), asOf))
+            .thenReturn(-200L);
+
+        PointsBalanceAsOfDTO result = pointsLedgerService.getBalanceAsOf(1L, asOf);
+
+        assertEquals(1000L, result.getBalance());
+        assertEquals(LocalDate.of(2024, 3, 8), result.getSnapshotDate());
+        assertEquals(-200L, result.getPointsSinceSnapshot());
+        verify(pointsLedgerRepository, never()).sumPointsBefore(any(), any());
+    }
+
+    @Test
+    void getBalanceAsOf_WithoutSnapshotSumsWholeLedger() {
+        LocalDateTime asOf = LocalDateTime.of(2024, 3, 10, 15, 0);
+        when(customerRepository.existsById(1L)).thenReturn(true);
+        when(pointsBalanceSnapshotRepository.findFirstByCustomerIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(
+            1L, asOf.toLocalDate())).thenReturn(Optional.empty());
+        when(pointsLedgerRepository.sumPointsBefore(1L, asOf)).thenReturn(450L);
+
+        PointsBalanceAsOfDTO result = pointsLedgerService.getBalanceAsOf(1L, asOf);
+
+        assertEquals(450L, result.getBalance());
+        assertNull(result.getSnapshotDate());
+    }
+
+    @Test
+    void getBalanceAsOf_CustomerNotFound() {
+        when(customerRepository.existsById(999L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () ->
+            pointsLedgerService.getBalanceAsOf(999L, LocalDateTime.now()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void snapshotDay_BuildsOnPreviousSnapshot() {
+        LocalDate date = LocalDate.of(2024, 3, 9);
+        PointsBalanceSnapshot previous = PointsBalanceSnapshot.builder()
+            .customerId(1L)
+            .snapshotDate(LocalDate.of(2024, 3, 5))
+            .balance(500L)
+            .lifetimeEarned(800L)
+            .build();
+
+        when(pointsBalanceSnapshotRepository.existsBySnapshotDate(date)).thenReturn(false);
+        when(pointsLedgerRepository.sumPointsByCustomerBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay()))
+            .thenReturn(List.of(new Object[]{1L, 150L, 300L}, new Object[]{2L, 40L, 40L}));
+        when(pointsBalanceSnapshotRepository.findLatestBefore(List.of(1L, 2L), date)).thenReturn(List.of(previous));
+
+        int written = pointsLedgerService.snapshotDay(date);
+
+        ArgumentCaptor<List<PointsBalanceSnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        verify(pointsBalanceSnapshotRepository).saveAll(captor.capture());
+        List<PointsBalanceSnapshot> saved = captor.getValue();
+
+        assertEquals(2, written);
+        assertEquals(650L, saved.get(0).getBalance());
+        assertEquals(1100L, saved.get(0).getLifetimeEarned());
+        assertEquals(40L, saved.get(1).getBalance());
+        assertEquals(date, saved.get(1).getSnapshotDate());
+    }
+
+    @Test
+    void snapshotDay_SkipsDayAlreadyProcessed() {
+        LocalDate date = LocalDate.of(2024, 3, 9);
+        when(pointsBalanceSnapshotRepository.existsBySnapshotDate(date)).thenReturn(true);
+
+        assertEquals(0, pointsLedgerService.snapshotDay(date));
+        verify(pointsBalanceSnapshotRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void entry_TruncatesLongReason() {
+        PointsLedgerEntry entry = pointsLedgerService.entry(1L, PointsLedgerEntry.EntryType.ADJUST, 10L,
+            null, null, "x".repeat(400));
+
+        assertEquals(255, entry.getReason().length());
+        assertEquals(10L, entry.getPoints());
+    }
+}
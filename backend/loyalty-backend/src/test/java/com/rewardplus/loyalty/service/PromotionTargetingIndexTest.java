@@ -0,0 +1,143 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.Promotion;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionTargetingIndexTest {
+
+    private static final String[] CITIES = {"Mumbai", "Pune", "Delhi", "Chennai"};
+    private static final String[] GENDERS = {"Male", "Female", "Other"};
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+    @Test
+    void candidatesFor_MatchesDirectEvaluation() {
+        Random random = new Random(42);
+        List<Promotion> promotions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            promotions.add(randomPromotion(random, i + 1L));
+        }
+        PromotionTargetingIndex index = new PromotionTargetingIndex(promotions);
+
+        for (int i = 0; i < 2000; i++) {
+            Customer customer = randomCustomer(random);
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(50000), 2);
+
+            List<Promotion> expected = promotions.stream()
+                .filter(promo -> PromotionTargetingIndex.matches(promo, customer, amount, TODAY))
+                .collect(Collectors.toList());
+
+            assertEquals(expected, index.candidatesFor(customer, amount, TODAY));
+        }
+    }
+
+    @Test
+    void candidatesFor_HonoursTierCityAndNewCustomerRules() {
+        Promotion goldInPune = promotion(1L);
+        goldInPune.setMinimumTier(Customer.CustomerTier.GOLD);
+        goldInPune.setTargetCity("Pune");
+        Promotion newCustomersOnly = promotion(2L);
+        newCustomersOnly.setExclusiveToNewCustomers(true);
+        Promotion bigSpend = promotion(3L);
+        bigSpend.setMinimumPurchaseAmount(new BigDecimal("500.00"));
+
+        PromotionTargetingIndex index = new PromotionTargetingIndex(List.of(goldInPune, newCustomersOnly, bigSpend));
+
+        Customer customer = new Customer();
+        customer.setTier(Customer.CustomerTier.PLATINUM);
+        customer.setCity("PUNE");
+        customer.setEnrollmentDate(TODAY.minusDays(90));
+
+        assertEquals(List.of(goldInPune), index.candidatesFor(customer, new BigDecimal("100.00"), TODAY));
+        assertEquals(List.of(goldInPune, bigSpend), index.candidatesFor(customer, new BigDecimal("500.00"), TODAY));
+
+        customer.setTier(Customer.CustomerTier.SILVER);
+        customer.setEnrollmentDate(TODAY.minusDays(5));
+        assertEquals(List.of(newCustomersOnly), index.candidatesFor(customer, new BigDecimal("100.00"), TODAY));
+    }
+
+    @Test
+    void candidatesFor_ExcludesPromotionsOutsideDatesOrUsage() {
+        Promotion notStarted = promotion(1L);
+        notStarted.setStartDate(TODAY.plusDays(1));
+        Promotion ended = promotion(2L);
+        ended.setEndDate(TODAY.minusDays(1));
+        Promotion usedUp = promotion(3L);
+        usedUp.setUsageLimit(5);
+        usedUp.setUsageCount(5);
+        Promotion live = promotion(4L);
+
+        PromotionTargetingIndex index = new PromotionTargetingIndex(List.of(notStarted, ended, usedUp, live));
+
+        assertEquals(List.of(live), index.candidatesFor(new Customer(), BigDecimal.TEN, TODAY));
+        assertEquals(List.of(notStarted, live), index.candidatesFor(new Customer(), BigDecimal.TEN, TODAY.plusDays(1)));
+    }
+
+    private Promotion promotion(Long id) {
+        Promotion promotion = new Promotion();
+        promotion.setId(id);
+        promotion.setPromotionCode("PROMO" + id);
+        promotion.setStatus(Promotion.PromotionStatus.ACTIVE);
+        return promotion;
+    }
+
+    private Promotion randomPromotion(Random random, Long id) {
+        Promotion promotion = promotion(id);
+        if (random.nextInt(3) == 0) {
+            promotion.setMinimumTier(pick(random, Customer.CustomerTier.values()));
+        }
+        if (random.nextInt(3) == 0) {
+            promotion.setTargetCity(pick(random, CITIES).toLowerCase());
+        }
+        if (random.nextInt(4) == 0) {
+            promotion.setTargetGender(pick(random, GENDERS));
+        }
+        if (random.nextInt(3) == 0) {
+            promotion.setMinimumAge(18 + random.nextInt(30));
+        }
+        if (random.nextInt(3) == 0) {
+            promotion.setMaximumAge(30 + random.nextInt(50));
+        }
+        if (random.nextInt(2) == 0) {
+            promotion.setMinimumPurchaseAmount(BigDecimal.valueOf(random.nextInt(400) * 100L, 2));
+        }
+        if (random.nextInt(6) == 0) {
+            promotion.setExclusiveToNewCustomers(true);
+        }
+        if (random.nextInt(8) == 0) {
+            promotion.setEndDate(TODAY.minusDays(random.nextInt(3)));
+        }
+        return promotion;
+    }
+
+    private Customer randomCustomer(Random random) {
+        Customer customer = new Customer();
+        if (random.nextInt(10) > 0) {
+            customer.setTier(pick(random, Customer.CustomerTier.values()));
+        }
+        if (random.nextInt(10) > 0) {
+            customer.setCity(pick(random, CITIES));
+        }
+        if (random.nextInt(10) > 0) {
+            customer.setGender(pick(random, GENDERS).toUpperCase());
+        }
+        if (random.nextInt(10) > 0) {
+            customer.setDateOfBirth(LocalDate.now().minusYears(16 + random.nextInt(70)).minusDays(random.nextInt(365)));
+        }
+        customer.setEnrollmentDate(TODAY.minusDays(random.nextInt(60)));
+        return customer;
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
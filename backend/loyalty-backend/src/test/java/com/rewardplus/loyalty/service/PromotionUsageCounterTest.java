@@ -0,0 +1,252 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Promotion;
+import com.rewardplus.loyalty.repository.PromotionRepository;
+import com.rewardplus.loyalty.repository.PromotionUsageLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PromotionUsageCounterTest {
+
+    @Mock
+    private PromotionRepository promotionRepository;
+
+    @Mock
+    private PromotionUsageLeaseRepository leaseRepository;
+
+    @Mock
+    private ActivePromotionRegistry activePromotionRegistry;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PromotionUsageCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = node();
+    }
+
+    private PromotionUsageCounter node() {
+        PromotionUsageCounter node = new PromotionUsageCounter(promotionRepository, leaseRepository,
+            activePromotionRegistry, transactionManager);
+        ReflectionTestUtils.setField(node, "quotaBlock", 50);
+        ReflectionTestUtils.setField(node, "reserveWaitMillis", 1000L);
+        ReflectionTestUtils.setField(node, "leaseTtlSeconds", 300L);
+        ReflectionTestUtils.setField(node, "nodeId", 1);
+        return node;
+    }
+
+    @Test
+    void tryClaim_UnlimitedPromotionFlushesOneDelta() throws Exception {
+        Promotion promotion = promotion(1L, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        assertTrue(counter.tryClaim(promotion));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        counter.flush();
+        counter.flush();
+
+        verify(promotionRepository, times(1)).addUsage(1L, 8000);
+        verify(promotionRepository, never()).reserveUsage(anyLong(), anyInt());
+    }
+
+    @Test
+    void tryClaim_LimitedPromotionNeverExceedsLimitAcrossNodes() throws Exception {
+        // Two counters stand in for two application nodes sharing one promotion row
+        AtomicInteger reserved = new AtomicInteger();
+        int limit = 100;
+        when(promotionRepository.findUnreservedUses(2L)).thenAnswer(invocation -> limit - reserved.get());
+        when(promotionRepository.reserveUsage(eq(2L), anyInt())).thenAnswer(invocation -> {
+            int uses = invocation.getArgument(1);
+            synchronized (reserved) {
+                if (reserved.get() + uses > limit) {
+                    return 0;
+                }
+                reserved.addAndGet(uses);
+                return 1;
+            }
+        });
+        when(promotionRepository.releaseUsage(eq(2L), anyInt())).thenAnswer(invocation -> {
+            reserved.addAndGet(-(int) invocation.getArgument(1));
+            return 1;
+        });
+        PromotionUsageCounter otherNode = node();
+        ReflectionTestUtils.setField(otherNode, "nodeId", 2);
+
+        Promotion promotion = promotion(2L, limit);
+        AtomicInteger claimed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                PromotionUsageCounter node = t % 2 == 0 ? counter : otherNode;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        if (node.tryClaim(promotion)) {
+                            claimed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(claimed.get() > 0);
+        assertTrue(claimed.get() <= limit);
+        assertTrue(reserved.get() <= limit);
+
+        // Once unused quota is handed back, the row holds exactly what was consumed
+        counter.release();
+        otherNode.release();
+        assertEquals(claimed.get(), reserved.get());
+    }
+
+    @Test
+    void tryClaim_ExhaustedPromotionIsNotRecheckedImmediately() {
+        when(promotionRepository.findUnreservedUses(4L)).thenReturn(0);
+        Promotion promotion = promotion(4L, 10);
+
+        assertFalse(counter.tryClaim(promotion));
+        assertFalse(counter.tryClaim(promotion));
+        counter.flush();
+
+        verify(promotionRepository, times(1)).findUnreservedUses(4L);
+        verify(activePromotionRegistry).refresh();
+    }
+
+    @Test
+    void tryClaim_RolledBackClaimReturnsItsUse() {
+        // The background top-up after the first block finds nothing left
+        when(promotionRepository.findUnreservedUses(3L)).thenReturn(40, 0);
+        when(promotionRepository.reserveUsage(3L, 10)).thenReturn(1);
+        Promotion promotion = promotion(3L, 40);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(counter.tryClaim(promotion));
+            assertTrue(counter.tryClaim(promotion));
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        }
+        assertTrue(counter.tryClaim(promotion));
+
+        counter.flush();
+        verify(promotionRepository).addUsage(3L, 1);
+
+        // 9 of the 10 reserved uses were never consumed and go back on shutdown
+        counter.release();
+        verify(promotionRepository).releaseUsage(3L, 9);
+    }
+
+    @Test
+    void tryClaim_ReservesQuotaOffTheCallingThread() {
+        when(promotionRepository.findUnreservedUses(6L)).thenReturn(400, 0);
+        when(promotionRepository.reserveUsage(6L, 50)).thenReturn(1);
+        Promotion promotion = promotion(6L, 400);
+        Thread caller = Thread.currentThread();
+        doAnswer(invocation -> {
+            assertNotSame(caller, Thread.currentThread());
+            return null;
+        }).when(transactionManager).getTransaction(any());
+
+        assertTrue(counter.tryClaim(promotion));
+
+        verify(leaseRepository).save(argThat(lease -> lease.getPromotionId() == 6L
+            && lease.getNodeId() == 1 && lease.getUnused() == 50));
+    }
+
+    @Test
+    void tryClaim_ReservesOneUseDirectlyWhenNoBlockArrivesInTime() {
+        ReflectionTestUtils.setField(counter, "reserveWaitMillis", 50L);
+        CountDownLatch reserverStuck = new CountDownLatch(1);
+        when(promotionRepository.findUnreservedUses(7L)).thenAnswer(invocation -> {
+            reserverStuck.await(5, TimeUnit.SECONDS);
+            return 0;
+        });
+        when(promotionRepository.reserveUsage(7L, 1)).thenReturn(1);
+        Promotion promotion = promotion(7L, 10);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertTrue(counter.tryClaim(promotion));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            reserverStuck.countDown();
+        }
+
+        counter.flush();
+        verify(promotionRepository).addUsage(7L, 1);
+        // The direct use never entered this node's lease
+        verify(leaseRepository, never()).addUnused(eq(7L), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void reconcile_ReclaimsQuotaNoLiveNodeHolds() {
+        Promotion promotion = promotion(5L, 100);
+        promotion.setUsageCount(30);
+        promotion.setUsageReserved(80);
+        when(leaseRepository.deleteExpired(any())).thenReturn(1);
+        when(promotionRepository.findIdsWithUnconsumedReservations()).thenReturn(List.of(5L));
+        when(promotionRepository.findByIdForUpdate(5L)).thenReturn(Optional.of(promotion));
+        when(leaseRepository.sumLiveUnused(eq(5L), any())).thenReturn(20L);
+
+        counter.reconcile();
+
+        // 30 consumed plus 20 still held by a live node; the other 30 were leaked
+        verify(promotionRepository).setReservedUsage(5L, 50);
+    }
+
+    private Promotion promotion(Long id, int usageLimit) {
+        Promotion promotion = new Promotion();
+        promotion.setId(id);
+        promotion.setPromotionCode("PROMO" + id);
+        promotion.setUsageLimit(usageLimit);
+        return promotion;
+    }
+}
@@ -10,6 +10,8 @@ import com.rewardplus.loyalty.exception.ResourceNotFoundException;
 import com.rewardplus.loyalty.repository.RedemptionLogRepository;
 import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
 import com.rewardplus.loyalty.repository.RewardRepository;
+import com.rewardplus.loyalty.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,9 +22,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +39,21 @@ class RedemptionServiceTest {
     @Mock
     private LoyaltyPointsRepository loyaltyPointsRepository;
 
+    @Mock
+    private PointsLedgerService pointsLedgerService;
+
+    @Mock
+    private CustomerLockStripes customerLocks;
+
+    @Mock
+    private ActivityRollupService activityRollupService;
+
+    @Mock
+    private ActiveCustomerService activeCustomerService;
+
+    @Mock
+    private CustomerLookupCache customerLookupCache;
+
     @Mock
     private RewardRepository rewardRepository;
 
@@ -48,6 +68,12 @@ class RedemptionServiceTest {
     private Reward testReward;
     private RedemptionLog testRedemption;
 
+    @BeforeAll
+    static void configureCodes() {
+        // Entities and services generate business codes; IdGeneratorConfig is not part of this test
+        SnowflakeIdGenerator.configure(0);
+    }
+
     @BeforeEach
     void setUp() {
         testCustomer = new Customer();
@@ -83,6 +109,9 @@ class RedemptionServiceTest {
         testRedemption.setPointsRedeemed(500L);
         testRedemption.setStatus(RedemptionLog.RedemptionStatus.COMPLETED);
         testRedemption.setRedemptionDate(LocalDateTime.now());
+
+        lenient().when(customerLocks.withLock(anyLong(), any()))
+            .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
     }
 
     @Test
@@ -91,14 +120,13 @@ class RedemptionServiceTest {
         inputDTO.setChannel("ONLINE");
 
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
-        when(loyaltyPointsRepository.findByCustomerId(1L)).thenReturn(Optional.of(testPoints));
         when(rewardRepository.findById(1L)).thenReturn(Optional.of(testReward));
+        when(loyaltyPointsRepository.debitPoints(eq(1L), eq(500L), any(LocalDateTime.class))).thenReturn(1);
         when(redemptionLogRepository.save(any(RedemptionLog.class))).thenAnswer(invocation -> {
             RedemptionLog saved = invocation.getArgument(0);
             saved.setId(1L);
             return saved;
         });
-        when(loyaltyPointsRepository.save(any(LoyaltyPoints.class))).thenReturn(testPoints);
 
         RedemptionDTO result = redemptionService.redeemReward(1L, 1L, inputDTO);
 
@@ -108,6 +136,7 @@ class RedemptionServiceTest {
         assertNotNull(result.getRedemptionCode());
 
         verify(redemptionLogRepository, times(1)).save(any(RedemptionLog.class));
+        verify(loyaltyPointsRepository, never()).save(any(LoyaltyPoints.class));
     }
 
     @Test
@@ -117,8 +146,9 @@ class RedemptionServiceTest {
         RedemptionDTO inputDTO = new RedemptionDTO();
 
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
-        when(loyaltyPointsRepository.findByCustomerId(1L)).thenReturn(Optional.of(testPoints));
         when(rewardRepository.findById(1L)).thenReturn(Optional.of(testReward));
+        when(loyaltyPointsRepository.debitPoints(eq(1L), eq(500L), any(LocalDateTime.class))).thenReturn(0);
+        when(loyaltyPointsRepository.findByCustomerId(1L)).thenReturn(Optional.of(testPoints));
 
         assertThrows(InsufficientPointsException.class, () -> {
             redemptionService.redeemReward(1L, 1L, inputDTO);
@@ -141,7 +171,6 @@ class RedemptionServiceTest {
         RedemptionDTO inputDTO = new RedemptionDTO();
 
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
-        when(loyaltyPointsRepository.findByCustomerId(1L)).thenReturn(Optional.of(testPoints));
         when(rewardRepository.findById(999L)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
@@ -175,15 +204,28 @@ class RedemptionServiceTest {
     @Test
     void cancelRedemption_Success() {
         testPoints.setCurrentBalance(1000);
-        when(redemptionLogRepository.findById(1L)).thenReturn(Optional.of(testRedemption));
+        when(redemptionLogRepository.findCustomerIdById(1L)).thenReturn(Optional.of(1L));
+        when(redemptionLogRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testRedemption));
         when(redemptionLogRepository.save(any(RedemptionLog.class))).thenReturn(testRedemption);
-        when(loyaltyPointsRepository.save(any(LoyaltyPoints.class))).thenReturn(testPoints);
+        when(loyaltyPointsRepository.refundPoints(eq(1L), eq(500L), any(LocalDateTime.class))).thenReturn(1);
 
         RedemptionDTO result = redemptionService.cancelRedemption(1L, "Customer requested");
 
         assertNotNull(result);
         assertEquals(RedemptionLog.RedemptionStatus.CANCELLED, result.getStatus());
         assertEquals("Customer requested", result.getCancellationReason());
+        verify(customerLocks).withLock(eq(1L), any());
+        verify(customerLookupCache).invalidate(1L);
+    }
+
+    @Test
+    void cancelRedemption_AlreadyCancelled() {
+        testRedemption.setStatus(RedemptionLog.RedemptionStatus.CANCELLED);
+        when(redemptionLogRepository.findCustomerIdById(1L)).thenReturn(Optional.of(1L));
+        when(redemptionLogRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testRedemption));
+
+        assertThrows(IllegalStateException.class, () -> redemptionService.cancelRedemption(1L, "Again"));
+        verify(loyaltyPointsRepository, never()).refundPoints(anyLong(), anyLong(), any(LocalDateTime.class));
     }
 }
 
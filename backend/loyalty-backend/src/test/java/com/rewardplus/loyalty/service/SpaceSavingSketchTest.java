@@ -0,0 +1,63 @@
+package com.rewardplus.loyalty.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void offer_IsExactWhileUnderCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        sketch.offer(1L, 500);
+        sketch.offer(2L, 300);
+        sketch.offer(1L, 100);
+        sketch.offer(3L, 0);
+
+        List<SpaceSavingSketch.Estimate> top = sketch.top(5);
+
+        assertEquals(2, top.size());
+        assertEquals(new SpaceSavingSketch.Estimate(1L, 600, 0), top.get(0));
+        assertEquals(new SpaceSavingSketch.Estimate(2L, 300, 0), top.get(1));
+    }
+
+    @Test
+    void offer_KeepsHeavyHittersAmongManyLightKeys() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(50);
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            sketch.offer(1000 + random.nextInt(5000), 100);
+            if (i % 10 == 0) {
+                sketch.offer(1L, 1000);
+                sketch.offer(2L, 500);
+            }
+        }
+
+        List<SpaceSavingSketch.Estimate> top = sketch.top(2);
+
+        assertEquals(1L, top.get(0).key());
+        assertEquals(2L, top.get(1).key());
+        // True totals are 2,000,000 and 1,000,000; estimates never undercount
+        assertTrue(top.get(0).total() >= 2_000_000);
+        assertTrue(top.get(0).total() - top.get(0).overestimate() <= 2_000_000);
+        assertEquals(50, sketch.size());
+    }
+
+    @Test
+    void mergeFrom_AddsTotalsAcrossSketches() {
+        SpaceSavingSketch monday = new SpaceSavingSketch(10);
+        monday.offer(1L, 100);
+        monday.offer(2L, 400);
+        SpaceSavingSketch tuesday = new SpaceSavingSketch(10);
+        tuesday.offer(1L, 350);
+
+        SpaceSavingSketch merged = new SpaceSavingSketch(10);
+        merged.mergeFrom(monday);
+        merged.mergeFrom(tuesday);
+
+        assertEquals(new SpaceSavingSketch.Estimate(1L, 450, 0), merged.top(1).get(0));
+    }
+}
@@ -0,0 +1,79 @@
+package com.rewardplus.loyalty.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TDigestTest {
+
+    @Test
+    void quantile_TracksSkewedAmountsClosely() {
+        Random random = new Random(7);
+        double[] amounts = new double[200_000];
+        TDigest digest = new TDigest();
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = Math.exp(3 + random.nextGaussian());
+            digest.add(amounts[i]);
+        }
+        Arrays.sort(amounts);
+
+        for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+            double exact = amounts[(int) (quantile * amounts.length)];
+            assertEquals(exact, digest.quantile(quantile), exact * 0.02, "p" + quantile);
+        }
+        assertEquals(amounts[0], digest.min());
+        assertEquals(amounts[amounts.length - 1], digest.max());
+    }
+
+    @Test
+    void merge_CombinesDigestsAcrossDays() {
+        TDigest monday = new TDigest();
+        TDigest tuesday = new TDigest();
+        for (int i = 1; i <= 10_000; i++) {
+            monday.add(i);
+            tuesday.add(10_000 + i);
+        }
+
+        TDigest week = new TDigest();
+        week.merge(monday);
+        week.merge(tuesday);
+
+        assertEquals(20_000, week.count());
+        assertEquals(10_000, week.quantile(0.5), 100);
+        assertEquals(19_800, week.quantile(0.99), 40);
+        assertEquals(1, week.min());
+        assertEquals(20_000, week.max());
+    }
+
+    @Test
+    void toBytes_RoundTripsCentroids() {
+        TDigest digest = new TDigest();
+        for (int i = 0; i < 50_000; i++) {
+            digest.add(i % 997);
+        }
+
+        byte[] bytes = digest.toBytes();
+        TDigest restored = TDigest.fromBytes(bytes);
+
+        assertTrue(bytes.length < 8192);
+        assertEquals(digest.count(), restored.count());
+        assertEquals(digest.quantile(0.9), restored.quantile(0.9), 1e-9);
+        assertEquals(0, TDigest.fromBytes(new TDigest().toBytes()).count());
+    }
+
+    @Test
+    void quantile_HandlesEmptyAndTinyDigests() {
+        TDigest digest = new TDigest();
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+
+        digest.add(5);
+        digest.add(7);
+
+        assertEquals(5, digest.quantile(0));
+        assertEquals(7, digest.quantile(1));
+        assertEquals(6, digest.quantile(0.5), 1e-9);
+    }
+}
@@ -0,0 +1,97 @@
+package com.rewardplus.loyalty.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void get_ReturnsStoredValueAndCountsHitsAndMisses() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, TimeUnit.MINUTES.toNanos(1), now::get);
+
+        assertNull(cache.get("a"));
+        cache.put("a", "apple");
+
+        assertEquals("apple", cache.get("a"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0.5, cache.hitRatio());
+    }
+
+    @Test
+    void get_DropsEntriesOlderThanTheTtl() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, TimeUnit.SECONDS.toNanos(30), now::get);
+        cache.put("a", "apple");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(29));
+        assertEquals("apple", cache.get("a"));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.expirationCount());
+    }
+
+    @Test
+    void put_StaysWithinMaximumSize() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(1000, TimeUnit.MINUTES.toNanos(1), now::get);
+        for (int i = 0; i < 50_000; i++) {
+            cache.put(i, i);
+        }
+
+        assertTrue(cache.size() <= 1000, "size " + cache.size());
+        assertEquals(50_000 - cache.size(), cache.evictionCount());
+
+        TinyLfuCache<Integer, Integer> single = new TinyLfuCache<>(1, TimeUnit.MINUTES.toNanos(1), now::get);
+        single.put(1, 1);
+        single.put(2, 2);
+        assertEquals(1, single.size());
+    }
+
+    @Test
+    void put_KeepsFrequentlyReadEntriesThroughAScan() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(1000, TimeUnit.MINUTES.toNanos(1), now::get);
+        for (int round = 0; round < 5; round++) {
+            for (int hot = 0; hot < 500; hot++) {
+                if (cache.get(hot) == null) {
+                    cache.put(hot, hot);
+                }
+            }
+        }
+
+        // A one-off export touching far more customers than the cache holds
+        for (int cold = 10_000; cold < 60_000; cold++) {
+            if (cache.get(cold) == null) {
+                cache.put(cold, cold);
+            }
+        }
+
+        int retained = 0;
+        for (int hot = 0; hot < 500; hot++) {
+            if (cache.get(hot) != null) {
+                retained++;
+            }
+        }
+        assertTrue(retained >= 450, "retained " + retained);
+    }
+
+    @Test
+    void remove_WithValueOnlyRemovesThatValue() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, TimeUnit.MINUTES.toNanos(1), now::get);
+        String stale = new String("v1");
+        cache.put("a", stale);
+        cache.put("a", "v2");
+
+        cache.remove("a", stale);
+        assertEquals("v2", cache.get("a"));
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+    }
+}
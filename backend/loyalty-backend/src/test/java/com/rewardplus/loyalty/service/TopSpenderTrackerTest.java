@@ -0,0 +1,150 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.TopSpenderDTO;
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import com.rewardplus.loyalty.repository.projection.CustomerSpend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TopSpenderTrackerTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private TopSpenderTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new TopSpenderTracker(customerRepository, transactionRepository, 100, 10, 30);
+    }
+
+    @Test
+    void publish_RanksRecordedSpendWithNamesFromOneQuery() {
+        seedEmpty();
+        when(customerRepository.findAllById(any())).thenReturn(List.of(customer(1L, "Ana"), customer(2L, "Ben")));
+
+        tracker.record(List.of(
+            transaction(1L, "40.00", LocalDateTime.now()),
+            transaction(2L, "75.50", LocalDateTime.now()),
+            transaction(1L, "50.00", LocalDateTime.now().minusDays(90))));
+        tracker.publish();
+
+        List<TopSpenderDTO> allTime = tracker.getTopSpenders(TopSpenderTracker.Window.ALL_TIME, 10);
+        assertEquals(1L, allTime.get(0).getCustomerId());
+        assertEquals("Ana Test", allTime.get(0).getCustomerName());
+        assertEquals(new BigDecimal("90.00"), allTime.get(0).getTotalSpent());
+
+        // The 90-day-old purchase is outside the rolling window
+        List<TopSpenderDTO> rolling = tracker.getTopSpenders(TopSpenderTracker.Window.ROLLING, 10);
+        assertEquals(2L, rolling.get(0).getCustomerId());
+        assertEquals(new BigDecimal("40.00"), rolling.get(1).getTotalSpent());
+        verify(customerRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void publish_ServesEmptyRankingsUntilSeeded() {
+        tracker.record(List.of(transaction(1L, "10.00", LocalDateTime.now())));
+        tracker.publish();
+
+        assertTrue(tracker.getTopSpenders(TopSpenderTracker.Window.ALL_TIME, 5).isEmpty());
+        verifyNoInteractions(customerRepository);
+    }
+
+    @Test
+    void getTopSpenders_ReadsPublishedRankingOnly() {
+        tracker.record(List.of(transaction(1L, "10.00", LocalDateTime.now())));
+
+        assertTrue(tracker.getTopSpenders(TopSpenderTracker.Window.ALL_TIME, 5).isEmpty());
+        verifyNoInteractions(customerRepository, transactionRepository);
+    }
+
+    @Test
+    void seed_ReplacesSketchesFromDatabase() {
+        tracker.record(List.of(transaction(9L, "999.00", LocalDateTime.now())));
+        CustomerSpend allTimeSpend = spend(1L, "500.00");
+        CustomerSpend todaySpend = spend(1L, "20.00");
+        when(transactionRepository.findTopSpendersBefore(any(), any())).thenReturn(List.of(allTimeSpend));
+        when(transactionRepository.findTopSpendersBetween(any(), any(), any())).thenReturn(List.of());
+        when(transactionRepository.findTopSpendersBetween(eq(LocalDate.now().atStartOfDay()), any(), any()))
+            .thenReturn(List.of(todaySpend));
+        when(customerRepository.findAllById(any())).thenReturn(List.of(customer(1L, "Ana")));
+
+        tracker.seed();
+
+        List<TopSpenderDTO> allTime = tracker.getTopSpenders(TopSpenderTracker.Window.ALL_TIME, 10);
+        assertEquals(1, allTime.size());
+        assertEquals(new BigDecimal("500.00"), allTime.get(0).getTotalSpent());
+        assertEquals(new BigDecimal("20.00"),
+            tracker.getTopSpenders(TopSpenderTracker.Window.ROLLING, 10).get(0).getTotalSpent());
+        verify(transactionRepository, times(30)).findTopSpendersBetween(any(), any(), any());
+    }
+
+    @Test
+    void seed_ReplaysTransactionsCommittedWhileItRuns() {
+        when(transactionRepository.findTopSpendersBefore(any(), any())).thenAnswer(invocation -> {
+            // Committed after the seed started, so not in what it reads
+            tracker.record(List.of(transaction(2L, "30.00", LocalDateTime.now())));
+            return List.of(spend(1L, "500.00"));
+        });
+        when(transactionRepository.findTopSpendersBetween(any(), any(), any())).thenReturn(List.of());
+        when(customerRepository.findAllById(any())).thenReturn(List.of(customer(1L, "Ana"), customer(2L, "Ben")));
+
+        tracker.seed();
+
+        List<TopSpenderDTO> allTime = tracker.getTopSpenders(TopSpenderTracker.Window.ALL_TIME, 10);
+        assertEquals(2, allTime.size());
+        assertEquals(2L, allTime.get(1).getCustomerId());
+        assertEquals(new BigDecimal("30.00"), allTime.get(1).getTotalSpent());
+        assertEquals(2L, tracker.getTopSpenders(TopSpenderTracker.Window.ROLLING, 10).get(0).getCustomerId());
+    }
+
+    private void seedEmpty() {
+        when(transactionRepository.findTopSpendersBefore(any(), any())).thenReturn(List.of());
+        when(transactionRepository.findTopSpendersBetween(any(), any(), any())).thenReturn(List.of());
+        tracker.seed();
+        clearInvocations(customerRepository);
+    }
+
+    private static Customer customer(Long id, String firstName) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setFirstName(firstName);
+        customer.setLastName("Test");
+        return customer;
+    }
+
+    private static Transaction transaction(Long customerId, String amount, LocalDateTime date) {
+        Transaction transaction = new Transaction();
+        transaction.setCustomer(customer(customerId, "C" + customerId));
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTransactionDate(date);
+        return transaction;
+    }
+
+    private static CustomerSpend spend(Long customerId, String total) {
+        CustomerSpend spend = mock(CustomerSpend.class);
+        when(spend.getCustomerId()).thenReturn(customerId);
+        when(spend.getTotalSpent()).thenReturn(new BigDecimal(total));
+        return spend;
+    }
+}
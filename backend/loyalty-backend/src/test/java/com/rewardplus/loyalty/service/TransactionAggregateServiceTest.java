@@ -0,0 +1,144 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Customer;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+import com.rewardplus.loyalty.entity.TransactionAggregate;
+import com.rewardplus.loyalty.repository.TransactionAggregateRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionAggregateServiceTest {
+
+    @Mock
+    private TransactionAggregateRepository aggregateRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionAggregateService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionAggregateService(aggregateRepository, transactionRepository, transactionManager, 16);
+    }
+
+    @Test
+    void record_GroupsTransactionsPerAggregateRow() {
+        when(aggregateRepository.increment(anyInt(), any(), any(), anyLong(), any(), any())).thenReturn(1);
+
+        service.record(List.of(
+            transaction(7L, "10.00"),
+            transaction(7L, "15.50"),
+            transaction(7L, "4.50")));
+
+        int stripe = service.stripeOf(7L);
+        verify(aggregateRepository, times(1)).increment(eq(stripe), eq(TransactionType.PURCHASE),
+            eq(TransactionStatus.COMPLETED), eq(3L), eq(new BigDecimal("30.00")), any());
+        verify(aggregateRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void record_ThrowsWhenRowIsMissingInsteadOfCreatingIt() {
+        when(aggregateRepository.increment(anyInt(), any(), any(), anyLong(), any(), any())).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> service.record(List.of(transaction(3L, "20.00"))));
+
+        verify(aggregateRepository, never()).saveAndFlush(any(TransactionAggregate.class));
+    }
+
+    @Test
+    void ensureRows_CreatesOnlyMissingRows() {
+        TransactionAggregate existing = TransactionAggregate.builder()
+            .stripe(0)
+            .transactionType(TransactionType.PURCHASE)
+            .status(TransactionStatus.COMPLETED)
+            .build();
+        when(aggregateRepository.findAll()).thenReturn(List.of(existing));
+
+        int created = service.ensureRows();
+
+        int expected = 16 * TransactionType.values().length * TransactionStatus.values().length - 1;
+        assertEquals(expected, created);
+        verify(aggregateRepository, times(expected)).saveAndFlush(any(TransactionAggregate.class));
+    }
+
+    @Test
+    void rebuild_CorrectsDriftOnStripeZero() {
+        when(aggregateRepository.acquireNamedLock(anyString(), anyInt())).thenReturn(1);
+        when(aggregateRepository.sumByTypeAndStatus()).thenReturn(List.<Object[]>of(
+            new Object[]{TransactionType.PURCHASE, TransactionStatus.COMPLETED, 10L, new BigDecimal("100.00")},
+            new Object[]{TransactionType.RETURN, TransactionStatus.COMPLETED, 1L, new BigDecimal("5.00")}));
+        when(transactionRepository.summarizeByTypeAndStatus()).thenReturn(List.<Object[]>of(
+            new Object[]{TransactionType.PURCHASE, TransactionStatus.COMPLETED, 12L, new BigDecimal("130.00")},
+            new Object[]{TransactionType.RETURN, TransactionStatus.COMPLETED, 1L, new BigDecimal("5.00")}));
+        when(aggregateRepository.increment(anyInt(), any(), any(), anyLong(), any(), any())).thenReturn(1);
+
+        assertTrue(service.rebuild());
+
+        verify(aggregateRepository, times(1)).increment(eq(0), eq(TransactionType.PURCHASE),
+            eq(TransactionStatus.COMPLETED), eq(2L), eq(new BigDecimal("30.00")), any());
+        verify(aggregateRepository, times(1)).increment(anyInt(), any(), any(), anyLong(), any(), any());
+        verify(aggregateRepository).releaseNamedLock(anyString());
+    }
+
+    @Test
+    void rebuild_SkippedWhileAnotherInstanceRebuilds() {
+        when(aggregateRepository.acquireNamedLock(anyString(), anyInt())).thenReturn(0);
+
+        assertFalse(service.rebuild());
+
+        verify(transactionRepository, never()).summarizeByTypeAndStatus();
+        verify(aggregateRepository, never()).releaseNamedLock(anyString());
+    }
+
+    @Test
+    void getTotals_SumsStripesPerStatus() {
+        when(aggregateRepository.sumByTypeAndStatus()).thenReturn(List.<Object[]>of(
+            new Object[]{TransactionType.PURCHASE, TransactionStatus.COMPLETED, 8L, new BigDecimal("80.00")},
+            new Object[]{TransactionType.PURCHASE, TransactionStatus.REFUNDED, 2L, new BigDecimal("20.00")},
+            new Object[]{TransactionType.RETURN, TransactionStatus.COMPLETED, 1L, new BigDecimal("-5.00")}));
+
+        TransactionTotals totals = service.getTotals();
+
+        assertEquals(11L, totals.getCount());
+        assertEquals(9L, totals.getCount(TransactionStatus.COMPLETED));
+        assertEquals(new BigDecimal("95.00"), totals.getNetAmount());
+        assertEquals(new BigDecimal("75.00"), totals.getNetAmount(TransactionStatus.COMPLETED));
+        assertEquals(10L, totals.getCountByType().get("PURCHASE"));
+        assertEquals(0L, totals.getCountByType().get("EXCHANGE"));
+        assertEquals(2L, totals.getCountByStatus().get("REFUNDED"));
+    }
+
+    private static Transaction transaction(Long customerId, String netAmount) {
+        Customer customer = new Customer();
+        customer.setId(customerId);
+        Transaction transaction = new Transaction();
+        transaction.setCustomer(customer);
+        transaction.setTransactionType(TransactionType.PURCHASE);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setNetAmount(new BigDecimal(netAmount));
+        return transaction;
+    }
+}
@@ -0,0 +1,210 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.dto.AmountPercentilesDTO;
+import com.rewardplus.loyalty.entity.Transaction;
+import com.rewardplus.loyalty.entity.TransactionAmountDigest;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.repository.TransactionAmountDigestRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionAmountDigestServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 2);
+
+    @Mock
+    private TransactionAmountDigestRepository digestRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionAmountDigestService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionAmountDigestService(digestRepository, transactionRepository, transactionManager, 366);
+    }
+
+    @Test
+    void flush_MergesCompletedPurchasesIntoExistingRow() {
+        TransactionAmountDigest row = TransactionAmountDigest.builder()
+            .bucketDate(DAY).storeCode("S001").productCategory("Grocery").digest(digestOf(10.0)).build();
+        when(digestRepository.existsByBucketDateAndStoreCodeAndProductCategory(DAY, "S001", "Grocery")).thenReturn(true);
+        when(digestRepository.findForUpdate(DAY, "S001", "Grocery")).thenReturn(Optional.of(row));
+
+        Transaction refund = purchase("S001", "Grocery", "99.00");
+        refund.setTransactionType(Transaction.TransactionType.RETURN);
+        service.recordTransactions(List.of(purchase("S001", "Grocery", "20.00"), purchase("S001", "Grocery", "30.00"),
+            refund));
+        service.flush();
+
+        TDigest stored = TDigest.fromBytes(row.getDigest());
+        assertEquals(3, stored.count());
+        assertEquals(30.0, stored.max());
+        verify(digestRepository, times(1)).findForUpdate(any(), any(), any());
+        verify(digestRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void flush_CreatesNewRowBeforeTheLockingTransaction() {
+        TransactionAmountDigest row = TransactionAmountDigest.builder()
+            .bucketDate(DAY).storeCode("S001").productCategory("Grocery").digest(new TDigest().toBytes()).build();
+        when(digestRepository.findForUpdate(DAY, "S001", "Grocery")).thenReturn(Optional.of(row));
+
+        service.recordTransactions(List.of(purchase("S001", "Grocery", "20.00")));
+        service.flush();
+
+        // Created and committed, and only then locked by the merge transaction
+        InOrder order = inOrder(digestRepository, transactionManager);
+        order.verify(digestRepository).saveAndFlush(any(TransactionAmountDigest.class));
+        order.verify(transactionManager).commit(any());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(digestRepository).findForUpdate(DAY, "S001", "Grocery");
+    }
+
+    @Test
+    void flush_RequeuesDigestsWhenMergeFails() {
+        when(digestRepository.findForUpdate(any(), any(), any()))
+            .thenThrow(new QueryTimeoutException("lock wait timeout"));
+        service.recordTransactions(List.of(purchase("S001", "Grocery", "20.00")));
+        service.flush();
+
+        TransactionAmountDigest row = TransactionAmountDigest.builder()
+            .bucketDate(DAY).storeCode("S001").productCategory("Grocery").digest(new TDigest().toBytes()).build();
+        reset(digestRepository);
+        when(digestRepository.findForUpdate(DAY, "S001", "Grocery")).thenReturn(Optional.of(row));
+        service.flush();
+
+        assertEquals(1, TDigest.fromBytes(row.getDigest()).count());
+    }
+
+    @Test
+    void query_MergesDigestsPerStore() {
+        when(digestRepository.findDigests(eq(DAY), eq(DAY.plusDays(6)), isNull(), isNull())).thenReturn(List.of(
+            row(DAY, "S001", 10, 20, 30),
+            row(DAY.plusDays(1), "S001", 40),
+            row(DAY, "S002", 100)));
+
+        AmountPercentilesDTO result = service.query(DAY, DAY.plusDays(6), null, " ",
+            TransactionAmountDigestService.GroupBy.STORE, List.of(0.5, 0.999));
+
+        assertEquals(5, result.getOverall().getCount());
+        assertEquals(new BigDecimal("100.00"), result.getOverall().getMax());
+        assertEquals(List.of("p50", "p99.9"), new ArrayList<>(result.getOverall().getPercentiles().keySet()));
+        assertEquals(2, result.getGroups().size());
+        assertEquals("S001", result.getGroups().get(0).getKey());
+        assertEquals(4, result.getGroups().get(0).getCount());
+        assertEquals(new BigDecimal("10.00"), result.getGroups().get(0).getMin());
+    }
+
+    @Test
+    void query_RejectsInvalidRangesAndQuantiles() {
+        assertThrows(BadRequestException.class, () -> service.query(DAY, DAY.minusDays(1), null, null, null, null));
+        assertThrows(BadRequestException.class, () -> service.query(DAY, DAY.plusDays(400), null, null, null, null));
+        assertThrows(BadRequestException.class, () -> service.query(DAY, DAY, null, null, null, List.of(1.5)));
+    }
+
+    @Test
+    void rebuildDay_ReplacesDigestsFromSource() {
+        when(digestRepository.acquireNamedLock(anyString(), anyInt())).thenReturn(1);
+        when(transactionRepository.findPurchaseAmountsBetween(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()))
+            .thenReturn(List.of(
+                new Object[]{"S001", "Grocery", new BigDecimal("12.50")},
+                new Object[]{"S001", "Grocery", new BigDecimal("7.50")},
+                new Object[]{null, null, new BigDecimal("3.00")}));
+
+        assertEquals(2, service.rebuildDay(DAY));
+
+        verify(digestRepository).deleteByBucketDate(DAY);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TransactionAmountDigest>> saved = ArgumentCaptor.forClass(List.class);
+        verify(digestRepository).saveAll(saved.capture());
+        assertEquals("", saved.getValue().get(0).getStoreCode());
+        assertEquals(2, TDigest.fromBytes(saved.getValue().get(1).getDigest()).count());
+        verify(digestRepository).releaseNamedLock(anyString());
+    }
+
+    @Test
+    void rebuildDay_SkippedWhileAnotherInstanceRebuilds() {
+        when(digestRepository.acquireNamedLock(anyString(), anyInt())).thenReturn(0);
+
+        assertEquals(-1, service.rebuildDay(DAY));
+
+        verify(transactionRepository, never()).findPurchaseAmountsBetween(any(), any());
+        verify(digestRepository, never()).deleteByBucketDate(any());
+        verify(digestRepository, never()).releaseNamedLock(anyString());
+    }
+
+    @Test
+    void rebuildYesterday_FlushesBufferedDigestsFirst() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        TransactionAmountDigest row = TransactionAmountDigest.builder()
+            .bucketDate(yesterday).storeCode("S001").productCategory("Grocery").digest(new TDigest().toBytes()).build();
+        when(digestRepository.existsByBucketDateAndStoreCodeAndProductCategory(yesterday, "S001", "Grocery"))
+            .thenReturn(true);
+        when(digestRepository.findForUpdate(yesterday, "S001", "Grocery")).thenReturn(Optional.of(row));
+        when(digestRepository.acquireNamedLock(anyString(), anyInt())).thenReturn(1);
+        when(transactionRepository.findPurchaseAmountsBetween(any(), any())).thenReturn(List.of());
+
+        Transaction late = purchase("S001", "Grocery", "20.00");
+        late.setTransactionDate(yesterday.atTime(23, 59));
+        service.recordTransactions(List.of(late));
+        service.rebuildYesterday();
+
+        InOrder order = inOrder(digestRepository);
+        order.verify(digestRepository).findForUpdate(yesterday, "S001", "Grocery");
+        order.verify(digestRepository).deleteByBucketDate(yesterday);
+        order.verify(digestRepository).releaseNamedLock(anyString());
+        assertEquals(1, TDigest.fromBytes(row.getDigest()).count());
+    }
+
+    private static Transaction purchase(String storeCode, String category, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionType(Transaction.TransactionType.PURCHASE);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setStoreCode(storeCode);
+        transaction.setProductCategory(category);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTransactionDate(DAY.atTime(12, 0));
+        return transaction;
+    }
+
+    private static TransactionAmountDigest row(LocalDate day, String storeCode, double... amounts) {
+        return TransactionAmountDigest.builder()
+            .bucketDate(day).storeCode(storeCode).productCategory("Grocery").digest(digestOf(amounts)).build();
+    }
+
+    private static byte[] digestOf(double... amounts) {
+        TDigest digest = new TDigest();
+        for (double amount : amounts) {
+            digest.add(amount);
+        }
+        return digest.toBytes();
+    }
+}
@@ -0,0 +1,150 @@
+package com.rewardplus.loyalty.service;
+
+import com.rewardplus.loyalty.entity.Transaction.TransactionStatus;
+import com.rewardplus.loyalty.entity.Transaction.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionColumnsTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 3, 2, 12, 0);
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void scan_GroupsByDictionaryColumn() {
+        TransactionColumns columns = new TransactionColumns(16);
+        add(columns, 1, "10.00", NOON, "S001", "GROCERY");
+        add(columns, 2, "25.50", NOON, "S002", "GROCERY");
+        add(columns, 3, "5.00", NOON, "S001", null);
+        columns.publish();
+
+        TransactionColumns.Result result = columns.scan(TransactionScanQuery.builder()
+            .groupBy(TransactionScanQuery.Dimension.STORE)
+            .build(), pool);
+
+        assertEquals(3, result.matchedRows());
+        assertEquals(List.of(
+            new TransactionColumns.GroupTotals("S002", 1, 2550, 2550),
+            new TransactionColumns.GroupTotals("S001", 2, 1500, 1500)), result.groups());
+    }
+
+    @Test
+    void scan_AppliesEveryFilter() {
+        TransactionColumns columns = new TransactionColumns(16);
+        add(columns, 1, "10.00", NOON, "S001", "GROCERY");
+        add(columns, 2, "80.00", NOON, "S001", "GROCERY");
+        add(columns, 3, "15.00", NOON.minusDays(10), "S001", "GROCERY");
+        add(columns, 4, "20.00", NOON, "S002", "GROCERY");
+        add(columns, 5, "30.00", NOON, "S001", "TOYS");
+        columns.publish();
+
+        TransactionColumns.Result result = columns.scan(TransactionScanQuery.builder()
+            .from(NOON.minusDays(1))
+            .to(NOON.plusDays(1))
+            .storeCodes(Set.of("S001", "UNKNOWN"))
+            .productCategories(Set.of("GROCERY"))
+            .maxAmount(new BigDecimal("50.00"))
+            .types(Set.of(TransactionType.PURCHASE))
+            .build(), pool);
+
+        assertEquals(1, result.matchedRows());
+        assertEquals(1000, result.groups().get(0).amountCents());
+    }
+
+    @Test
+    void scan_GroupsByAmountRangeAndDayInOrder() {
+        TransactionColumns columns = new TransactionColumns(16);
+        add(columns, 1, "5.00", NOON, "S001", null);
+        add(columns, 2, "12.00", NOON.plusDays(1), "S001", null);
+        add(columns, 3, "19.99", NOON.plusDays(1), "S001", null);
+        columns.publish();
+
+        List<TransactionColumns.GroupTotals> ranges = columns.scan(TransactionScanQuery.builder()
+            .groupBy(TransactionScanQuery.Dimension.AMOUNT_RANGE)
+            .amountBucket(new BigDecimal("10.00"))
+            .build(), pool).groups();
+        assertEquals("0.00-10.00", ranges.get(0).key());
+        assertEquals("10.00-20.00", ranges.get(1).key());
+        assertEquals(2, ranges.get(1).count());
+
+        List<TransactionColumns.GroupTotals> days = columns.scan(TransactionScanQuery.builder()
+            .groupBy(TransactionScanQuery.Dimension.DAY)
+            .build(), pool).groups();
+        assertEquals("2026-03-02", days.get(0).key());
+        assertEquals("2026-03-03", days.get(1).key());
+    }
+
+    @Test
+    void upsert_OverwritesKnownIdAndHidesNewRowsUntilPublished() {
+        TransactionColumns columns = new TransactionColumns(16);
+        add(columns, 1, "10.00", NOON, "S001", null);
+        columns.publish();
+
+        columns.upsert(1, 7, new BigDecimal("10.00"), new BigDecimal("10.00"), NOON, TransactionType.PURCHASE,
+            TransactionStatus.CANCELLED, "S001", null, null, null);
+        add(columns, 2, "99.00", NOON, "S001", null);
+
+        TransactionColumns.Result result = columns.scan(TransactionScanQuery.builder()
+            .groupBy(TransactionScanQuery.Dimension.STATUS)
+            .build(), pool);
+        assertEquals(1, result.rowsScanned());
+        assertEquals("CANCELLED", result.groups().get(0).key());
+
+        columns.publish();
+        assertEquals(2, columns.size());
+    }
+
+    @Test
+    void scan_ParallelMatchesSequentialAcrossManyRows() {
+        TransactionColumns columns = new TransactionColumns(16);
+        Random random = new Random(3);
+        long expectedCents = 0;
+        for (int i = 0; i < 200_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(100 + random.nextInt(10_000), 2);
+            String store = "S" + random.nextInt(20);
+            add(columns, i, amount.toPlainString(), NOON.minusHours(random.nextInt(1000)), store, null);
+            if (store.equals("S7")) {
+                expectedCents += amount.unscaledValue().longValue();
+            }
+        }
+        columns.publish();
+        TransactionScanQuery query = TransactionScanQuery.builder()
+            .groupBy(TransactionScanQuery.Dimension.STORE)
+            .build();
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            TransactionColumns.Result parallel = columns.scan(query, pool);
+            assertEquals(columns.scan(query, single), parallel);
+            long store7 = parallel.groups().stream()
+                .filter(group -> group.key().equals("S7"))
+                .findFirst()
+                .orElseThrow()
+                .amountCents();
+            assertEquals(expectedCents, store7);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    private static void add(TransactionColumns columns, long id, String amount, LocalDateTime date,
+                            String storeCode, String category) {
+        columns.upsert(id, id % 10, new BigDecimal(amount), new BigDecimal(amount), date, TransactionType.PURCHASE,
+            TransactionStatus.COMPLETED, storeCode, "C1", category, "CARD");
+    }
+}
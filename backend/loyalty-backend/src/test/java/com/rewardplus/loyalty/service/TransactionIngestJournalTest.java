@@ -0,0 +1,87 @@
+package com.rewardplus.loyalty.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewardplus.loyalty.dto.TransactionDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionIngestJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_ReplaysAcceptedButNotCompletedTransactions() throws Exception {
+        try (TransactionIngestJournal journal = TransactionIngestJournal.open(directory, objectMapper, 1024)) {
+            journal.appendAccepted(transaction("TXN-1"));
+            journal.appendAccepted(transaction("TXN-2"));
+            journal.appendAccepted(transaction("TXN-3"));
+            journal.appendCompleted(List.of("TXN-2"));
+            assertEquals(2, journal.getPending());
+        }
+
+        try (TransactionIngestJournal reopened = TransactionIngestJournal.open(directory, objectMapper, 1024)) {
+            List<TransactionDTO> recovered = reopened.getRecovered();
+            assertEquals(List.of("TXN-1", "TXN-3"),
+                recovered.stream().map(TransactionDTO::getTransactionCode).toList());
+            assertEquals(new BigDecimal("42.50"), recovered.get(0).getAmount());
+            assertEquals(7L, recovered.get(0).getCustomerId());
+            assertNotNull(recovered.get(0).getTransactionDate());
+            assertEquals(2, reopened.getPending());
+        }
+
+        // Replay rewrites the file down to the pending entries
+        assertEquals(2, Files.readAllLines(directory.resolve(TransactionIngestJournal.FILE_NAME)).size());
+    }
+
+    @Test
+    void open_SkipsTornFinalLine() throws Exception {
+        try (TransactionIngestJournal journal = TransactionIngestJournal.open(directory, objectMapper, 1024)) {
+            journal.appendAccepted(transaction("TXN-1"));
+        }
+        Files.writeString(directory.resolve(TransactionIngestJournal.FILE_NAME),
+            "{\"type\":\"ACCEPTED\",\"code\":\"TXN-2\",\"transac", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (TransactionIngestJournal reopened = TransactionIngestJournal.open(directory, objectMapper, 1024)) {
+            assertEquals(1, reopened.getRecovered().size());
+            assertEquals("TXN-1", reopened.getRecovered().get(0).getTransactionCode());
+        }
+    }
+
+    @Test
+    void appendCompleted_TruncatesOnceNothingIsPendingPastThreshold() throws Exception {
+        Path file = directory.resolve(TransactionIngestJournal.FILE_NAME);
+        try (TransactionIngestJournal journal = TransactionIngestJournal.open(directory, objectMapper, 256)) {
+            for (int i = 0; i < 5; i++) {
+                journal.appendAccepted(transaction("TXN-" + i));
+            }
+            journal.appendCompleted(List.of("TXN-0", "TXN-1", "TXN-2", "TXN-3"));
+            assertTrue(Files.size(file) > 256, "one transaction still pending, so no compaction yet");
+
+            journal.appendCompleted(List.of("TXN-4"));
+            assertEquals(0, Files.size(file));
+            assertEquals(0, journal.getPending());
+        }
+    }
+
+    private TransactionDTO transaction(String code) {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setTransactionCode(code);
+        dto.setCustomerId(7L);
+        dto.setAmount(new BigDecimal("42.50"));
+        dto.setTransactionDate(LocalDateTime.of(2026, 3, 14, 10, 30));
+        return dto;
+    }
+}
@@ -0,0 +1,213 @@
+package com.rewardplus.loyalty.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewardplus.loyalty.dto.TransactionBatchResultDTO;
+import com.rewardplus.loyalty.dto.TransactionDTO;
+import com.rewardplus.loyalty.dto.TransactionIngestStatusDTO;
+import com.rewardplus.loyalty.exception.BadRequestException;
+import com.rewardplus.loyalty.exception.DuplicateResourceException;
+import com.rewardplus.loyalty.exception.ServiceBusyException;
+import com.rewardplus.loyalty.repository.CustomerRepository;
+import com.rewardplus.loyalty.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionIngestServiceTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private TransactionIngestService ingestService;
+
+    @TempDir
+    Path journalDir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ingestService, "enabled", true);
+        ReflectionTestUtils.setField(ingestService, "queueCapacity", 2);
+        ReflectionTestUtils.setField(ingestService, "workerCount", 1);
+        ReflectionTestUtils.setField(ingestService, "maxBatchSize", 50);
+        ReflectionTestUtils.setField(ingestService, "maxAttempts", 1);
+        ReflectionTestUtils.setField(ingestService, "journalDir", journalDir.toString());
+        ReflectionTestUtils.setField(ingestService, "allowEphemeralJournal", true);
+        ReflectionTestUtils.setField(ingestService, "journalCompactBytes", 1024L);
+        ReflectionTestUtils.setField(ingestService, "retryAfterSeconds", 2L);
+
+        lenient().when(customerRepository.existsById(anyLong())).thenReturn(true);
+        lenient().when(transactionRepository.existsByTransactionCode(anyString())).thenReturn(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestService.stop();
+    }
+
+    @Test
+    void enqueue_RecordsThroughBatchPathAndReportsOutcome() throws Exception {
+        CountDownLatch processed = new CountDownLatch(1);
+        when(transactionService.recordTransactionsBatch(anyList())).thenAnswer(invocation -> {
+            List<TransactionDTO> rows = invocation.getArgument(0);
+            List<TransactionBatchResultDTO.RowResult> results = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                results.add(TransactionBatchResultDTO.RowResult.builder()
+                    .index(i).success(true).transactionId(100L + i).pointsEarned(250L).build());
+            }
+            processed.countDown();
+            return TransactionBatchResultDTO.builder().results(results).build();
+        });
+        ingestService.start();
+
+        TransactionIngestStatusDTO accepted = ingestService.enqueue(1L, transaction("TXN-A1"));
+        assertEquals(TransactionIngestStatusDTO.State.QUEUED, accepted.getState());
+
+        assertTrue(processed.await(5, TimeUnit.SECONDS));
+        TransactionIngestStatusDTO status = awaitFinished("TXN-A1");
+        assertEquals(TransactionIngestStatusDTO.State.COMPLETED, status.getState());
+        assertEquals(100L, status.getTransactionId());
+        assertEquals(250L, status.getPointsEarned());
+    }
+
+    @Test
+    void enqueue_RefusesWhenQueueIsFull() {
+        // Workers are not started, so nothing drains the queue
+        ingestService.recover();
+
+        ingestService.enqueue(1L, transaction("TXN-F1"));
+        ingestService.enqueue(1L, transaction("TXN-F2"));
+
+        ServiceBusyException busy = assertThrows(ServiceBusyException.class,
+            () -> ingestService.enqueue(1L, transaction("TXN-F3")));
+        assertEquals(2L, busy.getRetryAfterSeconds());
+        assertEquals(2, ingestService.getQueueDepth());
+    }
+
+    @Test
+    void enqueue_RejectsCodeAlreadyInFlight() {
+        ingestService.recover();
+
+        ingestService.enqueue(1L, transaction("TXN-D1"));
+
+        assertThrows(DuplicateResourceException.class, () -> ingestService.enqueue(1L, transaction("TXN-D1")));
+    }
+
+    @Test
+    void ephemeralFileSystem_DetectsJournalOnContainerStorage() {
+        List<String> mounts = List.of(
+            "overlay / overlay rw,relatime 0 0",
+            "tmpfs /tmp tmpfs rw,nosuid 0 0",
+            "/dev/sdb /var/lib/loyalty/ingest ext4 rw,relatime 0 0");
+
+        assertEquals("overlay", TransactionIngestService.ephemeralFileSystem(Path.of("/app/data/ingest"), mounts));
+        assertEquals("tmpfs", TransactionIngestService.ephemeralFileSystem(Path.of("/tmp/ingest"), mounts));
+        assertNull(TransactionIngestService.ephemeralFileSystem(Path.of("/var/lib/loyalty/ingest"), mounts));
+        assertNull(TransactionIngestService.ephemeralFileSystem(Path.of("/var/lib/loyalty/ingest/2024"), mounts));
+    }
+
+    @Test
+    void enqueue_RejectedWhenDisabled() {
+        ReflectionTestUtils.setField(ingestService, "enabled", false);
+        ingestService.start();
+
+        assertFalse(ingestService.isEnabled());
+        assertThrows(BadRequestException.class, () -> ingestService.enqueue(1L, transaction("TXN-X1")));
+    }
+
+    @Test
+    void process_IsolatesFailingRowAfterBatchFails() {
+        ingestService.recover();
+        ingestService.enqueue(1L, transaction("TXN-P1"));
+        ingestService.enqueue(1L, transaction("TXN-P2"));
+
+        when(transactionService.recordTransactionsBatch(anyList())).thenAnswer(invocation -> {
+            List<TransactionDTO> rows = invocation.getArgument(0);
+            if (rows.size() > 1 || rows.get(0).getTransactionCode().equals("TXN-P2")) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return TransactionBatchResultDTO.builder().results(List.of(TransactionBatchResultDTO.RowResult.builder()
+                .index(0).success(true).transactionId(1L).pointsEarned(10L).build())).build();
+        });
+
+        ingestService.process(List.of(transaction("TXN-P1"), transaction("TXN-P2")));
+
+        assertEquals(TransactionIngestStatusDTO.State.COMPLETED, ingestService.getStatus("TXN-P1").getState());
+        TransactionIngestStatusDTO failed = ingestService.getStatus("TXN-P2");
+        assertEquals(TransactionIngestStatusDTO.State.FAILED, failed.getState());
+        assertEquals("INGEST_FAILED", failed.getErrorCode());
+        verify(transactionService, times(3)).recordTransactionsBatch(anyList());
+    }
+
+    @Test
+    void process_RetriesRowsOfBusyCustomers() {
+        ReflectionTestUtils.setField(ingestService, "maxAttempts", 2);
+        ingestService.recover();
+        ingestService.enqueue(1L, transaction("TXN-Q1"));
+        ingestService.enqueue(2L, transaction("TXN-Q2"));
+
+        when(transactionService.recordTransactionsBatch(anyList()))
+            .thenReturn(TransactionBatchResultDTO.builder().results(List.of(
+                TransactionBatchResultDTO.RowResult.builder().index(0).success(true).transactionId(1L).pointsEarned(10L).build(),
+                TransactionBatchResultDTO.RowResult.builder().index(1).success(false).errorCode(TransactionService.CUSTOMER_BUSY).build()))
+                .build())
+            .thenReturn(TransactionBatchResultDTO.builder().results(List.of(
+                TransactionBatchResultDTO.RowResult.builder().index(0).success(true).transactionId(2L).pointsEarned(20L).build()))
+                .build());
+
+        ingestService.process(List.of(transaction("TXN-Q1"), transaction("TXN-Q2")));
+
+        assertEquals(1L, ingestService.getStatus("TXN-Q1").getTransactionId());
+        TransactionIngestStatusDTO retried = ingestService.getStatus("TXN-Q2");
+        assertEquals(TransactionIngestStatusDTO.State.COMPLETED, retried.getState());
+        assertEquals(2L, retried.getTransactionId());
+        verify(transactionService).recordTransactionsBatch(List.of(transaction("TXN-Q2")));
+    }
+
+    private TransactionIngestStatusDTO awaitFinished(String code) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        TransactionIngestStatusDTO status = ingestService.getStatus(code);
+        while (status.getCompletedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = ingestService.getStatus(code);
+        }
+        return status;
+    }
+
+    private TransactionDTO transaction(String code) {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setTransactionCode(code);
+        dto.setAmount(new BigDecimal("25.00"));
+        return dto;
+    }
+}
@@ -1,10 +1,13 @@
 package com.rewardplus.loyalty.service;
 
+import com.rewardplus.loyalty.dto.TransactionBatchResultDTO;
 import com.rewardplus.loyalty.dto.TransactionDTO;
 import com.rewardplus.loyalty.entity.Customer;
 import com.rewardplus.loyalty.entity.LoyaltyPoints;
+import com.rewardplus.loyalty.entity.Promotion;
 import com.rewardplus.loyalty.entity.Transaction;
 import com.rewardplus.loyalty.exception.ResourceNotFoundException;
+import com.rewardplus.loyalty.exception.ServiceBusyException;
 import com.rewardplus.loyalty.repository.TransactionRepository;
 import com.rewardplus.loyalty.repository.LoyaltyPointsRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,15 +15,27 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.modelmapper.ModelMapper;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +53,39 @@ class TransactionServiceTest {
     @Mock
     private LoyaltyPointsService loyaltyPointsService;
 
+    @Mock
+    private PromotionUsageCounter promotionUsageCounter;
+
+    @Mock
+    private ActivePromotionRegistry activePromotionRegistry;
+
+    @Mock
+    private PointsLedgerService pointsLedgerService;
+
+    @Mock
+    private CustomerLockStripes customerLocks;
+
+    @Mock
+    private ActivityRollupService activityRollupService;
+
+    @Mock
+    private TopSpenderTracker topSpenderTracker;
+
+    @Mock
+    private ActiveCustomerService activeCustomerService;
+
+    @Mock
+    private TransactionAmountDigestService transactionAmountDigestService;
+
+    @Mock
+    private TransactionAggregateService transactionAggregateService;
+
+    @Mock
+    private CustomerLookupCache customerLookupCache;
+
+    @Spy
+    private ModelMapper modelMapper = new ModelMapper();
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -76,6 +124,16 @@ class TransactionServiceTest {
         testTransaction.setTransactionDate(LocalDateTime.now());
         testTransaction.setTransactionType(Transaction.TransactionType.PURCHASE);
         testTransaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+
+        ReflectionTestUtils.setField(transactionService, "pointsEarnRate", 10);
+        ReflectionTestUtils.setField(transactionService, "maxBatchSize", 10000);
+        ReflectionTestUtils.setField(transactionService, "customersPerCommit", 50);
+
+        lenient().when(activePromotionRegistry.current()).thenReturn(ActivePromotionSnapshot.EMPTY);
+        lenient().when(customerLocks.withLock(anyLong(), any()))
+            .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(customerLocks.withLocks(anyCollection(), any()))
+            .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
     }
 
     @Test
@@ -87,13 +145,12 @@ class TransactionServiceTest {
         inputDTO.setStoreName("Main Street Store");
 
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
-        when(loyaltyPointsRepository.findByCustomerId(1L)).thenReturn(Optional.of(testPoints));
+        when(loyaltyPointsRepository.creditPoints(eq(1L), anyLong(), any(Transaction.class), any(LocalDateTime.class))).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction saved = invocation.getArgument(0);
             saved.setId(1L);
             return saved;
         });
-        when(loyaltyPointsRepository.save(any(LoyaltyPoints.class))).thenReturn(testPoints);
 
         TransactionDTO result = transactionService.recordTransaction(1L, inputDTO);
 
@@ -103,6 +160,7 @@ class TransactionServiceTest {
         assertEquals(Transaction.TransactionStatus.COMPLETED, result.getStatus());
 
         verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(customerLookupCache).invalidate(1L);
     }
 
     @Test
@@ -112,13 +170,12 @@ class TransactionServiceTest {
         inputDTO.setAmount(new BigDecimal("100.00"));
 
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
-        when(loyaltyPointsRepository.findByCustomerId(1L)).thenReturn(Optional.of(testPoints));
+        when(loyaltyPointsRepository.creditPoints(eq(1L), anyLong(), any(Transaction.class), any(LocalDateTime.class))).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction saved = invocation.getArgument(0);
             saved.setId(1L);
             return saved;
         });
-        when(loyaltyPointsRepository.save(any(LoyaltyPoints.class))).thenReturn(testPoints);
 
         TransactionDTO result = transactionService.recordTransaction(1L, inputDTO);
 
@@ -126,6 +183,55 @@ class TransactionServiceTest {
         assertEquals(1000L, result.getPointsEarned()); // Gold tier: 100 * 10 = 1000
     }
 
+    @Test
+    void recordTransaction_SkipsPromotionWithNoUsesLeft() {
+        Promotion promotion = new Promotion();
+        promotion.setId(7L);
+        promotion.setPromotionCode("PROMO7");
+        promotion.setStatus(Promotion.PromotionStatus.ACTIVE);
+        promotion.setBonusPointsFixed(500);
+        promotion.setUsageLimit(10);
+        promotion.setUsageCount(9);
+        when(activePromotionRegistry.current())
+            .thenReturn(new ActivePromotionSnapshot(1L, List.of(promotion), LocalDateTime.now()));
+        when(promotionUsageCounter.tryClaim(promotion)).thenReturn(false);
+
+        TransactionDTO inputDTO = new TransactionDTO();
+        inputDTO.setAmount(new BigDecimal("100.00"));
+
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
+        when(loyaltyPointsRepository.creditPoints(eq(1L), anyLong(), any(Transaction.class), any(LocalDateTime.class))).thenReturn(1);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionDTO result = transactionService.recordTransaction(1L, inputDTO);
+
+        assertEquals(1000L, result.getPointsEarned());
+        assertEquals(9, promotion.getUsageCount());
+    }
+
+    @Test
+    void recordTransaction_AppliesClaimedPromotion() {
+        Promotion promotion = new Promotion();
+        promotion.setId(8L);
+        promotion.setPromotionCode("PROMO8");
+        promotion.setStatus(Promotion.PromotionStatus.ACTIVE);
+        promotion.setBonusPointsFixed(500);
+        when(activePromotionRegistry.current())
+            .thenReturn(new ActivePromotionSnapshot(1L, List.of(promotion), LocalDateTime.now()));
+        when(promotionUsageCounter.tryClaim(promotion)).thenReturn(true);
+
+        TransactionDTO inputDTO = new TransactionDTO();
+        inputDTO.setAmount(new BigDecimal("100.00"));
+
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
+        when(loyaltyPointsRepository.creditPoints(eq(1L), anyLong(), any(Transaction.class), any(LocalDateTime.class))).thenReturn(1);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionDTO result = transactionService.recordTransaction(1L, inputDTO);
+
+        assertEquals(1500L, result.getPointsEarned());
+    }
+
     @Test
     void recordTransaction_CustomerNotFound() {
         TransactionDTO inputDTO = new TransactionDTO();
@@ -180,5 +286,71 @@ class TransactionServiceTest {
         long points = transactionService.calculatePoints(new BigDecimal("100.00"), Customer.CustomerTier.PLATINUM);
         assertEquals(1000L, points);
     }
-}
 
+    @Test
+    void recordTransactionsBatch_ReportsPerRowOutcomes() {
+        TransactionDTO valid = batchRow("TXN-B1", 1L, "100.00");
+        TransactionDTO unknownCustomer = batchRow("TXN-B2", 999L, "50.00");
+        TransactionDTO duplicateCode = batchRow("TXN-B1", 1L, "20.00");
+        TransactionDTO invalidAmount = batchRow("TXN-B3", 1L, "0.00");
+
+        when(customerRepository.findByIdIn(anyList())).thenReturn(List.of(testCustomer));
+        when(transactionRepository.findExistingTransactionCodes(anyCollection())).thenReturn(List.of());
+        when(loyaltyPointsRepository.creditPoints(eq(1L), eq(1000L), any(Transaction.class), any(LocalDateTime.class))).thenReturn(1);
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionBatchResultDTO result = transactionService.recordTransactionsBatch(
+            Arrays.asList(valid, unknownCustomer, duplicateCode, invalidAmount));
+
+        assertEquals(4, result.getTotalRows());
+        assertEquals(1, result.getSucceeded());
+        assertEquals(3, result.getFailed());
+        assertEquals(1000L, result.getTotalPointsEarned());
+        assertTrue(result.getResults().get(0).isSuccess());
+        assertEquals("CUSTOMER_NOT_FOUND", result.getResults().get(1).getErrorCode());
+        assertEquals("DUPLICATE_TRANSACTION_CODE", result.getResults().get(2).getErrorCode());
+        assertEquals("INVALID_AMOUNT", result.getResults().get(3).getErrorCode());
+
+        verify(transactionRepository, times(1)).saveAll(anyList());
+        verify(loyaltyPointsRepository, times(1)).creditPoints(eq(1L), eq(1000L), any(Transaction.class), any(LocalDateTime.class));
+        verify(loyaltyPointsRepository, never()).saveAll(anyList());
+        verify(pointsLedgerService, times(1)).recordAll(anyList());
+        verify(customerLocks).withLocks(eq(List.of(1L)), any());
+        verify(customerLookupCache).invalidateAll(Set.of(1L));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void recordTransactionsBatch_ReportsRowsOfBusyCustomersWithoutFailingTheRest() {
+        Customer other = new Customer();
+        other.setId(2L);
+        other.setTier(Customer.CustomerTier.BRONZE);
+        ReflectionTestUtils.setField(transactionService, "customersPerCommit", 1);
+
+        when(customerRepository.findByIdIn(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return Stream.of(testCustomer, other).filter(customer -> ids.contains(customer.getId())).toList();
+        });
+        when(transactionRepository.findExistingTransactionCodes(anyCollection())).thenReturn(List.of());
+        when(loyaltyPointsRepository.creditPoints(eq(2L), anyLong(), any(Transaction.class), any(LocalDateTime.class))).thenReturn(1);
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        doThrow(new ServiceBusyException("Customer account is busy, retry shortly", 1))
+            .when(customerLocks).withLocks(eq(List.of(1L)), any());
+
+        TransactionBatchResultDTO result = transactionService.recordTransactionsBatch(
+            List.of(batchRow("TXN-C1", 1L, "10.00"), batchRow("TXN-C2", 2L, "10.00")));
+
+        assertEquals(1, result.getSucceeded());
+        assertEquals(TransactionService.CUSTOMER_BUSY, result.getResults().get(0).getErrorCode());
+        assertTrue(result.getResults().get(1).isSuccess());
+        verify(customerLookupCache).invalidateAll(Set.of(2L));
+    }
+
+    private TransactionDTO batchRow(String code, Long customerId, String amount) {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setTransactionCode(code);
+        dto.setCustomerId(customerId);
+        dto.setAmount(new BigDecimal(amount));
+        return dto;
+    }
+}
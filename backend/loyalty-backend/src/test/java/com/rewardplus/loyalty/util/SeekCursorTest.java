@@ -0,0 +1,59 @@
+package com.rewardplus.loyalty.util;
+
+import com.rewardplus.loyalty.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeekCursorTest {
+
+    private final LocalDateTime value = LocalDateTime.of(2024, 5, 6, 7, 8, 9, 123_456_000);
+
+    @Test
+    void decode_RoundTripsAnEncodedCursor() {
+        SeekCursor cursor = new SeekCursor("createdAt", Sort.Direction.DESC, value, 42L);
+
+        assertEquals(cursor, SeekCursor.decode(cursor.encode(), "createdAt", Sort.Direction.DESC));
+    }
+
+    @Test
+    void decode_BlankTokenStartsBeforeEveryRow() {
+        SeekCursor descending = SeekCursor.decode("", "createdAt", Sort.Direction.DESC);
+        SeekCursor ascending = SeekCursor.decode(null, "createdAt", Sort.Direction.ASC);
+
+        assertTrue(descending.value().isAfter(value));
+        assertEquals(Long.MAX_VALUE, descending.id());
+        assertTrue(ascending.value().isBefore(value));
+        assertEquals(Long.MIN_VALUE, ascending.id());
+    }
+
+    @Test
+    void decode_RejectsCursorFromAnotherSort() {
+        String token = new SeekCursor("createdAt", Sort.Direction.DESC, value, 42L).encode();
+
+        assertThrows(BadRequestException.class, () -> SeekCursor.decode(token, "createdAt", Sort.Direction.ASC));
+        assertThrows(BadRequestException.class, () -> SeekCursor.decode(token, "transactionDate", Sort.Direction.DESC));
+    }
+
+    @Test
+    void decode_RejectsMalformedTokens() {
+        String tampered = Base64.getUrlEncoder().encodeToString("1|createdAt|DESC|not-a-date|42"
+            .getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(BadRequestException.class, () -> SeekCursor.decode("%%%", "createdAt", Sort.Direction.DESC));
+        assertThrows(BadRequestException.class, () -> SeekCursor.decode(tampered, "createdAt", Sort.Direction.DESC));
+        assertThrows(BadRequestException.class, () -> SeekCursor.decode("MQ", "createdAt", Sort.Direction.DESC));
+    }
+
+    @Test
+    void checkPageSize_RejectsSizesOutsideTheLimit() {
+        assertEquals(20, SeekCursor.checkPageSize(20));
+        assertThrows(BadRequestException.class, () -> SeekCursor.checkPageSize(0));
+        assertThrows(BadRequestException.class, () -> SeekCursor.checkPageSize(SeekCursor.MAX_PAGE_SIZE + 1));
+    }
+}
@@ -0,0 +1,107 @@
+package com.rewardplus.loyalty.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void nextId_UniqueAndIncreasingPerThreadUnderContention() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        Set<Long> seen = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    boolean increasing = true;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = generator.nextId();
+                        increasing &= id > previous;
+                        previous = id;
+                        seen.add(id);
+                    }
+                    return increasing;
+                }));
+            }
+            long startedAt = System.nanoTime();
+            start.countDown();
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(), "ids must increase within a thread");
+            }
+            long elapsedMillis = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+            log.info("Generated {} ids on {} threads in {} ms", THREADS * IDS_PER_THREAD, THREADS, elapsedMillis);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(THREADS * IDS_PER_THREAD, seen.size());
+    }
+
+    @Test
+    void nextId_DistinctNodesNeverCollide() {
+        SnowflakeIdGenerator first = new SnowflakeIdGenerator(1);
+        SnowflakeIdGenerator second = new SnowflakeIdGenerator(2);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(seen.add(first.nextId()));
+            assertTrue(seen.add(second.nextId()));
+        }
+    }
+
+    @Test
+    void nextId_EncodesTimestampAndNode() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(513);
+        long before = System.currentTimeMillis();
+        long id = generator.nextId();
+        long after = System.currentTimeMillis();
+
+        assertEquals(513, SnowflakeIdGenerator.nodeOf(id));
+        assertTrue(SnowflakeIdGenerator.timestampOf(id) >= before);
+        assertTrue(SnowflakeIdGenerator.timestampOf(id) <= after + 1);
+    }
+
+    @Test
+    void encode_IsFixedWidthAndPreservesOrder() {
+        String small = SnowflakeIdGenerator.encode("TXN", 31L);
+        String large = SnowflakeIdGenerator.encode("TXN", Long.MAX_VALUE);
+
+        assertEquals("TXN000000000000Z", small);
+        assertEquals(3 + SnowflakeIdGenerator.ENCODED_LENGTH, large.length());
+        assertTrue(small.compareTo(large) < 0);
+
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        String previous = "";
+        for (int i = 0; i < 10_000; i++) {
+            String code = generator.nextCode("RDM");
+            assertTrue(code.compareTo(previous) > 0);
+            previous = code;
+        }
+    }
+
+    @Test
+    void constructor_RejectsOutOfRangeNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+    }
+}
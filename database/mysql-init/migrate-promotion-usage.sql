@@ -0,0 +1,39 @@
+-- Migration for existing databases: promotion usage quota reserved by application nodes
+-- (PromotionUsageCounter). Adds promotions.usage_reserved, treating uses already counted as
+-- reserved, and the per-node lease table. Safe to run more than once; does nothing to a
+-- database that already has the column.
+--
+-- mysql -u root -p loyalty_db < migrate-promotion-usage.sql
+
+SET @add_usage_reserved = (
+    SELECT COUNT(*) = 1 FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'promotions' AND column_name = 'usage_count'
+) AND NOT EXISTS (
+    SELECT 1 FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'promotions' AND column_name = 'usage_reserved'
+);
+
+SET @statement = IF(@add_usage_reserved,
+    'ALTER TABLE promotions ADD COLUMN usage_reserved INT NOT NULL DEFAULT 0 AFTER usage_count',
+    'DO 0');
+PREPARE migration FROM @statement;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+
+SET @statement = IF(@add_usage_reserved,
+    'UPDATE promotions SET usage_reserved = LEAST(usage_count, usage_limit) WHERE usage_limit > 0',
+    'DO 0');
+PREPARE migration FROM @statement;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+
+CREATE TABLE IF NOT EXISTS promotion_usage_leases (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    promotion_id BIGINT NOT NULL,
+    node_id INT NOT NULL,
+    unused INT NOT NULL DEFAULT 0,
+    renewed_at DATETIME NOT NULL,
+
+    UNIQUE KEY uk_usage_lease (promotion_id, node_id),
+    INDEX idx_usage_lease_node (node_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -141,6 +141,7 @@ CREATE TABLE IF NOT EXISTS redemption_logs (
     FOREIGN KEY (customer_id) REFERENCES customers(id) ON DELETE CASCADE,
     FOREIGN KEY (reward_id) REFERENCES rewards(id) ON DELETE CASCADE,
     INDEX idx_redemption_customer (customer_id),
+    INDEX idx_redemption_customer_date (customer_id, redemption_date, id),
     INDEX idx_redemption_reward (reward_id),
     INDEX idx_redemption_date (redemption_date),
     INDEX idx_redemption_code (redemption_code),
@@ -148,4 +149,149 @@ CREATE TABLE IF NOT EXISTS redemption_logs (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 >>>>>>> Stashed changes
 
+-- Id generator table (pooled Hibernate table generators; one row per generator)
+CREATE TABLE IF NOT EXISTS id_generators (
+    gen_name VARCHAR(64) NOT NULL PRIMARY KEY,
+    next_val BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Points ledger: append-only, one row per balance change (signed points)
+CREATE TABLE IF NOT EXISTS points_ledger (
+    id BIGINT NOT NULL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    entry_type VARCHAR(20) NOT NULL,
+    points BIGINT NOT NULL,
+    transaction_id BIGINT,
+    redemption_id BIGINT,
+    reason VARCHAR(255),
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX idx_ledger_customer_created (customer_id, created_at),
+    INDEX idx_ledger_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- End-of-day points balance per customer, written for days with ledger activity
+CREATE TABLE IF NOT EXISTS points_balance_snapshots (
+    id BIGINT NOT NULL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    snapshot_date DATE NOT NULL,
+    balance BIGINT NOT NULL DEFAULT 0,
+    lifetime_earned BIGINT NOT NULL DEFAULT 0,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    UNIQUE KEY uk_snapshot_customer_date (customer_id, snapshot_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Running transaction totals per type and status, striped to spread concurrent updates
+CREATE TABLE IF NOT EXISTS transaction_aggregates (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    stripe INT NOT NULL,
+    transaction_type VARCHAR(30) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    transaction_count BIGINT NOT NULL DEFAULT 0,
+    total_net_amount DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    UNIQUE KEY uk_txn_aggregate_key (stripe, transaction_type, status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Hourly and daily activity buckets per store, category (transaction type or channel) and tier
+CREATE TABLE IF NOT EXISTS activity_rollups (
+    id BIGINT NOT NULL PRIMARY KEY,
+    granularity VARCHAR(10) NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    activity VARCHAR(20) NOT NULL,
+    store_code VARCHAR(50) NOT NULL DEFAULT '',
+    category VARCHAR(30) NOT NULL DEFAULT '',
+    tier VARCHAR(20) NOT NULL DEFAULT '',
+    event_count BIGINT NOT NULL DEFAULT 0,
+    amount DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    points BIGINT NOT NULL DEFAULT 0,
+
+    UNIQUE KEY uk_rollup_bucket (granularity, bucket_start, activity, store_code, category, tier),
+    INDEX idx_rollup_range (granularity, activity, bucket_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- HyperLogLog sketches of the distinct customers active per day, by store and by tier
+CREATE TABLE IF NOT EXISTS customer_activity_sketches (
+    id BIGINT NOT NULL PRIMARY KEY,
+    bucket_date DATE NOT NULL,
+    dimension VARCHAR(10) NOT NULL,
+    dimension_value VARCHAR(50) NOT NULL DEFAULT '',
+    registers VARBINARY(4097) NOT NULL,
+
+    UNIQUE KEY uk_activity_sketch (bucket_date, dimension, dimension_value)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- t-digests of completed purchase amounts per day, store and product category
+CREATE TABLE IF NOT EXISTS transaction_amount_digests (
+    id BIGINT NOT NULL PRIMARY KEY,
+    bucket_date DATE NOT NULL,
+    store_code VARCHAR(50) NOT NULL DEFAULT '',
+    product_category VARCHAR(50) NOT NULL DEFAULT '',
+    digest VARBINARY(8192) NOT NULL,
+
+    UNIQUE KEY uk_amount_digest (bucket_date, store_code, product_category)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Promotion usage quota each application node holds and has not consumed yet; existing
+-- databases also need promotions.usage_reserved, added by migrate-promotion-usage.sql
+CREATE TABLE IF NOT EXISTS promotion_usage_leases (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    promotion_id BIGINT NOT NULL,
+    node_id INT NOT NULL,
+    unused INT NOT NULL DEFAULT 0,
+    renewed_at DATETIME NOT NULL,
+
+    UNIQUE KEY uk_usage_lease (promotion_id, node_id),
+    INDEX idx_usage_lease_node (node_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- One-off backfill for existing databases: opening ledger entries for balances that predate
+-- the ledger, then move the ledger id generator past them.
+-- INSERT INTO points_ledger (id, customer_id, entry_type, points, reason, created_at)
+-- SELECT lp.id, lp.customer_id, 'ADJUST', lp.current_balance, 'Opening balance', lp.created_at
+-- FROM loyalty_points lp
+-- WHERE lp.current_balance <> 0
+--   AND NOT EXISTS (SELECT 1 FROM points_ledger pl WHERE pl.customer_id = lp.customer_id);
+--
+-- INSERT INTO id_generators (gen_name, next_val)
+-- SELECT 'points_ledger', COALESCE(MAX(id), 0) + 1000 FROM points_ledger
+-- ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+-- One-off migration for existing databases: transactions, loyalty_points and redemption_logs
+-- take ids from pooled generators instead of AUTO_INCREMENT. Start the generators past the
+-- existing rows before deploying, or the first inserts reuse ids that are already taken.
+-- INSERT INTO id_generators (gen_name, next_val)
+-- SELECT 'transactions', COALESCE(MAX(id), 0) + 1000 FROM transactions
+-- ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+--
+-- INSERT INTO id_generators (gen_name, next_val)
+-- SELECT 'loyalty_points', COALESCE(MAX(id), 0) + 1000 FROM loyalty_points
+-- ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+--
+-- INSERT INTO id_generators (gen_name, next_val)
+-- SELECT 'redemption_logs', COALESCE(MAX(id), 0) + 1000 FROM redemption_logs
+-- ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+-- One-off migration for existing databases: lets the columnar transaction snapshot
+-- (TransactionColumnarSnapshot) pick up new and changed rows without a table scan.
+-- CREATE INDEX idx_transaction_updated ON transactions (updated_at, id);
+
+-- One-off migration for existing databases: lets the customer search index
+-- (CustomerSearchIndex) pick up new and changed customers without a table scan.
+-- CREATE INDEX idx_customer_updated ON customers (updated_at, id);
+
+-- One-off migration for existing databases: (sort key, id) indexes behind the keyset
+-- (cursor) pagination of customers and of a customer's transactions and redemptions.
+-- CREATE INDEX idx_customer_created ON customers (created_at, id);
+-- CREATE INDEX idx_transaction_customer_date ON transactions (customer_id, transaction_date, id);
+-- CREATE INDEX idx_redemption_customer_date ON redemption_logs (customer_id, redemption_date, id);
+
+-- One-off migration for existing databases: customers take ids from the pooled "customers"
+-- generator so bulk enrollment can batch its inserts. Start it past the existing rows.
+-- INSERT INTO id_generators (gen_name, next_val)
+-- SELECT 'customers', COALESCE(MAX(id), 0) + 1000 FROM customers
+-- ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
 -- Add more tables and relationships as necessary for the loyalty program system.
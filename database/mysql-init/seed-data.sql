@@ -83,3 +83,21 @@ INSERT INTO promotion_customers (promotion_id, customer_id) VALUES
 (4, 4),
 (4, 8);
 
+
+-- Move the pooled id generators past the rows inserted above. Rerun after any manual bulk
+-- load into these tables; Hibernate hands out the block below next_val.
+INSERT INTO id_generators (gen_name, next_val)
+SELECT 'customers', COALESCE(MAX(id), 0) + 1000 FROM customers
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_generators (gen_name, next_val)
+SELECT 'transactions', COALESCE(MAX(id), 0) + 1000 FROM transactions
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_generators (gen_name, next_val)
+SELECT 'loyalty_points', COALESCE(MAX(id), 0) + 1000 FROM loyalty_points
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_generators (gen_name, next_val)
+SELECT 'redemption_logs', COALESCE(MAX(id), 0) + 1000 FROM redemption_logs
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));